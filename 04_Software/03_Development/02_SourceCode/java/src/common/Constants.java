@@ -153,6 +153,30 @@ public class Constants {
      */
     public static final int MIN_BORDER = 10;
 
+    /**
+     * The connected components of the segmentation output having less pixels
+     * are considered noise and are removed.
+     */
+    public static final int MIN_SEGMENTED_COMPONENT_SIZE = 5;
+
+    /**
+     * The value of the segmentation engine preference which lets the
+     * application choose the fastest available engine.
+     */
+    public static final String SEGMENTATION_ENGINE_AUTO = "auto";
+
+    /**
+     * The folder, inside the ground truth folder, where the matting results
+     * are cached.
+     */
+    public static final String MATTING_CACHE_FOLDER = "matting_cache";
+
+    /**
+     * The maximum distance, in pixels, between the border of a scribble object
+     * and the polygon it is converted to.
+     */
+    public static final double POLYGON_SIMPLIFY_TOLERANCE = 1.0;
+
     /**
      * Allow the max percentage of the screen to be used for resizing the
      * BBoxes/Crops
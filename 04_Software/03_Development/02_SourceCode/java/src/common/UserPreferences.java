@@ -162,6 +162,30 @@ public class UserPreferences implements Serializable {
      */
     private boolean checkObjectAttributes;
 
+    /**
+     * The name of the segmentation engine pinned by the user, or "auto" for
+     * choosing the fastest available engine.
+     */
+    private String segmentationEngine;
+
+    /**
+     * Indicator for knowing if the matting results shall be cached on the
+     * disk, next to the ground truth.
+     */
+    private boolean mattingDiskCache;
+
+    /**
+     * Indicator for knowing if the crops shall be segmented from the
+     * superpixels of the frame.
+     */
+    private boolean superpixelSegmentation;
+
+    /**
+     * Indicator for knowing if the scribble objects shall be propagated to
+     * the next frame, when it has no objects yet.
+     */
+    private boolean scribblePropagation;
+
     /**
      * Instantiate a new user preferences class, which is meant to read the user
      * configuration file and set all its preferences in the application when it
@@ -267,6 +291,22 @@ public class UserPreferences implements Serializable {
                         checkObjectAttributes = Boolean.parseBoolean(wordsList[wordsList.length - 1]);
                         break;
 
+                    case "segmentationEngine":
+                        segmentationEngine = wordsList[wordsList.length - 1];
+                        break;
+
+                    case "mattingDiskCache":
+                        mattingDiskCache = Boolean.parseBoolean(wordsList[wordsList.length - 1]);
+                        break;
+
+                    case "superpixelSegmentation":
+                        superpixelSegmentation = Boolean.parseBoolean(wordsList[wordsList.length - 1]);
+                        break;
+
+                    case "scribblePropagation":
+                        scribblePropagation = Boolean.parseBoolean(wordsList[wordsList.length - 1]);
+                        break;
+
                     default:
                         log.info("The userPreferences.txt file contains an unknown key: {}", wordsList[0]);
                         break;
@@ -682,6 +722,92 @@ public class UserPreferences implements Serializable {
         this.checkObjectAttributes = checkObjectAttributes;
     }
 
+    /**
+     * Get the name of the segmentation engine pinned by the user.
+     *
+     * @return the name of the engine, or Constants.SEGMENTATION_ENGINE_AUTO
+     * if the fastest available engine shall be used
+     */
+    public String getSegmentationEngine() {
+        return segmentationEngine;
+    }
+
+    /**
+     * Pin the segmentation engine to be used for the matting.
+     *
+     * @param segmentationEngine the name of the engine, or
+     * Constants.SEGMENTATION_ENGINE_AUTO if the fastest available engine shall
+     * be used
+     */
+    public void setSegmentationEngine(String segmentationEngine) {
+        this.segmentationEngine = segmentationEngine;
+    }
+
+    /**
+     * Shows if the matting results are cached on the disk, next to the ground
+     * truth.
+     *
+     * @return true if the matting results are written on the disk and false
+     * if they are kept only in memory
+     */
+    public boolean isMattingDiskCache() {
+        return mattingDiskCache;
+    }
+
+    /**
+     * Enables/Disables the caching of the matting results on the disk.
+     *
+     * @param mattingDiskCache true if the matting results shall be written on
+     * the disk and false if they shall be kept only in memory
+     */
+    public void setMattingDiskCache(boolean mattingDiskCache) {
+        this.mattingDiskCache = mattingDiskCache;
+    }
+
+    /**
+     * Shows if the crops are segmented from the superpixels of the frame,
+     * refining only the pixels around the object border.
+     *
+     * @return true if the superpixel segmentation is used and false if the
+     * crops are segmented pixel by pixel
+     */
+    public boolean isSuperpixelSegmentation() {
+        return superpixelSegmentation;
+    }
+
+    /**
+     * Enables/Disables the superpixel segmentation of the crops.
+     *
+     * @param superpixelSegmentation true if the crops shall be segmented from
+     * the superpixels of the frame and false if they shall be segmented pixel
+     * by pixel
+     */
+    public void setSuperpixelSegmentation(boolean superpixelSegmentation) {
+        this.superpixelSegmentation = superpixelSegmentation;
+    }
+
+    /**
+     * Shows if the scribble objects are propagated to the next frame, when it
+     * has no objects yet.
+     *
+     * @return true if the scribble objects are moved with the motion of the
+     * frame and added to the next frame
+     */
+    public boolean isScribblePropagation() {
+        return scribblePropagation;
+    }
+
+    /**
+     * Enables/Disables the propagation of the scribble objects to the next
+     * frame.
+     *
+     * @param scribblePropagation true if the scribble objects shall be
+     * propagated to the next frame and false otherwise
+     */
+    public void setScribblePropagation(boolean scribblePropagation) {
+        this.scribblePropagation = scribblePropagation;
+    }
+
     /**
      * Saves into the user preferences file the latest wishes of the user.
      */
@@ -710,6 +836,10 @@ public class UserPreferences implements Serializable {
                 fileContent += "imgTypeJoinedExport=" + imgTypeJoinedExport + "\r\n";
                 fileContent += "checkFrameAnnotations=" + checkFrameAnnotations + "\r\n";
                 fileContent += "checkObjectAttributes=" + checkObjectAttributes + "\r\n";
+                fileContent += "segmentationEngine=" + segmentationEngine + "\r\n";
+                fileContent += "mattingDiskCache=" + mattingDiskCache + "\r\n";
+                fileContent += "superpixelSegmentation=" + superpixelSegmentation + "\r\n";
+                fileContent += "scribblePropagation=" + scribblePropagation + "\r\n";
 
                 bw.write(fileContent, 0, fileContent.length());
                 bw.flush();
@@ -745,5 +875,9 @@ public class UserPreferences implements Serializable {
         imgTypeJoinedExport = Constants.ORIGINAL_IMG + "," + Constants.SEGMENTED_IMG;
         checkFrameAnnotations = true;
         checkObjectAttributes = true;
+        segmentationEngine = Constants.SEGMENTATION_ENGINE_AUTO;
+        mattingDiskCache = false;
+        superpixelSegmentation = false;
+        scribblePropagation = false;
     }
 }
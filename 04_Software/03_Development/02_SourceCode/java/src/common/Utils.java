@@ -29,10 +29,14 @@ import gui.viewer.ExportImagesGUI;
 import gui.viewer.Messages;
 import gui.support.BrushOptions;
 import gui.support.CustomTreeNode;
+import gui.support.ObjectPreferences;
 import library.BoxLRTB;
+import library.MajorityFilter;
+import library.MaskMorphology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -63,6 +67,12 @@ public class Utils {
      */
     private static final Logger LOG = LoggerFactory.getLogger(Utils.class);
 
+    /**
+     * The filter of the object maps, shared by the calls so its buffers are
+     * reused; the filtering is synchronized on it.
+     */
+    private static final MajorityFilter OBJ_MAP_FILTER = new MajorityFilter();
+
     /**
      * Utility classes, which are collections of static members, are not meant
      * to be instantiated. Even abstract utility classes, which can be extended,
@@ -808,107 +818,54 @@ public class Utils {
      * @param objMap - the object map to be filtered
      */
     public static void filterObjectMap(byte[][] objMap) {
-        if (objMap == null) {
-            return;
-        }
+        filterObjectMap(objMap, MajorityFilter.DEFAULT_WINDOW_SIZE, 1);
+    }
 
-        // run N times the filtering algorithm
-        // for (int steps = 0; steps < 10; steps++) {
-        int filterSize = 3;
-        byte[][] inputMap = new byte[objMap.length][objMap[0].length];
+    /**
+     * Filter the object map array with a window of the specified size, the
+     * specified number of times (see {@link MajorityFilter}).
+     *
+     * @param objMap - the object map to be filtered
+     * @param windowSize - the size of the filtering window
+     * @param iterations - how many times the filter is applied
+     */
+    public static void filterObjectMap(byte[][] objMap, int windowSize, int iterations) {
+        OBJ_MAP_FILTER.filter(objMap, windowSize, iterations);
+    }
 
-        for (int line = 0; line < objMap.length; line++) {
-            inputMap[line] = objMap[line].clone();
+    /**
+     * Apply on the object map the post processing steps configured in the
+     * object preferences, in the order: erosion, dilation, opening, closing,
+     * hole filling, removal of the small components.
+     *
+     * @param objMap - the object map to be processed; it is modified in place
+     * @param objPrefs - the preferences of the object
+     */
+    public static void postProcessObjectMap(byte[][] objMap, ObjectPreferences objPrefs) {
+        if ((objMap == null) || (objPrefs == null) || !objPrefs.isPostProcessingEnabled()) {
+            return;
         }
 
-        for (int y = 0; y < inputMap[0].length - 2; y++) {
-            for (int x = 0; x < inputMap.length - 2; x++) {
-                int sum = 0;
-                for (int j = 0; j < filterSize; j++) {
-                    for (int i = 0; i < filterSize; i++) {
-                        sum += inputMap[x + i][y + j];
-                    }
-                }
+        MaskMorphology morphology = new MaskMorphology();
 
-                if (sum < Math.ceil(filterSize * filterSize * 0.5)) {
-                    objMap[x + (int) (filterSize * 0.5f)][y + (int) (filterSize * 0.5f)] = 0;
-                } else {
-                    objMap[x + (int) (filterSize * 0.5f)][y + (int) (filterSize * 0.5f)] = 1;
-                }
-            }
+        if (objPrefs.getErodeRadius() > 0) {
+            morphology.erode(objMap, objPrefs.getErodeRadius());
         }
-
-        // filter the first and last line
-        for (int x = 0; x < inputMap.length - 2; x++) {
-            int sum0 = 0;   // sum for the first line
-            int sumN = 0;   // sum for the last line
-            for (int j = 0; j < filterSize - 1; j++) {
-                for (int i = 0; i < filterSize; i++) {
-                    sum0 += inputMap[x + i][j];
-                    sumN += inputMap[x + i][inputMap[0].length - 1 - j];
-                }
-            }
-            // filter first line
-            if (sum0 < Math.ceil((filterSize - 1) * filterSize * 0.5)) {
-                objMap[x + (int) (filterSize * 0.5f)][0] = 0;
-            } else {
-                objMap[x + (int) (filterSize * 0.5f)][0] = 1;
-            }
-
-            // filter last line
-            if (sumN < Math.ceil((filterSize - 1) * filterSize * 0.5)) {
-                objMap[x + (int) (filterSize * 0.5f)][inputMap[0].length - 1] = 0;
-            } else {
-                objMap[x + (int) (filterSize * 0.5f)][inputMap[0].length - 1] = 1;
-            }
+        if (objPrefs.getDilateRadius() > 0) {
+            morphology.dilate(objMap, objPrefs.getDilateRadius());
         }
-
-        // filter the first and last column
-        for (int y = 0; y < inputMap[0].length - 2; y++) {
-            int sum0 = 0;   // sum for the first column
-            int sumN = 0;   // sum for the last column
-            for (int j = 0; j < filterSize; j++) {
-                for (int i = 0; i < filterSize - 1; i++) {
-                    sum0 += inputMap[i][y + j];
-                    sumN += inputMap[inputMap.length - 1 - i][y + j];
-                }
-            }
-
-            // filter first column
-            if (sum0 < Math.ceil(filterSize * (filterSize - 1) * 0.5)) {
-                objMap[0][y + (int) (filterSize * 0.5f)] = 0;
-            } else {
-                objMap[0][y + (int) (filterSize * 0.5f)] = 1;
-            }
-
-            // filter last column
-            if (sumN < Math.ceil(filterSize * (filterSize - 1) * 0.5)) {
-                objMap[inputMap.length - 1][y + (int) (filterSize * 0.5f)] = 0;
-            } else {
-                objMap[inputMap.length - 1][y + (int) (filterSize * 0.5f)] = 1;
-            }
+        if (objPrefs.getOpenRadius() > 0) {
+            morphology.open(objMap, objPrefs.getOpenRadius());
+        }
+        if (objPrefs.getCloseRadius() > 0) {
+            morphology.close(objMap, objPrefs.getCloseRadius());
+        }
+        if (objPrefs.isFillHoles()) {
+            morphology.fillHoles(objMap);
+        }
+        if (objPrefs.getMinComponentSize() > 1) {
+            morphology.removeSmallComponents(objMap, objPrefs.getMinComponentSize());
         }
-
-        // filter the corners
-        // left - top
-        int sum = objMap[0][0] + objMap[0][1] + objMap[1][0] + objMap[1][1];
-        objMap[0][0] = (byte) ((sum < 3) ? 0 : 1);
-
-        // right - top
-        sum = objMap[inputMap.length - 1][0] + objMap[inputMap.length - 1][1] + objMap[inputMap.length - 2][0] + objMap[inputMap.length - 2][1];
-        objMap[inputMap.length - 1][0] = (byte) ((sum < 3) ? 0 : 1);
-
-        // left - bottom
-        sum = objMap[0][inputMap[0].length - 1] + objMap[0][inputMap[0].length - 2] + objMap[1][inputMap[0].length - 1] + objMap[1][inputMap[0].length - 2];
-        objMap[0][inputMap[0].length - 1] = (byte) ((sum < 3) ? 0 : 1);
-
-        // right - bottom
-        sum = objMap[inputMap.length - 1][inputMap[0].length - 1]
-                + objMap[inputMap.length - 2][inputMap[0].length - 1]
-                + objMap[inputMap.length - 1][inputMap[0].length - 2]
-                + objMap[inputMap.length - 2][inputMap[0].length - 2];
-        objMap[inputMap.length - 1][inputMap[0].length - 1] = (byte) ((sum < 3) ? 0 : 1);
-
     }
 
     /**
@@ -1286,6 +1243,57 @@ public class Utils {
         System.arraycopy(flipped, 0, bgr, 0, image.getWidth() * image.getHeight() * multiplier);
     }
 
+    /**
+     * Convert the image to the format used in the application
+     * (TYPE_3BYTE_BGR).
+     *
+     * @param image the image to be converted
+     * @return the input image if it already has the standard format, else a
+     * converted copy of it
+     */
+    public static BufferedImage convertToStandardFormat(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return image;
+        }
+
+        // draw the image into an empty one, having the standard format
+        BufferedImage convertedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        convertedImage.createGraphics().drawImage(image, 0, 0, image.getWidth(), image.getHeight(), null);
+
+        return convertedImage;
+    }
+
+    /**
+     * Read a frame from the disk, in the format and orientation of the frames
+     * displayed in the GUI: the image is converted to TYPE_3BYTE_BGR, flipped
+     * vertically and mirrored according to the user preferences.
+     *
+     * @param framePath the path of the image
+     * @param flipVertically true if the image has to be flipped vertically
+     * @param mirror true if the image has to be mirrored
+     * @return the image of the frame
+     * @throws IOException if the image cannot be read or its format is not
+     * supported
+     */
+    public static BufferedImage readFrame(String framePath, boolean flipVertically, boolean mirror) throws IOException {
+        BufferedImage image = ImageIO.read(new File(framePath));
+        if (image == null) {
+            throw new IOException("Unsupported image " + framePath);
+        }
+
+        image = convertToStandardFormat(image);
+
+        if (flipVertically) {
+            flipVerticallyImage(image);
+        }
+
+        if (mirror) {
+            mirrorImage(image);
+        }
+
+        return image;
+    }
+
     /**
      * Export the original image and the result image, concatenated, for demo
      * purpose.
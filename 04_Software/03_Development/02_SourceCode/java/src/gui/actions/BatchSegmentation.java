@@ -0,0 +1,423 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.actions;
+
+import common.Constants;
+import common.UserPreferences;
+import common.Utils;
+import gui.support.CropObject;
+import gui.support.FrameInfo;
+import gui.support.JSONDataManager;
+import gui.support.ObjectPolygon;
+import gui.support.ObjectRegistry;
+import gui.support.ObjectScribble;
+import gui.support.Objects;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import library.PolygonRasterizer;
+import observers.ObservedActions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paintpanels.ResultPanel;
+import segmentation.MattingThreading;
+import segmentation.SegmentationEngines;
+
+/**
+ * Headless runner which segments again all the labeled frames of a folder,
+ * without the GUI. For each image having ground truth in the GT folder, the
+ * scribble objects are read, all their crops are segmented with the current
+ * segmentation engine and the object maps, crop maps and frame map are
+ * written back. The frames are processed concurrently, on a work stealing
+ * pool.
+ * <p>
+ * The engine is the one pinned in the user preferences, unless another one
+ * is given on the command line. The frames are flipped and mirrored as set in
+ * the user preferences, to match the orientation used for labeling.
+ * <p>
+ * Usage: BatchSegmentation &lt;images folder&gt; [number of threads]
+ * [--engine &lt;engine name | auto&gt;]
+ *
+ * @author Olimpia Popica
+ */
+public class BatchSegmentation {
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(BatchSegmentation.class);
+
+    /**
+     * The folder containing the images; the ground truth is in its GT folder.
+     */
+    private final String imagesFolder;
+
+    /**
+     * The number of frames processed concurrently.
+     */
+    private final int noThreads;
+
+    /**
+     * True if the frames are flipped vertically, as in the GUI.
+     */
+    private final boolean flipVertically;
+
+    /**
+     * True if the frames are mirrored, as in the GUI.
+     */
+    private final boolean mirrorImage;
+
+    /**
+     * Instantiates a new batch segmentation.
+     *
+     * @param imagesFolder   - the folder chosen for labeling in the GUI
+     * @param noThreads      - the number of frames processed concurrently
+     * @param flipVertically - true if the frames shall be flipped vertically,
+     *                       the same way they were when they were labeled
+     * @param mirrorImage    - true if the frames shall be mirrored, the same
+     *                       way they were when they were labeled
+     */
+    public BatchSegmentation(String imagesFolder, int noThreads, boolean flipVertically, boolean mirrorImage) {
+        this.imagesFolder = imagesFolder;
+        this.noThreads = noThreads;
+        this.flipVertically = flipVertically;
+        this.mirrorImage = mirrorImage;
+    }
+
+    /**
+     * The result of the segmentation of one frame.
+     */
+    private static class FrameResult {
+
+        private final int noCrops;
+        private final int noFailedCrops;
+
+        FrameResult(int noCrops, int noFailedCrops) {
+            this.noCrops = noCrops;
+            this.noFailedCrops = noFailedCrops;
+        }
+    }
+
+    /**
+     * Segment all the labeled frames of the folder and report the progress
+     * and the throughput.
+     *
+     * @return - the number of frames which could not be processed
+     */
+    public int run() {
+        List<String> frames = new ArrayList<>();
+        listImages(new File(imagesFolder), frames);
+
+        // keep only the frames which were labeled
+        frames.removeIf(frame -> !new File(getGTFilePath(frame) + "_GT.json").isFile());
+        LOG.info("Segmenting {} labeled frames from {} on {} threads", frames.size(), imagesFolder, noThreads);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newWorkStealingPool(noThreads);
+        AtomicInteger noDone = new AtomicInteger();
+        List<Future<FrameResult>> results = new ArrayList<>();
+
+        for (String frame : frames) {
+            results.add(pool.submit(() -> {
+                long frameStart = System.nanoTime();
+                FrameResult result = segmentFrame(frame);
+                LOG.info("[{}/{}] {}: {} crops in {} ms", noDone.incrementAndGet(), frames.size(), new File(frame).getName(),
+                        result.noCrops, (System.nanoTime() - frameStart) / 1_000_000L);
+                return result;
+            }));
+        }
+
+        int noCrops = 0;
+        int noFailedCrops = 0;
+        int noFailedFrames = 0;
+
+        for (int index = 0; index < results.size(); index++) {
+            try {
+                FrameResult result = results.get(index).get();
+                noCrops += result.noCrops;
+                noFailedCrops += result.noFailedCrops;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOG.error("The batch segmentation was interrupted");
+                noFailedFrames += results.size() - index;
+                break;
+            } catch (ExecutionException ex) {
+                LOG.error("The segmentation of {} failed", frames.get(index));
+                LOG.debug("The segmentation of the frame failed {}", ex);
+                noFailedFrames++;
+            }
+        }
+
+        pool.shutdownNow();
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        LOG.info("Segmented {} frames ({} failed) and {} crops ({} failed) in {} s: {} frames/s, {} crops/s",
+                frames.size() - noFailedFrames, noFailedFrames, noCrops, noFailedCrops, String.format("%.1f", seconds),
+                String.format("%.2f", (frames.size() - noFailedFrames) / seconds), String.format("%.2f", noCrops / seconds));
+
+        return noFailedFrames;
+    }
+
+    /**
+     * Segment all the crops of the scribble objects of the frame and write
+     * the ground truth back, together with the object maps and frame map.
+     *
+     * @param framePath - the path of the image
+     * @return - the number of segmented crops and of crops which failed
+     * @throws IOException if the image cannot be read
+     */
+    private FrameResult segmentFrame(String framePath) throws IOException {
+        BufferedImage frame = Utils.readFrame(framePath, flipVertically, mirrorImage);
+        String gtFilePath = getGTFilePath(framePath);
+
+        // read the ground truth of the frame
+        JSONDataManager jsonDataManag = new JSONDataManager();
+        FrameInfo frameInfo = new FrameInfo();
+        ObjectRegistry objectList = new ObjectRegistry();
+        jsonDataManag.readFile(gtFilePath, frameInfo, objectList);
+
+        // the ground truth is not written again when there is nothing to segment
+        if (objectList.stream().noneMatch(obj -> obj instanceof ObjectScribble)) {
+            return new FrameResult(0, 0);
+        }
+
+        int noCrops = 0;
+        int noFailedCrops = 0;
+        byte[][] frameMap = new byte[frame.getWidth()][frame.getHeight()];
+
+        for (Objects obj : objectList) {
+            if (!(obj instanceof ObjectScribble)) {
+                continue;
+            }
+
+            for (CropObject crop : ((ObjectScribble) obj).getCropList()) {
+                if (segmentCrop(frame, obj, crop)) {
+                    noCrops++;
+                } else {
+                    noFailedCrops++;
+                }
+
+                // merge the crop in the frame map, as the GUI does
+                if (crop.getObjectMap() != null) {
+                    mergeCrop(frameMap, crop.getObjectMap(), crop.getPositionOrig(), obj.getObjectId());
+                }
+            }
+
+            obj.computeOuterBBoxCurObj();
+        }
+
+        // the polygons are drawn over the scribble objects
+        for (Objects obj : objectList) {
+            if ((obj instanceof ObjectPolygon) && (((ObjectPolygon) obj).getPolygon() != null)) {
+                mergePolygon(frameMap, ((ObjectPolygon) obj).getPolygon(), obj.getObjectId());
+            }
+        }
+
+        // write the ground truth back
+        frameInfo.setSaveFrameObjMap(true);
+        jsonDataManag.initWriteFile(gtFilePath);
+        for (Objects obj : objectList) {
+            jsonDataManag.addObject(obj);
+        }
+        jsonDataManag.addFrame(frameInfo, frameMap);
+        jsonDataManag.writeFile();
+
+        return new FrameResult(noCrops, noFailedCrops);
+    }
+
+    /**
+     * Run the segmentation for the crop and save its object map.
+     *
+     * @param frame - the image of the frame
+     * @param obj   - the object owning the crop
+     * @param crop  - the crop to be segmented
+     * @return - true if the crop was segmented
+     */
+    private static boolean segmentCrop(BufferedImage frame, Objects obj, CropObject crop) {
+        if ((crop.getPositionOrig() == null) || (crop.getScribbleList() == null)) {
+            return false;
+        }
+
+        try {
+            BufferedImage cropImg = Utils.getSelectedImg(frame, crop.getPositionOrig());
+            MattingThreading matt = new MattingThreading(cropImg, crop.getScribbleList(), ObservedActions.Action.DO_NOTHING);
+
+            byte[][] objMap = matt.runMattingAlgo();
+            Utils.postProcessObjectMap(objMap, obj.getUserPreference());
+            crop.setObjectMap(objMap, crop.computeInputSignature());
+            return objMap != null;
+        } catch (RuntimeException ex) {
+            LOG.error("The matting of a crop of object {} failed", obj.getObjectId());
+            LOG.debug("The matting of a crop failed {}", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Merge the object map of a crop in the frame map: the object pixels get
+     * the id of the object and the background pixels of the crop which had it
+     * are cleared.
+     */
+    private static void mergeCrop(byte[][] frameMap, byte[][] objMap, Rectangle pos, long objId) {
+        byte mapId = ResultPanel.getByteObjId(objId);
+
+        for (int x = 0; x < pos.width; x++) {
+            for (int y = 0; y < pos.height; y++) {
+                if (objMap[x][y] > 0) {
+                    frameMap[x + pos.x][y + pos.y] = mapId;
+                } else if (frameMap[x + pos.x][y + pos.y] == mapId) {
+                    frameMap[x + pos.x][y + pos.y] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draw the polygon in the frame map, with the id of the object.
+     */
+    private static void mergePolygon(byte[][] frameMap, java.awt.Polygon polygon, long objId) {
+        byte mapId = ResultPanel.getByteObjId(objId);
+
+        PolygonRasterizer.rasterize(polygon, PolygonRasterizer.FillRule.EVEN_ODD, frameMap.length, frameMap[0].length, (y, xStart, xEnd) -> {
+            for (int x = xStart; x < xEnd; x++) {
+                frameMap[x][y] = mapId;
+            }
+        });
+    }
+
+    /**
+     * Returns the path of the ground truth of the frame, without the _GT.json
+     * suffix, the same way the GUI names it.
+     */
+    private String getGTFilePath(String framePath) {
+        String fileName = new File(framePath).getName();
+        int position = fileName.lastIndexOf('.');
+        if (position != -1) {
+            fileName = fileName.substring(0, position);
+        }
+
+        return imagesFolder + File.separator + "GT" + File.separator + fileName;
+    }
+
+    /**
+     * Add the images of the folder and its subfolders to the list.
+     */
+    private static void listImages(File folder, List<String> frames) {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                listImages(file, frames);
+            } else if (Utils.checkExtension(file.getName(), Constants.IMG_EXTENSION_LIST)) {
+                frames.add(file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Pin the segmentation engine used by the matting; the benchmark of the
+     * engines is started if the fastest one shall be chosen.
+     *
+     * @param engineName - the name of the engine or
+     *                   Constants.SEGMENTATION_ENGINE_AUTO
+     * @return - false if no engine has the given name
+     */
+    private static boolean pinEngine(String engineName) {
+        boolean auto = Constants.SEGMENTATION_ENGINE_AUTO.equalsIgnoreCase(engineName);
+        if (!auto && SegmentationEngines.getEngineNames().stream().noneMatch(engineName::equalsIgnoreCase)) {
+            LOG.error("Unknown segmentation engine {}; the available engines are {}", engineName, SegmentationEngines.getEngineNames());
+            return false;
+        }
+
+        SegmentationEngines.setPinnedEngine(engineName);
+        if (auto) {
+            SegmentationEngines.startBenchmark();
+        }
+
+        LOG.info("Segmentation engine: {} (currently {})", engineName, SegmentationEngines.getEngine().getName());
+        return true;
+    }
+
+    /**
+     * Run the batch segmentation from the command line.
+     *
+     * @param args - the folder containing the images and, optionally, the
+     *             number of frames processed concurrently and the engine
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        List<String> positional = new ArrayList<>();
+        String engineName = null;
+        for (int index = 0; index < args.length; index++) {
+            if ("--engine".equals(args[index]) && (index + 1 < args.length)) {
+                engineName = args[++index];
+            } else {
+                positional.add(args[index]);
+            }
+        }
+
+        if ((positional.size() < 1) || (positional.size() > 2) || !new File(positional.get(0)).isDirectory()) {
+            LOG.error("Usage: BatchSegmentation <images folder> [number of threads] [--engine <engine name | auto>]");
+            System.exit(2);
+        }
+
+        int noThreads = Runtime.getRuntime().availableProcessors();
+        if (positional.size() == 2) {
+            try {
+                noThreads = Math.max(1, Integer.parseInt(positional.get(1)));
+            } catch (NumberFormatException ex) {
+                LOG.error("The number of threads is not valid: {}", positional.get(1));
+                System.exit(2);
+            }
+        }
+
+        // the engine chosen on the command line, else the one pinned by the user in the GUI
+        UserPreferences userPreferences = new UserPreferences();
+        if (engineName == null) {
+            engineName = userPreferences.getSegmentationEngine();
+        }
+        if (!pinEngine(engineName)) {
+            System.exit(2);
+        }
+
+        // the ground truth was labeled on the frames oriented as in the GUI
+        int noFailedFrames = new BatchSegmentation(positional.get(0), noThreads,
+                userPreferences.isFlipVertically(), userPreferences.isMirrorImage()).run();
+        System.exit((noFailedFrames == 0) ? 0 : 1);
+    }
+}
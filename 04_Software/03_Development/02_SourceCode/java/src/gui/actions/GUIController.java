@@ -30,7 +30,6 @@ import common.Constants;
 import common.ConstantsLabeling;
 import common.UserPreferences;
 import common.Utils;
-import commonsegmentation.ScribbleInfo;
 import gui.editobject.BoxEdit;
 import gui.editobject.CropEdit;
 import gui.editobject.EditWindow;
@@ -39,6 +38,8 @@ import gui.support.*;
 import gui.support.Objects;
 import gui.viewer.AttributesDefinition;
 import gui.viewer.GUILabelingTool;
+import library.Resize;
+import library.ScribbleStore;
 import observers.NotifyObservers;
 import observers.ObservedActions;
 import org.slf4j.Logger;
@@ -46,16 +47,25 @@ import org.slf4j.LoggerFactory;
 import paintpanels.DrawConstants;
 import paintpanels.DrawingPanel;
 import paintpanels.ResultPanel;
+import segmentation.FrameSuperpixels;
+import segmentation.MattingCache;
+import segmentation.MattingExecutor;
 import segmentation.MattingThreading;
 import videomodule.PlayImagesRunnable;
 
 import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -85,7 +95,7 @@ public class GUIController implements Observer {
     /**
      * The list of objects which were segmented.
      */
-    protected List<Objects> objectList;
+    protected ObjectRegistry objectList;
 
     /**
      * The temporary list of objects which were segmented. It is intended to be
@@ -93,6 +103,72 @@ public class GUIController implements Observer {
      */
     protected List<Objects> tempObjectList;
 
+    /**
+     * Spatial index of the objects in the list, used for finding fast the
+     * object selected by the user.
+     */
+    protected final ObjectsGridIndex objIndex = new ObjectsGridIndex(new Dimension());
+
+    /**
+     * The minimum time, in milliseconds, between two refreshes of the result
+     * image while the scribble objects are segmented.
+     */
+    private static final long MATTING_REFRESH_PERIOD_MS = 250L;
+
+    /**
+     * Counts the runs of the matting for the object list; the results of a run
+     * are dropped when a newer run starts or the object list is replaced.
+     */
+    private final AtomicLong objListMattingRun = new AtomicLong();
+
+    /**
+     * The time of the last refresh of the result image during the matting for
+     * the object list.
+     */
+    private long lastMattingRefresh;
+
+    /**
+     * The crops of the matting for the object list still in progress, in the
+     * order of the merge; null if no run is in progress.
+     */
+    private List<CropMatting> pendingCropMattings;
+
+    /**
+     * The segmentation of one crop, during the matting for the object list.
+     */
+    static class CropMatting {
+
+        private final Objects obj;
+        private final CropObject crop;
+        private final long signature;
+        private final CompletableFuture<byte[][]> segmentation;
+        private boolean merged;
+
+        /**
+         * The object map of the crop when the segmentation was requested.
+         */
+        private final byte[][] startObjectMap;
+
+        CropMatting(Objects obj, CropObject crop, long signature, CompletableFuture<byte[][]> segmentation) {
+            this.obj = obj;
+            this.crop = crop;
+            this.signature = signature;
+            this.segmentation = segmentation;
+            this.startObjectMap = crop.getObjectMap();
+        }
+
+        /**
+         * Check if the crop was edited after its segmentation was requested:
+         * its position or scribbles changed or the user saved another object
+         * map for it. The result of the segmentation is then out of date.
+         *
+         * @return true if the result of the segmentation shall not be merged
+         */
+        boolean isSuperseded() {
+            return (crop.getObjectMap() != startObjectMap) || (crop.computeInputSignature() != signature);
+        }
+    }
+
     /**
      * The object being currently segmented.
      */
@@ -236,6 +312,23 @@ public class GUIController implements Observer {
      */
     private final JSONDataManager jsonDataManag = new JSONDataManager();
 
+    /**
+     * Predicts, in the background, the position of the objects in the next
+     * frame.
+     */
+    private final NextFrameTracker nextFrameTracker = new NextFrameTracker();
+
+    /**
+     * The objects of the previous frame, tracked in the current frame.
+     */
+    private List<Objects> trackedObjects = new ArrayList<>();
+
+    /**
+     * The predicted boxes of the tracked objects in the current frame, by
+     * object id.
+     */
+    private Map<Long, Rectangle> trackedBoxes = Collections.emptyMap();
+
     /**
      * Instantiates a new Gui controller.
      *
@@ -457,7 +550,7 @@ public class GUIController implements Observer {
             DisplayBBox selectedBox = dPImgToLabel.getSelectedBox();
 
             if (selectedBox != null) {
-                for (Objects obj : objectList) {
+                for (Objects obj : getObjCandidates(selectedBox.getPanelBox())) {
                     if (obj.contains(selectedBox.getPanelBox(), dPImgToLabel.getResize())) {
                         currentObject = obj;
 
@@ -579,8 +672,8 @@ public class GUIController implements Observer {
             return;
         }
 
-        // get scribble list
-        List<ScribbleInfo> scribbleList = cropObj.getScribbleList();
+        // get the scribbles of the crop
+        ScribbleStore scribbleStore = cropObj.getScribbleStore();
 
         if ((cropObj.getPositionOrig().width > 0) && (cropObj.getPositionOrig().height > 0)) {
             // set object color
@@ -615,8 +708,9 @@ public class GUIController implements Observer {
                         currentObject.getOccluded());
             }
 
-            if (scribbleList != null) {
-                cropWindow.setScribbleList(scribbleList);
+            if (scribbleStore != null) {
+                // the window edits a copy, the crop changes only when the edit is saved
+                cropWindow.setScribbleStore(scribbleStore.copy());
 
                 // run the algorithm in order to display the results asap
                 cropWindow.runMatting(Constants.RUN_MATT_ORIG_IMG);
@@ -633,9 +727,9 @@ public class GUIController implements Observer {
         // save the config of the window, to be able to open it in the same state as it was left
         cropWindowCfg = cropWindow.getCropConfig();
 
-        // get the scribble list and the object map
-        cropObj.setScribbleList(cropWindow.getScribbleList());
-        cropObj.setObjectMap(cropWindow.getObjectMap());
+        // get the scribbles and the object map; the crop keeps its own copy of the scribbles
+        cropObj.setScribbleStore(cropWindow.getScribbleStore().copy());
+        cropObj.setObjectMap(cropWindow.getObjectMap(), cropObj.computeInputSignature());
 
         // update the current object with the saved work
         if (currentObject instanceof ObjectScribble) {
@@ -675,9 +769,9 @@ public class GUIController implements Observer {
         // save the config of the window, to be able to open it in the same state as it was left
         cropWindowCfg = cropWindow.getCropConfig();
 
-        // get the scribble list and the object map
-        cropObj.setScribbleList(cropWindow.getScribbleList());
-        cropObj.setObjectMap(cropWindow.getObjectMap());
+        // get the scribbles and the object map; the crop keeps its own copy of the scribbles
+        cropObj.setScribbleStore(cropWindow.getScribbleStore().copy());
+        cropObj.setObjectMap(cropWindow.getObjectMap(), cropObj.computeInputSignature());
 
         // recompute the outer box
         currentObject.computeOuterBBoxCurObj();
@@ -776,6 +870,10 @@ public class GUIController implements Observer {
         // recompute the outer box
         currentObject.computeOuterBBoxCurObj();
 
+        // draw again the polygon in the object map
+        cancelObjectMap(currentObject, null);
+        mergePolygonObjMap(currentObject);
+
         // notify that the object might be changed, therefore reload the objects
         observable.notifyObservers(ObservedActions.Action.REFRESH_OBJ_LIST_PANEL);
 
@@ -810,13 +908,17 @@ public class GUIController implements Observer {
         DisplayBBox selectedBox = dPImgToLabel.getSelectedBox();
 
         if (selectedBox != null) {
-            for (Objects obj : objectList) {
+            for (Objects obj : getObjCandidates(selectedBox.getPanelBox())) {
                 if (obj.contains(selectedBox.getPanelBox(), dPImgToLabel.getResize())) {
                     obj.move(xOffset, yOffset, selectedBox.getPanelBox(), dPImgToLabel.getResize(), dPImgToLabel.getOrigImgSize());
+                    objIndex.update(obj);
 
                     // remove the object from the object map if the obj is scribble because else it will distroy the object map
                     cancelObjectMap(obj, dPImgToLabel.getResize().resizedToOriginal(selectedBox.getPanelBox()));
 
+                    // draw the polygon at its new position
+                    mergePolygonObjMap(obj);
+
                 }
             }
 
@@ -833,7 +935,7 @@ public class GUIController implements Observer {
         DisplayBBox selectedBox = dPImgToLabel.getSelectedBox();
 
         if (selectedBox != null) {
-            for (Objects obj : objectList) {
+            for (Objects obj : getObjCandidates(selectedBox.getPanelBox())) {
                 if (obj.contains(selectedBox.getPanelBox(), dPImgToLabel.getResize())) {
                     // transform the offset from panel to image coordinates
                     Point mouseOffsetPanel = dPImgToLabel.getMouseMovementOffsetPanel();
@@ -841,9 +943,13 @@ public class GUIController implements Observer {
 
                     // move the object with the computed offset
                     obj.move(mouseOffsetImg.x, mouseOffsetImg.y, selectedBox.getPanelBox(), dPImgToLabel.getResize(), dPImgToLabel.getOrigImgSize());
+                    objIndex.update(obj);
 
                     // remove the object from the object map if the obj is scribble because else it will distroy the object map
                     cancelObjectMap(obj, dPImgToLabel.getResize().resizedToOriginal(selectedBox.getPanelBox()));
+
+                    // draw the polygon at its new position
+                    mergePolygonObjMap(obj);
                 }
             }
 
@@ -866,12 +972,16 @@ public class GUIController implements Observer {
         DisplayBBox selectedBox = dPImgToLabel.getSelectedBox();
 
         if (selectedBox != null) {
-            for (Objects obj : objectList) {
+            for (Objects obj : getObjCandidates(selectedBox.getPanelBox())) {
                 if (obj.contains(selectedBox.getPanelBox(), dPImgToLabel.getResize())) {
                     obj.changeSize(left, top, right, bottom, selectedBox.getPanelBox(), dPImgToLabel.getResize(), dPImgToLabel.getOrigImgSize());
+                    objIndex.update(obj);
 
                     // remove the object from the object map if the obj is scribble because else it will distroy the object map
                     cancelObjectMap(obj, dPImgToLabel.getResize().resizedToOriginal(selectedBox.getPanelBox()));
+
+                    // draw the polygon with its new size
+                    mergePolygonObjMap(obj);
                 }
             }
 
@@ -885,6 +995,9 @@ public class GUIController implements Observer {
      * bounding boxes to the display module.
      */
     public void refreshDisplayList() {
+        // the current object might have been changed by the edit windows
+        objIndex.update(currentObject);
+
         // send the crop and the scribbles to be drawn on the drawing panel
         setBBoxToDisplay();
         setScribblesToDisplay();
@@ -892,6 +1005,18 @@ public class GUIController implements Observer {
 
         // notify to enable some options, based on the existing list of objects
         observable.notifyObservers(ObservedActions.Action.REFRESH_PANEL_OPTIONS);
+
+        // the objects might have changed; predict again their position in the next frame
+        trackObjectsToNextFrame();
+    }
+
+    /**
+     * Start the prediction of the position of the objects in the next frame,
+     * in the background, so they are already placed when the user moves to
+     * it.
+     */
+    private void trackObjectsToNextFrame() {
+        nextFrameTracker.track(currentFrame, getNextFramePath(), flipVertically, mirror, objectList, userPrefs.isScribblePropagation());
     }
 
     /**
@@ -909,13 +1034,13 @@ public class GUIController implements Observer {
         DisplayBBox selectedBox = dPImgToLabel.getSelectedBox();
         if (selectedBox != null) {
 
-            for (Iterator<Objects> it = objectList.iterator(); it.hasNext();) {
-                Objects obj = it.next();
+            for (Objects obj : getObjCandidates(selectedBox.getPanelBox())) {
                 if (obj.contains(selectedBox.getPanelBox(), dPImgToLabel.getResize())) {
 
                     //remove a box from the object
                     if (obj.remove(selectedBox.getPanelBox(), dPImgToLabel.getResize())) {
                         obj.computeOuterBBoxCurObj();
+                        objIndex.update(obj);
 
                         // remove the crop from the object map if the obj is scribble
                         cancelObjectMap(obj, dPImgToLabel.getResize().resizedToOriginal(selectedBox.getPanelBox()));
@@ -925,7 +1050,8 @@ public class GUIController implements Observer {
                         cancelObjectMap(obj, obj.getOuterBBox());
 
                         // remove the object from the object list
-                        it.remove();
+                        objectList.remove(obj);
+                        objIndex.remove(obj);
 
                         // update object panel
                         observable.notifyObservers(ObservedActions.Action.REFRESH_OBJ_LIST_PANEL);
@@ -942,6 +1068,41 @@ public class GUIController implements Observer {
         }
     }
 
+    /**
+     * Convert the selected scribble object into a polygon object, which
+     * replaces it in the list of objects.
+     */
+    public void convertSelectionToPolygon() {
+        Objects obj = getSelectedObject();
+
+        if (!(obj instanceof ObjectScribble)) {
+            return;
+        }
+
+        ObjectPolygon polyObj = ((ObjectScribble) obj).toObjectPolygon(Constants.POLYGON_SIMPLIFY_TOLERANCE);
+        if (polyObj == null) {
+            return;
+        }
+
+        // replace the object in the list, on the same position
+        objectList.set(objectList.indexOf(obj), polyObj);
+        objIndex.replace(obj, polyObj);
+
+        // replace the scribble object map with the rasterized polygon
+        cancelObjectMap(obj, obj.getOuterBBox());
+        mergePolygonObjMap(polyObj);
+
+        // update object panel
+        observable.notifyObservers(ObservedActions.Action.REFRESH_OBJ_LIST_PANEL);
+
+        // disable the selection and erase the current object
+        resetSelectedObject();
+        eraseCurrentObject();
+
+        // refresh the data to be diplayed
+        refreshDisplayList();
+    }
+
     /**
      * Cancel the creation of a new object.
      *
@@ -1009,6 +1170,9 @@ public class GUIController implements Observer {
      * Save all the information in the ground truth storage.
      */
     public void saveDataAsGroundTruth() {
+        // the frame map and the crop maps have to be complete before saving them
+        completeMattingForObjList();
+
         jsonDataManag.initWriteFile(getGTFilePath());
 
         // send the objects to be saved, one by one
@@ -1028,15 +1192,11 @@ public class GUIController implements Observer {
     public void sendLabel(Objects obj) {
         // assign an id to the object when the id is not already set
         if (obj.getObjectId() == DEFAULT_OBJECT_ID) {
-            long maxId = 0L;
-
             // the new id has to be greater than the existing max id
-            for (Objects object : objectList) {
-                if (maxId < object.getObjectId()) {
-                    maxId = object.getObjectId();
-                }
-            }
-            obj.setObjectId(maxId + 1L);
+            obj.setObjectId(objectList.getMaxId() + 1L);
+
+            // the object might be already in the list
+            objectList.updateId(obj, DEFAULT_OBJECT_ID);
         }
     }
 
@@ -1213,21 +1373,52 @@ public class GUIController implements Observer {
      * Move to the next frame. Track objects
      */
     public void nextFrame() {
-        BufferedImage prevFrame = new BufferedImage(dPImgToLabel.getOrigImg().getWidth(), dPImgToLabel.getOrigImg().getHeight(), dPImgToLabel.getOrigImg().getType());
-
-        // copy current frame as prev frame
-        Utils.copySrcIntoDstAt(dPImgToLabel.getOrigImg(), prevFrame);
+        // the positions of the current objects tracked so far in the next frame and the propagated scribble objects
+        String nextFramePath = getNextFramePath();
+        Map<Long, Rectangle> predictions = nextFrameTracker.getPredictions(nextFramePath);
+        List<ObjectScribble> propagated = nextFrameTracker.takePropagatedObjects(nextFramePath);
+        List<Objects> prevObjects = new ArrayList<>(objectList);
 
         // display and move to the next frame
         dPImgToLabel.newFrame(getNextFrame(), availableDrawSize);
 
+        // show the tracked objects which are not labeled yet in the new frame
+        trackedObjects = prevObjects;
+        trackedBoxes = predictions;
+
         // load the saved objects if there are some
         loadGroundTruth();
 
+        // seed the new frame with the scribble objects of the previous one
+        addPropagatedObjects(propagated);
+
         /* update the gui with the new object coordinates */
         refreshDisplayList();
     }
 
+    /**
+     * Add the scribble objects propagated from the previous frame to the
+     * current frame, if the user wants it and the current frame has no saved
+     * objects. The matting of the objects is run afterwards, together with
+     * the other objects of the frame.
+     *
+     * @param propagated - the scribble objects of the previous frame, moved
+     *                   with the motion of the image
+     */
+    private void addPropagatedObjects(List<ObjectScribble> propagated) {
+        if (!userPrefs.isScribblePropagation() || !objectList.isEmpty() || propagated.isEmpty()) {
+            return;
+        }
+
+        objectList.addAll(propagated);
+
+        // index the propagated objects
+        rebuildObjIndex();
+
+        // notify that new objects were added on the list and they have to be displayed in the list
+        observable.notifyObservers(ObservedActions.Action.REFRESH_OBJ_LIST_PANEL);
+    }
+
     /**
      * Jump to the specified frame.
      *
@@ -1322,6 +1513,23 @@ public class GUIController implements Observer {
         }
     }
 
+    /**
+     * Returns the path of the image of the next frame, without loading it.
+     *
+     * @return the path of the next frame; null if the current frame is the
+     * last one
+     */
+    private String getNextFramePath() {
+        long nextFrameNo = currFrameNo + 1;
+
+        if (playMode == Constants.PLAY_MODE_BACKWARD) {
+            long frameNo = fileList.size() - nextFrameNo;
+            return isNotEndOfDataFile(frameNo + 1) ? fileList.get((int) frameNo) : null;
+        }
+
+        return isNotEndOfDataFile(nextFrameNo) ? fileList.get((int) nextFrameNo - 1) : null;
+    }
+
     /**
      * Checks input frame number is out of the data file.
      *
@@ -1504,11 +1712,15 @@ public class GUIController implements Observer {
             // update the color of the image result panel for current color
             dPImgResult.setObjColor(currentColor);
 
+            // the polygon objects are drawn in the object map once they have an id
+            mergePolygonObjMap(currentObject);
+
             /* update the drawing panel*/
             refreshDisplayList();
 
             // the object seems correct
             objectList.add(currentObject);
+            objIndex.insert(currentObject);
 
             // notify that a new object was added on the list and it has to be displayed in the list
             observable.notifyObservers(ObservedActions.Action.ADD_OBJECT_ON_PANEL);
@@ -1612,6 +1824,15 @@ public class GUIController implements Observer {
 
         }
 
+        // add the objects tracked from the previous frame, which are not labeled yet
+        for (Objects obj : trackedObjects) {
+            Rectangle predictedBox = trackedBoxes.get(obj.getObjectId());
+            if ((predictedBox != null) && !objectList.containsId(obj.getObjectId())) {
+                positions.add(new DisplayBBox(dPImgToLabel.getResize().originalToResized(predictedBox),
+                        obj.getColor(), Long.toString(obj.getObjectId()), true));
+            }
+        }
+
         dPImgToLabel.setBBoxList(positions);
     }
 
@@ -1660,25 +1881,25 @@ public class GUIController implements Observer {
      * @return - the type of object which was selected
      */
     public String selectObject(long objId) {
-        for (Objects obj : objectList) {
-            if (obj.getObjectId() == objId) {
-                // set the selected object as the current object
-                currentObject = obj;
-
-                // refresh the display to not loose the show current obj functionality
-                refreshDisplayList();
-
-                // select the object
-                dPImgToLabel.setSelectedBox(obj.getOuterBBox());
-
-                // return the object type
-                if (obj instanceof ObjectScribble) {
-                    return ConstantsLabeling.LABEL_SCRIBBLE;
-                } else if (obj instanceof ObjectBBox) {
-                    return ConstantsLabeling.LABEL_2D_BOUNDING_BOX;
-                } else if (obj instanceof ObjectPolygon) {
-                    return ConstantsLabeling.LABEL_POLYGON;
-                }
+        Objects obj = objectList.getById(objId);
+
+        if (obj != null) {
+            // set the selected object as the current object
+            currentObject = obj;
+
+            // refresh the display to not loose the show current obj functionality
+            refreshDisplayList();
+
+            // select the object
+            dPImgToLabel.setSelectedBox(obj.getOuterBBox());
+
+            // return the object type
+            if (obj instanceof ObjectScribble) {
+                return ConstantsLabeling.LABEL_SCRIBBLE;
+            } else if (obj instanceof ObjectBBox) {
+                return ConstantsLabeling.LABEL_2D_BOUNDING_BOX;
+            } else if (obj instanceof ObjectPolygon) {
+                return ConstantsLabeling.LABEL_POLYGON;
             }
         }
         return "";
@@ -1701,7 +1922,7 @@ public class GUIController implements Observer {
                 // add scribbles from each crop available
                 Rectangle cropPosPanel = dPImgToLabel.getResize().originalToResized(cropObject.getPositionOrig());
 
-                cropScribbles.addAll(cropObject.getDisplayScribbleList(cropPosPanel, currentObject.getColor(), dPImgToLabel.getResize()));
+                addDisplayScribbles(cropScribbles, cropObject.getDisplayScribbles(cropPosPanel, currentObject.getColor(), dPImgToLabel.getResize()));
             }
         }
 
@@ -1730,7 +1951,7 @@ public class GUIController implements Observer {
                 // add scribbles from each crop available
                 Rectangle cropPosPanel = dPImgToLabel.getResize().originalToResized(cropObject.getPositionOrig());
 
-                cropScribbles.addAll(cropObject.getDisplayScribbleList(cropPosPanel, obj.getColor(), dPImgToLabel.getResize()));
+                addDisplayScribbles(cropScribbles, cropObject.getDisplayScribbles(cropPosPanel, obj.getColor(), dPImgToLabel.getResize()));
             }
 
         }
@@ -1738,6 +1959,19 @@ public class GUIController implements Observer {
         dPImgToLabel.addScriblesToDisplay(cropScribbles);
     }
 
+    /**
+     * Add the scribbles of a crop to the list of displayed scribbles, if the
+     * crop has scribbles.
+     *
+     * @param cropScribbles - the list of displayed scribbles
+     * @param scribbles     - the scribbles of the crop; null if there are none
+     */
+    private void addDisplayScribbles(List<DisplayScribbles> cropScribbles, DisplayScribbles scribbles) {
+        if (scribbles != null) {
+            cropScribbles.add(scribbles);
+        }
+    }
+
     /**
      * Build and display the list of polygons, in panel coordinates, from the
      * saved objects.
@@ -1813,7 +2047,7 @@ public class GUIController implements Observer {
         DisplayBBox selectedBox = dPImgToLabel.getSelectedBox();
 
         if (selectedBox != null) {
-            for (Objects obj : objectList) {
+            for (Objects obj : getObjCandidates(selectedBox.getPanelBox())) {
                 if (obj.contains(selectedBox.getPanelBox(), dPImgToLabel.getResize())) {
                     // set the selected object as the current object
                     currentObject = obj;
@@ -1833,12 +2067,9 @@ public class GUIController implements Observer {
      * @return - the color of the labeling type
      */
     public Color getLabelTypeColor(long objId) {
-        for (Objects obj : objectList) {
-            if (obj.getObjectId() == objId) {
-                return getLabelTypeColor(obj);
-            }
-        }
-        return Color.red;
+        Objects obj = objectList.getById(objId);
+
+        return (obj != null) ? getLabelTypeColor(obj) : Color.red;
     }
 
     /**
@@ -1910,11 +2141,19 @@ public class GUIController implements Observer {
      */
     protected void loadGroundTruth() {
         // reinit the list of objects read from the saved ground truth
-        objectList = new ArrayList<>();
+        cancelMattingForObjList();
+        objectList = new ObjectRegistry();
 
         // read the ground truth from the saved file and load the list of objects and the frame attributes
         jsonDataManag.readFile(getGTFilePath(), getCurrentFrameInfo(), objectList);
 
+        // keep the matting results next to the ground truth, if the user wants them on the disk
+        MattingCache.setDiskDirectory(userPrefs.isMattingDiskCache()
+                ? new File(chosenPath + File.separator + "GT" + File.separator + Constants.MATTING_CACHE_FOLDER) : null);
+
+        // index the loaded objects
+        rebuildObjIndex();
+
         // notify the gui to change the annotations
         observable.notifyObservers(ObservedActions.Action.LOAD_FRAME_ANNOTATION);
 
@@ -1939,7 +2178,7 @@ public class GUIController implements Observer {
      * @return - true if the object exists and false otherwise
      */
     protected boolean isObjInObjList(Objects obj) {
-        return objectList.stream().anyMatch((object) -> (object.getObjectId() == obj.getObjectId()));
+        return objectList.containsId(obj.getObjectId());
     }
 
     /**
@@ -1947,6 +2186,10 @@ public class GUIController implements Observer {
      * current list of objects and put just the loaded ones.
      */
     private void loadGroundTruthData() {
+        // the predictions are valid just for the frame following the tracked one
+        trackedObjects = new ArrayList<>();
+        trackedBoxes = Collections.emptyMap();
+
         // remove all the objects from the object list
         removeAllObjects();
 
@@ -1964,11 +2207,40 @@ public class GUIController implements Observer {
      * @param area the area
      */
     public void cancelObjectMap(Objects object, Rectangle area) {
-        // update the result image if it exists
-        if ((dPImgResult != null) && (object instanceof ObjectScribble)) {
+        // nothing to remove (and no result image to refresh) if the object is not in the object map
+        if ((dPImgResult == null) || (object == null) || (dPImgResult.getObjPixelCount(object.getObjectId()) == 0)) {
+            return;
+        }
+
+        if (object instanceof ObjectScribble) {
+            // remove the object id from the part of the area covered by the object
+            Rectangle objBounds = dPImgResult.getObjBounds(object.getObjectId());
+            if ((area == null) || !area.intersects(objBounds)) {
+                return;
+            }
+            dPImgResult.removeObj(object.getObjectId(), area.intersection(objBounds));
+
+            // update the output image result with the new map
+            dPImgResult.updateResultImg(objectList);
+        } else if (object instanceof ObjectPolygon) {
+
+            // the polygon is always removed entirely (it might have been moved out of the area)
+            dPImgResult.removeObj(object.getObjectId());
+
+            // update the output image result with the new map
+            dPImgResult.updateResultImg(objectList);
+        }
+    }
 
-            // remove the object id from the object map
-            dPImgResult.removeObj(object.getObjectId(), area);
+    /**
+     * Draw the polygon object in the object map of the result panel, so that
+     * it is part of the semantic output.
+     *
+     * @param object the object to be drawn; other types of objects are ignored
+     */
+    private void mergePolygonObjMap(Objects object) {
+        if ((dPImgResult != null) && (object instanceof ObjectPolygon) && (((ObjectPolygon) object).getPolygon() != null)) {
+            dPImgResult.mergePolygon(((ObjectPolygon) object).getPolygon(), object.getObjectId());
 
             // update the output image result with the new map
             dPImgResult.updateResultImg(objectList);
@@ -1987,44 +2259,162 @@ public class GUIController implements Observer {
     }
 
     /**
-     * Get the information from the crops and run the matting algorithm. Compute
-     * the outer box and update the result panel
+     * Segment the crop on the shared matting pool. The crop image and the
+     * scribbles are copied on the calling thread, so the crop can be edited
+     * while the matting runs.
      *
-     * @param obj - the object for which the matting has to run
+     * @param obj  - the object owning the crop
+     * @param crop - the crop to be segmented
+     * @param run  - the run of the matting for the object list which requested
+     *             the segmentation
+     * @return the future object map of the crop; null if the matting failed
      */
-    private void runMattingAllCrops(Objects obj) {
-        // run the matting algorithm for all the crops              
-        ((ObjectScribble) obj).getCropList().forEach((crop) -> {
-            // get the cropped image
-            BufferedImage bi = Utils.getSelectedImg(dPImgToLabel.getOrigImg(), crop.getPositionOrig());
+    private CompletableFuture<byte[][]> segmentCropAsync(Objects obj, CropObject crop, long run) {
+        // get the cropped image
+        BufferedImage bi = Utils.getSelectedImg(dPImgToLabel.getOrigImg(), crop.getPositionOrig());
 
-            // instantiate the matting class
-            MattingThreading matt = new MattingThreading(bi, crop.getScribbleList(), ObservedActions.Action.DO_NOTHING);
+        // instantiate the matting class
+        MattingThreading matt = new MattingThreading(bi, crop.getScribbleList(), ObservedActions.Action.DO_NOTHING);
+        matt.setSuperpixels(FrameSuperpixels.getForCrop(crop.getPositionOrig()));
+        ObjectPreferences objPreferences = obj.getUserPreference();
 
-            // run the matting algorithm and save its output - the object map
-            crop.setObjectMap(matt.runMattingAlgo());
+        return CompletableFuture.supplyAsync(() -> {
+            // the crops of a superseded run are not needed any more
+            if (run != objListMattingRun.get()) {
+                throw new CancellationException("The matting run " + run + " was superseded");
+            }
 
-            // merge the object map into the result map
-            dPImgResult.mergeCrop(crop.getObjectMap(), crop.getPositionOrig(), obj.getObjectId(), false);
-        });
+            try {
+                // run the matting algorithm and clean its output as configured for the object
+                byte[][] objMap = matt.runMattingAlgo();
+                Utils.postProcessObjectMap(objMap, objPreferences);
+                return objMap;
+            } catch (RuntimeException ex) {
+                log.error("The matting of a crop of object {} failed", obj.getObjectId());
+                log.debug("The matting of a crop failed {}", ex);
+                return null;
+            }
+        }, MattingExecutor.getSharedPool());
+    }
+
+    /**
+     * Save the object map of the crop and merge it into the result map. It
+     * runs on the EDT, in the order of the objects and crops.
+     *
+     * @param run         - the run of the matting for the object list which
+     *                    computed the object map
+     * @param cropMatting - the segmented crop
+     * @param objMap      - the object map computed for the crop
+     */
+    private void mergeCropResult(long run, CropMatting cropMatting, byte[][] objMap) {
+        if (run != objListMattingRun.get()) {
+            return;
+        }
+
+        cropMatting.merged = true;
+        if (objMap == null) {
+            return;
+        }
+
+        // the crop was edited meanwhile; its newer segmentation is already merged
+        if (cropMatting.isSuperseded()) {
+            log.debug("The matting result of a crop of object {} is out of date", cropMatting.obj.getObjectId());
+            return;
+        }
+
+        CropObject crop = cropMatting.crop;
+        crop.setObjectMap(objMap, cropMatting.signature);
+
+        // merge the object map into the result map
+        dPImgResult.mergeCrop(crop.getObjectMap(), crop.getPositionOrig(), cropMatting.obj.getObjectId(), false);
+    }
+
+    /**
+     * Compute the outer box of the object whose crops were all merged and
+     * refresh the result image, at most once per MATTING_REFRESH_PERIOD_MS, so
+     * the user sees the progress of the segmentation.
+     *
+     * @param run - the run of the matting for the object list
+     * @param obj - the object whose crops were merged
+     */
+    private void finishObjMatting(long run, Objects obj) {
+        if (run != objListMattingRun.get()) {
+            return;
+        }
 
         obj.computeOuterBBoxCurObj();
+
+        long now = System.currentTimeMillis();
+        if (now - lastMattingRefresh >= MATTING_REFRESH_PERIOD_MS) {
+            lastMattingRefresh = now;
+            dPImgResult.updateResultImg(objectList);
+        }
     }
 
     /**
-     * Run the matting algorithm for all the scribble objects, crop by crop, and
-     * build the object map, its outer box and result image.
+     * Run the matting algorithm for all the scribble objects and build the
+     * object map, its outer box and result image.
+     * <p>
+     * The crops whose map was restored from the ground truth are not
+     * segmented again. The other crops are segmented concurrently on the
+     * shared matting pool, while their results are merged on the EDT in the
+     * order of the objects and crops, so the result does not depend on which
+     * crop finishes first. A new run (or the change of the object list) drops
+     * the results of the previous one.
      */
     public void runMattingForObjList() {
-        objectList.stream().filter((obj) -> (obj instanceof ObjectScribble)).forEachOrdered(this::runMattingAllCrops);
+        final long run = objListMattingRun.incrementAndGet();
+        pendingCropMattings = null;
+        final Executor edt = SwingUtilities::invokeLater;
+        CompletableFuture<Void> mergeChain = CompletableFuture.completedFuture(null);
+        List<CropMatting> cropMattings = new ArrayList<>();
 
-        /* Original code:
         for (Objects obj : objectList) {
-            if (obj instanceof ObjectScribble) {
-                runMattingAllCrops(obj);
+            if (!(obj instanceof ObjectScribble)) {
+                continue;
             }
+
+            for (CropObject crop : ((ObjectScribble) obj).getCropList()) {
+                // the maps restored from the ground truth are merged without running the matting again
+                long signature = crop.computeInputSignature();
+                CompletableFuture<byte[][]> segmentation = crop.isObjectMapValid()
+                        ? CompletableFuture.completedFuture(crop.getObjectMap()) : segmentCropAsync(obj, crop, run);
+                CropMatting cropMatting = new CropMatting(obj, crop, signature, segmentation);
+
+                mergeChain = mergeChain.thenCombineAsync(segmentation, (ignored, objMap) -> {
+                    mergeCropResult(run, cropMatting, objMap);
+                    return null;
+                }, edt);
+                cropMattings.add(cropMatting);
+            }
+
+            mergeChain = mergeChain.thenRunAsync(() -> finishObjMatting(run, obj), edt);
         }
-         */
+
+        if (!cropMattings.isEmpty()) {
+            pendingCropMattings = cropMattings;
+            mergeChain.thenRunAsync(() -> {
+                if (run == objListMattingRun.get()) {
+                    pendingCropMattings = null;
+                    finishMattingForObjList();
+                }
+            }, edt);
+        } else {
+            // nothing to segment; compute the boxes of the empty scribble objects and draw the result right away
+            objectList.stream().filter(obj -> obj instanceof ObjectScribble).forEachOrdered(Objects::computeOuterBBoxCurObj);
+            finishMattingForObjList();
+        }
+    }
+
+    /**
+     * Draw the polygons over the segmented scribble objects and refresh the
+     * result image and the display list.
+     */
+    private void finishMattingForObjList() {
+        // the polygons are drawn over the scribble objects
+        objectList.stream().filter((obj) -> (obj instanceof ObjectPolygon) && (((ObjectPolygon) obj).getPolygon() != null))
+                .forEachOrdered(obj -> dPImgResult.mergePolygon(((ObjectPolygon) obj).getPolygon(), obj.getObjectId()));
+
         // update the result image with all the merged objects
         dPImgResult.updateResultImg(objectList);
 
@@ -2032,6 +2422,53 @@ public class GUIController implements Observer {
         refreshDisplayList();
     }
 
+    /**
+     * Drop the results of the matting for the object list still in progress;
+     * they belong to objects which are no longer displayed.
+     */
+    private void cancelMattingForObjList() {
+        objListMattingRun.incrementAndGet();
+        pendingCropMattings = null;
+    }
+
+    /**
+     * Finish, on the calling thread, the matting for the object list still in
+     * progress: wait for the segmentation of the crops not merged yet and
+     * merge them in order. The merges still queued on the EDT are dropped.
+     * <p>
+     * The crops are segmented on the matting pool, not on the EDT, therefore
+     * they can be waited for from the EDT.
+     */
+    private void completeMattingForObjList() {
+        List<CropMatting> cropMattings = pendingCropMattings;
+        if (cropMattings == null) {
+            return;
+        }
+
+        long run = objListMattingRun.get();
+        for (CropMatting cropMatting : cropMattings) {
+            if (cropMatting.merged) {
+                continue;
+            }
+
+            byte[][] objMap;
+            try {
+                objMap = cropMatting.segmentation.join();
+            } catch (CompletionException | CancellationException ex) {
+                log.debug("The matting of a crop failed {}", ex);
+                objMap = null;
+            }
+            mergeCropResult(run, cropMatting, objMap);
+        }
+
+        // the boxes of the objects are computed from the merged crops
+        objectList.stream().filter(obj -> obj instanceof ObjectScribble).forEachOrdered(Objects::computeOuterBBoxCurObj);
+
+        // drop the merges still queued on the EDT; the run is complete
+        cancelMattingForObjList();
+        finishMattingForObjList();
+    }
+
     /**
      * Update the result image with all the segmented objects.
      */
@@ -2157,6 +2594,7 @@ public class GUIController implements Observer {
         this.flipVertically = selected;
 
         Utils.flipVerticallyImage(currentFrame);
+        precomputeSuperpixels();
 
         return currentFrame;
     }
@@ -2176,6 +2614,7 @@ public class GUIController implements Observer {
         mirror = selected;
 
         Utils.mirrorImage(currentFrame);
+        precomputeSuperpixels();
 
         return currentFrame;
     }
@@ -2208,7 +2647,9 @@ public class GUIController implements Observer {
      */
     public void removeAllObjects() {
         // create a new object
-        objectList = new ArrayList<>();
+        cancelMattingForObjList();
+        objectList = new ObjectRegistry();
+        rebuildObjIndex();
 
         // remove all the objects from the side panel object list
         observable.notifyObservers(ObservedActions.Action.REFRESH_OBJ_LIST_PANEL);
@@ -2462,9 +2903,23 @@ public class GUIController implements Observer {
             changeMirrorImage(mirror);
         }
 
+        precomputeSuperpixels();
+
         return currentFrame;
     }
 
+    /**
+     * Start the computation of the superpixels of the current frame in the
+     * background, if the user segments the crops from superpixels.
+     */
+    private void precomputeSuperpixels() {
+        if (userPrefs.isSuperpixelSegmentation() && (currentFrame != null)) {
+            FrameSuperpixels.precompute(currentFrame);
+        } else {
+            FrameSuperpixels.clear();
+        }
+    }
+
     /**
      * Create the path to the file where the ground truth shall be stored.
      *
@@ -2492,17 +2947,7 @@ public class GUIController implements Observer {
      * other standards (4 byte ABGR, int ARGB etc.).
      */
     private void convertToStandardFormat() {
-        // if the image is not 3 byte RGB, modify it
-        if (currentFrame.getType() != BufferedImage.TYPE_3BYTE_BGR) {
-            // create the empty image
-            BufferedImage convertedImage = new BufferedImage(currentFrame.getWidth(), currentFrame.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-
-            // draw the frame into the new image
-            convertedImage.createGraphics().drawImage(currentFrame, 0, 0, currentFrame.getWidth(), currentFrame.getHeight(), null);
-
-            // point the current image to the modified one
-            currentFrame = convertedImage;
-        }
+        currentFrame = Utils.convertToStandardFormat(currentFrame);
     }
 
     /**
@@ -2572,6 +3017,7 @@ public class GUIController implements Observer {
         for (Objects object : tempObjectList) {
             if (!isObjectInList(object)) {
                 objectList.add(object);
+                objIndex.insert(object);
                 // notify that a new object was added on the list and it has to be displayed in the list
                 observable.notifyObservers(ObservedActions.Action.ADD_OBJECT_ON_PANEL);
             }
@@ -2590,12 +3036,33 @@ public class GUIController implements Observer {
      * the id is not found in list
      */
     public boolean isObjectInList(Objects object) {
-        for (Objects obj : objectList) {
-            if (obj.getObjectId() == object.getObjectId()) {
-                return true;
-            }
-        }
+        return objectList.containsId(object.getObjectId());
+    }
 
-        return false;
+    /**
+     * Get the objects which might contain the specified panel box, in the
+     * order of the object list. The result has to be checked with the
+     * contains method of each object.
+     *
+     * @param panelBox the selected box - panel coordinates
+     * @return the list of candidate objects
+     */
+    private List<Objects> getObjCandidates(Rectangle panelBox) {
+        Resize resize = dPImgToLabel.getResize();
+        Rectangle imgBox = resize.resizedToOriginal(panelBox);
+
+        // enlarge the area to compensate the rounding of the panel to image conversion
+        int margin = (int) Math.ceil(Math.max(resize.getRatioWidth(), resize.getRatioHeight())) + 1;
+        imgBox.grow(margin, margin);
+
+        return objIndex.query(imgBox);
+    }
+
+    /**
+     * Register again all the objects of the list in the spatial index.
+     */
+    private void rebuildObjIndex() {
+        Dimension frameSize = (currentFrame == null) ? new Dimension() : new Dimension(currentFrame.getWidth(), currentFrame.getHeight());
+        objIndex.rebuild(objectList, frameSize);
     }
 }
@@ -0,0 +1,357 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.actions;
+
+import common.Utils;
+import gui.support.CropObject;
+import gui.support.ObjectScribble;
+import gui.support.Objects;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import library.NccTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Predicts the position of the objects of the current frame in the next
+ * frame, on a background thread, while the user labels the current frame, so
+ * they are ready when the user moves to the next frame. The objects are not
+ * changed; the predicted boxes are published by object id.
+ * <p>
+ * If asked, the scribble objects are also propagated to the next frame, with
+ * the same matcher, so the user can start from them on the next frame.
+ *
+ * @author Olimpia Popica
+ */
+public class NextFrameTracker {
+
+    /**
+     * The thread tracking the objects.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Tracker Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * The minimum displacement searched for an object, in pixels.
+     */
+    private static final int MIN_SEARCH_MARGIN = 16;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(NextFrameTracker.class);
+
+    /*
+     * The state of the last request, used on the EDT: the current frame and
+     * its copy, the next frame, the orientation and the signature of the
+     * objects.
+     */
+    private BufferedImage frame;
+    private BufferedImage frameCopy;
+    private String nextFramePath;
+    private boolean flipVertically;
+    private boolean mirror;
+    private long objectsSignature;
+    private boolean propagateScribbles;
+
+    /**
+     * The tracking in progress; null if there is none.
+     */
+    private Future<?> pending;
+
+    /**
+     * Counts the requests; the results of older requests are dropped. Guarded
+     * by this.
+     */
+    private long generation;
+
+    /**
+     * The predicted boxes of the last request, by object id; replaced as the
+     * objects are tracked. Guarded by this.
+     */
+    private Map<Long, Rectangle> predictions = Collections.emptyMap();
+
+    /**
+     * The scribble objects of the last request, propagated to the next frame;
+     * null until the propagation finishes or after they were taken. Guarded
+     * by this.
+     */
+    private List<ObjectScribble> propagatedObjects;
+
+    /*
+     * The tracker of the last pair of frames; used only on the tracker thread.
+     */
+    private NccTracker tracker;
+    private BufferedImage trackerFrame;
+    private String trackerNextPath;
+
+    /**
+     * Start the prediction of the positions of the objects in the next frame,
+     * in the background. Nothing is done if the frames and the objects did
+     * not change since the last call; else, the tracking in progress is
+     * cancelled.
+     *
+     * @param frame              - the current frame
+     * @param nextFramePath      - the path of the image of the next frame;
+     *                           null if there is no next frame
+     * @param flipVertically     - true if the frames are flipped vertically
+     * @param mirror             - true if the frames are mirrored
+     * @param objects            - the objects of the current frame
+     * @param propagateScribbles - true if the scribble objects shall be
+     *                           propagated to the next frame as well
+     */
+    public void track(BufferedImage frame, String nextFramePath, boolean flipVertically, boolean mirror, List<Objects> objects,
+            boolean propagateScribbles) {
+        if ((frame == null) || (nextFramePath == null)) {
+            cancel();
+            newGeneration();
+            this.nextFramePath = null;
+            return;
+        }
+
+        boolean newFrames = (frame != this.frame) || !nextFramePath.equals(this.nextFramePath)
+                || (flipVertically != this.flipVertically) || (mirror != this.mirror);
+        long signature = computeSignature(objects, propagateScribbles);
+
+        if (!newFrames && (signature == objectsSignature) && (propagateScribbles == this.propagateScribbles)) {
+            return;
+        }
+
+        if (newFrames) {
+            // the current frame is changed in place by flip and mirror; the tracker uses a copy
+            this.frame = frame;
+            this.frameCopy = Utils.createImageCopy(frame);
+            this.nextFramePath = nextFramePath;
+            this.flipVertically = flipVertically;
+            this.mirror = mirror;
+        }
+        objectsSignature = signature;
+        this.propagateScribbles = propagateScribbles;
+
+        cancel();
+        long requestGeneration = newGeneration();
+
+        // take a snapshot of the boxes, the objects might be edited meanwhile
+        List<Long> ids = new ArrayList<>();
+        List<Rectangle> boxes = new ArrayList<>();
+        for (Objects obj : objects) {
+            if ((obj.getOuterBBox() != null) && !obj.getOuterBBox().isEmpty()) {
+                ids.add(obj.getObjectId());
+                boxes.add(new Rectangle(obj.getOuterBBox()));
+            }
+        }
+
+        // the scribbles are copied as well, if they have to be propagated
+        List<ObjectScribble> scribbleObjects = propagateScribbles ? ScribblePropagator.snapshot(objects) : Collections.emptyList();
+
+        BufferedImage prev = frameCopy;
+        pending = EXECUTOR.submit(() -> {
+            predict(requestGeneration, prev, nextFramePath, flipVertically, mirror, ids, boxes);
+            propagate(requestGeneration, scribbleObjects);
+        });
+    }
+
+    /**
+     * Returns the scribble objects propagated to the given frame, if the
+     * propagation is finished; they are returned just once, since the caller
+     * adds them to the frame.
+     *
+     * @param framePath - the path of the image of the frame the user moves to
+     * @return - the propagated objects; empty if the propagation was not
+     * requested or is not finished
+     */
+    public synchronized List<ObjectScribble> takePropagatedObjects(String framePath) {
+        if ((framePath == null) || !framePath.equals(nextFramePath) || (propagatedObjects == null)) {
+            return Collections.emptyList();
+        }
+
+        List<ObjectScribble> objects = propagatedObjects;
+        propagatedObjects = null;
+        return objects;
+    }
+
+    /**
+     * Returns the boxes predicted so far for the given frame, without waiting
+     * for the tracking in progress; the objects not tracked yet (or not found)
+     * have no box.
+     *
+     * @param framePath - the path of the image of the frame the user moves to
+     * @return - the predicted boxes in the frame, by object id
+     */
+    public synchronized Map<Long, Rectangle> getPredictions(String framePath) {
+        if ((framePath == null) || !framePath.equals(nextFramePath)) {
+            return Collections.emptyMap();
+        }
+
+        return predictions;
+    }
+
+    /**
+     * Start a new request: the predictions of the previous one are dropped.
+     *
+     * @return - the generation of the new request
+     */
+    private synchronized long newGeneration() {
+        predictions = Collections.emptyMap();
+        propagatedObjects = null;
+        return ++generation;
+    }
+
+    /**
+     * Publish the boxes tracked so far, if they belong to the last request.
+     */
+    private synchronized void publish(long requestGeneration, Map<Long, Rectangle> boxes) {
+        if (requestGeneration == generation) {
+            predictions = Collections.unmodifiableMap(new HashMap<>(boxes));
+        }
+    }
+
+    /**
+     * Cancel the tracking in progress.
+     */
+    private void cancel() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    /**
+     * Track the boxes from the current frame to the next one and publish the
+     * predictions after each object. Runs on the tracker thread.
+     */
+    private void predict(long requestGeneration, BufferedImage prev, String nextPath, boolean flip, boolean mirrored, List<Long> ids, List<Rectangle> boxes) {
+        long start = System.currentTimeMillis();
+
+        // the pyramids of the frames are reused while the frames do not change
+        if ((tracker == null) || (trackerFrame != prev) || !nextPath.equals(trackerNextPath)) {
+            tracker = null;
+
+            BufferedImage next = readFrame(nextPath, flip, mirrored);
+            if ((next == null) || (next.getWidth() != prev.getWidth()) || (next.getHeight() != prev.getHeight())) {
+                return;
+            }
+
+            tracker = new NccTracker(prev, next);
+            trackerFrame = prev;
+            trackerNextPath = nextPath;
+        }
+
+        Map<Long, Rectangle> tracked = new HashMap<>();
+        for (int index = 0; index < ids.size(); index++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            Rectangle box = boxes.get(index);
+            int margin = Math.max(MIN_SEARCH_MARGIN, Math.max(box.width, box.height) / 2);
+            Rectangle predicted = tracker.track(box, margin);
+
+            if (predicted != null) {
+                tracked.put(ids.get(index), predicted);
+                publish(requestGeneration, tracked);
+            }
+        }
+
+        LOG.debug("Tracked {} of {} objects to {} in {} ms", tracked.size(), ids.size(), nextPath, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Propagate the scribble objects to the next frame, with the matcher of
+     * the tracking, and publish them if they belong to the last request. Runs
+     * on the tracker thread, after the tracking.
+     */
+    private void propagate(long requestGeneration, List<ObjectScribble> scribbleObjects) {
+        if (scribbleObjects.isEmpty() || (tracker == null) || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        List<ObjectScribble> propagated = new ScribblePropagator(tracker, trackerFrame.getWidth(), trackerFrame.getHeight())
+                .propagate(scribbleObjects, getPredictions(requestGeneration));
+
+        synchronized (this) {
+            if (requestGeneration == generation) {
+                propagatedObjects = propagated;
+            }
+        }
+    }
+
+    /**
+     * Returns the predicted boxes, if they belong to the given request.
+     */
+    private synchronized Map<Long, Rectangle> getPredictions(long requestGeneration) {
+        return (requestGeneration == generation) ? predictions : Collections.<Long, Rectangle>emptyMap();
+    }
+
+    /**
+     * Read the image of the next frame, in the format and orientation of the
+     * frames displayed in the GUI.
+     */
+    private static BufferedImage readFrame(String path, boolean flip, boolean mirrored) {
+        try {
+            return Utils.readFrame(path, flip, mirrored);
+        } catch (IOException ex) {
+            LOG.debug("The next frame could not be read {}", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Compute the signature of the ids and boxes of the objects and, if the
+     * scribbles are propagated, of their crops. The scribbles are represented
+     * by their number and the signature of the last segmented input, to keep
+     * the signature cheap.
+     */
+    private static long computeSignature(List<Objects> objects, boolean withCrops) {
+        long hash = 17L;
+        for (Objects obj : objects) {
+            hash = hash * 31L + obj.getObjectId();
+            hash = hash * 31L + java.util.Objects.hashCode(obj.getOuterBBox());
+
+            if (withCrops && (obj instanceof ObjectScribble)) {
+                for (CropObject crop : ((ObjectScribble) obj).getCropList()) {
+                    hash = hash * 31L + java.util.Objects.hashCode(crop.getPositionOrig());
+                    hash = hash * 31L + ((crop.getScribbleStore() == null) ? 0 : crop.getScribbleStore().size());
+                    hash = hash * 31L + crop.getMapSignature();
+                }
+            }
+        }
+        return hash;
+    }
+}
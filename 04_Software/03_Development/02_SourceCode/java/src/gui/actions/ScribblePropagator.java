@@ -0,0 +1,337 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.actions;
+
+import gui.support.CropObject;
+import gui.support.ObjectScribble;
+import gui.support.Objects;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import library.NccTracker;
+import library.ScribbleStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Propagates the scribble objects of a frame to the next one, so the user
+ * corrects them instead of drawing them again.
+ * <p>
+ * Each crop is matched in the next frame, around the predicted position of
+ * its object. Then the crop is split in blocks and each block holding
+ * scribbles is matched around the displacement of the crop, so the parts of
+ * the object can move differently. The crop is moved with its displacement
+ * and each scribble with the displacement of its block. The blocks of all
+ * the crops are matched in parallel.
+ *
+ * @author Olimpia Popica
+ */
+public class ScribblePropagator {
+
+    /**
+     * The size of the blocks, in pixels.
+     */
+    private static final int BLOCK_SIZE = 32;
+
+    /**
+     * The maximum difference, in pixels, between the displacement of a block
+     * and the one of its crop.
+     */
+    private static final int BLOCK_SEARCH_MARGIN = 8;
+
+    /**
+     * The minimum displacement searched for a crop, in pixels.
+     */
+    private static final int MIN_SEARCH_MARGIN = 16;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(ScribblePropagator.class);
+
+    /**
+     * The motion of a crop and of the blocks holding its scribbles.
+     */
+    private static class CropMotion {
+
+        private final ObjectScribble obj;
+        private final CropObject crop;
+        private final Point expected;
+        private final boolean predicted;
+        private Point shift;
+        private Point[] blockShifts;
+
+        CropMotion(ObjectScribble obj, CropObject crop, Point expected, boolean predicted) {
+            this.obj = obj;
+            this.crop = crop;
+            this.expected = expected;
+            this.predicted = predicted;
+        }
+    }
+
+    private final NccTracker tracker;
+    private final int frameWidth;
+    private final int frameHeight;
+
+    /**
+     * Prepare the propagation from a frame to the next one.
+     *
+     * @param tracker     - the matcher of the two frames
+     * @param frameWidth  - the width of the frames
+     * @param frameHeight - the height of the frames
+     */
+    public ScribblePropagator(NccTracker tracker, int frameWidth, int frameHeight) {
+        this.tracker = tracker;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+    }
+
+    /**
+     * Copy the scribble objects, with their crops and scribbles, so they can
+     * be propagated on another thread while the user edits the objects. The
+     * object maps are not copied.
+     *
+     * @param objects - the objects of the frame
+     * @return - the copies of the scribble objects having crops
+     */
+    public static List<ObjectScribble> snapshot(List<Objects> objects) {
+        List<ObjectScribble> copies = new ArrayList<>();
+
+        for (Objects obj : objects) {
+            if (!(obj instanceof ObjectScribble) || ((ObjectScribble) obj).getCropList().isEmpty() || (obj.getOuterBBox() == null)) {
+                continue;
+            }
+
+            ObjectScribble copy = copyAttributes((ObjectScribble) obj);
+            copy.setOuterBBox(new Rectangle(obj.getOuterBBox()));
+
+            for (CropObject crop : ((ObjectScribble) obj).getCropList()) {
+                if ((crop.getPositionOrig() != null) && (crop.getScribbleStore() != null)) {
+                    CropObject cropCopy = new CropObject();
+                    cropCopy.setPositionOrig(new Rectangle(crop.getPositionOrig()));
+                    cropCopy.setScribbleStore(crop.getScribbleStore().copy());
+                    copy.addToCropList(cropCopy);
+                }
+            }
+
+            copies.add(copy);
+        }
+
+        return copies;
+    }
+
+    /**
+     * Propagate the scribble objects to the next frame. The objects are not
+     * changed; new objects, with the same id and attributes, are created. They
+     * have no object map; the matting has to be run for them.
+     *
+     * @param objects     - the scribble objects of the previous frame
+     * @param predictions - the boxes of the objects predicted in the next
+     *                    frame, by object id; they give the expected position
+     *                    of the objects
+     * @return - the objects in the next frame; the objects whose crops could
+     * not be matched are not propagated
+     */
+    public List<ObjectScribble> propagate(List<ObjectScribble> objects, Map<Long, Rectangle> predictions) {
+        long start = System.currentTimeMillis();
+        List<CropMotion> motions = new ArrayList<>();
+
+        for (ObjectScribble obj : objects) {
+            // the box predicted by the tracker gives the expected displacement of all the crops
+            Rectangle predictedBox = predictions.get(obj.getObjectId());
+            boolean predicted = (predictedBox != null) && (obj.getOuterBBox() != null);
+            Point expected = predicted
+                    ? new Point(predictedBox.x - obj.getOuterBBox().x, predictedBox.y - obj.getOuterBBox().y)
+                    : new Point();
+
+            for (CropObject crop : obj.getCropList()) {
+                if ((crop.getPositionOrig() != null) && (crop.getScribbleStore() != null) && !crop.getScribbleStore().isEmpty()) {
+                    motions.add(new CropMotion(obj, crop, expected, predicted));
+                }
+            }
+        }
+
+        // match the crops, then the blocks of all the crops
+        motions.parallelStream().forEach(this::matchCrop);
+        motions.parallelStream().filter(motion -> motion.shift != null).forEach(this::matchBlocks);
+
+        // build the objects in the order of the input objects
+        List<ObjectScribble> propagated = new ArrayList<>();
+        ObjectScribble current = null;
+        for (CropMotion motion : motions) {
+            if (motion.shift == null) {
+                continue;
+            }
+
+            CropObject crop = warpCrop(motion);
+            if (crop == null) {
+                continue;
+            }
+
+            if ((current == null) || (current.getObjectId() != motion.obj.getObjectId())) {
+                current = copyAttributes(motion.obj);
+                propagated.add(current);
+            }
+            current.addToCropList(crop);
+        }
+
+        propagated.forEach(ScribblePropagator::setOuterBBox);
+
+        LOG.debug("Propagated {} objects ({} crops) in {} ms", propagated.size(), motions.size(), System.currentTimeMillis() - start);
+
+        return propagated;
+    }
+
+    /**
+     * Find the displacement of the crop; the one of its object is used if the
+     * crop cannot be matched.
+     */
+    private void matchCrop(CropMotion motion) {
+        Rectangle pos = motion.crop.getPositionOrig();
+        int margin = Math.max(MIN_SEARCH_MARGIN, Math.max(pos.width, pos.height) / 2);
+
+        Point shift = tracker.findDisplacement(pos, motion.expected, margin);
+        motion.shift = ((shift == null) && motion.predicted) ? motion.expected : shift;
+    }
+
+    /**
+     * Find the displacement of the blocks holding scribbles; the blocks which
+     * cannot be matched move with the crop.
+     */
+    private void matchBlocks(CropMotion motion) {
+        Rectangle pos = motion.crop.getPositionOrig();
+        int cols = (pos.width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int rows = (pos.height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        // just the blocks holding scribbles are matched
+        Point[] blockShifts = new Point[cols * rows];
+        ScribbleStore store = motion.crop.getScribbleStore();
+        for (int index = 0; index < store.size(); index++) {
+            int col = store.getX(index) / BLOCK_SIZE;
+            int row = store.getY(index) / BLOCK_SIZE;
+            if ((col >= 0) && (col < cols) && (row >= 0) && (row < rows)) {
+                blockShifts[row * cols + col] = motion.shift;
+            }
+        }
+
+        for (int block = 0; block < blockShifts.length; block++) {
+            if (blockShifts[block] == null) {
+                continue;
+            }
+
+            Rectangle blockPos = new Rectangle(pos.x + (block % cols) * BLOCK_SIZE, pos.y + (block / cols) * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE)
+                    .intersection(pos);
+            Point shift = tracker.findDisplacement(blockPos, motion.shift, BLOCK_SEARCH_MARGIN);
+            if (shift != null) {
+                blockShifts[block] = shift;
+            }
+        }
+
+        motion.blockShifts = blockShifts;
+    }
+
+    /**
+     * Create the crop in the next frame: the crop is moved with its
+     * displacement, kept inside the frame, and each scribble with the
+     * displacement of its block.
+     *
+     * @return - the moved crop, or null if none of its scribbles is left
+     * inside it
+     */
+    private CropObject warpCrop(CropMotion motion) {
+        Rectangle pos = motion.crop.getPositionOrig();
+        int cols = (pos.width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        Rectangle newPos = new Rectangle(pos);
+        newPos.x = Math.max(0, Math.min(frameWidth - pos.width, pos.x + motion.shift.x));
+        newPos.y = Math.max(0, Math.min(frameHeight - pos.height, pos.y + motion.shift.y));
+
+        // the scribbles are relative to the crop; keep one scribble per pixel
+        ScribbleStore store = motion.crop.getScribbleStore();
+        ScribbleStore newStore = new ScribbleStore();
+        BitSet taken = new BitSet(pos.width * pos.height);
+
+        for (int index = 0; index < store.size(); index++) {
+            int x = store.getX(index);
+            int y = store.getY(index);
+            if ((x < 0) || (y < 0) || (x >= pos.width) || (y >= pos.height)) {
+                continue;
+            }
+
+            Point shift = motion.blockShifts[(y / BLOCK_SIZE) * cols + x / BLOCK_SIZE];
+            int newX = pos.x + x + shift.x - newPos.x;
+            int newY = pos.y + y + shift.y - newPos.y;
+
+            if ((newX >= 0) && (newX < newPos.width) && (newY >= 0) && (newY < newPos.height) && !taken.get(newY * newPos.width + newX)) {
+                taken.set(newY * newPos.width + newX);
+                newStore.append(newX, newY, store.getLabel(index));
+            }
+        }
+
+        if (newStore.isEmpty()) {
+            return null;
+        }
+
+        CropObject crop = new CropObject();
+        crop.setPositionOrig(newPos);
+        crop.setScribbleStore(newStore);
+        return crop;
+    }
+
+    /**
+     * Create an empty scribble object with the id and the attributes of the
+     * given one; the preferences of the object are copied.
+     */
+    private static ObjectScribble copyAttributes(ObjectScribble obj) {
+        ObjectScribble copy = new ObjectScribble();
+        copy.setObjectId(obj.getObjectId());
+        copy.setSegmentationType(obj.getSegmentationType());
+        copy.setSegmentationSource(obj.getSegmentationSource());
+        copy.setObjectType(obj.getObjectType());
+        copy.setObjectClass(obj.getObjectClass());
+        copy.setObjectValue(obj.getObjectValue());
+        copy.setOccluded(obj.getOccluded());
+        copy.setColor(obj.getColor());
+        // the preferences are edited per object; the propagated object gets its own
+        copy.setUserPreference(obj.getUserPreference().copy());
+        return copy;
+    }
+
+    /**
+     * Set the outer box of the object to the box containing all its crops,
+     * until the matting computes it from the object map.
+     */
+    private static void setOuterBBox(ObjectScribble obj) {
+        Rectangle outerBox = null;
+        for (CropObject crop : obj.getCropList()) {
+            outerBox = (outerBox == null) ? new Rectangle(crop.getPositionOrig()) : outerBox.union(crop.getPositionOrig());
+        }
+        obj.setOuterBBox(outerBox);
+    }
+}
@@ -43,13 +43,14 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Observable;
 import java.util.Random;
 import javax.swing.ImageIcon;
+import javax.swing.JMenuItem;
 import jpen.owner.multiAwt.AwtPenToolkit;
+import library.ScribbleStore;
+import segmentation.FrameSuperpixels;
 import segmentation.MattingThreading;
 
 /**
@@ -70,9 +71,14 @@ public final class CropEdit extends EditWindow {
     private transient CropWindowConfig cropWindowConfig;
 
     /**
-     * The list of scribbles to be displayed on the panel.
+     * The scribbles to be displayed on the panel.
      */
-    private List<ScribbleInfo> scribbleList;
+    private ScribbleStore scribbleStore;
+
+    /**
+     * The image option of the last matting run: original, highlighted etc.
+     */
+    private int lastImageOption = Constants.RUN_MATT_ORIG_IMG;
 
     /**
      * Creates new form CropWindow
@@ -137,6 +143,24 @@ public final class CropEdit extends EditWindow {
         // remove the text from the labels which should show an image
         jLBrushPreview.setText("");
         jLBrushSizePreview.setText("");
+
+        // the post processing of the object map is configured per object
+        JMenuItem jMIPostProcessing = new JMenuItem("Post Processing...");
+        jMIPostProcessing.addActionListener(evt -> editPostProcessing());
+        addSegmentationAction(jMIPostProcessing);
+
+        // the filter of the object map is configured per object, from the filter button or the menu
+        addSegmentationAction(new JMenuItem(addFilterOptions()));
+    }
+
+    /**
+     * Let the user change the post processing of the object map and segment
+     * the crop again with the new options, if it was already segmented.
+     */
+    private void editPostProcessing() {
+        if (PostProcessingOptions.showDialog(this, objPreferences) && (mattingThread != null)) {
+            runMatting(lastImageOption);
+        }
     }
 
     private void loadWindowConfig(CropWindowConfig cropWinCfg) {
@@ -176,15 +200,12 @@ public final class CropEdit extends EditWindow {
             dPPreviewImg.setActionType(drawingType);
 
             // add the existing scriblles
-            if (scribbleList != null) {
-                dPPreviewImg.setScribbleList(scribbleList);
-            } else if (dPPreviewImg.getScribbleList().size() > 0) {
-                scribbleList = dPPreviewImg.getScribbleList();
+            if (scribbleStore != null) {
+                dPPreviewImg.setScribbleStore(scribbleStore);
+            } else if (!dPPreviewImg.getScribbleStore().isEmpty()) {
+                scribbleStore = dPPreviewImg.getScribbleStore();
             }
 
-            // update the scribble list with the zooming factor
-            dPPreviewImg.updateScribbleList();
-            
             // set the color on the drawing panel
             dPPreviewImg.setObjColor(cropWindowConfig.getObjectColor());
 
@@ -399,21 +420,12 @@ public final class CropEdit extends EditWindow {
      * would generate a coordinates outer box exception.
      */
     private void removeScribbles() {
-        // copy the panel scribble list in the scribble list, to avoid erasing them after the new load of image
-        scribbleList = new ArrayList<>();
-        scribbleList.addAll(dPPreviewImg.getScribbleList());
-
-        if (scribbleList != null) {
-            for (Iterator<ScribbleInfo> it = scribbleList.iterator(); it.hasNext();) {
-                ScribbleInfo si = it.next();
-
-                if ((si.getImgPosX() >= currentCrop.getPositionOrig().width)
-                        || (si.getImgPosY() >= currentCrop.getPositionOrig().height)) {
-                    // remove the scribble
-                    it.remove();
-                }
-            }
-        }
+        // copy the panel scribbles, to avoid erasing them after the new load of image
+        scribbleStore = dPPreviewImg.getScribbleStore().copy();
+
+        // remove the scribbles outside the crop
+        Rectangle cropPos = currentCrop.getPositionOrig();
+        scribbleStore.removeIf((x, y, label) -> (x >= cropPos.width) || (y >= cropPos.height));
     }
 
     /**
@@ -511,26 +523,23 @@ public final class CropEdit extends EditWindow {
      */
     @Override
     public void runMatting(int imageOption) {
-        Thread cudaMattingThread;
-
         if ((dPPreviewImg != null) && (jBRunMattingCrop.isEnabled())) {
             // save the scribble points
             int noScribbles = dPPreviewImg.flushPixelList();
 
             // prepare the thread data to run the matting application
             if (noScribbles > 0) {
-                // disable the matting button, to avoid calling the thread several times
-                jBRunMattingCrop.setEnabled(false);
-                jBRunHighlightMatt.setEnabled(false);
+                lastImageOption = imageOption;
 
+                // a new run supersedes the one in progress, whose result is dropped
                 mattingThread = new MattingThreading(getMattingImage(imageOption), dPPreviewImg.getScribbleList(), ObservedActions.Action.REFRESH_CROP_RESULT);
+                mattingThread.setProgressive(true);
+                mattingThread.setSuperpixels(FrameSuperpixels.getForCrop(currentCrop.getPositionOrig()));
 
                 // add observer to be notified when the thread is finished
                 mattingThread.addObserver(this);
 
-                cudaMattingThread = new Thread(mattingThread);
-                cudaMattingThread.setName("Matting Thread");
-                cudaMattingThread.start();
+                mattingExecutor.submit(mattingThread);
 
                 currentCrop.resetFilterCount();
             }
@@ -545,8 +554,20 @@ public final class CropEdit extends EditWindow {
      * for the object
      */
     public void setScribbleList(List<ScribbleInfo> scribbleList) {
-        this.scribbleList = scribbleList;
-        dPPreviewImg.setScribbleList(this.scribbleList);
+        this.scribbleStore = ScribbleStore.fromScribbleInfoList(scribbleList);
+        dPPreviewImg.setScribbleStore(this.scribbleStore);
+    }
+
+    /**
+     * Set the store of scribbles drawn for the segmentation of the current
+     * object. The store is shared with the preview panel.
+     *
+     * @param scribbleStore - the scribbles which are already available for
+     * the object
+     */
+    public void setScribbleStore(ScribbleStore scribbleStore) {
+        this.scribbleStore = scribbleStore;
+        dPPreviewImg.setScribbleStore(this.scribbleStore);
     }
 
     /**
@@ -555,6 +576,7 @@ public final class CropEdit extends EditWindow {
      * @return - the map containing the ids of the objects
      */
     public byte[][] getObjectMap() {
+        // the map of the result panel is shared; it is changed only through the panel
         return dPSemanticResultImg.getObjMap();
     }
 
@@ -587,6 +609,16 @@ public final class CropEdit extends EditWindow {
         return dPPreviewImg.getScribbleList();
     }
 
+    /**
+     * Get the store of scribbles drawn for the segmentation of the current
+     * object. The store is shared with the preview panel, not copied.
+     *
+     * @return - the scribbles used for segmentation
+     */
+    public ScribbleStore getScribbleStore() {
+        return dPPreviewImg.getScribbleStore();
+    }
+
     /**
      * Get the color of the scribbles used for the segmentation of the object.
      *
@@ -627,8 +659,8 @@ public final class CropEdit extends EditWindow {
         if (dPSemanticResultImg == null) {
             return;
         }
-        // filter the object map to remove outlier points
-        dPSemanticResultImg.filterObjectMap();
+        // filter the object map to remove outlier points, with the options of the object
+        dPSemanticResultImg.filterObjectMap(objPreferences.getFilterWindowSize(), objPreferences.getFilterIterations());
         refreshCropResult();
 
         if (segmentResultPrev != null) {
@@ -644,14 +676,23 @@ public final class CropEdit extends EditWindow {
      */
     private void updateCropResult() {
         if (mattingThread != null) {
-            // the thread finished the run and the result should be ready
-            dPSemanticResultImg.setObjMap(mattingThread.getObjMap());
+            // the thread finished the run and the result should be ready; clean it as configured for the object
+            byte[][] objMap = mattingThread.getObjMap();
+            Utils.postProcessObjectMap(objMap, objPreferences);
+            dPSemanticResultImg.setObjMap(objMap);
             refreshCropResult();
         }
+    }
 
-        // enable the button, so the user can run again the algorithm
-        jBRunMattingCrop.setEnabled(true);
-        jBRunHighlightMatt.setEnabled(true);
+    /**
+     * Display the coarse result of the progressive matting, until the full
+     * resolution result is ready.
+     */
+    private void updateCropPreview() {
+        if ((mattingThread != null) && (mattingThread.getPreviewMap() != null)) {
+            dPSemanticResultImg.setObjMap(mattingThread.getPreviewMap());
+            refreshCropResult();
+        }
     }
 
     /**
@@ -678,6 +719,10 @@ public final class CropEdit extends EditWindow {
                     updateCropResult();
                     break;
 
+                case REFRESH_CROP_PREVIEW:
+                    updateCropPreview();
+                    break;
+
                 case REFRESH_BRUSH_SIZE:
                     refreshBrushSize();
                     break;
@@ -49,9 +49,14 @@ import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.Observer;
+import javax.swing.AbstractAction;
+import javax.swing.Action;
 import javax.swing.JColorChooser;
 import javax.swing.JComboBox;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPopupMenu;
+import segmentation.MattingExecutor;
 import segmentation.MattingThreading;
 
 /**
@@ -111,6 +116,12 @@ public abstract class EditWindow extends javax.swing.JDialog implements Observer
      */
     protected transient MattingThreading mattingThread;
 
+    /**
+     * Runs the matting jobs of the window on the shared matting pool and
+     * drops the results of the superseded jobs.
+     */
+    protected final transient MattingExecutor mattingExecutor = new MattingExecutor();
+
     /**
      * Makes the marked methods observable. It is part of the mechanism to
      * notify the frame on top about changes.
@@ -589,6 +600,9 @@ public abstract class EditWindow extends javax.swing.JDialog implements Observer
         // notify to add the GUI key event dispatcher back
         observable.notifyObservers(ObservedActions.Action.ADD_GUI_KEY_EVENT_DISPATCHER);
 
+        // the result of a matting still in progress is no longer needed
+        mattingExecutor.cancel();
+
         dispose();
     }
 
@@ -791,6 +805,38 @@ public abstract class EditWindow extends javax.swing.JDialog implements Observer
         // do nothing; the classes which need to implement this method; will do so
     }
 
+    /**
+     * Let the user configure the filter of the object map, from the context
+     * menu of the filter button.
+     *
+     * @return - the action opening the filter options, for adding it to other
+     * menus too
+     */
+    protected final Action addFilterOptions() {
+        Action filterOptions = new AbstractAction("Filter Options...") {
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                PostProcessingOptions.showFilterDialog(EditWindow.this, objPreferences);
+            }
+        };
+
+        JPopupMenu jPMFilter = new JPopupMenu();
+        jPMFilter.add(filterOptions);
+        jBFilterObjMap.setComponentPopupMenu(jPMFilter);
+        jBFilterObjMap.setToolTipText("Right click for the filter options");
+
+        return filterOptions;
+    }
+
+    /**
+     * Add an entry at the end of the menu with the segmentation actions.
+     *
+     * @param menuItem - the entry to be added
+     */
+    protected final void addSegmentationAction(JMenuItem menuItem) {
+        jMISemanticSegOptions.add(menuItem);
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
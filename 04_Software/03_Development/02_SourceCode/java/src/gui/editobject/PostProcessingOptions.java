@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.editobject;
+
+import gui.support.ObjectPreferences;
+import java.awt.Component;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+
+/**
+ * Dialogs for editing the post processing applied on the object map of an
+ * object after the segmentation and the filter applied on user request.
+ *
+ * @author Olimpia Popica
+ */
+public class PostProcessingOptions {
+
+    /**
+     * The maximum radius of the morphological operations, in pixels.
+     */
+    private static final int MAX_RADIUS = 20;
+
+    /**
+     * The maximum size of the removed components, in pixels.
+     */
+    private static final int MAX_COMPONENT_SIZE = 100000;
+
+    /**
+     * The maximum size of the window of the object map filter, in pixels.
+     */
+    private static final int MAX_FILTER_WINDOW = 15;
+
+    /**
+     * The maximum number of iterations of the object map filter.
+     */
+    private static final int MAX_FILTER_ITERATIONS = 10;
+
+    private PostProcessingOptions() {
+        throw new IllegalStateException("Utility class, do not instantiate!");
+    }
+
+    /**
+     * Show the post processing options of the object and save them if the
+     * user confirms.
+     *
+     * @param parent         - the window showing the dialog
+     * @param objPreferences - the preferences of the object
+     * @return - true if the options of the object were changed
+     */
+    public static boolean showDialog(Component parent, ObjectPreferences objPreferences) {
+        JSpinner jSErode = createSpinner(objPreferences.getErodeRadius(), MAX_RADIUS);
+        JSpinner jSDilate = createSpinner(objPreferences.getDilateRadius(), MAX_RADIUS);
+        JSpinner jSOpen = createSpinner(objPreferences.getOpenRadius(), MAX_RADIUS);
+        JSpinner jSClose = createSpinner(objPreferences.getCloseRadius(), MAX_RADIUS);
+        JSpinner jSMinComponent = createSpinner(objPreferences.getMinComponentSize(), MAX_COMPONENT_SIZE);
+        JCheckBox jCBFillHoles = new JCheckBox("Fill holes", objPreferences.isFillHoles());
+
+        JPanel jPOptions = new JPanel(new GridBagLayout());
+        addRow(jPOptions, 0, "Erode radius (px)", jSErode);
+        addRow(jPOptions, 1, "Dilate radius (px)", jSDilate);
+        addRow(jPOptions, 2, "Open radius (px)", jSOpen);
+        addRow(jPOptions, 3, "Close radius (px)", jSClose);
+        addRow(jPOptions, 4, "Min component size (px)", jSMinComponent);
+
+        GridBagConstraints gridBagConstraints = new GridBagConstraints();
+        gridBagConstraints.gridy = 5;
+        gridBagConstraints.gridwidth = 2;
+        gridBagConstraints.anchor = GridBagConstraints.WEST;
+        jPOptions.add(jCBFillHoles, gridBagConstraints);
+
+        int userChoice = JOptionPane.showConfirmDialog(parent, jPOptions, "Post Processing", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (userChoice != JOptionPane.OK_OPTION) {
+            return false;
+        }
+
+        int erodeRadius = (Integer) jSErode.getValue();
+        int dilateRadius = (Integer) jSDilate.getValue();
+        int openRadius = (Integer) jSOpen.getValue();
+        int closeRadius = (Integer) jSClose.getValue();
+        int minComponentSize = (Integer) jSMinComponent.getValue();
+        boolean fillHoles = jCBFillHoles.isSelected();
+
+        boolean changed = (erodeRadius != objPreferences.getErodeRadius()) || (dilateRadius != objPreferences.getDilateRadius())
+                || (openRadius != objPreferences.getOpenRadius()) || (closeRadius != objPreferences.getCloseRadius())
+                || (minComponentSize != objPreferences.getMinComponentSize()) || (fillHoles != objPreferences.isFillHoles());
+
+        objPreferences.setErodeRadius(erodeRadius);
+        objPreferences.setDilateRadius(dilateRadius);
+        objPreferences.setOpenRadius(openRadius);
+        objPreferences.setCloseRadius(closeRadius);
+        objPreferences.setMinComponentSize(minComponentSize);
+        objPreferences.setFillHoles(fillHoles);
+
+        return changed;
+    }
+
+    /**
+     * Show the options of the filter of the object map and save them if the
+     * user confirms. The options are used the next time the object map is
+     * filtered.
+     *
+     * @param parent         - the window showing the dialog
+     * @param objPreferences - the preferences of the object
+     */
+    public static void showFilterDialog(Component parent, ObjectPreferences objPreferences) {
+        // the window needs a center pixel, so only odd sizes are offered
+        int windowSize = Math.max(3, Math.min(MAX_FILTER_WINDOW, objPreferences.getFilterWindowSize() | 1));
+        JSpinner jSWindow = new JSpinner(new SpinnerNumberModel(windowSize, 3, MAX_FILTER_WINDOW, 2));
+        int iterations = Math.max(1, Math.min(MAX_FILTER_ITERATIONS, objPreferences.getFilterIterations()));
+        JSpinner jSIterations = new JSpinner(new SpinnerNumberModel(iterations, 1, MAX_FILTER_ITERATIONS, 1));
+
+        JPanel jPOptions = new JPanel(new GridBagLayout());
+        addRow(jPOptions, 0, "Filter window (px)", jSWindow);
+        addRow(jPOptions, 1, "Filter iterations", jSIterations);
+
+        int userChoice = JOptionPane.showConfirmDialog(parent, jPOptions, "Filter Options", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (userChoice != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        objPreferences.setFilterWindowSize((Integer) jSWindow.getValue());
+        objPreferences.setFilterIterations((Integer) jSIterations.getValue());
+    }
+
+    /**
+     * Create a spinner for a value between 0 and the given maximum.
+     */
+    private static JSpinner createSpinner(int value, int max) {
+        return new JSpinner(new SpinnerNumberModel(Math.max(0, Math.min(max, value)), 0, max, 1));
+    }
+
+    /**
+     * Add a labeled option on the given row of the panel.
+     */
+    private static void addRow(JPanel panel, int row, String text, Component option) {
+        GridBagConstraints gridBagConstraints = new GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = row;
+        gridBagConstraints.anchor = GridBagConstraints.WEST;
+        gridBagConstraints.insets = new Insets(2, 2, 2, 8);
+        panel.add(new JLabel(text), gridBagConstraints);
+
+        gridBagConstraints = new GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = row;
+        gridBagConstraints.fill = GridBagConstraints.HORIZONTAL;
+        gridBagConstraints.insets = new Insets(2, 2, 2, 2);
+        panel.add(option, gridBagConstraints);
+    }
+}
@@ -63,6 +63,8 @@ public class SemanticObjEdit extends BoxEdit {
         super(parent, frameImage, currentObj, objectAttributes, actionOwner, objColorsList, userPreferences);
 
         jBFilterObjMap.setVisible(true);
+
+        addFilterOptions();
     }
 
     @Override
@@ -81,7 +83,8 @@ public class SemanticObjEdit extends BoxEdit {
             return;
         }
 
-        Utils.filterObjectMap(((ObjectScribble) currentObject).getObjectMap());
+        Utils.filterObjectMap(((ObjectScribble) currentObject).getObjectMap(),
+                objPreferences.getFilterWindowSize(), objPreferences.getFilterIterations());
 
         // show the new image
         showImage();
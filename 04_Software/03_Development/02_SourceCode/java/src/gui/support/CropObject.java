@@ -26,10 +26,10 @@
 package gui.support;
 
 import library.Resize;
+import library.ScribbleStore;
 import commonsegmentation.ScribbleInfo;
 
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -45,10 +45,10 @@ public class CropObject {
     private Rectangle positionOrig;
 
     /**
-     * The list of scribbles drawn on the image in order to segment the wanted
+     * The scribbles drawn on the image in order to segment the wanted
      * object.
      */
-    private List<ScribbleInfo> scribbleList;
+    private ScribbleStore scribbleStore;
 
     /**
      * The map of the object after the segmentation algorithm was called.
@@ -60,6 +60,12 @@ public class CropObject {
      */
     private int filterCounter;
 
+    /**
+     * The signature of the input (position and scribbles) from which the
+     * object map was computed; 0 if it is not known.
+     */
+    private long mapSignature;
+
     /**
      * Instantiates a new Crop object.
      */
@@ -95,37 +101,34 @@ public class CropObject {
     }
 
     /**
-     * Gets scribble list.
+     * Gets scribble list. The list is created from the scribble store; changing
+     * it does not change the scribbles of the crop.
      *
-     * @return the scribble list
+     * @return the scribble list, or null if the crop has no scribbles
      */
     public List<ScribbleInfo> getScribbleList() {
-        return scribbleList;
+        return (scribbleStore == null) ? null : scribbleStore.toScribbleInfoList();
+    }
+
+    /**
+     * Gets the scribbles of the crop.
+     *
+     * @return the scribble store, or null if the crop has no scribbles
+     */
+    public ScribbleStore getScribbleStore() {
+        return scribbleStore;
     }
 
     /**
-     * Create a display scribble list just for displaying purposes.
+     * Create the scribbles of the crop just for displaying purposes.
      *
      * @param cropPos       - the position of the crop in the panel
      * @param scribbleColor - the color of the scribble is known from the object level
      * @param resize        - the resize ratio
-     * @return - the list of scribbles to be displayed, in panel coordinates
+     * @return - the scribbles to be displayed, or null if the crop has no scribbles
      */
-    public List<DisplayScribbles> getDisplayScribbleList(Rectangle cropPos, Color scribbleColor, Resize resize) {
-        List<DisplayScribbles> displayScribbles = new ArrayList<>();
-
-        if (scribbleList != null) {
-            for (ScribbleInfo si : scribbleList) {
-                Color color = (si.getDrawingType() == 0) ? Color.red : scribbleColor;
-
-                int x = resize.originalToResized(si.getImgPosX()) + cropPos.x;
-                int y = resize.originalToResized(si.getImgPosY()) + cropPos.y;
-                Point scribblePos = new Point(x, y);
-                DisplayScribbles ds = new DisplayScribbles(color, scribblePos);
-                displayScribbles.add(ds);
-            }
-        }
-        return displayScribbles;
+    public DisplayScribbles getDisplayScribbles(Rectangle cropPos, Color scribbleColor, Resize resize) {
+        return (scribbleStore == null) ? null : new DisplayScribbles(scribbleStore, cropPos, scribbleColor, resize);
     }
 
     /**
@@ -134,7 +137,16 @@ public class CropObject {
      * @param scribbleList the scribble list
      */
     public void setScribbleList(List<ScribbleInfo> scribbleList) {
-        this.scribbleList = scribbleList;
+        this.scribbleStore = (scribbleList == null) ? null : ScribbleStore.fromScribbleInfoList(scribbleList);
+    }
+
+    /**
+     * Sets the scribbles of the crop.
+     *
+     * @param scribbleStore the scribble store
+     */
+    public void setScribbleStore(ScribbleStore scribbleStore) {
+        this.scribbleStore = scribbleStore;
     }
 
     /**
@@ -147,12 +159,89 @@ public class CropObject {
     }
 
     /**
-     * Sets object map.
+     * Sets object map. The input it was computed from is not known, so the map
+     * is not considered valid by isObjectMapValid.
      *
      * @param objectMap the object map
      */
     public void setObjectMap(byte[][] objectMap) {
+        setObjectMap(objectMap, 0L);
+    }
+
+    /**
+     * Sets the object map, together with the signature of the input it was
+     * computed from.
+     *
+     * @param objectMap    the object map
+     * @param mapSignature the signature of the position and scribbles used for
+     *                     computing the map (see computeInputSignature)
+     */
+    public void setObjectMap(byte[][] objectMap, long mapSignature) {
         this.objectMap = objectMap;
+        this.mapSignature = mapSignature;
+    }
+
+    /**
+     * Returns the signature of the input the object map was computed from.
+     *
+     * @return the signature, or 0 if it is not known
+     */
+    public long getMapSignature() {
+        return mapSignature;
+    }
+
+    /**
+     * Compute the signature (64 bit FNV-1a hash) of the input of the
+     * segmentation: the position of the crop and the scribbles, in their
+     * order.
+     *
+     * @return the signature of the current position and scribbles; never 0
+     */
+    public long computeInputSignature() {
+        long hash = 0xcbf29ce484222325L;
+
+        if (positionOrig != null) {
+            hash = hashInt(hash, positionOrig.x);
+            hash = hashInt(hash, positionOrig.y);
+            hash = hashInt(hash, positionOrig.width);
+            hash = hashInt(hash, positionOrig.height);
+        }
+
+        if (scribbleStore != null) {
+            for (int index = 0; index < scribbleStore.size(); index++) {
+                hash = hashInt(hash, scribbleStore.getLabel(index));
+                hash = hashInt(hash, scribbleStore.getX(index));
+                hash = hashInt(hash, scribbleStore.getY(index));
+            }
+        }
+
+        return (hash == 0L) ? 1L : hash;
+    }
+
+    /**
+     * Checks if the object map exists, has the size of the crop and was
+     * computed from the current position and scribbles.
+     *
+     * @return true if the object map can be used without running the matting
+     * again
+     */
+    public boolean isObjectMapValid() {
+        return (objectMap != null) && (positionOrig != null)
+                && (objectMap.length == positionOrig.width)
+                && ((objectMap.length == 0) || (objectMap[0].length == positionOrig.height))
+                && (mapSignature != 0L) && (mapSignature == computeInputSignature());
+    }
+
+    /**
+     * Add the bytes of the value to the FNV-1a hash.
+     */
+    private static long hashInt(long hash, int value) {
+        long result = hash;
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            result ^= (value >>> shift) & 0xFF;
+            result *= 0x100000001b3L;
+        }
+        return result;
     }
 
     @Override
@@ -25,29 +25,57 @@
  */
 package gui.support;
 
-import java.awt.Point;
 import java.awt.Color;
+import java.awt.Rectangle;
+import library.Resize;
+import library.ScribbleStore;
 
 /**
- * Encapsulate the needed information to be able to display scribbles. They will
- * not be used in the algorithms; just for display purposes.
+ * Encapsulate the needed information to be able to display the scribbles of a
+ * crop. They will not be used in the algorithms; just for display purposes.
+ * The panel position of each scribble is computed when drawing, from the
+ * position of the crop and the resize ratio.
  *
  * @author Olimpia Popica
  */
 public class DisplayScribbles {
 
-    private final Color color;            // the color of the scribble
-    private final Point panelPos;    // the position of the pixel in the panel
+    private final ScribbleStore scribbleStore;  // the scribbles, in crop coordinates
+    private final Rectangle cropPos;            // the position of the crop in the panel
+    private final Color color;                  // the color of the object scribbles
+    private final Resize resize;                // the resize ratio of the panel
 
     /**
      * Instantiates a new Display scribbles.
      *
-     * @param color    the color
-     * @param panelPos the panel pos
+     * @param scribbleStore the scribbles of the crop
+     * @param cropPos       the position of the crop in the panel
+     * @param color         the color of the object scribbles
+     * @param resize        the resize ratio of the panel
      */
-    public DisplayScribbles(Color color, Point panelPos) {
+    public DisplayScribbles(ScribbleStore scribbleStore, Rectangle cropPos, Color color, Resize resize) {
+        this.scribbleStore = scribbleStore;
+        this.cropPos = cropPos;
         this.color = color;
-        this.panelPos = panelPos;
+        this.resize = resize;
+    }
+
+    /**
+     * Gets the scribbles of the crop.
+     *
+     * @return the scribble store
+     */
+    public ScribbleStore getScribbleStore() {
+        return scribbleStore;
+    }
+
+    /**
+     * Gets the position of the crop in the panel.
+     *
+     * @return the crop position
+     */
+    public Rectangle getCropPos() {
+        return cropPos;
     }
 
     /**
@@ -60,11 +88,11 @@ public class DisplayScribbles {
     }
 
     /**
-     * Gets panel pos.
+     * Gets the resize ratio of the panel.
      *
-     * @return the panel pos
+     * @return the resize
      */
-    public Point getPanelPos() {
-        return panelPos;
+    public Resize getResize() {
+        return resize;
     }
 }
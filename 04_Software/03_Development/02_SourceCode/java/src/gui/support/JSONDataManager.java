@@ -80,6 +80,15 @@ public class JSONDataManager {
     private static final String POSITION_Y = "position_y";
     private static final String WIDTH = "width";
     private static final String HEIGHT = "height";
+    private static final String CROP_MAP_PATH = "crop_map_path";
+    private static final String INPUT_SIGNATURE = "input_signature";
+    private static final String POST_PROCESSING = "Post Processing";
+    private static final String ERODE_RADIUS = "erode_radius";
+    private static final String DILATE_RADIUS = "dilate_radius";
+    private static final String OPEN_RADIUS = "open_radius";
+    private static final String CLOSE_RADIUS = "close_radius";
+    private static final String FILL_HOLES = "fill_holes";
+    private static final String MIN_COMPONENT_SIZE = "min_component_size";
 
     /**
      * logger instance
@@ -172,6 +181,11 @@ public class JSONDataManager {
 
             // generate and save object map 
             saveMapFile(objectMapPath, ((ObjectScribble) object).getObjectMap());
+
+            // save the post processing of the object map, if the user configured one
+            if (object.getUserPreference().isPostProcessingEnabled()) {
+                jsonObject.put(POST_PROCESSING, savePostProcessing(object.getUserPreference()));
+            }
         } else if (object instanceof ObjectPolygon) {
             String objectMapPath = gtFilePath + "_map_obj_" + object.getObjectId() + ".ser";
 
@@ -226,6 +240,53 @@ public class JSONDataManager {
         }
     }
 
+    /**
+     * Save the post processing options of the object map.
+     *
+     * @param objPreferences - the preferences of the object
+     * @return - the options, as json object
+     */
+    private static JSONObject savePostProcessing(ObjectPreferences objPreferences) {
+        JSONObject postProcessing = new JSONObject();
+
+        postProcessing.put(ERODE_RADIUS, objPreferences.getErodeRadius());
+        postProcessing.put(DILATE_RADIUS, objPreferences.getDilateRadius());
+        postProcessing.put(OPEN_RADIUS, objPreferences.getOpenRadius());
+        postProcessing.put(CLOSE_RADIUS, objPreferences.getCloseRadius());
+        postProcessing.put(FILL_HOLES, objPreferences.isFillHoles());
+        postProcessing.put(MIN_COMPONENT_SIZE, objPreferences.getMinComponentSize());
+
+        return postProcessing;
+    }
+
+    /**
+     * Restore the post processing options of the object map; the missing
+     * options keep their default values.
+     *
+     * @param objPreferences - the preferences of the object
+     * @param postProcessing - the saved options; null if there are none
+     */
+    private static void restorePostProcessing(ObjectPreferences objPreferences, JSONObject postProcessing) {
+        if (postProcessing == null) {
+            return;
+        }
+
+        objPreferences.setErodeRadius(readInt(postProcessing, ERODE_RADIUS));
+        objPreferences.setDilateRadius(readInt(postProcessing, DILATE_RADIUS));
+        objPreferences.setOpenRadius(readInt(postProcessing, OPEN_RADIUS));
+        objPreferences.setCloseRadius(readInt(postProcessing, CLOSE_RADIUS));
+        objPreferences.setFillHoles(Boolean.TRUE.equals(postProcessing.get(FILL_HOLES)));
+        objPreferences.setMinComponentSize(readInt(postProcessing, MIN_COMPONENT_SIZE));
+    }
+
+    /**
+     * Read an integer value of the json object; 0 if it is missing.
+     */
+    private static int readInt(JSONObject jsonObject, String key) {
+        Object value = jsonObject.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : 0;
+    }
+
     /**
      * Save crop list in the ground truth.
      *
@@ -260,6 +321,15 @@ public class JSONDataManager {
                 crop.put(WIDTH, pos.width);
                 crop.put(HEIGHT, pos.height);
 
+                // save the segmentation of the crop, so it can be restored instead of running the matting again
+                if (cropObject.isObjectMapValid()) {
+                    String cropMapPathCrop = gtFilePath + "_crop_map_" + objId + "_" + cropList.indexOf(cropObject) + ".bin";
+                    saveMapFile(cropMapPathCrop, cropObject.getObjectMap());
+
+                    crop.put(CROP_MAP_PATH, cropMapPathCrop);
+                    crop.put(INPUT_SIGNATURE, cropObject.getMapSignature());
+                }
+
                 cropsArray.add(crop);
             }
         }
@@ -339,7 +409,7 @@ public class JSONDataManager {
      * @param frameInfo the frame info
      * @param objectList the object list
      */
-    public void readFile(String filePath, FrameInfo frameInfo, List<Objects> objectList) {
+    public void readFile(String filePath, FrameInfo frameInfo, ObjectRegistry objectList) {
         // add the file extension
         String jsonFilePath = filePath + "_GT.json";
 
@@ -385,13 +455,15 @@ public class JSONDataManager {
                             cropObj.setPositionOrig(new Rectangle((int) ((long) jsonCrop.get(POSITION_X)), (int) ((long) jsonCrop.get(POSITION_Y)),
                                     (int) ((long) jsonCrop.get(WIDTH)), (int) ((long) jsonCrop.get(HEIGHT))));
                             cropObj.setScribbleList(getScribbleList((String) jsonCrop.get("scribble_map_path")));
-                            cropObj.setObjectMap(new byte[(int) ((long) jsonCrop.get(WIDTH))][(int) ((long) jsonCrop.get(HEIGHT))]);
+                            restoreCropMap(cropObj, jsonCrop);
 
                             // add the crop to the object list of crops
                             ((ObjectScribble) obj).addToCropList(cropObj);
                         }
                     }
 
+                    restorePostProcessing(obj.getUserPreference(), (JSONObject) jsonObject.get(POST_PROCESSING));
+
                 } else if (segmentationType.equalsIgnoreCase(ConstantsLabeling.LABEL_2D_BOUNDING_BOX)) {
                     obj = new ObjectBBox();
                 } else if (segmentationType.equalsIgnoreCase(ConstantsLabeling.LABEL_POLYGON)) {
@@ -415,7 +487,7 @@ public class JSONDataManager {
                     obj.setColor(Utils.getColorOfObjByID(objectId));
 
                     // add the object in the object list if it does not exist yet
-                    if (!isObjInObjList(obj, objectList)) {
+                    if (!objectList.containsId(obj.getObjectId())) {
                         // add the object in the list
                         objectList.add(obj);
                     }
@@ -433,6 +505,61 @@ public class JSONDataManager {
         }
     }
 
+    /**
+     * Restore the saved segmentation of the crop, if it exists and it was
+     * computed from the same position and scribbles; else, the crop gets an
+     * empty map and it has to be segmented again.
+     *
+     * @param cropObj  - the crop, with its position and scribbles already set
+     * @param jsonCrop - the ground truth of the crop
+     */
+    private void restoreCropMap(CropObject cropObj, JSONObject jsonCrop) {
+        int width = cropObj.getPositionOrig().width;
+        int height = cropObj.getPositionOrig().height;
+        String cropMapPath = (String) jsonCrop.get(CROP_MAP_PATH);
+        Object signature = jsonCrop.get(INPUT_SIGNATURE);
+
+        if ((cropMapPath != null) && (signature instanceof Long) && ((long) signature == cropObj.computeInputSignature())) {
+            byte[][] map = readMapFile(cropMapPath, width, height);
+            if (map != null) {
+                cropObj.setObjectMap(map, (long) signature);
+                return;
+            }
+        }
+
+        log.debug("The map of the crop {} is missing or stale; it will be segmented again", cropObj.getPositionOrig());
+        cropObj.setObjectMap(new byte[width][height]);
+    }
+
+    /**
+     * Read an object map saved with saveMapFile.
+     *
+     * @param mapPath - the path of the map file
+     * @param width   - the expected width of the map
+     * @param height  - the expected height of the map
+     * @return the map, or null if the file does not exist or has a different
+     * size than expected
+     */
+    private byte[][] readMapFile(String mapPath, int width, int height) {
+        File mapFile = new File(mapPath);
+        if (!mapFile.isFile() || (mapFile.length() != (long) width * height)) {
+            return null;
+        }
+
+        byte[][] map = new byte[width][height];
+        try (DataInputStream din = new DataInputStream(new BufferedInputStream(new FileInputStream(mapFile)))) {
+            for (byte[] mapLine : map) {
+                din.readFully(mapLine);
+            }
+        } catch (IOException ex) {
+            log.error("Read the map file error");
+            log.debug("Read the map file error {}", ex);
+            return null;
+        }
+
+        return map;
+    }
+
     /**
      * Get the scribble list from the scribble map path. The scribble list is
      * stored in a text file and it has to be loaded and put back in the
@@ -480,16 +607,6 @@ public class JSONDataManager {
         return polygon;
     }
 
-    /**
-     * Checks if the object exists in the objects list.
-     *
-     * @param obj - the object to check if it exists in the list
-     * @return - true if the object exists and false otherwise
-     */
-    private static boolean isObjInObjList(Objects obj, List<Objects> objectList) {
-        return objectList.stream().anyMatch(object -> (object.getObjectId() == obj.getObjectId()));
-    }
-
     /**
      * Parse the JSON file and retrieve the frame information.
      *
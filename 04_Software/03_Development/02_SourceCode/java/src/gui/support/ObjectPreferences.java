@@ -25,6 +25,8 @@
  */
 package gui.support;
 
+import library.MajorityFilter;
+
 /**
  * The type Object preferences.
  *
@@ -42,6 +44,54 @@ public class ObjectPreferences {
      */
     private int borderSize;
 
+    /**
+     * The radius of the erosion applied on the object map after the
+     * segmentation (0 = no erosion).
+     */
+    private int erodeRadius;
+
+    /**
+     * The radius of the dilation applied on the object map after the
+     * segmentation (0 = no dilation).
+     */
+    private int dilateRadius;
+
+    /**
+     * The radius of the opening applied on the object map after the
+     * segmentation (0 = no opening).
+     */
+    private int openRadius;
+
+    /**
+     * The radius of the closing applied on the object map after the
+     * segmentation (0 = no closing).
+     */
+    private int closeRadius;
+
+    /**
+     * True if the holes of the object map shall be filled after the
+     * segmentation.
+     */
+    private boolean fillHoles;
+
+    /**
+     * The components of the object map having less pixels are removed after
+     * the segmentation (0 = keep all).
+     */
+    private int minComponentSize;
+
+    /**
+     * The size of the window of the filter applied on the object map when the
+     * user asks for it.
+     */
+    private int filterWindowSize;
+
+    /**
+     * How many times the filter is applied on the object map when the user
+     * asks for it.
+     */
+    private int filterIterations;
+
     /**
      * Instantiates a new Object preferences.
      */
@@ -49,6 +99,29 @@ public class ObjectPreferences {
         this.zoomingIndex = Integer.MAX_VALUE;
 
         this.borderSize = 0;
+
+        this.filterWindowSize = MajorityFilter.DEFAULT_WINDOW_SIZE;
+        this.filterIterations = 1;
+    }
+
+    /**
+     * Returns a copy of the preferences, which can be changed independently.
+     *
+     * @return the copy of the preferences
+     */
+    public ObjectPreferences copy() {
+        ObjectPreferences copy = new ObjectPreferences();
+        copy.zoomingIndex = zoomingIndex;
+        copy.borderSize = borderSize;
+        copy.erodeRadius = erodeRadius;
+        copy.dilateRadius = dilateRadius;
+        copy.openRadius = openRadius;
+        copy.closeRadius = closeRadius;
+        copy.fillHoles = fillHoles;
+        copy.minComponentSize = minComponentSize;
+        copy.filterWindowSize = filterWindowSize;
+        copy.filterIterations = filterIterations;
+        return copy;
     }
 
     /**
@@ -87,4 +160,159 @@ public class ObjectPreferences {
         this.borderSize = borderSize;
     }
 
+    /**
+     * Return the radius of the erosion applied after the segmentation.
+     *
+     * @return the radius of the erosion, in pixels; 0 if not used
+     */
+    public int getErodeRadius() {
+        return erodeRadius;
+    }
+
+    /**
+     * Set the radius of the erosion applied after the segmentation.
+     *
+     * @param erodeRadius the radius of the erosion, in pixels; 0 if not used
+     */
+    public void setErodeRadius(int erodeRadius) {
+        this.erodeRadius = erodeRadius;
+    }
+
+    /**
+     * Return the radius of the dilation applied after the segmentation.
+     *
+     * @return the radius of the dilation, in pixels; 0 if not used
+     */
+    public int getDilateRadius() {
+        return dilateRadius;
+    }
+
+    /**
+     * Set the radius of the dilation applied after the segmentation.
+     *
+     * @param dilateRadius the radius of the dilation, in pixels; 0 if not used
+     */
+    public void setDilateRadius(int dilateRadius) {
+        this.dilateRadius = dilateRadius;
+    }
+
+    /**
+     * Return the radius of the opening applied after the segmentation.
+     *
+     * @return the radius of the opening, in pixels; 0 if not used
+     */
+    public int getOpenRadius() {
+        return openRadius;
+    }
+
+    /**
+     * Set the radius of the opening applied after the segmentation.
+     *
+     * @param openRadius the radius of the opening, in pixels; 0 if not used
+     */
+    public void setOpenRadius(int openRadius) {
+        this.openRadius = openRadius;
+    }
+
+    /**
+     * Return the radius of the closing applied after the segmentation.
+     *
+     * @return the radius of the closing, in pixels; 0 if not used
+     */
+    public int getCloseRadius() {
+        return closeRadius;
+    }
+
+    /**
+     * Set the radius of the closing applied after the segmentation.
+     *
+     * @param closeRadius the radius of the closing, in pixels; 0 if not used
+     */
+    public void setCloseRadius(int closeRadius) {
+        this.closeRadius = closeRadius;
+    }
+
+    /**
+     * Check if the holes of the object are filled after the segmentation.
+     *
+     * @return true if the holes are filled
+     */
+    public boolean isFillHoles() {
+        return fillHoles;
+    }
+
+    /**
+     * Set if the holes of the object are filled after the segmentation.
+     *
+     * @param fillHoles true if the holes shall be filled
+     */
+    public void setFillHoles(boolean fillHoles) {
+        this.fillHoles = fillHoles;
+    }
+
+    /**
+     * Return the minimum size of the components kept after the segmentation.
+     *
+     * @return the minimum number of pixels of a component; 0 if all are kept
+     */
+    public int getMinComponentSize() {
+        return minComponentSize;
+    }
+
+    /**
+     * Set the minimum size of the components kept after the segmentation.
+     *
+     * @param minComponentSize the minimum number of pixels of a component; 0
+     * if all are kept
+     */
+    public void setMinComponentSize(int minComponentSize) {
+        this.minComponentSize = minComponentSize;
+    }
+
+    /**
+     * Return the size of the window of the object map filter.
+     *
+     * @return the size of the filtering window, in pixels
+     */
+    public int getFilterWindowSize() {
+        return filterWindowSize;
+    }
+
+    /**
+     * Set the size of the window of the object map filter.
+     *
+     * @param filterWindowSize the size of the filtering window, in pixels
+     */
+    public void setFilterWindowSize(int filterWindowSize) {
+        this.filterWindowSize = filterWindowSize;
+    }
+
+    /**
+     * Return how many times the object map filter is applied.
+     *
+     * @return the number of iterations of the filter
+     */
+    public int getFilterIterations() {
+        return filterIterations;
+    }
+
+    /**
+     * Set how many times the object map filter is applied.
+     *
+     * @param filterIterations the number of iterations of the filter
+     */
+    public void setFilterIterations(int filterIterations) {
+        this.filterIterations = filterIterations;
+    }
+
+    /**
+     * Check if any post processing of the object map is configured.
+     *
+     * @return true if at least one post processing step is enabled
+     */
+    public boolean isPostProcessingEnabled() {
+        return (erodeRadius > 0) || (dilateRadius > 0) || (openRadius > 0)
+                || (closeRadius > 0) || fillHoles || (minComponentSize > 1);
+    }
+
 }
@@ -0,0 +1,410 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.support;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * The list of objects of a frame. It keeps the insertion order of the objects
+ * (like an array list) and, in addition, a map from the object id to the
+ * object and the maximum id in the list, so that the searches by id do not
+ * need to go through the whole list.
+ * <p>
+ * When several objects share the same id, the searches return the first one
+ * in the list.
+ *
+ * @author Olimpia Popica
+ */
+public class ObjectRegistry extends AbstractList<Objects> implements RandomAccess {
+
+    /**
+     * The objects, in the order in which they were added.
+     */
+    private final ArrayList<Objects> objects;
+
+    /**
+     * The map id - object (the first object in the list having the id).
+     */
+    private final LongObjectMap idMap;
+
+    /**
+     * The maximum id of the objects in the list.
+     */
+    private long maxId;
+
+    /**
+     * True when the maximum id has to be recomputed (the object having it was
+     * removed).
+     */
+    private boolean maxIdStale;
+
+    /**
+     * Create an empty list of objects.
+     */
+    public ObjectRegistry() {
+        objects = new ArrayList<>();
+        idMap = new LongObjectMap();
+    }
+
+    /**
+     * Create a list containing the given objects, in the order of the
+     * collection.
+     *
+     * @param objList the objects to be added in the list
+     */
+    public ObjectRegistry(Collection<? extends Objects> objList) {
+        this();
+        addAll(objList);
+    }
+
+    @Override
+    public Objects get(int index) {
+        return objects.get(index);
+    }
+
+    @Override
+    public int size() {
+        return objects.size();
+    }
+
+    @Override
+    public void add(int index, Objects obj) {
+        objects.add(index, obj);
+        modCount++;
+
+        long id = obj.getObjectId();
+        if (!idMap.containsKey(id)) {
+            idMap.put(id, obj);
+        } else if (index < objects.size() - 1) {
+            // the new object might be placed before the one registered for the id
+            idMap.put(id, findFirst(id));
+        }
+
+        if (!maxIdStale && id > maxId) {
+            maxId = id;
+        }
+    }
+
+    @Override
+    public Objects remove(int index) {
+        Objects obj = objects.remove(index);
+        modCount++;
+
+        unregister(obj);
+
+        return obj;
+    }
+
+    @Override
+    public Objects set(int index, Objects obj) {
+        Objects oldObj = objects.set(index, obj);
+
+        unregister(oldObj);
+
+        long id = obj.getObjectId();
+        idMap.put(id, findFirst(id));
+        if (!maxIdStale && id > maxId) {
+            maxId = id;
+        }
+
+        return oldObj;
+    }
+
+    @Override
+    public void clear() {
+        objects.clear();
+        idMap.clear();
+        maxId = 0L;
+        maxIdStale = false;
+        modCount++;
+    }
+
+    /**
+     * Return the object having the specified id.
+     *
+     * @param objId the id of the searched object
+     * @return the first object in the list having the id or null if there is
+     * no such object
+     */
+    public Objects getById(long objId) {
+        return idMap.get(objId);
+    }
+
+    /**
+     * Check if an object with the specified id exists in the list.
+     *
+     * @param objId the searched id
+     * @return true if an object with the id exists in the list
+     */
+    public boolean containsId(long objId) {
+        return idMap.containsKey(objId);
+    }
+
+    /**
+     * Return the maximum id of the objects in the list.
+     *
+     * @return the maximum object id or 0 if the list is empty
+     */
+    public long getMaxId() {
+        if (maxIdStale) {
+            maxId = 0L;
+            for (Objects obj : objects) {
+                maxId = Math.max(maxId, obj.getObjectId());
+            }
+            maxIdStale = false;
+        }
+
+        return maxId;
+    }
+
+    /**
+     * Update the map of ids, after the id of an object from the list was
+     * changed.
+     *
+     * @param obj the object which got a new id
+     * @param oldId the previous id of the object
+     */
+    public void updateId(Objects obj, long oldId) {
+        if (!idMap.containsKey(oldId)) {
+            // no object of the list had the old id
+            return;
+        }
+
+        if (idMap.get(oldId) == obj) {
+            idMap.put(oldId, findFirst(oldId));
+        }
+
+        long id = obj.getObjectId();
+        if (objects.contains(obj)) {
+            idMap.put(id, findFirst(id));
+
+            if (oldId >= maxId) {
+                maxIdStale = true;
+            } else if (!maxIdStale && id > maxId) {
+                maxId = id;
+            }
+        }
+    }
+
+    /**
+     * Remove the object from the map of ids and from the maximum id.
+     *
+     * @param obj the object removed from the list
+     */
+    private void unregister(Objects obj) {
+        long id = obj.getObjectId();
+
+        if (idMap.get(id) == obj) {
+            idMap.put(id, findFirst(id));
+        }
+
+        if (objects.isEmpty()) {
+            maxId = 0L;
+            maxIdStale = false;
+        } else if (id >= maxId) {
+            maxIdStale = true;
+        }
+    }
+
+    /**
+     * Search in the list the first object having the specified id.
+     *
+     * @param objId the searched id
+     * @return the first object having the id or null if not found
+     */
+    private Objects findFirst(long objId) {
+        for (Objects obj : objects) {
+            if (obj.getObjectId() == objId) {
+                return obj;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hash map from primitive long keys to objects, using open addressing with
+     * linear probing; it avoids boxing the ids.
+     */
+    private static final class LongObjectMap {
+
+        /**
+         * The keys of the map.
+         */
+        private long[] keys;
+
+        /**
+         * The values of the map; a null value marks a free slot.
+         */
+        private Objects[] values;
+
+        /**
+         * The number of entries in the map.
+         */
+        private int size;
+
+        /**
+         * Create an empty map.
+         */
+        LongObjectMap() {
+            keys = new long[16];
+            values = new Objects[16];
+        }
+
+        /**
+         * Return the value of the key.
+         *
+         * @param key the searched key
+         * @return the value of the key or null if the key is not in the map
+         */
+        Objects get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Check if the key is in the map.
+         *
+         * @param key the searched key
+         * @return true if the key is in the map
+         */
+        boolean containsKey(long key) {
+            return get(key) != null;
+        }
+
+        /**
+         * Put the value for the key; a null value removes the key.
+         *
+         * @param key the key
+         * @param value the value of the key
+         */
+        void put(long key, Objects value) {
+            if (value == null) {
+                remove(key);
+                return;
+            }
+
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != null) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+        }
+
+        /**
+         * Remove the key from the map.
+         *
+         * @param key the key to be removed
+         */
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+
+            if (values[slot] == null) {
+                return;
+            }
+
+            values[slot] = null;
+            size--;
+
+            // shift back the following entries of the cluster, to keep the probing valid
+            int free = slot;
+            for (slot = (slot + 1) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+                int home = hash(keys[slot]) & mask;
+                boolean canMove = (free <= slot) ? ((home <= free) || (home > slot)) : ((home <= free) && (home > slot));
+                if (canMove) {
+                    keys[free] = keys[slot];
+                    values[free] = values[slot];
+                    values[slot] = null;
+                    free = slot;
+                }
+            }
+        }
+
+        /**
+         * Remove all the entries.
+         */
+        void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        /**
+         * Allocate new tables and put again all the entries.
+         *
+         * @param capacity the new capacity; power of 2
+         */
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Objects[] oldValues = values;
+
+            keys = new long[capacity];
+            values = new Objects[capacity];
+            size = 0;
+
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldValues[slot] != null) {
+                    put(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        /**
+         * Spread the bits of the key.
+         *
+         * @param key the key
+         * @return the hash of the key
+         */
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
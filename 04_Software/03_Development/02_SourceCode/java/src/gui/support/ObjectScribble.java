@@ -25,10 +25,12 @@
  */
 package gui.support;
 
+import common.Constants;
 import common.ConstantsLabeling;
 import common.Utils;
+import library.ConnectedComponents;
+import library.ContourTracer;
 import library.Resize;
-import commonsegmentation.ScribbleInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -139,32 +141,25 @@ public class ObjectScribble extends Objects {
         }
 
         /*--------------------------STEP 2------------------------------------*/
-        int minX = Integer.MAX_VALUE;
-        int minY = Integer.MAX_VALUE;
-        int maxX = Integer.MIN_VALUE;
-        int maxY = Integer.MIN_VALUE;
-
-        // find the rectangle which contains the exact object
-        for (int y = 0; y < objPos.height; y++) {
-            for (int x = 0; x < objPos.width; x++) {
-                // search for the edges of the object
-                if (tempMap[x][y] > 0) {
-                    if (x < minX) {
-                        minX = x;
-                    }
-                    if (y < minY) {
-                        minY = y;
-                    }
-                    if (x > maxX) {
-                        maxX = x;
-                    }
-                    if (y > maxY) {
-                        maxY = y;
-                    }
-                }
-            }
+        // find the rectangle which contains the exact object: the union of the boxes of its components
+        // big enough not to be noise; the stray islands are dropped so they do not inflate the box
+        ConnectedComponents components = new ConnectedComponents(tempMap);
+        Rectangle objBounds = components.getOuterBounds(Constants.MIN_SEGMENTED_COMPONENT_SIZE);
+        int droppedBits = 0;
+
+        if (objBounds == null) {
+            // only small parts were segmented; keep them all instead of losing the object
+            objBounds = components.getOuterBounds(1);
+        } else {
+            droppedBits = objBitCounter;
+            components.removeSmallComponentsFrom(tempMap, Constants.MIN_SEGMENTED_COMPONENT_SIZE);
         }
 
+        int minX = objBounds.x;
+        int minY = objBounds.y;
+        int maxX = objBounds.x + objBounds.width - 1;
+        int maxY = objBounds.y + objBounds.height - 1;
+
         /*--------------------------STEP 3------------------------------------*/
         int mapXPos = objPos.x + minX;
         int mapYPos = objPos.y + minY;
@@ -190,10 +185,15 @@ public class ObjectScribble extends Objects {
             }
         }
 
+        // the dropped islands were cleared from the temp map, so it has to match the extracted map
         int sumTempObjMap = 0;
+        int keptBits = 0;
         for (int y = 0; y < objPos.height; y++) {
             for (int x = 0; x < objPos.width; x++) {
                 sumTempObjMap += tempMap[x][y];
+                if (tempMap[x][y] > (byte) 0) {
+                    keptBits++;
+                }
             }
         }
 
@@ -201,6 +201,10 @@ public class ObjectScribble extends Objects {
             log.error("THE OBJECT MAP IS DIFFERENT!!!! {} obj - temp = ", (sumObjMap - sumTempObjMap));
         }
 
+        if (droppedBits > keptBits) {
+            log.debug("{} pixels of small islands were dropped from the object map", (droppedBits - keptBits));
+        }
+
         /*--------------------------STEP 4------------------------------------*/
         // set the object outer box as the borders of the object map
         setOuterBBox(new Rectangle(mapXPos, mapYPos, mapWidth, mapHeight));
@@ -380,16 +384,10 @@ public class ObjectScribble extends Objects {
      * @param cropObj - the object for which the scribbles have to be reviewed
      */
     private void removeScribbles(CropObject cropObj) {
-        for (Iterator<ScribbleInfo> it = cropObj.getScribbleList().iterator(); it.hasNext();) {
-            ScribbleInfo si = it.next();
-
-            if ((si.getImgPosX() >= cropObj.getPositionOrig().width)
-                    || (si.getImgPosY() >= cropObj.getPositionOrig().height)) {
-                // remove the scribble
-                it.remove();
-            }
+        Rectangle cropPos = cropObj.getPositionOrig();
 
-        }
+        // remove the scribbles outside the crop
+        cropObj.getScribbleStore().removeIf((x, y, label) -> (x >= cropPos.width) || (y >= cropPos.height));
     }
 
     @Override
@@ -439,4 +437,56 @@ public class ObjectScribble extends Objects {
             segmentationSource = ConstantsLabeling.LABEL_SOURCE_MANUAL;
         }
     }
+
+    /**
+     * Convert the object into a polygon object, by tracing the outer contour
+     * of the object map. The polygon object keeps the id and the attributes of
+     * the scribble object.
+     * <p>
+     * A polygon object has only one outline, therefore just the largest part
+     * of the object is converted and the holes are not kept.
+     *
+     * @param tolerance - the maximum distance, in pixels, between the object
+     * border and the polygon; 0 keeps all the corners of the border
+     * @return - the polygon object or null if the object map is empty
+     */
+    public ObjectPolygon toObjectPolygon(double tolerance) {
+        if ((objectMap == null) || (outerBBox == null)) {
+            return null;
+        }
+
+        // find the largest outer contour
+        Polygon outline = null;
+        long maxArea = 0L;
+        for (Polygon contour : ContourTracer.traceContours(objectMap)) {
+            long area = ContourTracer.signedArea(contour);
+            if (area > maxArea) {
+                maxArea = area;
+                outline = contour;
+            }
+        }
+
+        if (outline == null) {
+            return null;
+        }
+
+        // the object map is in outer box coordinates
+        Polygon polygon = ContourTracer.simplify(outline, tolerance);
+        polygon.translate(outerBBox.x, outerBBox.y);
+
+        ObjectPolygon polyObj = new ObjectPolygon();
+        polyObj.setPolygon(polygon);
+        polyObj.setObjectId(getObjectId());
+        polyObj.setSegmentationType(ConstantsLabeling.LABEL_POLYGON);
+        polyObj.setSegmentationSource(getSegmentationSource());
+        polyObj.setObjectType(getObjectType());
+        polyObj.setObjectClass(getObjectClass());
+        polyObj.setObjectValue(getObjectValue());
+        polyObj.setOccluded(getOccluded());
+        polyObj.setColor(getColor());
+        polyObj.setUserPreference(getUserPreference());
+        polyObj.computeOuterBBoxCurObj();
+
+        return polyObj;
+    }
 }
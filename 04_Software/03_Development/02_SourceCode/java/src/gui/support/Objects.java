@@ -319,7 +319,7 @@ public abstract class Objects {
     }
 
     /**
-     * Return the openCV predicted bounding box.
+     * Return the predicted bounding box.
      *
      * @return the predicted position of the object in the next frame
      */
@@ -327,6 +327,15 @@ public abstract class Objects {
         return predictedBBox;
     }
 
+    /**
+     * Set the position of the object in the next frame, found by tracking.
+     *
+     * @param predictedBBox - the position of the object in the next frame
+     */
+    public void setPredictedBBox(Rectangle predictedBBox) {
+        this.predictedBBox = predictedBBox;
+    }
+
     /**
      * Return the position of the object in the next frame, based on HOG
      * features template matching.
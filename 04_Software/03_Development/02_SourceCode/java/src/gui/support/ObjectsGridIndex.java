@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.support;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid over the frame, used for finding fast the objects placed at a
+ * certain position in the image. Each object is registered in the cells
+ * covered by its outer box and by its crops (image coordinates).
+ * <p>
+ * The boxes of the objects are modified in place by the move/resize
+ * operations, therefore the index has to be notified (update) after every
+ * change of the object geometry.
+ *
+ * @author Olimpia Popica
+ */
+public class ObjectsGridIndex {
+
+    /**
+     * The size of one cell of the grid, in pixels.
+     */
+    private static final int CELL_SIZE = 64;
+
+    /**
+     * The number of columns of the grid.
+     */
+    private int noCols;
+
+    /**
+     * The number of rows of the grid.
+     */
+    private int noRows;
+
+    /**
+     * The list of objects registered in each cell (row major order).
+     */
+    private final List<List<Objects>> cells = new ArrayList<>();
+
+    /**
+     * The cells in which each object was registered. The cells have to be
+     * remembered because the boxes of the objects change in place.
+     */
+    private final Map<Objects, int[]> objCells = new IdentityHashMap<>();
+
+    /**
+     * The order in which the objects were registered; the query results are
+     * returned in this order, to keep the behaviour of a list scan.
+     */
+    private final Map<Objects, Long> objOrder = new IdentityHashMap<>();
+
+    /**
+     * The next insertion order number.
+     */
+    private long orderCounter;
+
+    /**
+     * Create an empty index for a frame of the specified size.
+     *
+     * @param frameSize the size of the frame, in pixels
+     */
+    public ObjectsGridIndex(Dimension frameSize) {
+        initGrid(frameSize);
+    }
+
+    /**
+     * Remove all the objects and register the given list, for a frame of the
+     * specified size.
+     *
+     * @param objectList the list of objects to be indexed
+     * @param frameSize the size of the frame, in pixels
+     */
+    public final void rebuild(List<Objects> objectList, Dimension frameSize) {
+        initGrid(frameSize);
+
+        if (objectList != null) {
+            objectList.forEach(this::insert);
+        }
+    }
+
+    /**
+     * Register the object in the cells covered by its boxes.
+     *
+     * @param obj the object to be added in the index
+     */
+    public void insert(Objects obj) {
+        if ((obj == null) || objOrder.containsKey(obj)) {
+            return;
+        }
+
+        objOrder.put(obj, orderCounter++);
+        addToCells(obj);
+    }
+
+    /**
+     * Remove the object from the index.
+     *
+     * @param obj the object to be removed
+     */
+    public void remove(Objects obj) {
+        removeFromCells(obj);
+        objOrder.remove(obj);
+    }
+
+    /**
+     * Replace an object of the index with another one (e.g. the object was
+     * converted to another type). The new object takes the position of the
+     * old one in the query results. If the old object is not part of the
+     * index, the new one is inserted at the end.
+     *
+     * @param oldObj the object to be replaced
+     * @param newObj the object which takes its place
+     */
+    public void replace(Objects oldObj, Objects newObj) {
+        Long order = objOrder.get(oldObj);
+        if ((order == null) || (newObj == null)) {
+            insert(newObj);
+            return;
+        }
+
+        remove(oldObj);
+        remove(newObj);
+        objOrder.put(newObj, order);
+        addToCells(newObj);
+    }
+
+    /**
+     * Register again the object, after its boxes were changed (move, resize,
+     * new crop etc.). The object keeps its position in the query results.
+     * Objects which are not part of the index are ignored.
+     *
+     * @param obj the object which was modified
+     */
+    public void update(Objects obj) {
+        if ((obj == null) || !objOrder.containsKey(obj)) {
+            return;
+        }
+
+        removeFromCells(obj);
+        addToCells(obj);
+    }
+
+    /**
+     * Return the objects which might overlap the given area. The result is a
+     * superset of the overlapping objects, ordered as they were registered.
+     *
+     * @param areaImg the searched area - image coordinates
+     * @return the list of candidate objects
+     */
+    public List<Objects> query(Rectangle areaImg) {
+        List<Objects> candidates = new ArrayList<>();
+
+        if (areaImg == null) {
+            return candidates;
+        }
+
+        // the objects spanning several cells are found once per cell; keep them once
+        Set<Objects> found = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        int colStart = getCol(areaImg.x);
+        int colEnd = getCol(areaImg.x + areaImg.width);
+        int rowStart = getRow(areaImg.y);
+        int rowEnd = getRow(areaImg.y + areaImg.height);
+
+        for (int row = rowStart; row <= rowEnd; row++) {
+            for (int col = colStart; col <= colEnd; col++) {
+                for (Objects obj : cells.get(row * noCols + col)) {
+                    if (found.add(obj)) {
+                        candidates.add(obj);
+                    }
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparingLong(objOrder::get));
+
+        return candidates;
+    }
+
+    /**
+     * Return the objects which might contain the given point.
+     *
+     * @param pointImg the searched point - image coordinates
+     * @return the list of candidate objects
+     */
+    public List<Objects> query(Point pointImg) {
+        return query(new Rectangle(pointImg.x, pointImg.y, 0, 0));
+    }
+
+    /**
+     * Return the number of objects registered in the index.
+     *
+     * @return the number of indexed objects
+     */
+    public int size() {
+        return objOrder.size();
+    }
+
+    /**
+     * Create the empty cells of the grid.
+     *
+     * @param frameSize the size of the frame, in pixels
+     */
+    private void initGrid(Dimension frameSize) {
+        noCols = Math.max(1, (frameSize.width + CELL_SIZE - 1) / CELL_SIZE);
+        noRows = Math.max(1, (frameSize.height + CELL_SIZE - 1) / CELL_SIZE);
+
+        cells.clear();
+        for (int cell = 0; cell < noCols * noRows; cell++) {
+            cells.add(new ArrayList<>(2));
+        }
+
+        objCells.clear();
+        objOrder.clear();
+        orderCounter = 0L;
+    }
+
+    /**
+     * Add the object in the cells covered by its boxes.
+     *
+     * @param obj the object to be added
+     */
+    private void addToCells(Objects obj) {
+        Rectangle bounds = getObjectBounds(obj);
+        if (bounds == null) {
+            // the object has no geometry yet; it will be added at update
+            return;
+        }
+
+        int colStart = getCol(bounds.x);
+        int colEnd = getCol(bounds.x + bounds.width);
+        int rowStart = getRow(bounds.y);
+        int rowEnd = getRow(bounds.y + bounds.height);
+
+        int[] usedCells = new int[(colEnd - colStart + 1) * (rowEnd - rowStart + 1)];
+        int index = 0;
+
+        for (int row = rowStart; row <= rowEnd; row++) {
+            for (int col = colStart; col <= colEnd; col++) {
+                int cell = row * noCols + col;
+                cells.get(cell).add(obj);
+                usedCells[index++] = cell;
+            }
+        }
+
+        objCells.put(obj, usedCells);
+    }
+
+    /**
+     * Remove the object from the cells where it was registered.
+     *
+     * @param obj the object to be removed
+     */
+    private void removeFromCells(Objects obj) {
+        int[] usedCells = objCells.remove(obj);
+
+        if (usedCells == null) {
+            return;
+        }
+
+        for (int cell : usedCells) {
+            cells.get(cell).remove(obj);
+        }
+    }
+
+    /**
+     * Compute the box containing the outer box and all the crops of the object.
+     *
+     * @param obj the object for which the box is computed
+     * @return the box containing all the parts of the object or null if the
+     * object has no geometry
+     */
+    private static Rectangle getObjectBounds(Objects obj) {
+        Rectangle bounds = (obj.getOuterBBox() == null) ? null : new Rectangle(obj.getOuterBBox());
+
+        if (obj instanceof ObjectScribble) {
+            for (CropObject crop : ((ObjectScribble) obj).getCropList()) {
+                if (crop.getPositionOrig() == null) {
+                    continue;
+                }
+
+                if (bounds == null) {
+                    bounds = new Rectangle(crop.getPositionOrig());
+                } else {
+                    bounds.add(crop.getPositionOrig());
+                }
+            }
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Return the column of the grid for the given x coordinate.
+     *
+     * @param x the x coordinate, in pixels
+     * @return the column of the grid, limited to the grid
+     */
+    private int getCol(int x) {
+        return Math.max(0, Math.min(noCols - 1, Math.floorDiv(x, CELL_SIZE)));
+    }
+
+    /**
+     * Return the row of the grid for the given y coordinate.
+     *
+     * @param y the y coordinate, in pixels
+     * @return the row of the grid, limited to the grid
+     */
+    private int getRow(int y) {
+        return Math.max(0, Math.min(noRows - 1, Math.floorDiv(y, CELL_SIZE)));
+    }
+}
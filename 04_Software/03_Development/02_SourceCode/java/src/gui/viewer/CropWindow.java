@@ -33,7 +33,7 @@ import gui.support.BrushOptions;
 import gui.support.CropObject;
 import gui.support.CropWindowConfig;
 import graphictablet.JPenFunctions;
-import library.Resize;
+import library.ScribbleStore;
 import observers.NotifyObservers;
 import observers.ObservedActions;
 import paintpanels.DrawConstants;
@@ -44,6 +44,8 @@ import commonsegmentation.ScribbleInfo;
 import jpen.owner.multiAwt.AwtPenToolkit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import segmentation.FrameSuperpixels;
+import segmentation.MattingExecutor;
 import segmentation.MattingThreading;
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -115,6 +117,12 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
      */
     private transient MattingThreading mattingThread;
 
+    /**
+     * Runs the matting jobs of the window on the shared matting pool and
+     * drops the results of the superseded jobs.
+     */
+    private final transient MattingExecutor mattingExecutor = new MattingExecutor();
+
     /**
      * The type of drawing: background or object.
      */
@@ -144,9 +152,9 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
     private ImagePreview resultPrev;
 
     /**
-     * The list of scribbles to be displayed on the panel.
+     * The scribbles to be displayed on the panel.
      */
-    private List<ScribbleInfo> scribbleList;
+    private ScribbleStore scribbleStore;
 
     /**
      * The text on the show original image button.
@@ -340,8 +348,8 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
             dPCropImg.setActionType(drawingType);
 
             // add the existing scriblles
-            if (scribbleList != null) {
-                dPCropImg.setScribbleList(scribbleList);
+            if (scribbleStore != null) {
+                dPCropImg.setScribbleStore(scribbleStore);
             }
 
             // set the color on the drawing panel
@@ -393,26 +401,21 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
      * @param imageOption - on which image shall the algorithm be run original, highlighted etc.
      */
     public void runMatting(int imageOption) {
-        Thread cudaMattingThread;
-
         if ((dPCropImg != null) && (jBRunMattingCrop.isEnabled())) {
             // save the scribble points
             int noScribbles = dPCropImg.flushPixelList();
 
             // prepare the thread data to run the matting application
             if (noScribbles > 0) {
-                // disable the matting button, to avoid calling the thread several times
-                jBRunMattingCrop.setEnabled(false);
-                jBRunHighlightMatt.setEnabled(false);
-
+                // a new run supersedes the one in progress, whose result is dropped
                 mattingThread = new MattingThreading(getMattingImage(imageOption), dPCropImg.getScribbleList(), ObservedActions.Action.REFRESH_CROP_RESULT);
+                mattingThread.setProgressive(true);
+                mattingThread.setSuperpixels(FrameSuperpixels.getForCrop(currentCrop.getPositionOrig()));
 
                 // add observer to be notified when the thread is finished
                 mattingThread.addObserver(this);
 
-                cudaMattingThread = new Thread(mattingThread);
-                cudaMattingThread.setName("Matting Thread");
-                cudaMattingThread.start();
+                mattingExecutor.submit(mattingThread);
 
                 currentCrop.resetFilterCount();
             }
@@ -426,16 +429,9 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
      * @param scribbleList - the list of scribbles which are already available for the object
      */
     public void setScribbleList(List<ScribbleInfo> scribbleList) {
-        this.scribbleList = scribbleList;
-
-        /* TODO: workaround for displaying the scribbles from Behemoth */
-        Resize resize = new Resize(1.0, 1.0);
-
-        for (ScribbleInfo scribble : scribbleList) {
-            scribble.setPanelPos(resize.originalToResized(scribble.getImgPos()));
-        }
-
-        dPCropImg.setScribbleList(this.scribbleList);
+        // the panel positions are computed when drawing, from the image positions
+        this.scribbleStore = ScribbleStore.fromScribbleInfoList(scribbleList);
+        dPCropImg.setScribbleStore(this.scribbleStore);
     }
 
     /**
@@ -489,21 +485,12 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
      * would generate a coordinates outer box exception.
      */
     private void removeScribbles() {
-        // copy the panel scribble list in the scribble list, to avoid erasing them after the new load of image
-        scribbleList = new ArrayList<>();
-        scribbleList.addAll(dPCropImg.getScribbleList());
-
-        if (scribbleList != null) {
-            for (Iterator<ScribbleInfo> it = scribbleList.iterator(); it.hasNext();) {
-                ScribbleInfo si = it.next();
-
-                if ((si.getImgPosX() >= currentCrop.getPositionOrig().width)
-                        || (si.getImgPosY() >= currentCrop.getPositionOrig().height)) {
-                    // remove the scribble
-                    it.remove();
-                }
-            }
-        }
+        // copy the panel scribbles, to avoid erasing them after the new load of image
+        scribbleStore = dPCropImg.getScribbleStore().copy();
+
+        // remove the scribbles outside the crop
+        Rectangle cropPos = currentCrop.getPositionOrig();
+        scribbleStore.removeIf((x, y, label) -> (x >= cropPos.width) || (y >= cropPos.height));
     }
 
     /**
@@ -518,6 +505,10 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
                     updateCropResult();
                     break;
 
+                case REFRESH_CROP_PREVIEW:
+                    updateCropPreview();
+                    break;
+
                 case REFRESH_BRUSH_SIZE:
                     refreshBrushSize();
                     break;
@@ -666,6 +657,9 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
         // notify to add the gui key event dispatcher back
         observable.notifyObservers(ObservedActions.Action.ADD_GUI_KEY_EVENT_DISPATCHER);
 
+        // the result of a matting still in progress is no longer needed
+        mattingExecutor.cancel();
+
         dispose();
     }
 
@@ -794,10 +788,17 @@ public class CropWindow extends javax.swing.JDialog implements Observer {
             dPCropResult.setObjMap(mattingThread.getObjMap());
             refreshCropResult();
         }
+    }
 
-        // enable the button, so the user can run again the algorithm
-        jBRunMattingCrop.setEnabled(true);
-        jBRunHighlightMatt.setEnabled(true);
+    /**
+     * Display the coarse result of the progressive matting, until the full
+     * resolution result is ready.
+     */
+    private void updateCropPreview() {
+        if ((mattingThread != null) && (mattingThread.getPreviewMap() != null)) {
+            dPCropResult.setObjMap(mattingThread.getPreviewMap());
+            refreshCropResult();
+        }
     }
 
     /**
@@ -48,6 +48,7 @@ import gui.support.PanelResolution;
 import library.DrawOptions;
 import library.Resize;
 import paintpanels.DrawConstants;
+import segmentation.SegmentationEngines;
 import gui.support.LAttributesFrame;
 import java.awt.Color;
 import java.awt.Component;
@@ -63,13 +64,17 @@ import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import javax.swing.ButtonGroup;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
+import javax.swing.JMenu;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JRadioButtonMenuItem;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
@@ -205,6 +210,11 @@ public class GUILabelingTool extends javax.swing.JFrame implements Observer {
         // reads the user preferences
         userPrefs = new UserPreferences();
 
+        // choose the segmentation engine: pinned by the user or the fastest one found by the benchmark
+        SegmentationEngines.setPinnedEngine(userPrefs.getSegmentationEngine());
+        SegmentationEngines.startBenchmark();
+        initSegmentationEngineMenu();
+
         jCBPlayBackward.setSelected(userPrefs.isPlayBackward());
         jCBFlipVerticallyImg.setSelected(userPrefs.isFlipVertically());
         jCBMirrorImg.setSelected(userPrefs.isMirrorImage());
@@ -226,6 +236,36 @@ public class GUILabelingTool extends javax.swing.JFrame implements Observer {
         chooseLoadFile();
     }
 
+    /**
+     * Add to the Options menu the choice of the segmentation engine: the
+     * fastest engine found by the benchmark or one of the discovered engines.
+     * The engines which are not selected automatically (e.g. GraphCut) can be
+     * used only from here. The choice is saved in the user preferences.
+     */
+    private void initSegmentationEngineMenu() {
+        JMenu jMSegmentationEngine = new JMenu("Segmentation Engine");
+        ButtonGroup engineGroup = new ButtonGroup();
+
+        List<String> engineNames = new ArrayList<>();
+        engineNames.add(Constants.SEGMENTATION_ENGINE_AUTO);
+        engineNames.addAll(SegmentationEngines.getEngineNames());
+
+        for (String engineName : engineNames) {
+            boolean auto = Constants.SEGMENTATION_ENGINE_AUTO.equals(engineName);
+            JRadioButtonMenuItem jRBMIEngine = new JRadioButtonMenuItem(auto ? "Fastest available" : engineName);
+            jRBMIEngine.setSelected(engineName.equalsIgnoreCase(userPrefs.getSegmentationEngine()));
+            jRBMIEngine.addActionListener(evt -> {
+                userPrefs.setSegmentationEngine(engineName);
+                SegmentationEngines.setPinnedEngine(engineName);
+                log.info("Segmentation engine: {} (currently {})", engineName, SegmentationEngines.getEngine().getName());
+            });
+            engineGroup.add(jRBMIEngine);
+            jMSegmentationEngine.add(jRBMIEngine);
+        }
+
+        jMOptions.insert(jMSegmentationEngine, jMOptions.getPopupMenu().getComponentIndex(jMILanguage));
+    }
+
     /**
      * Enable/Disable fields; set icons and all the needed configurations of the
      * components.
@@ -505,6 +545,7 @@ public class GUILabelingTool extends javax.swing.JFrame implements Observer {
         jSeparator4 = new javax.swing.JPopupMenu.Separator();
         jMICancelObject = new javax.swing.JMenuItem();
         jMIDeleteObject = new javax.swing.JMenuItem();
+        jMIConvertToPolygon = new javax.swing.JMenuItem();
         jMNavigation = new javax.swing.JMenu();
         jMINextFrame = new javax.swing.JMenuItem();
         jMIPrevFrame = new javax.swing.JMenuItem();
@@ -1518,6 +1559,15 @@ public class GUILabelingTool extends javax.swing.JFrame implements Observer {
         });
         jMEditObject.add(jMIDeleteObject);
 
+        jMIConvertToPolygon.setText("Convert To Polygon");
+        jMIConvertToPolygon.setToolTipText("Convert the selected scribble object into a polygon object");
+        jMIConvertToPolygon.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jMIConvertToPolygonActionPerformed(evt);
+            }
+        });
+        jMEditObject.add(jMIConvertToPolygon);
+
         jMBMenu.add(jMEditObject);
 
         jMNavigation.setText("Navigation");
@@ -2059,6 +2109,11 @@ public class GUILabelingTool extends javax.swing.JFrame implements Observer {
         gc.removeSelection();
     }//GEN-LAST:event_jMIDeleteObjectActionPerformed
 
+    private void jMIConvertToPolygonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMIConvertToPolygonActionPerformed
+        // convert the selected scribble object into a polygon object
+        gc.convertSelectionToPolygon();
+    }//GEN-LAST:event_jMIConvertToPolygonActionPerformed
+
     private void jMIExportConfigActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMIExportConfigActionPerformed
         UserConfigs configWin = createConfigWindow();
         configWin.switchToTab(UserConfigs.TAB_IMAGE_EXPORT);
@@ -4000,6 +4055,7 @@ public class GUILabelingTool extends javax.swing.JFrame implements Observer {
     private javax.swing.JMenuItem jMIAbout;
     private javax.swing.JMenuItem jMIAttributes;
     private javax.swing.JMenuItem jMICancelObject;
+    private javax.swing.JMenuItem jMIConvertToPolygon;
     private javax.swing.JMenuItem jMIDecreaseBottom;
     private javax.swing.JMenuItem jMIDecreaseBox;
     private javax.swing.JMenuItem jMIDecreaseLeft;
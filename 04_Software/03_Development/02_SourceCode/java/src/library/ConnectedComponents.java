@@ -0,0 +1,414 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * Connected component labeling of object maps, using the two pass algorithm
+ * with union-find.
+ * <p>
+ * Two neighbouring pixels belong to the same component if they have the same
+ * value, different from 0 (background); for the binary maps this means all
+ * the touching object pixels, for the maps with several labels each label gets
+ * its own components. The neighbours are searched with 8-connectivity or
+ * 4-connectivity.
+ * <p>
+ * The first pass assigns provisional labels and records their equivalences;
+ * the second pass resolves the final labels and computes, in the same scan,
+ * the area, the bounding box and the centroid of each component.
+ *
+ * @author Olimpia Popica
+ */
+public class ConnectedComponents {
+
+    /**
+     * The width of the labeled map (first index).
+     */
+    private final int width;
+
+    /**
+     * The height of the labeled map (second index).
+     */
+    private final int height;
+
+    /**
+     * The component of each pixel (x * height + y); 0 for background, else
+     * component index + 1.
+     */
+    private final int[] labels;
+
+    /**
+     * The number of components.
+     */
+    private int count;
+
+    /**
+     * The value from the object map of each component.
+     */
+    private byte[] values;
+
+    /**
+     * The number of pixels of each component.
+     */
+    private int[] areas;
+
+    /**
+     * The left-most x coordinate of each component.
+     */
+    private int[] minX;
+
+    /**
+     * The top-most y coordinate of each component.
+     */
+    private int[] minY;
+
+    /**
+     * The right-most x coordinate of each component.
+     */
+    private int[] maxX;
+
+    /**
+     * The bottom-most y coordinate of each component.
+     */
+    private int[] maxY;
+
+    /**
+     * The sum of the x coordinates of the pixels of each component, for the
+     * centroid.
+     */
+    private long[] sumX;
+
+    /**
+     * The sum of the y coordinates of the pixels of each component, for the
+     * centroid.
+     */
+    private long[] sumY;
+
+    /**
+     * Label the components of the object map, using 8-connectivity.
+     *
+     * @param objMap the object map to be labeled
+     */
+    public ConnectedComponents(byte[][] objMap) {
+        this(objMap, true);
+    }
+
+    /**
+     * Label the components of the object map.
+     *
+     * @param objMap the object map to be labeled
+     * @param eightConnected true for 8-connectivity, false for 4-connectivity
+     */
+    public ConnectedComponents(byte[][] objMap, boolean eightConnected) {
+        this.width = ((objMap == null) || (objMap.length == 0)) ? 0 : objMap.length;
+        this.height = (width == 0) ? 0 : objMap[0].length;
+        this.labels = new int[width * height];
+
+        label(objMap, eightConnected);
+    }
+
+    /**
+     * Remove from the object map (set to 0) the components having less pixels
+     * than the given size.
+     *
+     * @param objMap the object map; it is modified in place
+     * @param minSize the minimum number of pixels of a component which is kept
+     * @return the number of removed components
+     */
+    public static int removeSmallComponents(byte[][] objMap, int minSize) {
+        if ((objMap == null) || (minSize <= 1)) {
+            return 0;
+        }
+
+        ConnectedComponents components = new ConnectedComponents(objMap);
+        return components.removeSmallComponentsFrom(objMap, minSize);
+    }
+
+    /**
+     * Remove from the object map (set to 0) the components of this labeling
+     * having less pixels than the given size. The map has to be the one which
+     * was labeled.
+     *
+     * @param objMap the labeled object map; it is modified in place
+     * @param minSize the minimum number of pixels of a component which is kept
+     * @return the number of removed components
+     */
+    public int removeSmallComponentsFrom(byte[][] objMap, int minSize) {
+        int removed = 0;
+
+        for (int comp = 0; comp < count; comp++) {
+            if (areas[comp] >= minSize) {
+                continue;
+            }
+            removed++;
+
+            // only the box of the component has to be checked
+            for (int x = minX[comp]; x <= maxX[comp]; x++) {
+                for (int y = minY[comp]; y <= maxY[comp]; y++) {
+                    if (labels[x * height + y] == comp + 1) {
+                        objMap[x][y] = 0;
+                    }
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Return the number of components.
+     *
+     * @return the number of components found in the map
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Return the component of the pixel.
+     *
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @return the index of the component or -1 for background
+     */
+    public int getComponent(int x, int y) {
+        return labels[x * height + y] - 1;
+    }
+
+    /**
+     * Return the value of the object map for the component.
+     *
+     * @param comp the index of the component
+     * @return the value of the pixels of the component
+     */
+    public byte getValue(int comp) {
+        return values[comp];
+    }
+
+    /**
+     * Return the number of pixels of the component.
+     *
+     * @param comp the index of the component
+     * @return the area of the component, in pixels
+     */
+    public int getArea(int comp) {
+        return areas[comp];
+    }
+
+    /**
+     * Return the bounding box of the component.
+     *
+     * @param comp the index of the component
+     * @return the smallest rectangle containing the component, in map
+     * coordinates
+     */
+    public Rectangle getBounds(int comp) {
+        return new Rectangle(minX[comp], minY[comp], maxX[comp] - minX[comp] + 1, maxY[comp] - minY[comp] + 1);
+    }
+
+    /**
+     * Return the centroid of the component.
+     *
+     * @param comp the index of the component
+     * @return the mean position of the pixels of the component
+     */
+    public Point2D.Double getCentroid(int comp) {
+        return new Point2D.Double((double) sumX[comp] / areas[comp], (double) sumY[comp] / areas[comp]);
+    }
+
+    /**
+     * Return the bounding box of all the components having at least the given
+     * number of pixels.
+     *
+     * @param minSize the minimum number of pixels of a component taken into
+     * account
+     * @return the smallest rectangle containing the components or null if
+     * there is no such component
+     */
+    public Rectangle getOuterBounds(int minSize) {
+        Rectangle bounds = null;
+
+        for (int comp = 0; comp < count; comp++) {
+            if (areas[comp] < minSize) {
+                continue;
+            }
+
+            if (bounds == null) {
+                bounds = getBounds(comp);
+            } else {
+                bounds.add(getBounds(comp));
+            }
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Label the pixels and compute the statistics of the components.
+     *
+     * @param objMap the object map to be labeled
+     * @param eightConnected true for 8-connectivity, false for 4-connectivity
+     */
+    private void label(byte[][] objMap, boolean eightConnected) {
+        // the parents of the provisional labels; a label cannot exceed the number of pixels
+        int[] parent = new int[Math.max(1, (width * height + 1) / 2 + 2)];
+        int noProvLabels = 0;
+
+        /* first pass: provisional labels from the already visited neighbours (left column and previous pixel) */
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                byte value = objMap[x][y];
+                if (value == 0) {
+                    continue;
+                }
+
+                int current = 0;
+
+                // previous pixel on the same column
+                if ((y > 0) && (objMap[x][y - 1] == value)) {
+                    current = labels[x * height + y - 1];
+                }
+
+                // the neighbours from the previous column
+                if (x > 0) {
+                    int yStart = eightConnected ? Math.max(0, y - 1) : y;
+                    int yEnd = eightConnected ? Math.min(height - 1, y + 1) : y;
+
+                    for (int ny = yStart; ny <= yEnd; ny++) {
+                        if (objMap[x - 1][ny] == value) {
+                            int neighbour = labels[(x - 1) * height + ny];
+                            current = (current == 0) ? neighbour : union(parent, current, neighbour);
+                        }
+                    }
+                }
+
+                if (current == 0) {
+                    noProvLabels++;
+                    if (noProvLabels >= parent.length) {
+                        parent = Arrays.copyOf(parent, parent.length * 2);
+                    }
+                    parent[noProvLabels] = noProvLabels;
+                    current = noProvLabels;
+                }
+
+                labels[x * height + y] = current;
+            }
+        }
+
+        /* resolve the provisional labels into consecutive component numbers */
+        int[] finalLabel = new int[noProvLabels + 1];
+        count = 0;
+        for (int lbl = 1; lbl <= noProvLabels; lbl++) {
+            int root = find(parent, lbl);
+            if (finalLabel[root] == 0) {
+                finalLabel[root] = ++count;
+            }
+            finalLabel[lbl] = finalLabel[root];
+        }
+
+        values = new byte[count];
+        areas = new int[count];
+        minX = new int[count];
+        minY = new int[count];
+        maxX = new int[count];
+        maxY = new int[count];
+        sumX = new long[count];
+        sumY = new long[count];
+        Arrays.fill(minX, Integer.MAX_VALUE);
+        Arrays.fill(minY, Integer.MAX_VALUE);
+        Arrays.fill(maxX, -1);
+        Arrays.fill(maxY, -1);
+
+        /* second pass: final labels and statistics */
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int pos = x * height + y;
+                if (labels[pos] == 0) {
+                    continue;
+                }
+
+                int comp = finalLabel[labels[pos]];
+                labels[pos] = comp;
+                comp--;
+
+                values[comp] = objMap[x][y];
+                areas[comp]++;
+                sumX[comp] += x;
+                sumY[comp] += y;
+                minX[comp] = Math.min(minX[comp], x);
+                minY[comp] = Math.min(minY[comp], y);
+                maxX[comp] = Math.max(maxX[comp], x);
+                maxY[comp] = Math.max(maxY[comp], y);
+            }
+        }
+    }
+
+    /**
+     * Find the root of the label, compressing the path.
+     *
+     * @param parent the parents of the labels
+     * @param lbl the label
+     * @return the root of the label
+     */
+    private static int find(int[] parent, int lbl) {
+        int root = lbl;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+
+        // path compression
+        while (parent[lbl] != root) {
+            int next = parent[lbl];
+            parent[lbl] = root;
+            lbl = next;
+        }
+        return root;
+    }
+
+    /**
+     * Join the sets of the two labels.
+     *
+     * @param parent the parents of the labels
+     * @param lbl1 the first label
+     * @param lbl2 the second label
+     * @return the root of the joined set
+     */
+    private static int union(int[] parent, int lbl1, int lbl2) {
+        int root1 = find(parent, lbl1);
+        int root2 = find(parent, lbl2);
+
+        // the smaller label becomes the root, to keep the labels ordered by the first pixel
+        if (root1 < root2) {
+            parent[root2] = root1;
+            return root1;
+        }
+        parent[root1] = root2;
+        return root2;
+    }
+}
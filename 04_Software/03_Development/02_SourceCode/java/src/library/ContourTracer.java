@@ -0,0 +1,323 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extraction of the contours of the objects from an object map (0 =
+ * background, anything else = object), using marching squares.
+ * <p>
+ * The contours follow the borders of the pixels, so the vertices are placed on
+ * the corners of the pixels (integer coordinates) and a contour encloses
+ * exactly the pixels of the object. At each corner, the configuration of the
+ * 4 pixels around it gives the direction of the next border; for the
+ * diagonal configurations the diagonal pixels are kept connected
+ * (8-connectivity of the objects).
+ * <p>
+ * The outer contours are traced clockwise (as seen on the screen, y going
+ * down) and the contours of the holes counter-clockwise; {@link #isHole} tells
+ * them apart. Only the corners where the direction changes are kept.
+ *
+ * @author Olimpia Popica
+ */
+public class ContourTracer {
+
+    /**
+     * Movement to the right, on the grid of corners.
+     */
+    private static final int EAST = 0;
+
+    /**
+     * Movement down, on the grid of corners.
+     */
+    private static final int SOUTH = 1;
+
+    /**
+     * Movement to the left, on the grid of corners.
+     */
+    private static final int WEST = 2;
+
+    /**
+     * Movement up, on the grid of corners.
+     */
+    private static final int NORTH = 3;
+
+    /**
+     * The x offset of each direction.
+     */
+    private static final int[] DX = {1, 0, -1, 0};
+
+    /**
+     * The y offset of each direction.
+     */
+    private static final int[] DY = {0, 1, 0, -1};
+
+    private ContourTracer() {
+        throw new IllegalStateException("Utility class, do not instantiate!");
+    }
+
+    /**
+     * Extract all the contours (outer contours and holes) of the objects from
+     * the map.
+     *
+     * @param objMap the object map
+     * @return the list of contours, in map coordinates
+     */
+    public static List<Polygon> traceContours(byte[][] objMap) {
+        List<Polygon> contours = new ArrayList<>();
+
+        if ((objMap == null) || (objMap.length == 0) || (objMap[0].length == 0)) {
+            return contours;
+        }
+
+        int width = objMap.length;
+        int height = objMap[0].length;
+
+        // the top borders of the pixels already used by a contour (x * height + y)
+        boolean[] visited = new boolean[width * height];
+
+        // every contour has at least one top border of an object pixel, going east
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (!visited[x * height + y] && isObject(objMap, x, y) && !isObject(objMap, x, y - 1)) {
+                    contours.add(trace(objMap, x, y, visited));
+                }
+            }
+        }
+
+        return contours;
+    }
+
+    /**
+     * Check if the contour is the border of a hole (it is traced
+     * counter-clockwise).
+     *
+     * @param contour the contour to be checked
+     * @return true if the contour is a hole
+     */
+    public static boolean isHole(Polygon contour) {
+        return signedArea(contour) < 0;
+    }
+
+    /**
+     * Compute the area enclosed by the contour, positive for the clockwise
+     * contours (outer contours) and negative for the holes.
+     *
+     * @param contour the contour
+     * @return the signed area, in pixels
+     */
+    public static long signedArea(Polygon contour) {
+        long area2 = 0;
+        for (int i = 0, j = contour.npoints - 1; i < contour.npoints; j = i++) {
+            area2 += (long) contour.xpoints[j] * contour.ypoints[i] - (long) contour.xpoints[i] * contour.ypoints[j];
+        }
+        return area2 / 2;
+    }
+
+    /**
+     * Simplify the contour with the Douglas-Peucker algorithm: the vertices
+     * closer than the tolerance to the simplified outline are removed.
+     *
+     * @param contour the closed contour to be simplified
+     * @param tolerance the maximum distance, in pixels, between the contour
+     * and the simplified one
+     * @return the simplified contour (a new polygon); the contour is not
+     * simplified if it would have less than 3 vertices
+     */
+    public static Polygon simplify(Polygon contour, double tolerance) {
+        int noPoints = contour.npoints;
+        if ((noPoints <= 4) || (tolerance <= 0.0)) {
+            return new Polygon(contour.xpoints, contour.ypoints, noPoints);
+        }
+
+        // split the closed contour at the first vertex and at the vertex farthest from it
+        int far = 0;
+        long maxDist = -1;
+        for (int i = 1; i < noPoints; i++) {
+            long dx = (long) contour.xpoints[i] - contour.xpoints[0];
+            long dy = (long) contour.ypoints[i] - contour.ypoints[0];
+            if (dx * dx + dy * dy > maxDist) {
+                maxDist = dx * dx + dy * dy;
+                far = i;
+            }
+        }
+
+        boolean[] keep = new boolean[noPoints + 1];
+        keep[0] = true;
+        keep[far] = true;
+        keep[noPoints] = true;
+
+        // the segments to be checked: pairs of indexes (noPoints stands for the first vertex again)
+        int[] stack = new int[2 * (noPoints + 1)];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = far;
+        stack[top++] = far;
+        stack[top++] = noPoints;
+
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+
+            int xs = contour.xpoints[start % noPoints];
+            int ys = contour.ypoints[start % noPoints];
+            int xe = contour.xpoints[end % noPoints];
+            int ye = contour.ypoints[end % noPoints];
+            double length = Math.hypot(xe - xs, ye - ys);
+
+            int farIdx = -1;
+            double farDist = tolerance;
+            for (int i = start + 1; i < end; i++) {
+                double dist = (length == 0.0)
+                        ? Math.hypot(contour.xpoints[i] - xs, contour.ypoints[i] - ys)
+                        : Math.abs((double) (xe - xs) * (ys - contour.ypoints[i]) - (double) (xs - contour.xpoints[i]) * (ye - ys)) / length;
+                if (dist > farDist) {
+                    farDist = dist;
+                    farIdx = i;
+                }
+            }
+
+            if (farIdx >= 0) {
+                keep[farIdx] = true;
+                stack[top++] = start;
+                stack[top++] = farIdx;
+                stack[top++] = farIdx;
+                stack[top++] = end;
+            }
+        }
+
+        Polygon simplified = new Polygon();
+        for (int i = 0; i < noPoints; i++) {
+            if (keep[i]) {
+                simplified.addPoint(contour.xpoints[i], contour.ypoints[i]);
+            }
+        }
+
+        // the small contours shall not collapse into a line
+        if (simplified.npoints < 3) {
+            return new Polygon(contour.xpoints, contour.ypoints, noPoints);
+        }
+        return simplified;
+    }
+
+    /**
+     * Follow the contour starting from the top left corner of the given
+     * pixel, going east, until the start corner is reached again.
+     *
+     * @param objMap the object map
+     * @param startX the x coordinate of the start pixel
+     * @param startY the y coordinate of the start pixel
+     * @param visited the top borders already used by contours
+     * @return the traced contour
+     */
+    private static Polygon trace(byte[][] objMap, int startX, int startY, boolean[] visited) {
+        int height = objMap[0].length;
+        Polygon contour = new Polygon();
+
+        int cx = startX;
+        int cy = startY;
+        int dir = EAST;
+        int prevDir = -1;
+
+        do {
+            if (dir != prevDir) {
+                // keep only the corners where the direction changes
+                contour.addPoint(cx, cy);
+            }
+
+            if (dir == EAST) {
+                visited[cx * height + cy] = true;
+            }
+
+            cx += DX[dir];
+            cy += DY[dir];
+            prevDir = dir;
+            dir = nextDirection(objMap, cx, cy, dir);
+        } while ((cx != startX) || (cy != startY) || (dir != EAST));
+
+        // the start corner might be in the middle of a straight border
+        if ((prevDir == EAST) && (contour.npoints > 1)) {
+            int[] xs = Arrays.copyOfRange(contour.xpoints, 1, contour.npoints);
+            int[] ys = Arrays.copyOfRange(contour.ypoints, 1, contour.npoints);
+            contour = new Polygon(xs, ys, xs.length);
+        }
+
+        return contour;
+    }
+
+    /**
+     * Compute the direction of the border leaving the corner, keeping the
+     * object on the right side of the movement.
+     *
+     * @param objMap the object map
+     * @param cx the x coordinate of the corner
+     * @param cy the y coordinate of the corner
+     * @param dir the direction used for reaching the corner
+     * @return the direction of the next border
+     */
+    private static int nextDirection(byte[][] objMap, int cx, int cy, int dir) {
+        boolean topLeft = isObject(objMap, cx - 1, cy - 1);
+        boolean topRight = isObject(objMap, cx, cy - 1);
+        boolean bottomLeft = isObject(objMap, cx - 1, cy);
+        boolean bottomRight = isObject(objMap, cx, cy);
+
+        // diagonal configurations: turn to keep the diagonal pixels together
+        if (topLeft && bottomRight && !topRight && !bottomLeft) {
+            return (dir == SOUTH) ? EAST : WEST;
+        }
+        if (topRight && bottomLeft && !topLeft && !bottomRight) {
+            return (dir == EAST) ? NORTH : SOUTH;
+        }
+
+        if (bottomRight && !topRight) {
+            return EAST;
+        }
+        if (bottomLeft && !bottomRight) {
+            return SOUTH;
+        }
+        if (topLeft && !bottomLeft) {
+            return WEST;
+        }
+        return NORTH;
+    }
+
+    /**
+     * Check if the pixel is part of an object; the pixels outside the map are
+     * background.
+     *
+     * @param objMap the object map
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @return true if the pixel is inside the map and it is not background
+     */
+    private static boolean isObject(byte[][] objMap, int x, int y) {
+        return (x >= 0) && (y >= 0) && (x < objMap.length) && (y < objMap[0].length) && (objMap[x][y] != 0);
+    }
+}
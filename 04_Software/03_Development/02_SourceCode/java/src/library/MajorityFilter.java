@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Majority filter for object maps, based on a summed area table (integral
+ * image).
+ * <p>
+ * For each pixel, the number of object pixels (values different from 0) in a
+ * square window centered on the pixel is counted; the pixel becomes object (1)
+ * if at least half of the window is object, else background (0). At the
+ * borders, only the part of the window which is inside the map is used.
+ * <p>
+ * The window sum is read from the summed area table with 4 accesses,
+ * therefore the cost does not depend on the window size. The lines of the map
+ * are split in bands which are processed in parallel. The summed area table is
+ * kept between the calls, to avoid allocations when the filter is applied
+ * repeatedly on maps of similar sizes.
+ *
+ * @author Olimpia Popica
+ */
+public class MajorityFilter {
+
+    /**
+     * The default size of the filtering window.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 3;
+
+    /**
+     * Maps smaller than this number of pixels are processed on the calling
+     * thread; the parallelization does not pay off for them.
+     */
+    private static final int MIN_PARALLEL_PIXELS = 1 << 16;
+
+    /**
+     * The number of lines of the map processed by one task.
+     */
+    private static final int BAND_SIZE = 32;
+
+    /**
+     * The summed area table: sat[(x + 1) * (height + 1) + (y + 1)] is the
+     * number of object pixels in the rectangle [0, x] x [0, y].
+     */
+    private int[] sat = new int[0];
+
+    /**
+     * Filter the object map with a window of the default size, one time.
+     *
+     * @param objMap the object map to be filtered; it is modified in place
+     */
+    public void filter(byte[][] objMap) {
+        filter(objMap, DEFAULT_WINDOW_SIZE, 1);
+    }
+
+    /**
+     * Filter the object map with the specified window, the specified number of
+     * times.
+     *
+     * @param objMap the object map to be filtered; it is modified in place
+     * @param windowSize the size of the filtering window; an even size is
+     * increased by 1 to have a center pixel
+     * @param iterations how many times the filter is applied
+     */
+    public synchronized void filter(byte[][] objMap, int windowSize, int iterations) {
+        if ((objMap == null) || (objMap.length == 0) || (objMap[0].length == 0)) {
+            return;
+        }
+
+        int width = objMap.length;
+        int height = objMap[0].length;
+        int radius = Math.max(0, windowSize / 2);
+        int stride = height + 1;
+
+        if (sat.length < (width + 1) * stride) {
+            sat = new int[(width + 1) * stride];
+        }
+
+        boolean parallel = ((long) width * height) >= MIN_PARALLEL_PIXELS;
+
+        for (int iter = 0; iter < iterations; iter++) {
+            computeTable(objMap, width, height, parallel);
+
+            // apply the threshold; the table is read only, so the map can be overwritten
+            forEachBand(width, parallel, (xStart, xEnd) -> {
+                for (int x = xStart; x < xEnd; x++) {
+                    int x0 = Math.max(0, x - radius);
+                    int x1 = Math.min(width, x + radius + 1);
+
+                    for (int y = 0; y < height; y++) {
+                        int y0 = Math.max(0, y - radius);
+                        int y1 = Math.min(height, y + radius + 1);
+
+                        int sum = sat[x1 * stride + y1] - sat[x0 * stride + y1]
+                                - sat[x1 * stride + y0] + sat[x0 * stride + y0];
+                        int count = (x1 - x0) * (y1 - y0);
+
+                        objMap[x][y] = (byte) ((2 * sum >= count) ? 1 : 0);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Compute the summed area table of the object map.
+     *
+     * @param objMap the object map
+     * @param width the width of the map (first index)
+     * @param height the height of the map (second index)
+     * @param parallel true if the computation can be split in parallel tasks
+     */
+    private void computeTable(byte[][] objMap, int width, int height, boolean parallel) {
+        int stride = height + 1;
+
+        // the first line of the table is 0
+        Arrays.fill(sat, 0, stride, 0);
+
+        // prefix sums on each line of the map
+        forEachBand(width, parallel, (xStart, xEnd) -> {
+            for (int x = xStart; x < xEnd; x++) {
+                int offset = (x + 1) * stride;
+                int sum = 0;
+
+                sat[offset] = 0;
+                for (int y = 0; y < height; y++) {
+                    sum += (objMap[x][y] != 0) ? 1 : 0;
+                    sat[offset + y + 1] = sum;
+                }
+            }
+        });
+
+        // accumulate the lines; the columns are independent
+        forEachBand(stride, parallel, (yStart, yEnd) -> {
+            for (int x = 1; x <= width; x++) {
+                int offset = x * stride;
+                for (int y = yStart; y < yEnd; y++) {
+                    sat[offset + y] += sat[offset - stride + y];
+                }
+            }
+        });
+    }
+
+    /**
+     * Split the interval [0, size) in bands and run the task for each band.
+     *
+     * @param size the size of the interval
+     * @param parallel true if the bands can run in parallel
+     * @param task the processing of one band
+     */
+    private static void forEachBand(int size, boolean parallel, BandTask task) {
+        int noBands = (size + BAND_SIZE - 1) / BAND_SIZE;
+
+        IntStream bands = IntStream.range(0, noBands);
+        if (parallel) {
+            bands = bands.parallel();
+        }
+
+        bands.forEach(band -> task.run(band * BAND_SIZE, Math.min(size, (band + 1) * BAND_SIZE)));
+    }
+
+    /**
+     * The processing of a band of lines or columns.
+     */
+    @FunctionalInterface
+    private interface BandTask {
+
+        /**
+         * Process the band [start, end).
+         *
+         * @param start the first index of the band
+         * @param end the index after the last one of the band
+         */
+        void run(int start, int end);
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+/**
+ * Morphological operations on binary object maps (0 = background, anything
+ * else = object): erosion, dilation, opening, closing, hole filling and the
+ * removal of the small components.
+ * <p>
+ * Erosion and dilation use a square structuring element of size 2 * radius +
+ * 1, split in a horizontal and a vertical pass. Each pass uses the van Herk /
+ * Gil-Werman algorithm: the line is split in blocks of the window size, the
+ * running maximum (minimum) is computed from the left and from the right of
+ * each block and every window is answered with 2 values. The cost per pixel
+ * does not depend on the radius.
+ * <p>
+ * The pixels outside the map do not influence the result (the map is padded
+ * with the neutral value of the operation). The output maps contain only 0 and
+ * 1. The scratch buffers are kept between the calls; an instance must not be
+ * used by several threads in the same time.
+ *
+ * @author Olimpia Popica
+ */
+public class MaskMorphology {
+
+    /**
+     * The padded line being processed.
+     */
+    private byte[] line = new byte[0];
+
+    /**
+     * The running extreme value from the left of each block.
+     */
+    private byte[] fromLeft = new byte[0];
+
+    /**
+     * The running extreme value from the right of each block.
+     */
+    private byte[] fromRight = new byte[0];
+
+    /**
+     * The stack of pixels used for the flood fill (packed x * height + y).
+     */
+    private int[] stack = new int[0];
+
+    /**
+     * Erode the object map with a square of size 2 * radius + 1.
+     *
+     * @param objMap the object map; it is modified in place
+     * @param radius the radius of the structuring element
+     */
+    public void erode(byte[][] objMap, int radius) {
+        apply(objMap, radius, true);
+    }
+
+    /**
+     * Dilate the object map with a square of size 2 * radius + 1.
+     *
+     * @param objMap the object map; it is modified in place
+     * @param radius the radius of the structuring element
+     */
+    public void dilate(byte[][] objMap, int radius) {
+        apply(objMap, radius, false);
+    }
+
+    /**
+     * Open the object map (erosion followed by dilation); removes the thin
+     * parts and the small islands.
+     *
+     * @param objMap the object map; it is modified in place
+     * @param radius the radius of the structuring element
+     */
+    public void open(byte[][] objMap, int radius) {
+        erode(objMap, radius);
+        dilate(objMap, radius);
+    }
+
+    /**
+     * Close the object map (dilation followed by erosion); fills the small
+     * gaps and cracks.
+     *
+     * @param objMap the object map; it is modified in place
+     * @param radius the radius of the structuring element
+     */
+    public void close(byte[][] objMap, int radius) {
+        dilate(objMap, radius);
+        erode(objMap, radius);
+    }
+
+    /**
+     * Fill the holes of the objects: the background pixels which cannot be
+     * reached from the border of the map (4-connectivity) become object.
+     *
+     * @param objMap the object map; it is modified in place
+     */
+    public void fillHoles(byte[][] objMap) {
+        if (isEmpty(objMap)) {
+            return;
+        }
+
+        int width = objMap.length;
+        int height = objMap[0].length;
+
+        for (byte[] column : objMap) {
+            for (int y = 0; y < height; y++) {
+                column[y] = (byte) ((column[y] != 0) ? 1 : 0);
+            }
+        }
+
+        // mark the background reachable from the border with 2
+        int top = 0;
+        ensureStack(width * height);
+        for (int x = 0; x < width; x++) {
+            top = pushBackground(objMap, x, 0, top);
+            top = pushBackground(objMap, x, height - 1, top);
+        }
+        for (int y = 0; y < height; y++) {
+            top = pushBackground(objMap, 0, y, top);
+            top = pushBackground(objMap, width - 1, y, top);
+        }
+
+        while (top > 0) {
+            int pos = stack[--top];
+            int x = pos / height;
+            int y = pos % height;
+
+            if (x > 0) {
+                top = pushBackground(objMap, x - 1, y, top);
+            }
+            if (x < width - 1) {
+                top = pushBackground(objMap, x + 1, y, top);
+            }
+            if (y > 0) {
+                top = pushBackground(objMap, x, y - 1, top);
+            }
+            if (y < height - 1) {
+                top = pushBackground(objMap, x, y + 1, top);
+            }
+        }
+
+        // the marked pixels are background, the rest is object
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                objMap[x][y] = (byte) ((objMap[x][y] == 2) ? 0 : 1);
+            }
+        }
+    }
+
+    /**
+     * Remove the objects (8-connectivity) having less pixels than the given
+     * size.
+     *
+     * @param objMap the object map; it is modified in place
+     * @param minSize the minimum number of pixels of an object which is kept
+     */
+    public void removeSmallComponents(byte[][] objMap, int minSize) {
+        if (isEmpty(objMap)) {
+            return;
+        }
+
+        for (byte[] column : objMap) {
+            for (int y = 0; y < column.length; y++) {
+                column[y] = (byte) ((column[y] != 0) ? 1 : 0);
+            }
+        }
+
+        ConnectedComponents.removeSmallComponents(objMap, minSize);
+    }
+
+    /**
+     * Apply the erosion or the dilation, first on the lines, then on the
+     * columns of the map.
+     *
+     * @param objMap the object map; it is modified in place
+     * @param radius the radius of the structuring element
+     * @param erode true for erosion, false for dilation
+     */
+    private void apply(byte[][] objMap, int radius, boolean erode) {
+        if (isEmpty(objMap)) {
+            return;
+        }
+
+        int width = objMap.length;
+        int height = objMap[0].length;
+
+        if (radius <= 0) {
+            for (byte[] column : objMap) {
+                for (int y = 0; y < height; y++) {
+                    column[y] = (byte) ((column[y] != 0) ? 1 : 0);
+                }
+            }
+            return;
+        }
+
+        ensureBuffers(Math.max(width, height) + 2 * radius);
+        byte pad = (byte) (erode ? 1 : 0);
+
+        // vertical pass; the map is stored by x, so the lines are contiguous
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                line[y + radius] = (byte) ((objMap[x][y] != 0) ? 1 : 0);
+            }
+            filterLine(height, radius, pad, erode);
+            System.arraycopy(fromLeft, 0, objMap[x], 0, height);
+        }
+
+        // horizontal pass
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                line[x + radius] = objMap[x][y];
+            }
+            filterLine(width, radius, pad, erode);
+            for (int x = 0; x < width; x++) {
+                objMap[x][y] = fromLeft[x];
+            }
+        }
+    }
+
+    /**
+     * Compute the minimum (erosion) or maximum (dilation) of each window of
+     * the line. The input values are in line[radius, radius + length); the
+     * result is written in fromLeft[0, length).
+     *
+     * @param length the number of values of the line
+     * @param radius the radius of the window
+     * @param pad the value used outside the line
+     * @param erode true for minimum, false for maximum
+     */
+    private void filterLine(int length, int radius, byte pad, boolean erode) {
+        int window = 2 * radius + 1;
+        int padded = length + 2 * radius;
+
+        for (int i = 0; i < radius; i++) {
+            line[i] = pad;
+            line[padded - 1 - i] = pad;
+        }
+
+        // running extreme values inside the blocks of the window size
+        for (int i = 0; i < padded; i++) {
+            fromLeft[i] = ((i % window) == 0) ? line[i] : extreme(fromLeft[i - 1], line[i], erode);
+        }
+        for (int i = padded - 1; i >= 0; i--) {
+            fromRight[i] = (((i % window) == window - 1) || (i == padded - 1)) ? line[i] : extreme(fromRight[i + 1], line[i], erode);
+        }
+
+        // the window [i, i + window - 1] covers the end of one block and the start of the next one;
+        // the values are written in place, after being used
+        for (int i = 0; i < length; i++) {
+            fromLeft[i] = extreme(fromRight[i], fromLeft[i + window - 1], erode);
+        }
+    }
+
+    /**
+     * Return the minimum or the maximum of two values.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @param min true for minimum, false for maximum
+     * @return the chosen value
+     */
+    private static byte extreme(byte a, byte b, boolean min) {
+        return min ? (byte) Math.min(a, b) : (byte) Math.max(a, b);
+    }
+
+    /**
+     * Add the pixel on the flood fill stack if it is background, marking it as
+     * reached (2).
+     *
+     * @param objMap the object map
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @param top the current size of the stack
+     * @return the new size of the stack
+     */
+    private int pushBackground(byte[][] objMap, int x, int y, int top) {
+        if (objMap[x][y] == 0) {
+            objMap[x][y] = 2;
+            stack[top++] = x * objMap[0].length + y;
+        }
+        return top;
+    }
+
+    /**
+     * Make sure the line buffers can store the given number of values.
+     *
+     * @param size the needed size
+     */
+    private void ensureBuffers(int size) {
+        if (line.length < size) {
+            line = new byte[size];
+            fromLeft = new byte[size];
+            fromRight = new byte[size];
+        }
+    }
+
+    /**
+     * Make sure the flood fill stack can store the given number of pixels.
+     *
+     * @param size the needed size
+     */
+    private void ensureStack(int size) {
+        if (stack.length < size) {
+            stack = new int[size];
+        }
+    }
+
+    /**
+     * Check if the map has no pixels.
+     *
+     * @param objMap the object map
+     * @return true if the map is null or empty
+     */
+    private static boolean isEmpty(byte[][] objMap) {
+        return (objMap == null) || (objMap.length == 0) || (objMap[0].length == 0);
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks boxes from one frame to the next one by template matching with
+ * normalized cross-correlation (NCC).
+ * <p>
+ * The content of the box in the previous frame is searched in a window around
+ * the same position in the next frame. The search is done on an image
+ * pyramid: exhaustively on the coarsest level where the template is still
+ * large enough, then refined around the best match on each finer level. The
+ * pyramids of the two frames are built once and reused for all the boxes.
+ * <p>
+ * The displacements may be searched from several threads at once; the
+ * tracking of boxes saves the last score and shall be done from one thread.
+ *
+ * @author Olimpia Popica
+ */
+public class NccTracker {
+
+    /**
+     * The matches with a lower score are not considered reliable.
+     */
+    public static final double MIN_SCORE = 0.6;
+
+    /**
+     * The maximum number of levels of the pyramids.
+     */
+    private static final int MAX_LEVELS = 5;
+
+    /**
+     * The template is not matched on levels where it would be smaller.
+     */
+    private static final int MIN_TEMPLATE_SIZE = 8;
+
+    /**
+     * The distance, in pixels, searched around the match of the coarser level.
+     */
+    private static final int REFINE_RADIUS = 2;
+
+    /**
+     * A grayscale image, one float per pixel, in the order of the lines.
+     */
+    private static class GrayImage {
+
+        private final int width;
+        private final int height;
+        private final float[] data;
+
+        GrayImage(int width, int height, float[] data) {
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The best position of a template on a level of the pyramid and its
+     * score.
+     */
+    private static class Match {
+
+        private int x = -1;
+        private int y = -1;
+        private double score = -2.0;
+    }
+
+    private final List<GrayImage> prevPyramid = new ArrayList<>();
+    private final List<GrayImage> nextPyramid = new ArrayList<>();
+
+    /**
+     * The score of the last tracked box.
+     */
+    private double lastScore;
+
+    /**
+     * Prepare the tracking from the previous frame to the next one. The frames
+     * must have the same size.
+     *
+     * @param prevFrame - the frame where the boxes are known
+     * @param nextFrame - the frame where the boxes are searched
+     */
+    public NccTracker(BufferedImage prevFrame, BufferedImage nextFrame) {
+        prevPyramid.add(toGray(prevFrame));
+        nextPyramid.add(toGray(nextFrame));
+    }
+
+    /**
+     * Find the position of the box in the next frame.
+     *
+     * @param box          - the box in the previous frame
+     * @param searchMargin - the maximum displacement of the box, in pixels
+     * @return - the box in the next frame, with the same size, or null if no
+     * reliable match was found
+     */
+    public Rectangle track(Rectangle box, int searchMargin) {
+        Rectangle template = getTemplate(box);
+        lastScore = 0.0;
+
+        if (template == null) {
+            return null;
+        }
+
+        Match best = match(template, 0, 0, searchMargin);
+        lastScore = best.score;
+
+        if ((best.x < 0) || (best.score < MIN_SCORE)) {
+            return null;
+        }
+
+        // keep the size of the initial box, moved with the displacement of the template
+        return new Rectangle(box.x + best.x - template.x, box.y + best.y - template.y, box.width, box.height);
+    }
+
+    /**
+     * Find the displacement of the box from the previous frame to the next
+     * one, searching around an expected displacement.
+     *
+     * @param box          - the box in the previous frame
+     * @param expected     - the expected displacement of the box
+     * @param searchMargin - the maximum distance, in pixels, between the
+     *                     displacement and the expected one
+     * @return - the displacement of the box, or null if no reliable match was
+     * found
+     */
+    public Point findDisplacement(Rectangle box, Point expected, int searchMargin) {
+        Rectangle template = getTemplate(box);
+
+        if (template == null) {
+            return null;
+        }
+
+        Match best = match(template, expected.x, expected.y, searchMargin);
+
+        if ((best.x < 0) || (best.score < MIN_SCORE)) {
+            return null;
+        }
+
+        return new Point(best.x - template.x, best.y - template.y);
+    }
+
+    /**
+     * Returns the NCC score of the last tracked box.
+     *
+     * @return - the score, between -1 and 1
+     */
+    public double getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * Returns the part of the box inside the frame; null if it is too small to
+     * be matched.
+     */
+    private Rectangle getTemplate(Rectangle box) {
+        GrayImage full = prevPyramid.get(0);
+        Rectangle template = box.intersection(new Rectangle(0, 0, full.width, full.height));
+
+        return ((template.width < MIN_TEMPLATE_SIZE) || (template.height < MIN_TEMPLATE_SIZE)) ? null : template;
+    }
+
+    /**
+     * Match the template around its position moved with the expected
+     * displacement: exhaustively on the coarsest level, then refined on the
+     * finer levels.
+     */
+    private Match match(Rectangle template, int expectedX, int expectedY, int searchMargin) {
+        // the coarsest level where the template keeps enough details
+        int level = 0;
+        while ((level + 1 < MAX_LEVELS) && ((Math.min(template.width, template.height) >> (level + 1)) >= MIN_TEMPLATE_SIZE)) {
+            level++;
+        }
+
+        // exhaustive search on the coarsest level
+        int margin = searchMargin >> level;
+        Match best = search(level, template, (template.x + expectedX) >> level, (template.y + expectedY) >> level, margin);
+
+        // refine the match on the finer levels
+        while ((level > 0) && (best.x >= 0)) {
+            level--;
+            best = search(level, template, best.x * 2, best.y * 2, REFINE_RADIUS);
+        }
+
+        return best;
+    }
+
+    /**
+     * Search the template of the level around the given position.
+     *
+     * @return the best position on the level and its score; the position is
+     * (-1, -1) if no position is inside the image
+     */
+    private Match search(int level, Rectangle fullTemplate, int centerX, int centerY, int radius) {
+        GrayImage prev = getLevel(prevPyramid, level);
+        GrayImage next = getLevel(nextPyramid, level);
+
+        int tx = fullTemplate.x >> level;
+        int ty = fullTemplate.y >> level;
+        int tw = Math.min(fullTemplate.width >> level, prev.width - tx);
+        int th = Math.min(fullTemplate.height >> level, prev.height - ty);
+        int n = tw * th;
+
+        // the template, without its mean
+        float[] tmpl = new float[n];
+        double mean = 0.0;
+        for (int y = 0; y < th; y++) {
+            System.arraycopy(prev.data, (ty + y) * prev.width + tx, tmpl, y * tw, tw);
+        }
+        for (float value : tmpl) {
+            mean += value;
+        }
+        mean /= n;
+
+        double tmplNorm = 0.0;
+        for (int i = 0; i < n; i++) {
+            tmpl[i] -= mean;
+            tmplNorm += tmpl[i] * tmpl[i];
+        }
+
+        Match best = new Match();
+
+        int minX = Math.max(0, centerX - radius);
+        int maxX = Math.min(next.width - tw, centerX + radius);
+        int minY = Math.max(0, centerY - radius);
+        int maxY = Math.min(next.height - th, centerY + radius);
+
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                double sum = 0.0;
+                double sumSq = 0.0;
+                double cross = 0.0;
+
+                for (int row = 0; row < th; row++) {
+                    int offset = (y + row) * next.width + x;
+                    int tOffset = row * tw;
+                    for (int col = 0; col < tw; col++) {
+                        float value = next.data[offset + col];
+                        sum += value;
+                        sumSq += value * value;
+                        cross += value * tmpl[tOffset + col];
+                    }
+                }
+
+                double variance = sumSq - sum * sum / n;
+                double score = ((variance > 1e-6) && (tmplNorm > 1e-6)) ? cross / Math.sqrt(variance * tmplNorm) : 0.0;
+
+                // prefer the smallest displacement when the scores are equal
+                if ((score > best.score) || ((score == best.score) && (distance(x, y, centerX, centerY) < distance(best.x, best.y, centerX, centerY)))) {
+                    best.score = score;
+                    best.x = x;
+                    best.y = y;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the squared distance between two points.
+     */
+    private static long distance(int x1, int y1, int x2, int y2) {
+        return (long) (x1 - x2) * (x1 - x2) + (long) (y1 - y2) * (y1 - y2);
+    }
+
+    /**
+     * Returns the level of the pyramid, building the missing levels by
+     * averaging 2x2 pixels of the finer level.
+     */
+    private static GrayImage getLevel(List<GrayImage> pyramid, int level) {
+        synchronized (pyramid) {
+            return buildLevel(pyramid, level);
+        }
+    }
+
+    /**
+     * Build the missing levels of the pyramid, up to the given one.
+     */
+    private static GrayImage buildLevel(List<GrayImage> pyramid, int level) {
+        while (pyramid.size() <= level) {
+            GrayImage fine = pyramid.get(pyramid.size() - 1);
+            int width = Math.max(1, fine.width / 2);
+            int height = Math.max(1, fine.height / 2);
+            float[] data = new float[width * height];
+
+            for (int y = 0; y < height; y++) {
+                int y0 = Math.min(2 * y, fine.height - 1) * fine.width;
+                int y1 = Math.min(2 * y + 1, fine.height - 1) * fine.width;
+                for (int x = 0; x < width; x++) {
+                    int x0 = Math.min(2 * x, fine.width - 1);
+                    int x1 = Math.min(2 * x + 1, fine.width - 1);
+                    data[y * width + x] = 0.25f * (fine.data[y0 + x0] + fine.data[y0 + x1] + fine.data[y1 + x0] + fine.data[y1 + x1]);
+                }
+            }
+
+            pyramid.add(new GrayImage(width, height, data));
+        }
+
+        return pyramid.get(level);
+    }
+
+    /**
+     * Convert the image to grayscale.
+     */
+    private static GrayImage toGray(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        float[] data = new float[width * height];
+        int[] line = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, line, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = line[x];
+                data[y * width + x] = 0.299f * ((rgb >> 16) & 0xFF) + 0.587f * ((rgb >> 8) & 0xFF) + 0.114f * (rgb & 0xFF);
+            }
+        }
+
+        return new GrayImage(width, height, data);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+
+/**
+ * Scanline rasterization of polygons, without Graphics2D.
+ * <p>
+ * A pixel belongs to the polygon if its center is inside the polygon, by the
+ * chosen fill rule. The edges are sorted in an edge table by their top y; for
+ * each line of pixels, the active edges are intersected with the line passing
+ * through the pixel centers and the spans between the crossings are filled.
+ * The result is clipped to the given frame size. The cost is given by the
+ * number of edges and the number of filled pixels.
+ * <p>
+ * This is the inverse of {@link ContourTracer}: rasterizing the contours of an
+ * object map gives back the same object.
+ *
+ * @author Olimpia Popica
+ */
+public class PolygonRasterizer {
+
+    /**
+     * The rule deciding which points are inside a self-intersecting polygon.
+     */
+    public enum FillRule {
+        /**
+         * A point is inside if a ray from it crosses the border an odd number
+         * of times (the rule used by java.awt.Polygon).
+         */
+        EVEN_ODD,
+        /**
+         * A point is inside if the border winds around it a non-zero number of
+         * times.
+         */
+        NON_ZERO
+    }
+
+    /**
+     * Receives the horizontal spans of pixels which are inside the polygon.
+     */
+    @FunctionalInterface
+    public interface SpanConsumer {
+
+        /**
+         * Process the pixels [xStart, xEnd) of the line y.
+         *
+         * @param y the line of the span
+         * @param xStart the first pixel of the span
+         * @param xEnd the pixel after the last one of the span
+         */
+        void span(int y, int xStart, int xEnd);
+    }
+
+    private PolygonRasterizer() {
+        throw new IllegalStateException("Utility class, do not instantiate!");
+    }
+
+    /**
+     * Write the value in the map, for all the pixels of the polygon.
+     *
+     * @param objMap the map where the polygon is drawn (indexed [x][y])
+     * @param polygon the polygon, in map coordinates
+     * @param rule the fill rule
+     * @param value the value written for the pixels of the polygon
+     * @return the number of written pixels
+     */
+    public static int fill(byte[][] objMap, Polygon polygon, FillRule rule, byte value) {
+        if ((objMap == null) || (objMap.length == 0)) {
+            return 0;
+        }
+
+        int[] noPixels = new int[1];
+        rasterize(polygon, rule, objMap.length, objMap[0].length, (y, xStart, xEnd) -> {
+            for (int x = xStart; x < xEnd; x++) {
+                objMap[x][y] = value;
+            }
+            noPixels[0] += xEnd - xStart;
+        });
+
+        return noPixels[0];
+    }
+
+    /**
+     * Compute the spans of pixels covered by the polygon, line by line, from
+     * top to bottom.
+     *
+     * @param polygon the polygon, in frame coordinates
+     * @param rule the fill rule
+     * @param width the width of the frame; the spans are clipped to it
+     * @param height the height of the frame; the spans are clipped to it
+     * @param consumer receives the spans of the polygon
+     */
+    public static void rasterize(Polygon polygon, FillRule rule, int width, int height, SpanConsumer consumer) {
+        if ((polygon == null) || (polygon.npoints < 3) || (width <= 0) || (height <= 0)) {
+            return;
+        }
+
+        /* build the edge table: the non horizontal edges, going down, sorted by their top */
+        int noPoints = polygon.npoints;
+        int[] edgeTopY = new int[noPoints];
+        int[] edgeBottomY = new int[noPoints];
+        double[] edgeX = new double[noPoints];
+        double[] edgeSlope = new double[noPoints];
+        int[] edgeWinding = new int[noPoints];
+        Integer[] order = new Integer[noPoints];
+        int noEdges = 0;
+
+        for (int i = 0; i < noPoints; i++) {
+            int x0 = polygon.xpoints[i];
+            int y0 = polygon.ypoints[i];
+            int x1 = polygon.xpoints[(i + 1) % noPoints];
+            int y1 = polygon.ypoints[(i + 1) % noPoints];
+
+            if (y0 == y1) {
+                continue;
+            }
+
+            int winding = (y1 > y0) ? 1 : -1;
+            if (y1 < y0) {
+                int tmp = x0;
+                x0 = x1;
+                x1 = tmp;
+                tmp = y0;
+                y0 = y1;
+                y1 = tmp;
+            }
+
+            // the edge covers the pixel centers y + 0.5 in [y0, y1)
+            edgeTopY[noEdges] = (int) Math.ceil(y0 - 0.5);
+            edgeBottomY[noEdges] = (int) Math.ceil(y1 - 0.5);
+            edgeSlope[noEdges] = (double) (x1 - x0) / (y1 - y0);
+            edgeX[noEdges] = x0 + (edgeTopY[noEdges] + 0.5 - y0) * edgeSlope[noEdges];
+            edgeWinding[noEdges] = winding;
+            order[noEdges] = noEdges;
+            noEdges++;
+        }
+
+        if (noEdges == 0) {
+            return;
+        }
+
+        Arrays.sort(order, 0, noEdges, (e1, e2) -> Integer.compare(edgeTopY[e1], edgeTopY[e2]));
+
+        /* scan the lines, keeping the list of the active edges */
+        int[] active = new int[noEdges];
+        int noActive = 0;
+        int nextEdge = 0;
+        double[] crossX = new double[noEdges];
+        int[] crossWinding = new int[noEdges];
+
+        int yStart = Math.max(0, edgeTopY[order[0]]);
+        for (int y = yStart; y < height; y++) {
+            // add the edges starting on this line (or above it, for the clipped part)
+            while ((nextEdge < noEdges) && (edgeTopY[order[nextEdge]] <= y)) {
+                int edge = order[nextEdge++];
+                if (edgeBottomY[edge] > y) {
+                    // move the clipped edges to the current line
+                    edgeX[edge] += (y - edgeTopY[edge]) * edgeSlope[edge];
+                    edgeTopY[edge] = y;
+                    active[noActive++] = edge;
+                }
+            }
+
+            // remove the edges which ended
+            int kept = 0;
+            for (int i = 0; i < noActive; i++) {
+                if (edgeBottomY[active[i]] > y) {
+                    active[kept++] = active[i];
+                }
+            }
+            noActive = kept;
+
+            if ((noActive == 0) && (nextEdge == noEdges)) {
+                break;
+            }
+
+            // the crossings of the line, sorted by x (insertion sort: the list is short and almost sorted)
+            for (int i = 0; i < noActive; i++) {
+                int edge = active[i];
+                double x = edgeX[edge] + (y - edgeTopY[edge]) * edgeSlope[edge];
+                int winding = edgeWinding[edge];
+
+                int pos = i;
+                while ((pos > 0) && (crossX[pos - 1] > x)) {
+                    crossX[pos] = crossX[pos - 1];
+                    crossWinding[pos] = crossWinding[pos - 1];
+                    pos--;
+                }
+                crossX[pos] = x;
+                crossWinding[pos] = winding;
+            }
+
+            // fill the spans which are inside, by the fill rule
+            int windingNumber = 0;
+            for (int i = 0; i < noActive - 1; i++) {
+                windingNumber += (rule == FillRule.EVEN_ODD) ? 1 : crossWinding[i];
+
+                boolean inside = (rule == FillRule.EVEN_ODD) ? ((windingNumber & 1) == 1) : (windingNumber != 0);
+                if (inside) {
+                    // the pixels having the center in [crossX[i], crossX[i + 1])
+                    int xFrom = Math.max(0, (int) Math.ceil(crossX[i] - 0.5));
+                    int xTo = Math.min(width, (int) Math.ceil(crossX[i + 1] - 0.5));
+                    if (xFrom < xTo) {
+                        consumer.span(y, xFrom, xTo);
+                    }
+                }
+            }
+        }
+    }
+}
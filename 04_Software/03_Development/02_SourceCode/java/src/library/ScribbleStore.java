@@ -0,0 +1,280 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import commonsegmentation.ScribbleInfo;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact store of scribbles: each scribble is packed as (x, y, label) in a
+ * long and the values are kept in chunks of primitive arrays, so drawing does
+ * not create an object per pixel. The scribbles are converted to ScribbleInfo
+ * objects only at the boundary with the segmentation and the file formats.
+ *
+ * @author Olimpia Popica
+ */
+public class ScribbleStore implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of scribbles in a chunk (power of 2).
+     */
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * The chunks of packed scribbles; new chunks are added when the store
+     * grows, the existing ones are never copied.
+     */
+    private long[][] chunks = new long[0][];
+
+    /**
+     * The number of scribbles in the store.
+     */
+    private int size;
+
+    /**
+     * Receives the scribbles of the store, one at a time.
+     */
+    @FunctionalInterface
+    public interface ScribbleConsumer {
+
+        /**
+         * Process one scribble.
+         *
+         * @param x     the x coordinate in the image
+         * @param y     the y coordinate in the image
+         * @param label the drawing type (background or object)
+         */
+        void accept(int x, int y, int label);
+    }
+
+    /**
+     * Selects scribbles of the store.
+     */
+    @FunctionalInterface
+    public interface ScribblePredicate {
+
+        /**
+         * Checks the scribble.
+         *
+         * @param x     the x coordinate in the image
+         * @param y     the y coordinate in the image
+         * @param label the drawing type (background or object)
+         * @return true if the scribble is selected
+         */
+        boolean test(int x, int y, int label);
+    }
+
+    /**
+     * Add a scribble at the end of the store.
+     *
+     * @param x     the x coordinate in the image
+     * @param y     the y coordinate in the image
+     * @param label the drawing type (background or object)
+     */
+    public void append(int x, int y, int label) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new long[CHUNK_SIZE];
+        }
+        chunks[chunk][size & CHUNK_MASK] = pack(x, y, label);
+        size++;
+    }
+
+    /**
+     * Add all the scribbles of another store at the end of this one.
+     *
+     * @param other the store to be appended
+     */
+    public void appendAll(ScribbleStore other) {
+        other.forEach(this::append);
+    }
+
+    /**
+     * Returns the number of scribbles in the store.
+     *
+     * @return the number of scribbles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the store has no scribbles.
+     *
+     * @return true if the store is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the x coordinate of the scribble.
+     *
+     * @param index the index of the scribble
+     * @return the x coordinate in the image
+     */
+    public int getX(int index) {
+        return (int) (get(index) >> 32);
+    }
+
+    /**
+     * Returns the y coordinate of the scribble.
+     *
+     * @param index the index of the scribble
+     * @return the y coordinate in the image
+     */
+    public int getY(int index) {
+        return (int) (get(index) >> 8) & 0xFFFFFF;
+    }
+
+    /**
+     * Returns the label (drawing type) of the scribble.
+     *
+     * @param index the index of the scribble
+     * @return the label of the scribble
+     */
+    public int getLabel(int index) {
+        return (int) get(index) & 0xFF;
+    }
+
+    /**
+     * Remove all the scribbles; the allocated chunks are kept for reuse.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Call the consumer for each scribble, in the order they were added.
+     *
+     * @param consumer the receiver of the scribbles
+     */
+    public void forEach(ScribbleConsumer consumer) {
+        for (int index = 0; index < size; index++) {
+            long value = chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+            consumer.accept((int) (value >> 32), (int) (value >> 8) & 0xFFFFFF, (int) value & 0xFF);
+        }
+    }
+
+    /**
+     * Remove the scribbles selected by the predicate. The store is compacted
+     * in place and keeps the order of the remaining scribbles.
+     *
+     * @param predicate selects the scribbles to be removed
+     * @return the number of removed scribbles
+     */
+    public int removeIf(ScribblePredicate predicate) {
+        int kept = 0;
+        for (int index = 0; index < size; index++) {
+            long value = chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+            if (!predicate.test((int) (value >> 32), (int) (value >> 8) & 0xFFFFFF, (int) value & 0xFF)) {
+                chunks[kept >>> CHUNK_BITS][kept & CHUNK_MASK] = value;
+                kept++;
+            }
+        }
+
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    /**
+     * Remove the scribbles inside the given region of the image.
+     *
+     * @param region the region to be erased, in image coordinates
+     * @return the number of removed scribbles
+     */
+    public int eraseRegion(Rectangle region) {
+        return removeIf((x, y, label) -> region.contains(x, y));
+    }
+
+    /**
+     * Create an independent copy of the store.
+     *
+     * @return the copy of the store
+     */
+    public ScribbleStore copy() {
+        ScribbleStore copy = new ScribbleStore();
+        copy.appendAll(this);
+        return copy;
+    }
+
+    /**
+     * Convert the store to the list of scribbles used by the segmentation.
+     * The panel position of the scribbles is not known and it is set equal to
+     * the image position.
+     *
+     * @return the list of scribbles
+     */
+    public List<ScribbleInfo> toScribbleInfoList() {
+        List<ScribbleInfo> scribbleList = new ArrayList<>(size);
+        forEach((x, y, label) -> scribbleList.add(new ScribbleInfo(label, new Point(x, y), new Point(x, y))));
+        return scribbleList;
+    }
+
+    /**
+     * Create a store from a list of scribbles.
+     *
+     * @param scribbleList the list of scribbles
+     * @return the store holding the scribbles of the list
+     */
+    public static ScribbleStore fromScribbleInfoList(List<ScribbleInfo> scribbleList) {
+        ScribbleStore store = new ScribbleStore();
+        for (ScribbleInfo si : scribbleList) {
+            store.append(si.getImgPosX(), si.getImgPosY(), si.getDrawingType());
+        }
+        return store;
+    }
+
+    /**
+     * Returns the packed value of the scribble.
+     */
+    private long get(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * Pack the coordinates and the label in a long.
+     */
+    private static long pack(int x, int y, int label) {
+        return ((long) x << 32) | ((long) (y & 0xFFFFFF) << 8) | (label & 0xFF);
+    }
+}
@@ -75,6 +75,11 @@ public class ObservedActions {
          * available. Refresh the display in order to have the latest image.
          */
         REFRESH_CROP_RESULT,
+        /**
+         * A coarse segmentation of the opened crop is available, while the
+         * full resolution result is still computed. Display it as a preview.
+         */
+        REFRESH_CROP_PREVIEW,
         /**
          * The number of the frame changed, refresh the display.
          */
@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package paintpanels;
+
+import common.Utils;
+
+/**
+ * The shape of a round brush of any size, as a list of spans: for each row of
+ * the brush, the range of columns covered by it. The offsets are relative to
+ * the position of the mouse, which is at (size / 2, size / 2) in the brush
+ * window, the same as for the circle masks of the cursor. For the sizes which
+ * have a circle mask, the spans cover exactly the pixels of the mask; for the
+ * other sizes, the pixels whose center is inside the circle.
+ *
+ * @author Olimpia Popica
+ */
+public class BrushStamp {
+
+    /**
+     * The smallest brush size which has a circle mask.
+     */
+    private static final int MIN_MASK_SIZE = 3;
+
+    /**
+     * The largest brush size which has a circle mask.
+     */
+    private static final int MAX_MASK_SIZE = 30;
+
+    /**
+     * The diameter of the brush, in pixels; the width and height of the brush
+     * window.
+     */
+    private final int size;
+
+    /**
+     * The row offset of each span.
+     */
+    private final int[] rowOffset;
+
+    /**
+     * The first column offset of each span (inclusive).
+     */
+    private final int[] startOffset;
+
+    /**
+     * The last column offset of each span (exclusive).
+     */
+    private final int[] endOffset;
+
+    /**
+     * Compute the spans of a round brush of the given size.
+     *
+     * @param size the diameter of the brush, in pixels
+     */
+    public BrushStamp(int size) {
+        this.size = size;
+        this.rowOffset = new int[size];
+        this.startOffset = new int[size];
+        this.endOffset = new int[size];
+
+        if ((size >= MIN_MASK_SIZE) && (size <= MAX_MASK_SIZE)) {
+            // keep the shape of the circle mask, the same as the cursor
+            initFromMask(Utils.getCircleMask(size));
+        } else {
+            initFromCircle();
+        }
+    }
+
+    /**
+     * Compute the spans from the circle mask of the brush size: each row of
+     * the mask has one run of marked columns.
+     *
+     * @param circleMask the circle mask, indexed [column][row]
+     */
+    private void initFromMask(byte[][] circleMask) {
+        int win2 = size / 2;
+
+        for (int row = 0; row < size; row++) {
+            int first = 0;
+            while ((first < size) && (circleMask[first][row] != (byte) 1)) {
+                first++;
+            }
+            int last = first;
+            while ((last < size) && (circleMask[last][row] == (byte) 1)) {
+                last++;
+            }
+
+            rowOffset[row] = row - win2;
+            startOffset[row] = first - win2;
+            endOffset[row] = last - win2;
+        }
+    }
+
+    /**
+     * Compute the spans of the columns whose center is inside the circle
+     * inscribed in the brush window.
+     */
+    private void initFromCircle() {
+        int win2 = size / 2;
+        double center = (size - 1) * 0.5;
+        double radius2 = size * size * 0.25;
+
+        for (int row = 0; row < size; row++) {
+            double dy = row - center;
+            double halfWidth = Math.sqrt(Math.max(0.0, radius2 - dy * dy));
+
+            // the columns whose center is inside the circle
+            int first = (int) Math.ceil(center - halfWidth);
+            int last = (int) Math.floor(center + halfWidth);
+
+            rowOffset[row] = row - win2;
+            startOffset[row] = Math.max(0, first) - win2;
+            endOffset[row] = Math.min(size - 1, last) + 1 - win2;
+        }
+    }
+
+    /**
+     * Returns the diameter of the brush.
+     *
+     * @return the size of the brush
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of spans (rows) of the brush.
+     *
+     * @return the number of spans
+     */
+    public int getNoSpans() {
+        return rowOffset.length;
+    }
+
+    /**
+     * Returns the row offset of the span.
+     *
+     * @param span the index of the span
+     * @return the offset of the row, relative to the mouse position
+     */
+    public int getRowOffset(int span) {
+        return rowOffset[span];
+    }
+
+    /**
+     * Returns the first column offset of the span (inclusive).
+     *
+     * @param span the index of the span
+     * @return the offset of the first column, relative to the mouse position
+     */
+    public int getStartOffset(int span) {
+        return startOffset[span];
+    }
+
+    /**
+     * Returns the last column offset of the span (exclusive).
+     *
+     * @param span the index of the span
+     * @return the offset after the last column, relative to the mouse position
+     */
+    public int getEndOffset(int span) {
+        return endOffset[span];
+    }
+}
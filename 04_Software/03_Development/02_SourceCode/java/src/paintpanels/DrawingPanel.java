@@ -32,10 +32,10 @@ import common.Utils;
 import gui.support.*;
 import library.DrawOptions;
 import library.Resize;
+import library.ScribbleStore;
 import observers.NotifyObservers;
 import observers.ObservedActions;
 import commonsegmentation.ScribbleInfo;
-import commonsegmentation.PixelMap;
 
 import javax.swing.*;
 import java.awt.*;
@@ -47,9 +47,10 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Observer;
-import java.util.Random;
+import java.util.SplittableRandom;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -124,26 +125,62 @@ public final class DrawingPanel extends JPanel {
      * it is needed to know which points were already marked to avoid marking
      * them again or changing their initial value.
      */
-    private boolean[][] visited;
+    private transient VisitedMap visited;
 
     /**
-     * The list of segmented points. It is kept for being able to save the
+     * The spans of the brush, in image coordinates; recomputed only when the
+     * size of the brush changes.
+     */
+    private transient BrushStamp brushStamp;
+
+    /**
+     * The random generator deciding which pixels of the brush are scribbled,
+     * based on the brush density.
+     */
+    private final transient SplittableRandom random = new SplittableRandom();
+
+    /**
+     * The positions of the current brush stroke, in image coordinates, which
+     * were not stamped yet.
+     */
+    private final transient StrokeQueue strokeQueue = new StrokeQueue();
+
+    /**
+     * True when the stamping of the queued stroke positions was scheduled on
+     * the event dispatch thread and did not run yet.
+     */
+    private transient boolean strokeFlushScheduled;
+
+    /**
+     * The region of the image changed by the stamps of the current batch.
+     */
+    private final transient Rectangle strokeDamage = new Rectangle();
+
+    /**
+     * The segmented points. They are kept for being able to save the
      * information regarding the segmented point and the object ids of each
      * point.
      */
-    private List<ScribbleInfo> scribbleList;
+    private ScribbleStore scribbleStore;
+
+    /**
+     * True when scribbles were erased from the visited map and the store was
+     * not compacted yet. The store is compacted once per stroke, not on each
+     * stamp of the brush.
+     */
+    private transient boolean scribblesErased;
 
     /**
-     * The list of points to be displayed (no other purpose, just display). It
-     * represents the list of scribbles which were drawn on the crops. point.
+     * The scribbles to be displayed (no other purpose, just display), grouped
+     * by the crop they were drawn on.
      */
     private transient List<DisplayScribbles> displayScribbles;
 
     /**
-     * The list of segmented pixels as required by the cuda module. It contains
-     * the list of pixels which represent scribbles.
+     * Reusable buffer for flushing the scribbles: the position of each
+     * visited scribble in the image.
      */
-    private transient List<PixelMap>[] cudaPixelMap;
+    private transient long[] flushPositions = new long[0];
 
     /**
      * The ratio between the original image and the size it has to have to fit
@@ -322,13 +359,13 @@ public final class DrawingPanel extends JPanel {
      */
     private void initOtherVar() {
         // init the list of pixels which are drawn on the image
-        scribbleList = new ArrayList<>();
+        scribbleStore = new ScribbleStore();
 
         // init the list of pixels to be displayed in the panel
         displayScribbles = new ArrayList<>();
 
         // create a new map of the workImg to mark the visited points
-        visited = new boolean[origImg.getHeight()][origImg.getWidth()];
+        resetVisited();
 
         // set the id as invalid
         idSelectedBox = -1;
@@ -346,11 +383,13 @@ public final class DrawingPanel extends JPanel {
             @Override
             public void mousePressed(MouseEvent e) {
                 mousePressedAction(e);
+                repaintFigure();
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
                 mouseReleasedAction(e);
+                repaintFigure();
             }
 
             @Override
@@ -364,11 +403,13 @@ public final class DrawingPanel extends JPanel {
             @Override
             public void mouseDragged(MouseEvent e) {
                 mouseDraggedAction(e);
+                repaintFigure();
             }
 
             @Override
             public void mouseMoved(MouseEvent e) {
                 mousePosition.setLocation(e.getX(), e.getY());
+                repaintFigure();
             }
 
         });
@@ -378,6 +419,7 @@ public final class DrawingPanel extends JPanel {
             public void mouseWheelMoved(MouseWheelEvent e) {
                 // highlight points if any selected
                 highlightPoints = false;
+                repaintFigure();
             }
         });
     }
@@ -396,12 +438,12 @@ public final class DrawingPanel extends JPanel {
         switch (drawType) {
 
             case DRAW_SCRIBBLE:
-                // the erase object has id -1
-                if (actionType > ConstantsLabeling.ACTION_TYPE_ERASE) {
-                    generateScribble();
-                } else {
-                    eraseFromScribblelList(currentMouse);
-                }
+                // start a new stroke and stamp the brush where the mouse was pressed
+                Point currentImg = resize.resizedToOriginal(currentMouse);
+                strokeDamage.setBounds(0, 0, 0, 0);
+                strokeQueue.start(currentImg.x, currentImg.y, getStampSpacing(), this::stampBrush);
+                stampBrush(currentImg.x, currentImg.y);
+                repaintStrokeDamage();
                 break;
 
             case EDIT_MODE:
@@ -474,6 +516,10 @@ public final class DrawingPanel extends JPanel {
      * @param e triggered mouse event
      */
     private void mouseReleasedAction(MouseEvent e) {
+        // stamp the rest of the stroke before the release is handled
+        flushStroke();
+        compactScribbleStore();
+
         currentMouse.setLocation(e.getPoint());
 
         //notify the gui to update the cropped image
@@ -552,22 +598,104 @@ public final class DrawingPanel extends JPanel {
 
     /**
      * Implement the functionality of the draw scribbles when the mouse is
-     * dragged; draw or erase scribbles. If an object is chosen (background or
-     * object), draw scribbles; else remove the selected scribbles.
+     * dragged; draw or erase scribbles. The position is queued and the queued
+     * drag events are stamped together, after the events already waiting on
+     * the event dispatch thread.
      */
     private void draggDrawScribble() {
-        // depending on the action, draw scribble or erase them
         if (drawType == DrawConstants.DrawType.DRAW_SCRIBBLE) {
-            if (actionType > ConstantsLabeling.ACTION_TYPE_ERASE) {
-                generateScribble();
-            } else {
-                eraseFromScribblelList(currentMouse);
+            Point currentImg = resize.resizedToOriginal(currentMouse);
+            strokeQueue.add(currentImg.x, currentImg.y);
+
+            if (!strokeFlushScheduled) {
+                strokeFlushScheduled = true;
+                SwingUtilities.invokeLater(this::flushStroke);
             }
 
             oldMouse.setLocation(currentMouse.getLocation());
         }
     }
 
+    /**
+     * Stamp the brush along the queued segments of the stroke, in one batch,
+     * and repaint just the changed region.
+     */
+    private void flushStroke() {
+        strokeFlushScheduled = false;
+
+        if (strokeQueue.isEmpty()) {
+            return;
+        }
+
+        strokeDamage.setBounds(0, 0, 0, 0);
+        strokeQueue.drain(getStampSpacing(), this::stampBrush);
+
+        // drop the scribbles erased by the batch in one pass over the store
+        compactScribbleStore();
+
+        repaintStrokeDamage();
+    }
+
+    /**
+     * Returns the distance, in image pixels, between two stamps of the brush
+     * along a stroke: a quarter of the brush size, to leave no gaps.
+     */
+    private int getStampSpacing() {
+        return resize.resizedToOriginal(brushOpt.getBrushSize()) / 4;
+    }
+
+    /**
+     * Stamp the brush at the given position: draw or erase scribbles. If an
+     * object is chosen (background or object), draw scribbles; else remove
+     * the selected scribbles.
+     *
+     * @param xImg - the x coordinate of the center of the brush, in the image
+     * @param yImg - the y coordinate of the center of the brush, in the image
+     */
+    private void stampBrush(int xImg, int yImg) {
+        // the erase object has id -1
+        if (actionType > ConstantsLabeling.ACTION_TYPE_ERASE) {
+            generateScribble(xImg, yImg);
+        } else {
+            eraseFromScribblelList(xImg, yImg);
+        }
+
+        // extend the changed region with the window of the brush
+        int brushSizeImg = resize.resizedToOriginal(brushOpt.getBrushSize());
+        int minX = xImg - brushSizeImg;
+        int minY = yImg - brushSizeImg;
+        int maxX = xImg + brushSizeImg + 1;
+        int maxY = yImg + brushSizeImg + 1;
+        if (!strokeDamage.isEmpty()) {
+            minX = Math.min(minX, strokeDamage.x);
+            minY = Math.min(minY, strokeDamage.y);
+            maxX = Math.max(maxX, strokeDamage.x + strokeDamage.width);
+            maxY = Math.max(maxY, strokeDamage.y + strokeDamage.height);
+        }
+        strokeDamage.setBounds(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Repaint the region of the panel changed by the last stamps.
+     */
+    private void repaintStrokeDamage() {
+        if (!strokeDamage.isEmpty()) {
+            Rectangle panelDamage = resize.originalToResized(strokeDamage);
+            panelDamage.grow(1, 1);
+            repaint(panelDamage);
+        }
+    }
+
+    /**
+     * Repaint the panel after a mouse event. The scribbles repaint only the
+     * region changed by the brush, so they are not repainted here.
+     */
+    private void repaintFigure() {
+        if (drawType != DrawConstants.DrawType.DRAW_SCRIBBLE) {
+            repaint();
+        }
+    }
+
     /**
      * Edit the polygon points: allow the user to drag the points of the poly to the wanted position.
      */
@@ -651,150 +779,154 @@ public final class DrawingPanel extends JPanel {
      * Draw the points existent in the list, using the defined color for each.
      */
     private void drawScribble(Graphics2D g2D) {
-        for (ScribbleInfo si : scribbleList) {
-            if ((Utils.checkBounds(si.getImgPos(), getOrigImgSize())) && (visited[si.getImgPosY()][si.getImgPosX()])) {
-                DrawOptions.drawPoint(g2D, si.getPanelPos(), Utils.getDrawingColor(si.getDrawingType(), objColor));
+        Point panelPos = new Point();
+        int width = origImg.getWidth();
+        int height = origImg.getHeight();
+
+        scribbleStore.forEach((x, y, label) -> {
+            if ((x < width) && (y < height) && (visited.get(x, y))) {
+                panelPos.setLocation(resize.originalToResized(x), resize.originalToResized(y));
+                DrawOptions.drawPoint(g2D, panelPos, Utils.getDrawingColor(label, objColor));
             }
-        }
+        });
     }
 
     /**
      * The method allows the user to draw freely the wanted shape. The shape is
      * saved and passed to another module which is processing the chosen points.
+     *
+     * @param xImg - the x coordinate of the center of the brush, in the image
+     * @param yImg - the y coordinate of the center of the brush, in the image
      */
-    private void generateScribble() {
-
-        //compute the workImg coordinates for the case when the panel is not the same size as the workImg
-        Point currentImg = resize.resizedToOriginal(currentMouse);
-        Point currentPanel = new Point(currentMouse.x, currentMouse.y);     //to avoid overriting all the other panel coordinates
-        Point newImgPoint;
-        Point newPanelPoint;
+    private void generateScribble(int xImg, int yImg) {
         int brushSizeImg = resize.resizedToOriginal(brushOpt.getBrushSize());
         int win2 = (int) (brushSizeImg * 0.5f);   //the window arround the point where the mouse is, where the brush will be created
-        Random rand = new Random();
-        byte[][] circleMask = Utils.getCircleMask(brushOpt.getBrushSize());  // the mask making the mouse pointer a circle
+        int width = visited.getWidth();
+        int height = visited.getHeight();
 
         //When the brush is theaker than 1 pixel, draw points as specified by the choosen options: brush size and density. 
         //When the brush has size 1 or 0, draw a line of 1 pixel.
         if (win2 > 0) {
-            for (int x = -win2; x < brushSizeImg - win2; x++) {
-                for (int y = -win2; y < brushSizeImg - win2; y++) {
-                    newImgPoint = new Point(currentImg.x + x, currentImg.y + y);
-
-                    float randFloat = rand.nextFloat();
-
-                    //if the point is valid, not visited and chosen to be saved by the random generator, inside the circle brush, paint and save it
-                    if (Utils.checkBounds(newImgPoint, getOrigImgSize())
-                            && (randFloat < brushOpt.getBrushDensity())
-                            && (circleMask[x + win2][y + win2] == (byte) 1)
-                            && (!visited[newImgPoint.y][newImgPoint.x])) {
-                        // mark the point as visited
-                        visited[newImgPoint.y][newImgPoint.x] = true;
+            BrushStamp stamp = getBrushStamp(brushSizeImg);
+            float density = brushOpt.getBrushDensity();
+
+            // walk the rows of the round brush, clipped to the image
+            for (int span = 0; span < stamp.getNoSpans(); span++) {
+                int y = yImg + stamp.getRowOffset(span);
+                if ((y < 0) || (y >= height)) {
+                    continue;
+                }
 
-                        // compute the panel coordinates
-                        newPanelPoint = resize.originalToResized(newImgPoint);
+                int xStart = Math.max(0, xImg + stamp.getStartOffset(span));
+                int xEnd = Math.min(width, xImg + stamp.getEndOffset(span));
 
-                        // add object in the list to be saved
-                        addScribbleToList(newImgPoint, newPanelPoint);
+                for (int x = xStart; x < xEnd; x++) {
+                    //if the point is chosen to be saved by the random generator and not visited, mark it and save it
+                    if ((random.nextFloat() < density) && visited.testAndSet(x, y)) {
+                        scribbleStore.append(x, y, actionType);
                     }
                 }
             }
-        } else if (Utils.checkBounds(currentImg, getOrigImgSize()) && (!visited[currentImg.y][currentImg.x])) {
-            // mark the point as visited
-            visited[currentImg.y][currentImg.x] = true;
-
+        } else if ((xImg >= 0) && (yImg >= 0) && (xImg < width) && (yImg < height) && visited.testAndSet(xImg, yImg)) {
             // add object in the list to be saved
-            addScribbleToList(currentImg, currentPanel);
+            scribbleStore.append(xImg, yImg, actionType);
         }
     }
 
     /**
-     * Pack the image point and the panel point together with the object id and
-     * add it to the list of pixels.
+     * Return the spans of the brush of the given size, reusing the ones of the
+     * previous call when the size did not change.
+     *
+     * @param size - the size of the brush, in image coordinates
+     * @return - the spans of the brush
      */
-    private void addScribbleToList(Point pointImg, Point pointPanel) {
-        ScribbleInfo pi = new ScribbleInfo(actionType, pointImg, pointPanel);
-        scribbleList.add(pi);
+    private BrushStamp getBrushStamp(int size) {
+        if ((brushStamp == null) || (brushStamp.getSize() != size)) {
+            brushStamp = new BrushStamp(size);
+        }
+        return brushStamp;
     }
 
     /**
-     * The function does not erase the pixels, but marks them as free to be
-     * chosen again.
+     * The function marks the pixels as free to be chosen again. Their
+     * scribbles are dropped from the store when the stroke ends.
+     *
+     * @param xImg - the x coordinate of the center of the brush, in the image
+     * @param yImg - the y coordinate of the center of the brush, in the image
      */
-    private void eraseFromScribblelList(Point point) {
-        //compute the workImg coordinates for the case when the panel is not the same size as the workImg
-        Point currentImg = resize.resizedToOriginal(point);
-        Point newImgPoint = new Point();
-
-        byte[][] circleMask = Utils.getCircleMask(brushOpt.getBrushSize());  // the mask making the mouse pointer a circle
-
+    private void eraseFromScribblelList(int xImg, int yImg) {
         int brushSizeImg = resize.resizedToOriginal(brushOpt.getBrushSize() - 1);
         int win2 = (int) (brushSizeImg * 0.5f);   //the window arround the point where the mouse is, where the brush will be created
+        int width = visited.getWidth();
+        int height = visited.getHeight();
 
         if (win2 > 0) {
-            for (int x = -win2; x < win2; x++) {
-                for (int y = -win2; y < win2; y++) {
-                    // erase a circle of pixels, not a square
-                    if (circleMask[x + win2][y + win2] == (byte) 1) {
-                        // compute the position
-                        newImgPoint.setLocation(currentImg.x + x, currentImg.y + y);
-
-                        if (Utils.checkBounds(newImgPoint, getOrigImgSize())
-                                && visited[newImgPoint.y][newImgPoint.x]) {
-                            // make the point eligible again
-                            visited[newImgPoint.y][newImgPoint.x] = false;
-                        }
-                    }
+            // erase a circle of pixels, not a square, inside the window [-win2, win2)
+            BrushStamp stamp = getBrushStamp(2 * win2);
+
+            for (int span = 0; span < stamp.getNoSpans(); span++) {
+                int y = yImg + stamp.getRowOffset(span);
+                if ((y < 0) || (y >= height)) {
+                    continue;
+                }
+
+                int xStart = Math.max(0, xImg + stamp.getStartOffset(span));
+                int xEnd = Math.min(width, xImg + stamp.getEndOffset(span));
+
+                for (int x = xStart; x < xEnd; x++) {
+                    // make the point eligible again
+                    scribblesErased |= visited.clear(x, y);
                 }
             }
         }
     }
 
     /**
-     * Write the list of selected pixels.
+     * Drop from the store the scribbles which were erased, in one pass over
+     * the store.
+     */
+    private void compactScribbleStore() {
+        if (scribblesErased) {
+            scribbleStore.removeIf((x, y, label) -> !visited.get(x, y));
+            scribblesErased = false;
+        }
+    }
+
+    /**
+     * Count the pixels which will be used for the segmentation: the visited
+     * scribbles, each pixel counted once even if it was scribbled several
+     * times. The segmentation reads the scribbles from getScribbleList and
+     * the colors from the image, so only their number is computed here.
      *
      * @return - the number of scribbles which will be used for segmentation
      */
     public int flushPixelList() {
-        int noScribbles = 0;
-
-        // The map of objects to be saved - the not visited points have to have id -1.
-        float[][] objMap = Utils.initMatrix(origImg.getWidth(), origImg.getHeight(), -1.0f);
-
-        // create an empty array of arrays of points for the cuda module
-        cudaPixelMap = new ArrayList[Constants.NUMBER_OF_OBJECTS];
-        // init the array
-        for (int index = 0; index < Constants.NUMBER_OF_OBJECTS; index++) {
-            cudaPixelMap[index] = new ArrayList<>();
+        int noStored = scribbleStore.size();
+        if (flushPositions.length < noStored) {
+            flushPositions = new long[noStored];
         }
 
-        // get the list of segmented pixels and save only the valid and visited ones
-        for (ScribbleInfo pi : scribbleList) {
-            if (visited[pi.getImgPosY()][pi.getImgPosX()]) {
-                objMap[pi.getImgPosY()][pi.getImgPosX()] = (float) pi.getDrawingType();
+        // collect the visited scribbles; only their number of pixels is processed, not the whole frame
+        int width = origImg.getWidth();
+        int noEntries = 0;
+        for (int index = 0; index < noStored; index++) {
+            int x = scribbleStore.getX(index);
+            int y = scribbleStore.getY(index);
+            if (visited.get(x, y)) {
+                flushPositions[noEntries++] = (long) y * width + x;
             }
         }
 
-        // copy the whole list in the required format, line by line
-        for (int y = 0; y < origImg.getHeight(); y++) {
-            for (int x = 0; x < origImg.getWidth(); x++) {
-
-                // fill in also the list of pixels for cuda
-                if (objMap[y][x] > (-1)) {
-                    // get the color of the pixel 
-                    int[] RGB = Utils.getRGB(origImg.getRGB(x, y));
-
-                    // create a new cuda pixel, specific to the matting algorithm
-                    PixelMap cudaPixel = new PixelMap((short) x, (short) y, (byte) RGB[0], (byte) RGB[1], (byte) RGB[2]);
+        // sort by position, so the scribbles of the same pixel are next to each other
+        Arrays.sort(flushPositions, 0, noEntries);
 
-                    // save the new cuda pixel in the map
-                    cudaPixelMap[(int) objMap[y][x]].add(cudaPixel);
-
-                    // increment the scribble number
-                    noScribbles++;
-                }
+        int noScribbles = 0;
+        for (int entry = 0; entry < noEntries; entry++) {
+            if ((entry == 0) || (flushPositions[entry] != flushPositions[entry - 1])) {
+                noScribbles++;
             }
         }
+
         return noScribbles;
     }
 
@@ -842,8 +974,6 @@ public final class DrawingPanel extends JPanel {
                 //do nothing
                 break;
         }
-
-        repaint();
     }
 
     /**
@@ -1016,6 +1146,7 @@ public final class DrawingPanel extends JPanel {
 	panelSize.width = workImg.getWidth();
         panelSize.height = workImg.getHeight();
         setPanelFixedSize();
+        repaint();
     }
 
     /**
@@ -1023,10 +1154,24 @@ public final class DrawingPanel extends JPanel {
      */
     private void cleanScribbleLists() {
         //clean the pixels list
-        scribbleList.clear();
+        scribbleStore.clear();
+        scribblesErased = false;
 
         //set all points as not visited
-        visited = new boolean[origImg.getHeight()][origImg.getWidth()];
+        resetVisited();
+    }
+
+    /**
+     * Mark all the points of the image as not visited. The map is reused when
+     * the image has the same size, which is the case for all the frames of a
+     * video.
+     */
+    private void resetVisited() {
+        if ((visited != null) && visited.hasSize(origImg.getWidth(), origImg.getHeight())) {
+            visited.clearAll();
+        } else {
+            visited = new VisitedMap(origImg.getWidth(), origImg.getHeight());
+        }
     }
 
     /**
@@ -1037,6 +1182,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setDrawType(DrawConstants.DrawType drawType) {
         this.drawType = drawType;
+        repaint();
     }
 
     /**
@@ -1057,6 +1203,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setHighlightPoints(boolean highlightPoints) {
         this.highlightPoints = highlightPoints;
+        repaint();
     }
 
     /**
@@ -1085,6 +1232,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setWorkImg(BufferedImage workImg) {
         this.workImg = workImg;
+        repaint();
     }
 
     /**
@@ -1128,22 +1276,24 @@ public final class DrawingPanel extends JPanel {
      */
     public void setCurBBoxPanelCoord(Rectangle curBBoxPanelCoord) {
         this.curBBoxPanelCoord = curBBoxPanelCoord;
+        repaint();
     }
 
     /**
-     * Return the list of valid scribbles.
+     * Return the list of valid scribbles. The list is created from the store
+     * and it is meant for the segmentation and the saving of the scribbles.
      *
      * @return - the list of scribbles
      */
     public List<ScribbleInfo> getScribbleList() {
-        List<ScribbleInfo> outputScribbleList = new ArrayList<>();
+        List<ScribbleInfo> outputScribbleList = new ArrayList<>(scribbleStore.size());
 
         // get the list of segmented pixels and save only the valid and visited ones
-        for (ScribbleInfo pi : this.scribbleList) {
-            if (visited[pi.getImgPosY()][pi.getImgPosX()]) {
-                outputScribbleList.add(pi);
+        scribbleStore.forEach((x, y, label) -> {
+            if (visited.get(x, y)) {
+                outputScribbleList.add(new ScribbleInfo(label, new Point(x, y), resize.originalToResized(x, y)));
             }
-        }
+        });
 
         return outputScribbleList;
     }
@@ -1154,11 +1304,32 @@ public final class DrawingPanel extends JPanel {
      * @param scribbleList - the new list of scribbles
      */
     public void setScribbleList(List<ScribbleInfo> scribbleList) {
-        this.scribbleList = scribbleList;
+        setScribbleStore(ScribbleStore.fromScribbleInfoList(scribbleList));
+    }
 
-        for (ScribbleInfo pi : scribbleList) {
-            visited[pi.getImgPosY()][pi.getImgPosX()] = true;
-        }
+    /**
+     * Return the store of scribbles drawn on the panel. The store is shared,
+     * not copied.
+     *
+     * @return - the store of scribbles
+     */
+    public ScribbleStore getScribbleStore() {
+        compactScribbleStore();
+        return scribbleStore;
+    }
+
+    /**
+     * Load a predefined store of scribbles. The store is shared with the
+     * caller: the new scribbles drawn on the panel are added to it.
+     *
+     * @param scribbleStore - the new store of scribbles
+     */
+    public void setScribbleStore(ScribbleStore scribbleStore) {
+        this.scribbleStore = scribbleStore;
+        scribblesErased = false;
+
+        scribbleStore.forEach((x, y, label) -> visited.set(x, y));
+        repaint();
     }
 
     /**
@@ -1169,6 +1340,7 @@ public final class DrawingPanel extends JPanel {
     public void resetMousePosition() {
         oldMouse = new Point();
         currentMouse = new Point();
+        repaint();
     }
 
     /**
@@ -1195,6 +1367,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setBBoxList(List<DisplayBBox> positions) {
         this.bBoxList = positions;
+        repaint();
     }
 
     /**
@@ -1204,6 +1377,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setPolygonDisplayList(List<DisplayPolygon> polygonList) {
         this.polygonList = polygonList;
+        repaint();
     }
 
     /**
@@ -1249,6 +1423,7 @@ public final class DrawingPanel extends JPanel {
 
         bBoxList.stream().filter(displayBox -> (displayBox.equalPanels(posPanel))).forEach(
                 displayBox -> idSelectedBox = bBoxList.indexOf(displayBox));
+        repaint();
     }
 
     /**
@@ -1258,6 +1433,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setDrawScribbleHistory(boolean drawScribbleHistory) {
         this.drawScribbleHistory = drawScribbleHistory;
+        repaint();
     }
 
     /**
@@ -1268,6 +1444,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void addScriblesToDisplay(List<DisplayScribbles> cropScribbles) {
         displayScribbles = cropScribbles;
+        repaint();
     }
 
     /**
@@ -1287,6 +1464,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void resetIdSelectedBox() {
         this.idSelectedBox = -1;
+        repaint();
     }
 
     /**
@@ -1312,6 +1490,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void reloadWorkImg() {
         workImg = resize.resizeImage(origImg);
+        repaint();
     }
 
     /**
@@ -1332,16 +1511,6 @@ public final class DrawingPanel extends JPanel {
         observable.deleteObserver(o);
     }
 
-    /**
-     * Returns the list of pixels needed by the cuda module, in the specific
-     * format.
-     *
-     * @return - the list of pixels belonging to each object
-     */
-    public List<PixelMap>[] getCudaPixelMap() {
-        return cudaPixelMap;
-    }
-
     /**
      * Get the resize characteristics.
      *
@@ -1378,6 +1547,7 @@ public final class DrawingPanel extends JPanel {
     public void setAddCropToObj(boolean addCropToObj) {
         // enable only if there is a selected object
         this.addCropToObj = (addCropToObj && (idSelectedBox > -1));
+        repaint();
     }
 
     /**
@@ -1430,6 +1600,7 @@ public final class DrawingPanel extends JPanel {
         // do not draw the shape anymore
         drawGuideShape = showGuideShape;
         jLBoxSize.setVisible(drawGuideShape);
+        repaint();
     }
 
     /**
@@ -1439,6 +1610,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setObjColor(Color objColor) {
         this.objColor = objColor;
+        repaint();
     }
 
     /**
@@ -1455,6 +1627,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void initCurrentPolygon() {
         this.currentPolygon = new Polygon();
+        repaint();
     }
 	
     /**
@@ -1466,6 +1639,7 @@ public final class DrawingPanel extends JPanel {
     public void setCurrentPolygon(Polygon poly, Polygon originalPoly) {
         this.currentPolygon = resize.originalToResized(poly);
         this.originalPolygon = originalPoly;
+        repaint();
     }
 
     /**
@@ -1473,6 +1647,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void resetCurrentPolygon() {
         this.currentPolygon = null;
+        repaint();
     }
 
     private void drawBoxList(Graphics2D g2D) {
@@ -1493,8 +1668,17 @@ public final class DrawingPanel extends JPanel {
     private void drawScribbleList(Graphics2D g2D) {
         // draw the scribbles of the objects
         if (displayScribbles != null && drawScribbleHistory) {
-            displayScribbles.stream().forEach(scribble
-                    -> DrawOptions.drawPoint(g2D, scribble.getPanelPos(), scribble.getColor()));
+            Point panelPos = new Point();
+
+            for (DisplayScribbles scribbles : displayScribbles) {
+                Rectangle cropPos = scribbles.getCropPos();
+                Resize scribbleResize = scribbles.getResize();
+
+                scribbles.getScribbleStore().forEach((x, y, label) -> {
+                    panelPos.setLocation(scribbleResize.originalToResized(x) + cropPos.x, scribbleResize.originalToResized(y) + cropPos.y);
+                    DrawOptions.drawPoint(g2D, panelPos, (label == 0) ? Color.red : scribbles.getColor());
+                });
+            }
         }
     }
 
@@ -1518,6 +1702,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setDrawAlphaObj(boolean drawAlphaObj) {
         this.drawAlphaObj = drawAlphaObj;
+        repaint();
     }
 
     /**
@@ -1527,6 +1712,7 @@ public final class DrawingPanel extends JPanel {
      */
     public void setObjAlpha(int objAlpha) {
         this.objAlpha = objAlpha;
+        repaint();
     }
 
     /**
@@ -1687,10 +1873,4 @@ public final class DrawingPanel extends JPanel {
         currentPolygon = poly;
         observable.notifyObservers(ObservedActions.Action.UPDATE_POLYGON_VERTICES);
     }
-
-    public void updateScribbleList() {
-        for (ScribbleInfo pi : scribbleList) {
-            pi.setPanelPos(resize.originalToResized(pi.getImgPos()));
-        }
-    }
 }
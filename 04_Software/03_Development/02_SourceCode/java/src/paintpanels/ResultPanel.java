@@ -28,14 +28,18 @@ package paintpanels;
 import common.ExportImage;
 import common.Utils;
 import gui.support.Objects;
+import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import java.util.List;
 import javax.swing.JPanel;
+import library.MajorityFilter;
+import library.PolygonRasterizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +75,50 @@ public class ResultPanel extends JPanel {
      */
     private Color objColor;
 
+    /**
+     * The filter used for removing the outlier points from the object map; it
+     * keeps its buffers between the filtering requests.
+     */
+    private final transient MajorityFilter majorityFilter = new MajorityFilter();
+
+    /**
+     * The number of different labels which can be stored in the object map
+     * (one for each value of the byte).
+     */
+    private static final int NO_MAP_LABELS = 256;
+
+    /**
+     * The left-most x coordinate of each label from the object map (indexed by
+     * the unsigned value of the label).
+     */
+    private final int[] labelMinX = new int[NO_MAP_LABELS];
+
+    /**
+     * The top-most y coordinate of each label from the object map.
+     */
+    private final int[] labelMinY = new int[NO_MAP_LABELS];
+
+    /**
+     * The right-most x coordinate of each label from the object map.
+     */
+    private final int[] labelMaxX = new int[NO_MAP_LABELS];
+
+    /**
+     * The bottom-most y coordinate of each label from the object map.
+     */
+    private final int[] labelMaxY = new int[NO_MAP_LABELS];
+
+    /**
+     * The number of pixels of each label from the object map.
+     */
+    private final int[] labelPixelCount = new int[NO_MAP_LABELS];
+
+    /**
+     * Shows that pixels were removed from the label and its box might be
+     * larger than the object; it will be tightened at the next query.
+     */
+    private final boolean[] labelBoundsLoose = new boolean[NO_MAP_LABELS];
+
     /**
      * logger instance
      */
@@ -96,6 +144,7 @@ public class ResultPanel extends JPanel {
 
         // init object map
         objMap = new byte[origImg.getWidth()][origImg.getHeight()];
+        rebuildObjIndex();
 
         //panel size
         this.panelSize = panelRes;
@@ -164,20 +213,47 @@ public class ResultPanel extends JPanel {
         // update objectMap
         for (int y = 0; y < pos.getHeight(); y++) {
             for (int x = 0; x < pos.getWidth(); x++) {
+                byte oldLabel = objMap[x + pos.x][y + pos.y];
+                byte newLabel;
 
                 if (mergeBkg) {
                     // merge bakground in object map (overwrites the initial byte, no matter what was storred, with bkg)
-                    objMap[x + pos.x][y + pos.y] = (newObjMap[x][y] > 0) ? mapId : (byte) 0;
+                    newLabel = (newObjMap[x][y] > 0) ? mapId : (byte) 0;
 
                 } else {
                     // merge just the pure object - when the pixel in the  object map is != 0
-                    objMap[x + pos.x][y + pos.y] = ((objMap[x + pos.x][y + pos.y] == mapId) && (newObjMap[x][y] == 0)) ? 0 : objMap[x + pos.x][y + pos.y];
-                    objMap[x + pos.x][y + pos.y] = (newObjMap[x][y] > 0) ? mapId : objMap[x + pos.x][y + pos.y];
+                    newLabel = ((oldLabel == mapId) && (newObjMap[x][y] == 0)) ? 0 : oldLabel;
+                    newLabel = (newObjMap[x][y] > 0) ? mapId : newLabel;
+                }
+
+                if (newLabel != oldLabel) {
+                    relabelPixel(x + pos.x, y + pos.y, oldLabel, newLabel);
                 }
             }
         }
     }
 
+    /**
+     * Draws the polygon in the object map, with the id of the object. The
+     * pixels having the center inside the polygon (even-odd rule) are
+     * overwritten; the parts outside the image are ignored.
+     *
+     * @param polygon - the polygon of the object, in image coordinates
+     * @param objId   - the id of the object
+     */
+    public void mergePolygon(Polygon polygon, long objId) {
+        byte mapId = getByteObjId(objId);
+
+        PolygonRasterizer.rasterize(polygon, PolygonRasterizer.FillRule.EVEN_ODD, objMap.length, objMap[0].length, (y, xStart, xEnd) -> {
+            for (int x = xStart; x < xEnd; x++) {
+                byte oldLabel = objMap[x][y];
+                if (oldLabel != mapId) {
+                    relabelPixel(x, y, oldLabel, mapId);
+                }
+            }
+        });
+    }
+
     /**
      * Apply the object map to the original image in order to obtain the new
      * image with the preview of the segmentation.
@@ -221,13 +297,16 @@ public class ResultPanel extends JPanel {
         int[] RGB = new int[3];
         float alpha = 120.0f / 255.0f;
 
+        // the colors of the labels from the map, computed once for the whole image
+        Color[] labelColors = getLabelColors(objList);
+
         // apply background/object color on the image
         for (int y = 0; y < origImage.getHeight(); y++) {
             for (int x = 0; x < origImage.getWidth(); x++) {
                 bkg = Utils.getRGB(origImage.getRGB(x, y));
 
                 if (objMap[x][y] != (byte) 0) {
-                    fg = Utils.getRGB(getObjColor(objMap[x][y], objList).getRGB());
+                    fg = Utils.getRGB(labelColors[objMap[x][y] & 0xFF].getRGB());
                 } else {
                     fg = Utils.getRGB(Color.red.getRGB());
                 }
@@ -244,20 +323,25 @@ public class ResultPanel extends JPanel {
     }
 
     /**
-     * Get the color of the segmented object, from the object list. Search the
-     * object by id.
+     * Get the colors of the segmented objects, from the object list, for each
+     * label of the object map. When several objects share a label, the first
+     * object in the list gives the color.
      *
-     * @param id the object id for which the color is wanted
      * @param objList the list of segmented objects
-     * @return the color of the wanted object
+     * @return the color of each label of the object map, indexed by the
+     * unsigned value of the label
      */
-    private Color getObjColor(byte id, List<Objects> objList) {
-        for (Objects obj : objList) {
-            if (getByteObjId(obj.getObjectId()) == id) {
-                return obj.getColor();
-            }
+    private Color[] getLabelColors(List<Objects> objList) {
+        Color[] labelColors = new Color[NO_MAP_LABELS];
+        Arrays.fill(labelColors, objColor);
+
+        // go backwards to let the first object of a label set its color
+        for (int index = objList.size() - 1; index >= 0; index--) {
+            Objects obj = objList.get(index);
+            labelColors[getByteObjId(obj.getObjectId()) & 0xFF] = obj.getColor();
         }
-        return objColor;
+
+        return labelColors;
     }
 
     /**
@@ -288,7 +372,11 @@ public class ResultPanel extends JPanel {
     }
 
     /**
-     * Returns the map of object indexes, segmented by the algorithm.
+     * Returns the map of object indexes, segmented by the algorithm. The map is
+     * shared, not copied, and it is meant to be read: the panel keeps the box
+     * and the pixel count of each label, which are not updated by the writes
+     * done directly in the returned array. A map changed outside the panel has
+     * to be given back with setObjMap.
      *
      * @return - the matrix of the objects in the image
      */
@@ -303,6 +391,7 @@ public class ResultPanel extends JPanel {
      */
     public void setObjMap(byte[][] objMap) {
         this.objMap = objMap;
+        rebuildObjIndex();
     }
 
     /**
@@ -316,7 +405,8 @@ public class ResultPanel extends JPanel {
 
     /**
      * Search for the object id in the given area of the object map and remove
-     * it. It was cancel.
+     * it. It was cancel. Only the part of the area which overlaps the box of
+     * the object is visited.
      *
      * @param objectId - the id of the object to be removed from the object map.
      * @param area     - the area where to search for the object id and remove it from the object map
@@ -328,17 +418,38 @@ public class ResultPanel extends JPanel {
 
         // map the object id on byte
         byte mapId = getByteObjId(objectId);
+        int label = mapId & 0xFF;
+
+        if (labelPixelCount[label] == 0) {
+            return;
+        }
+
+        // search just in the part of the area where the object can be found
+        int xStart = Math.max(area.x, labelMinX[label]);
+        int yStart = Math.max(area.y, labelMinY[label]);
+        int xEnd = Math.min(area.x + area.width - 1, labelMaxX[label]);
+        int yEnd = Math.min(area.y + area.height - 1, labelMaxY[label]);
 
-        for (int y = 0; y < area.height; y++) {
-            for (int x = 0; x < area.width; x++) {
-                if (objMap[x + area.x][y + area.y] == mapId) {
+        for (int y = yStart; y <= yEnd; y++) {
+            for (int x = xStart; x <= xEnd; x++) {
+                if (objMap[x][y] == mapId) {
                     // erase the object, set as background
-                    objMap[x + area.x][y + area.y] = (byte) 0;
+                    relabelPixel(x, y, mapId, (byte) 0);
                 }
             }
         }
     }
 
+    /**
+     * Remove the object with the specified id from the whole object map. Only
+     * the box of the object is visited.
+     *
+     * @param objectId - the id of the object to be removed from the object map.
+     */
+    public void removeObj(long objectId) {
+        removeObj(objectId, new Rectangle(0, 0, objMap.length, objMap[0].length));
+    }
+
     /**
      * Returns the equivalent of the object Id, on byte. It is considered that
      * in the image there are no more than 255 different objects.
@@ -346,7 +457,7 @@ public class ResultPanel extends JPanel {
      * @param objectId - the image id of the object
      * @return - the equivalent id on byte
      */
-    private static byte getByteObjId(long objectId) {
+    public static byte getByteObjId(long objectId) {
         return ((byte) (1 + (objectId % 255)));
     }
 
@@ -361,7 +472,19 @@ public class ResultPanel extends JPanel {
      * other white pixels and discard the lonely pixels.
      */
     public void filterObjectMap() {
-        Utils.filterObjectMap(objMap);
+        filterObjectMap(MajorityFilter.DEFAULT_WINDOW_SIZE, 1);
+    }
+
+    /**
+     * Filter the object map array with a window of the specified size, the
+     * specified number of times.
+     *
+     * @param windowSize - the size of the filtering window
+     * @param iterations - how many times the filter is applied
+     */
+    public void filterObjectMap(int windowSize, int iterations) {
+        majorityFilter.filter(objMap, windowSize, iterations);
+        rebuildObjIndex();
     }
 
     /**
@@ -374,8 +497,8 @@ public class ResultPanel extends JPanel {
     }
 
     /**
-     * Search for the object id in the given area of the object map and change
-     * it to the new specified one.
+     * Search for the object id in the box of the object and change it to the
+     * new specified one.
      *
      * @param oldObjId the old id of the object to be changed in the object map
      * @param newObjId the new id of the object
@@ -384,15 +507,154 @@ public class ResultPanel extends JPanel {
 
         // map the object id on byte
         byte oldMapId = getByteObjId(oldObjId);
-        byte newObjMap = getByteObjId(newObjId);
+        byte newMapId = getByteObjId(newObjId);
+        int oldLabel = oldMapId & 0xFF;
 
-        for (int y = 0; y < origImage.getHeight(); y++) {
-            for (int x = 0; x < origImage.getWidth(); x++) {
+        if ((oldMapId == newMapId) || (labelPixelCount[oldLabel] == 0)) {
+            return;
+        }
+
+        // copy the box because it is updated while relabeling
+        int xStart = labelMinX[oldLabel];
+        int yStart = labelMinY[oldLabel];
+        int xEnd = labelMaxX[oldLabel];
+        int yEnd = labelMaxY[oldLabel];
+
+        for (int y = yStart; y <= yEnd; y++) {
+            for (int x = xStart; x <= xEnd; x++) {
                 if (objMap[x][y] == oldMapId) {
-                    // erase the object, set as background
-                    objMap[x][y] = newObjMap;
+                    relabelPixel(x, y, oldMapId, newMapId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the box containing all the pixels of the specified object, from
+     * the object map - image coordinates.
+     *
+     * @param objectId the id of the object
+     * @return the box of the object or null if the object is not in the object map
+     */
+    public Rectangle getObjBounds(long objectId) {
+        int label = getByteObjId(objectId) & 0xFF;
+
+        if (labelPixelCount[label] == 0) {
+            return null;
+        }
+
+        if (labelBoundsLoose[label]) {
+            tightenBounds(label);
+        }
+
+        return new Rectangle(labelMinX[label], labelMinY[label],
+                labelMaxX[label] - labelMinX[label] + 1,
+                labelMaxY[label] - labelMinY[label] + 1);
+    }
+
+    /**
+     * Return the number of pixels of the specified object, from the object map.
+     *
+     * @param objectId the id of the object
+     * @return the area of the object, in pixels
+     */
+    public int getObjPixelCount(long objectId) {
+        return labelPixelCount[getByteObjId(objectId) & 0xFF];
+    }
+
+    /**
+     * Change the label of one pixel of the object map and update the boxes and
+     * the pixel counts of the two labels.
+     *
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @param oldLabel the label found in the object map
+     * @param newLabel the label to be written in the object map
+     */
+    private void relabelPixel(int x, int y, byte oldLabel, byte newLabel) {
+        objMap[x][y] = newLabel;
+
+        int oldIdx = oldLabel & 0xFF;
+        labelPixelCount[oldIdx]--;
+        if (labelPixelCount[oldIdx] == 0) {
+            resetBounds(oldIdx);
+        } else {
+            labelBoundsLoose[oldIdx] = true;
+        }
+
+        addToBounds(newLabel & 0xFF, x, y);
+    }
+
+    /**
+     * Add the pixel to the box of the label and count it.
+     *
+     * @param label the unsigned value of the label
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     */
+    private void addToBounds(int label, int x, int y) {
+        labelPixelCount[label]++;
+        labelMinX[label] = Math.min(labelMinX[label], x);
+        labelMinY[label] = Math.min(labelMinY[label], y);
+        labelMaxX[label] = Math.max(labelMaxX[label], x);
+        labelMaxY[label] = Math.max(labelMaxY[label], y);
+    }
+
+    /**
+     * Mark the label as not existent in the object map.
+     *
+     * @param label the unsigned value of the label
+     */
+    private void resetBounds(int label) {
+        labelMinX[label] = Integer.MAX_VALUE;
+        labelMinY[label] = Integer.MAX_VALUE;
+        labelMaxX[label] = Integer.MIN_VALUE;
+        labelMaxY[label] = Integer.MIN_VALUE;
+        labelPixelCount[label] = 0;
+        labelBoundsLoose[label] = false;
+    }
+
+    /**
+     * Shrink the box of the label to the pixels still having the label. Only
+     * the old box of the label is visited.
+     *
+     * @param label the unsigned value of the label
+     */
+    private void tightenBounds(int label) {
+        byte mapId = (byte) label;
+        int xStart = labelMinX[label];
+        int yStart = labelMinY[label];
+        int xEnd = labelMaxX[label];
+        int yEnd = labelMaxY[label];
+
+        resetBounds(label);
+
+        for (int y = yStart; y <= yEnd; y++) {
+            for (int x = xStart; x <= xEnd; x++) {
+                if (objMap[x][y] == mapId) {
+                    addToBounds(label, x, y);
                 }
             }
         }
     }
+
+    /**
+     * Recompute the boxes and the pixel counts of all the labels by going over
+     * the whole object map. Needed when the map is replaced or changed in bulk.
+     */
+    private void rebuildObjIndex() {
+        for (int label = 0; label < NO_MAP_LABELS; label++) {
+            resetBounds(label);
+        }
+
+        if (objMap == null) {
+            return;
+        }
+
+        for (int x = 0; x < objMap.length; x++) {
+            for (int y = 0; y < objMap[x].length; y++) {
+                addToBounds(objMap[x][y] & 0xFF, x, y);
+            }
+        }
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package paintpanels;
+
+import java.util.Arrays;
+
+/**
+ * The positions of a brush stroke which were received but not stamped yet.
+ * The segments between consecutive positions are rasterized with Bresenham's
+ * algorithm and the brush is stamped along them, at the given spacing, so
+ * fast strokes do not leave gaps between the sampled mouse positions.
+ *
+ * @author Olimpia Popica
+ */
+public class StrokeQueue {
+
+    /**
+     * Receives the positions where the brush shall be stamped.
+     */
+    @FunctionalInterface
+    public interface StampConsumer {
+
+        /**
+         * Stamp the brush at the given position.
+         *
+         * @param x the x coordinate of the center of the brush
+         * @param y the y coordinate of the center of the brush
+         */
+        void stamp(int x, int y);
+    }
+
+    /**
+     * The x coordinates of the pending positions, in the order they were
+     * received; the buffer grows when needed.
+     */
+    private int[] posX = new int[64];
+
+    /**
+     * The y coordinates of the pending positions, in the order they were
+     * received; the buffer grows when needed.
+     */
+    private int[] posY = new int[64];
+
+    /**
+     * The number of pending positions.
+     */
+    private int size;
+
+    /**
+     * The x coordinate of the last stamped position of the stroke; the next
+     * segment starts here.
+     */
+    private int lastX;
+
+    /**
+     * The y coordinate of the last stamped position of the stroke; the next
+     * segment starts here.
+     */
+    private int lastY;
+
+    /**
+     * Start a new stroke at the given position. The pending positions of the
+     * previous stroke are stamped first, so its end is not lost.
+     *
+     * @param x        the x coordinate of the start of the stroke
+     * @param y        the y coordinate of the start of the stroke
+     * @param spacing  the distance, in pixels, between two stamps of the
+     *                 previous stroke
+     * @param consumer the receiver of the stamp positions of the previous
+     *                 stroke
+     */
+    public void start(int x, int y, int spacing, StampConsumer consumer) {
+        drain(spacing, consumer);
+        lastX = x;
+        lastY = y;
+    }
+
+    /**
+     * Queue a new position of the stroke.
+     *
+     * @param x the x coordinate of the position
+     * @param y the y coordinate of the position
+     */
+    public void add(int x, int y) {
+        if (size == posX.length) {
+            posX = Arrays.copyOf(posX, size * 2);
+            posY = Arrays.copyOf(posY, size * 2);
+        }
+        posX[size] = x;
+        posY[size] = y;
+        size++;
+    }
+
+    /**
+     * Checks if there are positions which were not stamped yet.
+     *
+     * @return true if no position is pending
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Stamp the brush along all the pending segments and empty the queue. The
+     * brush is stamped every spacing pixels of each segment and always at its
+     * end, the sampled position; the start of the segment was already stamped.
+     *
+     * @param spacing  the distance, in pixels, between two stamps
+     * @param consumer the receiver of the stamp positions
+     */
+    public void drain(int spacing, StampConsumer consumer) {
+        int step = Math.max(1, spacing);
+
+        for (int index = 0; index < size; index++) {
+            int x = lastX;
+            int y = lastY;
+            int endX = posX[index];
+            int endY = posY[index];
+
+            int dx = Math.abs(endX - x);
+            int dy = -Math.abs(endY - y);
+            int sx = (x < endX) ? 1 : -1;
+            int sy = (y < endY) ? 1 : -1;
+            int err = dx + dy;
+            int walked = 0;
+
+            while ((x != endX) || (y != endY)) {
+                int err2 = 2 * err;
+                if (err2 >= dy) {
+                    err += dy;
+                    x += sx;
+                }
+                if (err2 <= dx) {
+                    err += dx;
+                    y += sy;
+                }
+
+                walked++;
+                if ((walked == step) || ((x == endX) && (y == endY))) {
+                    consumer.stamp(x, y);
+                    walked = 0;
+                }
+            }
+
+            lastX = endX;
+            lastY = endY;
+        }
+
+        size = 0;
+    }
+}
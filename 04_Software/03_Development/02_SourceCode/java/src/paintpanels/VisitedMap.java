@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package paintpanels;
+
+import java.util.Arrays;
+
+/**
+ * Sparse bitset marking the pixels of an image which were scribbled. The
+ * image is split in tiles of 64x64 pixels, one long per row of a tile, and a
+ * tile is allocated only when one of its pixels is marked. Clearing the map
+ * resets only the touched tiles and keeps them for reuse, so the map can be
+ * kept for all the frames of the same size.
+ *
+ * @author Olimpia Popica
+ */
+public class VisitedMap {
+
+    /**
+     * The size of a tile is 64 (1 << 6) pixels in both directions.
+     */
+    private static final int TILE_BITS = 6;
+    private static final int TILE_MASK = (1 << TILE_BITS) - 1;
+
+    private final int width;
+    private final int height;
+
+    /**
+     * The number of tiles on a line of the image.
+     */
+    private final int tilesX;
+
+    /**
+     * The tiles of the image, in the order of the lines; null until a pixel
+     * of the tile is marked.
+     */
+    private final long[][] tiles;
+
+    /**
+     * The indices of the tiles which were marked since the last clear.
+     */
+    private int[] touched = new int[16];
+    private int noTouched;
+
+    /**
+     * Marks which tiles are in the list of touched tiles.
+     */
+    private final boolean[] isTouched;
+
+    /**
+     * Create a map where no pixel is visited.
+     *
+     * @param width  the width of the image
+     * @param height the height of the image
+     */
+    public VisitedMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >>> TILE_BITS;
+
+        int noTiles = tilesX * ((height + TILE_MASK) >>> TILE_BITS);
+        this.tiles = new long[noTiles][];
+        this.isTouched = new boolean[noTiles];
+    }
+
+    /**
+     * Checks if the pixel was visited.
+     *
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @return true if the pixel is marked as visited
+     */
+    public boolean get(int x, int y) {
+        long[] tile = tiles[tileIndex(x, y)];
+        return (tile != null) && ((tile[y & TILE_MASK] & (1L << x)) != 0L);
+    }
+
+    /**
+     * Mark the pixel as visited.
+     *
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     */
+    public void set(int x, int y) {
+        touchTile(tileIndex(x, y))[y & TILE_MASK] |= 1L << x;
+    }
+
+    /**
+     * Mark the pixel as visited, if it was not.
+     *
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @return true if the pixel was not visited before the call
+     */
+    public boolean testAndSet(int x, int y) {
+        long[] tile = touchTile(tileIndex(x, y));
+        int row = y & TILE_MASK;
+        long mask = 1L << x;
+        if ((tile[row] & mask) != 0L) {
+            return false;
+        }
+        tile[row] |= mask;
+        return true;
+    }
+
+    /**
+     * Mark the pixel as not visited.
+     *
+     * @param x the x coordinate of the pixel
+     * @param y the y coordinate of the pixel
+     * @return true if the pixel was visited before the call
+     */
+    public boolean clear(int x, int y) {
+        long[] tile = tiles[tileIndex(x, y)];
+        int row = y & TILE_MASK;
+        long mask = 1L << x;
+        if ((tile == null) || ((tile[row] & mask) == 0L)) {
+            return false;
+        }
+        tile[row] &= ~mask;
+        return true;
+    }
+
+    /**
+     * Mark all the pixels as not visited. Only the tiles touched since the
+     * last clear are reset; their memory is kept for reuse.
+     */
+    public void clearAll() {
+        for (int index = 0; index < noTouched; index++) {
+            Arrays.fill(tiles[touched[index]], 0L);
+            isTouched[touched[index]] = false;
+        }
+        noTouched = 0;
+    }
+
+    /**
+     * Checks if the map has the given size, so it can be reused for an image.
+     *
+     * @param width  the width of the image
+     * @param height the height of the image
+     * @return true if the map has the size of the image
+     */
+    public boolean hasSize(int width, int height) {
+        return (this.width == width) && (this.height == height);
+    }
+
+    /**
+     * Returns the width of the map.
+     *
+     * @return the width of the image
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the map.
+     *
+     * @return the height of the image
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the index of the tile holding the pixel.
+     */
+    private int tileIndex(int x, int y) {
+        return (y >>> TILE_BITS) * tilesX + (x >>> TILE_BITS);
+    }
+
+    /**
+     * Returns the tile, allocating it if needed, and remembers that it was
+     * touched.
+     */
+    private long[] touchTile(int index) {
+        if (tiles[index] == null) {
+            tiles[index] = new long[1 << TILE_BITS];
+        }
+        if (!isTouched[index]) {
+            isTouched[index] = true;
+            if (noTouched == touched.length) {
+                touched = Arrays.copyOf(touched, noTouched * 2);
+            }
+            touched[noTouched++] = index;
+        }
+        return tiles[index];
+    }
+}
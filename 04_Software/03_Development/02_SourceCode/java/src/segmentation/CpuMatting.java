@@ -0,0 +1,727 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import common.ConstantsLabeling;
+import commonsegmentation.ScribbleInfo;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pure Java implementation of the scribble based matting, used when no CUDA or
+ * OpenCL device is available.
+ * <p>
+ * It follows the same approach as the GPU implementation: the data term of
+ * each pixel is given by spatially varying color distributions, estimated
+ * from the scribbles (a Gaussian color kernel weighted by a Gaussian spatial
+ * kernel, whose width grows with the distance to the nearest scribble of the
+ * label). The object indicator function is then computed by minimizing the
+ * data term plus an edge weighted total variation, with the primal-dual
+ * algorithm; the result is thresholded at 0.5.
+ * <p>
+ * All the data is kept in primitive arrays, in row major order. The image is
+ * split in tiles which are processed in parallel on the common fork/join pool.
+ *
+ * @author Olimpia Popica
+ */
+public class CpuMatting {
+
+    /**
+     * The ratio between the width of the spatial kernel and the distance to
+     * the nearest scribble of the label.
+     */
+    private static final float SCRIBBLE_DISTANCE_FACTOR = 5.0f;
+
+    /**
+     * The minimum width (in pixels) of the spatial kernel.
+     */
+    private static final float MIN_SPATIAL_SIGMA = 1.0f;
+
+    /**
+     * The standard deviation of the color kernel, for colors in the range
+     * [0, 1].
+     */
+    private static final float COLOR_SIGMA = 0.1f;
+
+    /**
+     * The weight of the total variation relative to the data term.
+     */
+    private static final float SMOOTHNESS_WEIGHT = 2.0f;
+
+    /**
+     * Controls how fast the smoothness weight decreases on the image edges.
+     */
+    private static final float EDGE_FACTOR = 5.0f;
+
+    /**
+     * The absolute value of the data term is limited to this value, in order
+     * to keep the unreliable pixels from dominating the optimization.
+     */
+    private static final float MAX_DATA_TERM = 10.0f;
+
+    /**
+     * The number of iterations of the primal-dual algorithm.
+     */
+    private static final int NUM_STEPS = 200;
+
+    /**
+     * The step size of the primal variable.
+     */
+    private static final float STEP_SIZE_PRIMAL = 0.25f;
+
+    /**
+     * The step size of the dual variable.
+     */
+    private static final float STEP_SIZE_DUAL = 0.5f;
+
+    /**
+     * The maximum number of scribble pixels per label used for the color
+     * distributions; the scribbles are sampled uniformly above this number.
+     */
+    private static final int MAX_SAMPLES = 256;
+
+    /**
+     * Probabilities are clamped to this value before the logarithm.
+     */
+    private static final float MIN_PROBABILITY = 1e-30f;
+
+    /**
+     * Tiles smaller than this number of pixels are not split any more.
+     */
+    private static final int TILE_AREA = 64 * 64;
+
+    /**
+     * When less than this fraction of the pixels is free, the optimization
+     * iterates only over the free pixels and their neighbours.
+     */
+    private static final float SPARSE_FREE_RATIO = 0.5f;
+
+    /**
+     * The number of pixels of a list processed directly, without splitting
+     * the list any more.
+     */
+    private static final int LIST_CHUNK = 4096;
+
+    /**
+     * The constraint of the pixels which were not marked by the user.
+     */
+    private static final byte FREE = 0;
+
+    /**
+     * The constraint of the pixels marked as background.
+     */
+    private static final byte FIXED_BACKGROUND = 1;
+
+    /**
+     * The constraint of the pixels marked as object.
+     */
+    private static final byte FIXED_OBJECT = 2;
+
+    /**
+     * The width of the image.
+     */
+    private final int width;
+
+    /**
+     * The height of the image.
+     */
+    private final int height;
+
+    /**
+     * The red channel of the image, in the range [0, 1].
+     */
+    private final float[] red;
+
+    /**
+     * The green channel of the image, in the range [0, 1].
+     */
+    private final float[] green;
+
+    /**
+     * The blue channel of the image, in the range [0, 1].
+     */
+    private final float[] blue;
+
+    /**
+     * The user constraint for each pixel: FREE, FIXED_BACKGROUND or
+     * FIXED_OBJECT.
+     */
+    private final byte[] constraints;
+
+    /**
+     * The sampled scribbles for each label (index 0 = background, 1 = object);
+     * for each scribble: x, y, red, green, blue.
+     */
+    private final float[][] samples = new float[2][];
+
+    /**
+     * The map of the segmented object: 1 = object, 0 = background.
+     */
+    private byte[][] objMap;
+
+    /**
+     * The fraction of free pixels below which the optimization runs sparse;
+     * SPARSE_FREE_RATIO unless a test forces one of the paths.
+     */
+    private float sparseFreeRatio = SPARSE_FREE_RATIO;
+
+    /**
+     * Prepare the data needed by the matting algorithm.
+     *
+     * @param image     the image to be segmented
+     * @param scribbles the scribbles drawn by the user on the image
+     */
+    public CpuMatting(BufferedImage image, List<ScribbleInfo> scribbles) {
+        this(image, scribbles, null, null);
+    }
+
+    /**
+     * Prepare the data needed by the matting algorithm, computing the result
+     * only inside the given band. Outside the band, the pixels keep the label
+     * of the initial map; they do not count as scribbles for the color
+     * distributions, but their data term is not computed.
+     *
+     * @param image      the image to be segmented
+     * @param scribbles  the scribbles drawn by the user on the image
+     * @param initialMap the initial segmentation, indexed [x][y]; null for
+     *                   segmenting the whole image
+     * @param band       the region to be segmented, indexed [x][y]: different
+     *                   from 0 = segment; null for segmenting the whole image
+     */
+    public CpuMatting(BufferedImage image, List<ScribbleInfo> scribbles, byte[][] initialMap, byte[][] band) {
+        width = image.getWidth();
+        height = image.getHeight();
+
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        red = new float[argb.length];
+        green = new float[argb.length];
+        blue = new float[argb.length];
+
+        for (int index = 0; index < argb.length; index++) {
+            red[index] = ((argb[index] >> 16) & 0xFF) / 255.0f;
+            green[index] = ((argb[index] >> 8) & 0xFF) / 255.0f;
+            blue[index] = (argb[index] & 0xFF) / 255.0f;
+        }
+
+        constraints = new byte[width * height];
+        // each scribble fixes at most one pixel, so the buffers cannot overflow
+        int[] bgPixels = new int[scribbles.size()];
+        int[] objPixels = new int[scribbles.size()];
+        int nbBgPixels = 0;
+        int nbObjPixels = 0;
+
+        for (ScribbleInfo scribble : scribbles) {
+            int x = scribble.getImgPosX();
+            int y = scribble.getImgPosY();
+
+            if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+                continue;
+            }
+
+            int index = y * width + x;
+            if ((scribble.getDrawingType() == ConstantsLabeling.ACTION_TYPE_BACKGROUND) && (constraints[index] == FREE)) {
+                constraints[index] = FIXED_BACKGROUND;
+                bgPixels[nbBgPixels++] = index;
+            } else if ((scribble.getDrawingType() == ConstantsLabeling.ACTION_TYPE_OBJECT) && (constraints[index] == FREE)) {
+                constraints[index] = FIXED_OBJECT;
+                objPixels[nbObjPixels++] = index;
+            }
+        }
+
+        samples[0] = sampleScribbles(bgPixels, nbBgPixels);
+        samples[1] = sampleScribbles(objPixels, nbObjPixels);
+
+        if ((initialMap != null) && (band != null)) {
+            fixOutsideBand(initialMap, band);
+        }
+    }
+
+    /**
+     * Run the segmentation of the image.
+     *
+     * @return the map of the segmented object: 1 = object, 0 = background
+     */
+    public byte[][] runMattingAlgo() {
+        float[] u = new float[width * height];
+
+        if ((samples[0].length > 0) && (samples[1].length > 0)) {
+            float[] dataTerm = new float[width * height];
+            float[] edgeWeight = new float[width * height];
+
+            runParallel((x0, y0, x1, y1) -> computeDataTerm(dataTerm, x0, y0, x1, y1));
+            runParallel((x0, y0, x1, y1) -> computeEdgeWeight(edgeWeight, x0, y0, x1, y1));
+
+            optimize(u, dataTerm, edgeWeight);
+        } else {
+            // without scribbles for both labels there is nothing to compare; keep only the user input
+            for (int index = 0; index < u.length; index++) {
+                u[index] = (constraints[index] == FIXED_OBJECT) ? 1.0f : 0.0f;
+            }
+        }
+
+        objMap = new byte[width][height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                objMap[x][y] = (byte) ((u[y * width + x] > 0.5f) ? 1 : 0);
+            }
+        }
+
+        return objMap;
+    }
+
+    /**
+     * Set the fraction of free pixels below which the optimization iterates
+     * only over the free pixels and their neighbours; 0 forces the dense
+     * optimization and a value above 1 the sparse one.
+     *
+     * @param sparseFreeRatio the fraction of free pixels
+     */
+    void setSparseFreeRatio(float sparseFreeRatio) {
+        this.sparseFreeRatio = sparseFreeRatio;
+    }
+
+    /**
+     * Returns the map of the segmented object.
+     *
+     * @return the map of the segmented object: 1 = object, 0 = background;
+     * null if the algorithm was not run yet
+     */
+    public byte[][] getObjMap() {
+        return objMap;
+    }
+
+    /**
+     * Fix the label of the pixels outside the band to the one of the initial
+     * map; the user scribbles have priority.
+     */
+    private void fixOutsideBand(byte[][] initialMap, byte[][] band) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if ((band[x][y] == 0) && (constraints[index] == FREE)) {
+                    constraints[index] = (initialMap[x][y] != 0) ? FIXED_OBJECT : FIXED_BACKGROUND;
+                }
+            }
+        }
+    }
+
+    /**
+     * Select at most MAX_SAMPLES pixels, uniformly distributed in the given
+     * array, and store their position and color.
+     *
+     * @param pixels   the indexes of the scribble pixels
+     * @param nbPixels the number of scribble pixels in the array
+     * @return x, y, red, green, blue for each selected pixel
+     */
+    private float[] sampleScribbles(int[] pixels, int nbPixels) {
+        int nbSamples = Math.min(nbPixels, MAX_SAMPLES);
+        float[] result = new float[nbSamples * 5];
+
+        for (int sample = 0; sample < nbSamples; sample++) {
+            int index = pixels[(int) ((long) sample * nbPixels / nbSamples)];
+
+            result[sample * 5] = index % width;
+            result[sample * 5 + 1] = index / width;
+            result[sample * 5 + 2] = red[index];
+            result[sample * 5 + 3] = green[index];
+            result[sample * 5 + 4] = blue[index];
+        }
+
+        return result;
+    }
+
+    /**
+     * Compute the data term for the pixels of the given tile: the difference
+     * between the cost of the object label and the cost of the background
+     * label (negative log probability).
+     */
+    private void computeDataTerm(float[] dataTerm, int x0, int y0, int x1, int y1) {
+        float colorFactor = 1.0f / (2.0f * COLOR_SIGMA * COLOR_SIGMA);
+
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                int index = y * width + x;
+
+                if (constraints[index] != FREE) {
+                    dataTerm[index] = (constraints[index] == FIXED_OBJECT) ? -MAX_DATA_TERM : MAX_DATA_TERM;
+                    continue;
+                }
+
+                float bgCost = labelCost(samples[0], x, y, index, colorFactor);
+                float objCost = labelCost(samples[1], x, y, index, colorFactor);
+
+                dataTerm[index] = Math.max(-MAX_DATA_TERM, Math.min(MAX_DATA_TERM, objCost - bgCost));
+            }
+        }
+    }
+
+    /**
+     * Compute the negative log probability of the pixel to belong to the
+     * label described by the given scribble samples.
+     */
+    private float labelCost(float[] labelSamples, int x, int y, int index, float colorFactor) {
+        // the width of the spatial kernel depends on the distance to the nearest scribble
+        float minDist2 = Float.MAX_VALUE;
+        for (int sample = 0; sample < labelSamples.length; sample += 5) {
+            float dx = labelSamples[sample] - x;
+            float dy = labelSamples[sample + 1] - y;
+            minDist2 = Math.min(minDist2, dx * dx + dy * dy);
+        }
+
+        float sigma = Math.max(MIN_SPATIAL_SIGMA, SCRIBBLE_DISTANCE_FACTOR * (float) Math.sqrt(minDist2));
+        float spatialFactor = 1.0f / (2.0f * sigma * sigma);
+        float r = red[index];
+        float g = green[index];
+        float b = blue[index];
+
+        double probability = 0.0;
+        for (int sample = 0; sample < labelSamples.length; sample += 5) {
+            float dx = labelSamples[sample] - x;
+            float dy = labelSamples[sample + 1] - y;
+            float dr = labelSamples[sample + 2] - r;
+            float dg = labelSamples[sample + 3] - g;
+            float db = labelSamples[sample + 4] - b;
+
+            float exponent = (dx * dx + dy * dy) * spatialFactor + (dr * dr + dg * dg + db * db) * colorFactor;
+            if (exponent < 50.0f) {
+                probability += Math.exp(-exponent);
+            }
+        }
+
+        // normalize the spatial kernel, since its width differs between the labels
+        probability *= spatialFactor / (Math.PI * (labelSamples.length / 5));
+
+        return (float) -Math.log(Math.max(probability, MIN_PROBABILITY));
+    }
+
+    /**
+     * Compute the weight of the total variation for the pixels of the given
+     * tile: it is low on the image edges, where the object border is expected.
+     */
+    private void computeEdgeWeight(float[] edgeWeight, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                int index = y * width + x;
+                int right = (x + 1 < width) ? index + 1 : index;
+                int down = (y + 1 < height) ? index + width : index;
+
+                float gradX = Math.max(Math.abs(red[right] - red[index]), Math.max(Math.abs(green[right] - green[index]), Math.abs(blue[right] - blue[index])));
+                float gradY = Math.max(Math.abs(red[down] - red[index]), Math.max(Math.abs(green[down] - green[index]), Math.abs(blue[down] - blue[index])));
+
+                edgeWeight[index] = SMOOTHNESS_WEIGHT * (float) Math.exp(-EDGE_FACTOR * Math.sqrt(gradX * gradX + gradY * gradY));
+            }
+        }
+    }
+
+    /**
+     * Minimize the data term plus the weighted total variation of the object
+     * indicator function, with the primal-dual algorithm.
+     *
+     * @param u          the object indicator function, in the range [0, 1]
+     * @param dataTerm   the linear cost of the object indicator function
+     * @param edgeWeight the weight of the total variation
+     * @throws CancellationException if the thread is interrupted
+     */
+    private void optimize(float[] u, float[] dataTerm, float[] edgeWeight) {
+        float[] uBar = new float[u.length];
+        float[] px = new float[u.length];
+        float[] py = new float[u.length];
+
+        for (int index = 0; index < u.length; index++) {
+            u[index] = (dataTerm[index] < 0.0f) ? 1.0f : 0.0f;
+            uBar[index] = u[index];
+        }
+
+        int[] freePixels = listFreePixels();
+        boolean sparse = freePixels.length < sparseFreeRatio * u.length;
+        int[] dualPixels = sparse ? listDualPixels(freePixels) : null;
+
+        for (int step = 0; step < NUM_STEPS; step++) {
+            // a superseded matting job is interrupted; stop computing a result nobody waits for
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The matting was cancelled");
+            }
+
+            if (sparse) {
+                // the fixed pixels keep their value; only the dual variables read by the free pixels are needed
+                runParallel(dualPixels, (start, end) -> updateDual(uBar, px, py, edgeWeight, dualPixels, start, end));
+                runParallel(freePixels, (start, end) -> updatePrimal(u, uBar, px, py, dataTerm, freePixels, start, end));
+            } else {
+                runParallel((x0, y0, x1, y1) -> updateDual(uBar, px, py, edgeWeight, x0, y0, x1, y1));
+                runParallel((x0, y0, x1, y1) -> updatePrimal(u, uBar, px, py, dataTerm, x0, y0, x1, y1));
+            }
+        }
+    }
+
+    /**
+     * Returns the indexes of the free pixels, in increasing order.
+     */
+    private int[] listFreePixels() {
+        int nbFree = 0;
+        for (byte constraint : constraints) {
+            if (constraint == FREE) {
+                nbFree++;
+            }
+        }
+
+        int[] freePixels = new int[nbFree];
+        int pos = 0;
+        for (int index = 0; index < constraints.length; index++) {
+            if (constraints[index] == FREE) {
+                freePixels[pos++] = index;
+            }
+        }
+        return freePixels;
+    }
+
+    /**
+     * Returns the indexes of the pixels whose dual variable is read by the
+     * divergence at the free pixels: the free pixels and their left and upper
+     * neighbours, in increasing order.
+     */
+    private int[] listDualPixels(int[] freePixels) {
+        boolean[] needed = new boolean[constraints.length];
+        int nbNeeded = 0;
+
+        for (int index : freePixels) {
+            int[] candidates = {index, (index % width > 0) ? index - 1 : index, (index >= width) ? index - width : index};
+            for (int candidate : candidates) {
+                if (!needed[candidate]) {
+                    needed[candidate] = true;
+                    nbNeeded++;
+                }
+            }
+        }
+
+        int[] dualPixels = new int[nbNeeded];
+        int pos = 0;
+        for (int index = 0; index < needed.length; index++) {
+            if (needed[index]) {
+                dualPixels[pos++] = index;
+            }
+        }
+        return dualPixels;
+    }
+
+    /**
+     * Gradient ascent on the dual variable, followed by the projection on the
+     * disc of radius given by the edge weight.
+     */
+    private void updateDual(float[] uBar, float[] px, float[] py, float[] edgeWeight, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                updateDual(uBar, px, py, edgeWeight, x, y);
+            }
+        }
+    }
+
+    /**
+     * Update the dual variable of the listed pixels [start, end).
+     */
+    private void updateDual(float[] uBar, float[] px, float[] py, float[] edgeWeight, int[] pixels, int start, int end) {
+        for (int pos = start; pos < end; pos++) {
+            updateDual(uBar, px, py, edgeWeight, pixels[pos] % width, pixels[pos] / width);
+        }
+    }
+
+    /**
+     * Update the dual variable of one pixel.
+     */
+    private void updateDual(float[] uBar, float[] px, float[] py, float[] edgeWeight, int x, int y) {
+        int index = y * width + x;
+        float gradX = (x + 1 < width) ? uBar[index + 1] - uBar[index] : 0.0f;
+        float gradY = (y + 1 < height) ? uBar[index + width] - uBar[index] : 0.0f;
+
+        float newPx = px[index] + STEP_SIZE_DUAL * gradX;
+        float newPy = py[index] + STEP_SIZE_DUAL * gradY;
+        float norm = (float) Math.sqrt(newPx * newPx + newPy * newPy);
+
+        if (norm > edgeWeight[index]) {
+            float scale = edgeWeight[index] / norm;
+            newPx *= scale;
+            newPy *= scale;
+        }
+
+        px[index] = newPx;
+        py[index] = newPy;
+    }
+
+    /**
+     * Gradient descent on the primal variable, followed by the projection on
+     * [0, 1] and the over-relaxation step.
+     */
+    private void updatePrimal(float[] u, float[] uBar, float[] px, float[] py, float[] dataTerm, int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                updatePrimal(u, uBar, px, py, dataTerm, x, y);
+            }
+        }
+    }
+
+    /**
+     * Update the primal variable of the listed pixels [start, end).
+     */
+    private void updatePrimal(float[] u, float[] uBar, float[] px, float[] py, float[] dataTerm, int[] pixels, int start, int end) {
+        for (int pos = start; pos < end; pos++) {
+            updatePrimal(u, uBar, px, py, dataTerm, pixels[pos] % width, pixels[pos] / width);
+        }
+    }
+
+    /**
+     * Update the primal variable of one pixel.
+     */
+    private void updatePrimal(float[] u, float[] uBar, float[] px, float[] py, float[] dataTerm, int x, int y) {
+        int index = y * width + x;
+
+        // divergence with backward differences, adjoint of the forward gradient
+        float div = ((x + 1 < width) ? px[index] : 0.0f) - ((x > 0) ? px[index - 1] : 0.0f)
+                + ((y + 1 < height) ? py[index] : 0.0f) - ((y > 0) ? py[index - width] : 0.0f);
+
+        float oldU = u[index];
+        float newU;
+
+        if (constraints[index] == FREE) {
+            newU = Math.max(0.0f, Math.min(1.0f, oldU + STEP_SIZE_PRIMAL * (div - dataTerm[index])));
+        } else {
+            newU = (constraints[index] == FIXED_OBJECT) ? 1.0f : 0.0f;
+        }
+
+        u[index] = newU;
+        uBar[index] = 2.0f * newU - oldU;
+    }
+
+    /**
+     * Apply the operation on the whole image, split in tiles which are
+     * processed in parallel.
+     *
+     * @param operation the operation to be applied on each tile
+     */
+    private void runParallel(TileOperation operation) {
+        ForkJoinPool.commonPool().invoke(new TileTask(operation, 0, 0, width, height));
+    }
+
+    /**
+     * Apply the operation on the listed pixels, split in chunks which are
+     * processed in parallel.
+     *
+     * @param pixels    the indexes of the pixels
+     * @param operation the operation to be applied on each chunk of the list
+     */
+    private void runParallel(int[] pixels, ListOperation operation) {
+        ForkJoinPool.commonPool().invoke(new ListTask(operation, 0, pixels.length));
+    }
+
+    /**
+     * An operation applied on the pixels [start, end) of a list.
+     */
+    @FunctionalInterface
+    private interface ListOperation {
+
+        void apply(int start, int end);
+    }
+
+    /**
+     * Fork/join task which splits the list in halves until it is small enough
+     * to be processed directly.
+     */
+    private static class ListTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ListOperation operation;
+        private final int start;
+        private final int end;
+
+        ListTask(ListOperation operation, int start, int end) {
+            this.operation = operation;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LIST_CHUNK) {
+                operation.apply(start, end);
+            } else {
+                int mid = start + (end - start) / 2;
+                invokeAll(new ListTask(operation, start, mid), new ListTask(operation, mid, end));
+            }
+        }
+    }
+
+    /**
+     * An operation applied on a rectangular tile of the image: [x0, x1) x
+     * [y0, y1).
+     */
+    @FunctionalInterface
+    private interface TileOperation {
+
+        void apply(int x0, int y0, int x1, int y1);
+    }
+
+    /**
+     * Fork/join task which splits the tile along its longest side until it is
+     * small enough to be processed directly.
+     */
+    private static class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient TileOperation operation;
+        private final int x0;
+        private final int y0;
+        private final int x1;
+        private final int y1;
+
+        TileTask(TileOperation operation, int x0, int y0, int x1, int y1) {
+            this.operation = operation;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected void compute() {
+            int tileWidth = x1 - x0;
+            int tileHeight = y1 - y0;
+
+            if (tileWidth * tileHeight <= TILE_AREA) {
+                operation.apply(x0, y0, x1, y1);
+            } else if (tileWidth >= tileHeight) {
+                int xMid = x0 + tileWidth / 2;
+                invokeAll(new TileTask(operation, x0, y0, xMid, y1), new TileTask(operation, xMid, y0, x1, y1));
+            } else {
+                int yMid = y0 + tileHeight / 2;
+                invokeAll(new TileTask(operation, x0, y0, x1, yMid), new TileTask(operation, x0, yMid, x1, y1));
+            }
+        }
+    }
+}
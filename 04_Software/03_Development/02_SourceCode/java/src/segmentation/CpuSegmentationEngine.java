@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import commonsegmentation.ScribbleInfo;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Segmentation engine running the pure Java matting on the CPU; it is always
+ * available.
+ *
+ * @author Olimpia Popica
+ */
+public class CpuSegmentationEngine implements SegmentationEngine {
+
+    /**
+     * The name of the engine.
+     */
+    public static final String NAME = "CPU";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getVersion() {
+        return "1";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles) {
+        return new CpuMatting(image, scribbles).runMattingAlgo();
+    }
+
+    @Override
+    public boolean supportsBandRefinement() {
+        return true;
+    }
+
+    @Override
+    public byte[][] refineMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles, byte[][] initialMap, byte[][] band) {
+        return new CpuMatting(image, scribbles, initialMap, band).runMattingAlgo();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps the superpixels of the current frame, computed once per frame on a
+ * background thread, for the superpixel segmentation of the crops.
+ *
+ * @author Olimpia Popica
+ */
+public class FrameSuperpixels {
+
+    /**
+     * The thread computing the superpixels of the frames.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Superpixel Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * The computation of the superpixels of the current frame; null if there
+     * is no frame.
+     */
+    private static Future<SlicSuperpixels> current;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(FrameSuperpixels.class);
+
+    /**
+     * Private constructor, in order to prevent the instantiation of the class.
+     */
+    private FrameSuperpixels() {
+        throw new IllegalStateException("Utility class, do not instantiate!");
+    }
+
+    /**
+     * Start the computation of the superpixels of a new frame, in the
+     * background; the superpixels of the previous frame are dropped. It has to
+     * be called again when the frame is modified (flipped, mirrored).
+     *
+     * @param frame the frame being labeled
+     */
+    public static synchronized void precompute(BufferedImage frame) {
+        clear();
+
+        current = EXECUTOR.submit(() -> {
+            long start = System.currentTimeMillis();
+            SlicSuperpixels superpixels = SlicSuperpixels.compute(frame);
+            LOG.debug("{} superpixels computed in {} ms", superpixels.getCount(), System.currentTimeMillis() - start);
+            return superpixels;
+        });
+    }
+
+    /**
+     * Drop the superpixels of the current frame and stop their computation.
+     */
+    public static synchronized void clear() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+    }
+
+    /**
+     * Returns the superpixels of the given area of the current frame, if they
+     * are ready; the caller does not wait for them.
+     *
+     * @param area the area of the crop, in frame coordinates
+     * @return the superpixels of the area, or null if they are not available
+     */
+    public static synchronized SlicSuperpixels getForCrop(Rectangle area) {
+        if ((current == null) || !current.isDone() || current.isCancelled()) {
+            return null;
+        }
+
+        try {
+            return current.get().crop(area);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException ex) {
+            LOG.error("The superpixels of the frame could not be computed");
+            LOG.debug("The superpixels of the frame could not be computed {}", ex);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import common.Constants;
+import commonsegmentation.ScribbleInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import parallelcomputing.PixelSegmentation;
+import parallelcomputing.jcuda.JCudaUtils;
+import parallelcomputing.jopencl.JOpenCLUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Segmentation engine running the CUDA or OpenCL matting from the pixel
+ * segmentation library.
+ *
+ * @author Olimpia Popica
+ */
+public class GpuSegmentationEngine implements SegmentationEngine {
+
+    /**
+     * The name of the engine.
+     */
+    public static final String NAME = "GPU";
+
+    /**
+     * Caches the result of the GPU detection, which is slow and does not
+     * change while the application is running.
+     */
+    private static volatile Boolean gpuAvailable;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(GpuSegmentationEngine.class);
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getVersion() {
+        return "jcuda-" + Constants.JCUDA_VERSION + "-jocl-" + Constants.JOCL_VERSION;
+    }
+
+    /**
+     * Checks if a CUDA or OpenCL device can be used for the matting. The
+     * detection is done only once.
+     *
+     * @return true if the GPU matting can be run
+     */
+    @Override
+    public boolean isAvailable() {
+        if (gpuAvailable == null) {
+            gpuAvailable = detectGpu();
+            LOG.info("GPU matting available: {}", gpuAvailable);
+        }
+        return gpuAvailable;
+    }
+
+    @Override
+    public byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles) {
+        return new PixelSegmentation(image, new ArrayList<>(scribbles)).runMattingAlgo();
+    }
+
+    /**
+     * Detect the GPU the same way as the GPU matting does: the capabilities
+     * string has to name the technology and report a number of devices
+     * different from 0.
+     *
+     * @return true if a CUDA or OpenCL device was found
+     */
+    private static boolean detectGpu() {
+        if (hasDevices(() -> new JCudaUtils().CheckCudaCapabilities(), "cuda")) {
+            return true;
+        }
+        return hasDevices(() -> new JOpenCLUtils().CheckCudaCapabilities(), "opencl");
+    }
+
+    /**
+     * Check the capabilities string returned by the GPU library; the missing
+     * native libraries are reported as no devices.
+     *
+     * @param capabilities the query of the capabilities
+     * @param technology   the name expected in the capabilities string
+     * @return true if devices of the given technology were found
+     */
+    private static boolean hasDevices(Supplier<String> capabilities, String technology) {
+        try {
+            String info = capabilities.get();
+            return (info != null) && info.toLowerCase().contains(technology) && !info.endsWith("0");
+        } catch (RuntimeException | LinkageError ex) {
+            LOG.debug("The {} library could not be loaded: {}", technology, ex.getMessage());
+            return false;
+        }
+    }
+}
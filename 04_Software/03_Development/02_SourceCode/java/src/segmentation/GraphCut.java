@@ -0,0 +1,828 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import common.ConstantsLabeling;
+import commonsegmentation.ScribbleInfo;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Binary segmentation of an image with a minimum s-t cut, computed with the
+ * Boykov-Kolmogorov max-flow algorithm.
+ * <p>
+ * Each pixel is a node of a 4-connected grid graph. The source terminal is the
+ * object and the sink terminal is the background; the scribbles are hard
+ * constraints and the other pixels are linked to the terminals by the cost of
+ * their color under the color histograms of the object and background
+ * scribbles. The links between neighbours get a high capacity in regions of
+ * similar color, so the cut follows the image edges.
+ * <p>
+ * The graph is kept in primitive arrays: four residual capacities per node
+ * (right, down, left, up) and one net terminal capacity. A solver keeps its
+ * buffers between runs; when it segments again the same image, only the
+ * terminal capacities change, so the flow of the previous run is kept and
+ * only the difference is augmented.
+ *
+ * @author Olimpia Popica
+ */
+public class GraphCut {
+
+    /**
+     * The weight of the links between neighbours, relative to the data term.
+     */
+    private static final double SMOOTHNESS_WEIGHT = 50.0;
+
+    /**
+     * The costs are multiplied by this value and rounded to integer
+     * capacities.
+     */
+    private static final double CAPACITY_SCALE = 100.0;
+
+    /**
+     * The capacity of the terminal links of the scribbles; larger than the
+     * total capacity of the links of a node, so the scribbles are never cut
+     * from their terminal.
+     */
+    private static final int HARD_CONSTRAINT = 1 << 24;
+
+    /**
+     * The number of histogram bins per color channel.
+     */
+    private static final int BINS_PER_CHANNEL = 8;
+
+    /**
+     * The number of bits of a color channel which give its bin.
+     */
+    private static final int BIN_SHIFT = 5;
+
+    /**
+     * Count added to each histogram bin, so unseen colors keep a finite cost.
+     */
+    private static final double HISTOGRAM_PRIOR = 1.0;
+
+    /**
+     * The number of grown nodes after which the interruption of the thread is
+     * checked.
+     */
+    private static final int CANCEL_CHECK_PERIOD = 4096;
+
+    /**
+     * The node does not belong to a search tree.
+     */
+    private static final byte FREE = 0;
+
+    /**
+     * The node belongs to the search tree of the source.
+     */
+    private static final byte SOURCE = 1;
+
+    /**
+     * The node belongs to the search tree of the sink.
+     */
+    private static final byte SINK = 2;
+
+    /**
+     * The parent of the node is its terminal.
+     */
+    private static final byte TERMINAL = 4;
+
+    /**
+     * The node lost its parent during the augmentation.
+     */
+    private static final byte ORPHAN = 5;
+
+    /**
+     * The node has no parent (it is free).
+     */
+    private static final byte NO_PARENT = -1;
+
+    /**
+     * The width of the graph.
+     */
+    private int width;
+
+    /**
+     * The height of the graph.
+     */
+    private int height;
+
+    /**
+     * The colors of the segmented image, compared with the next image to find
+     * if the flow can be reused.
+     */
+    private int[] pixels = new int[0];
+
+    /**
+     * Buffer for reading the colors of the next image.
+     */
+    private int[] nextPixels = new int[0];
+
+    /**
+     * The residual capacities of the links between neighbours: index
+     * 4 * node + direction, direction 0 = right, 1 = down, 2 = left, 3 = up.
+     */
+    private int[] residual = new int[0];
+
+    /**
+     * The terminal capacities of the last run: source capacity minus sink
+     * capacity.
+     */
+    private int[] terminalCap = new int[0];
+
+    /**
+     * The residual terminal capacity of each node: positive = from the source,
+     * negative = to the sink.
+     */
+    private int[] terminalResidual = new int[0];
+
+    /**
+     * The search tree of each node: FREE, SOURCE or SINK.
+     */
+    private byte[] tree = new byte[0];
+
+    /**
+     * The direction of the parent of each node, TERMINAL, ORPHAN or
+     * NO_PARENT.
+     */
+    private byte[] parent = new byte[0];
+
+    /**
+     * The time stamp of the distance of each node to its terminal.
+     */
+    private int[] timestamp = new int[0];
+
+    /**
+     * The distance of each node to its terminal, valid at its time stamp.
+     */
+    private int[] distance = new int[0];
+
+    /**
+     * The queue of the active nodes, circular.
+     */
+    private int[] activeQueue = new int[0];
+
+    /**
+     * Shows which nodes are in the queue of the active nodes.
+     */
+    private boolean[] active = new boolean[0];
+
+    /**
+     * The orphans waiting to be adopted.
+     */
+    private int[] orphans = new int[0];
+
+    /**
+     * The position of the first active node in the queue.
+     */
+    private int queueHead;
+
+    /**
+     * The number of nodes in the queue of the active nodes.
+     */
+    private int queueSize;
+
+    /**
+     * The number of orphans waiting to be adopted.
+     */
+    private int nbOrphans;
+
+    /**
+     * The current time of the distance marks.
+     */
+    private int time;
+
+    /**
+     * Segment the object marked by the scribbles. If the image is the same as
+     * in the previous run, the flow is reused.
+     *
+     * @param image     the image to be segmented
+     * @param scribbles the object and background scribbles drawn by the user
+     * @return the map of the segmented object, indexed [x][y]: 1 = object,
+     * 0 = background
+     * @throws CancellationException if the thread is interrupted
+     */
+    public byte[][] segment(BufferedImage image, List<ScribbleInfo> scribbles) {
+        readPixels(image);
+
+        if (isSameImage(image)) {
+            // only the terminal capacities change; the flow of the previous run stays valid
+            updateTerminals(scribbles);
+        } else {
+            buildGraph(image, scribbles);
+        }
+
+        maxFlow();
+
+        byte[][] objMap = new byte[width][height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                objMap[x][y] = (byte) ((tree[y * width + x] == SOURCE) ? 1 : 0);
+            }
+        }
+        return objMap;
+    }
+
+    /**
+     * Checks if the image read in the buffer of the next image is the one of
+     * the previous run: same size and same colors.
+     */
+    private boolean isSameImage(BufferedImage image) {
+        if ((image.getWidth() != width) || (image.getHeight() != height)) {
+            return false;
+        }
+
+        for (int node = 0; node < width * height; node++) {
+            if (pixels[node] != nextPixels[node]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the colors of the image in the buffer of the next image.
+     */
+    private void readPixels(BufferedImage image) {
+        int size = image.getWidth() * image.getHeight();
+        if (nextPixels.length < size) {
+            nextPixels = new int[size];
+        }
+        image.getRGB(0, 0, image.getWidth(), image.getHeight(), nextPixels, 0, image.getWidth());
+    }
+
+    /**
+     * Build the graph of a new image, without flow. The buffers are
+     * reallocated only if the image has more pixels than the previous ones.
+     */
+    private void buildGraph(BufferedImage image, List<ScribbleInfo> scribbles) {
+        width = image.getWidth();
+        height = image.getHeight();
+        int size = width * height;
+
+        // the pixels were read in the buffer of the next image; keep them
+        int[] swap = pixels;
+        pixels = nextPixels;
+        nextPixels = swap;
+
+        if (residual.length < 4 * size) {
+            residual = new int[4 * size];
+            terminalCap = new int[size];
+            terminalResidual = new int[size];
+            tree = new byte[size];
+            parent = new byte[size];
+            timestamp = new int[size];
+            distance = new int[size];
+            activeQueue = new int[size];
+            active = new boolean[size];
+            orphans = new int[size];
+        }
+
+        computeNeighbourCapacities();
+
+        Arrays.fill(terminalCap, 0, size, 0);
+        Arrays.fill(terminalResidual, 0, size, 0);
+        updateTerminals(scribbles);
+    }
+
+    /**
+     * Set the capacities of the links between neighbours, which decrease with
+     * the color difference; the contrast is normalized by its mean over the
+     * image.
+     */
+    private void computeNeighbourCapacities() {
+        double sumSquares = 0.0;
+        int nbLinks = 0;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int node = y * width + x;
+                if (x + 1 < width) {
+                    sumSquares += colorDistance(pixels[node], pixels[node + 1]);
+                    nbLinks++;
+                }
+                if (y + 1 < height) {
+                    sumSquares += colorDistance(pixels[node], pixels[node + width]);
+                    nbLinks++;
+                }
+            }
+        }
+
+        double beta = (sumSquares > 0.0) ? nbLinks / (2.0 * sumSquares) : 0.0;
+
+        Arrays.fill(residual, 0, 4 * width * height, 0);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int node = y * width + x;
+                if (x + 1 < width) {
+                    int capacity = toCapacity(SMOOTHNESS_WEIGHT * Math.exp(-beta * colorDistance(pixels[node], pixels[node + 1])));
+                    residual[4 * node] = capacity;
+                    residual[4 * (node + 1) + 2] = capacity;
+                }
+                if (y + 1 < height) {
+                    int capacity = toCapacity(SMOOTHNESS_WEIGHT * Math.exp(-beta * colorDistance(pixels[node], pixels[node + width])));
+                    residual[4 * node + 1] = capacity;
+                    residual[4 * (node + width) + 3] = capacity;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the terminal capacities for the given scribbles and add the
+     * difference to the previous ones to the residual graph. Changing only the
+     * terminal capacities keeps the flow of the previous run valid.
+     */
+    private void updateTerminals(List<ScribbleInfo> scribbles) {
+        int size = width * height;
+        byte[] constraints = new byte[size];
+        double[] objHistogram = new double[BINS_PER_CHANNEL * BINS_PER_CHANNEL * BINS_PER_CHANNEL];
+        double[] bgHistogram = new double[objHistogram.length];
+        Arrays.fill(objHistogram, HISTOGRAM_PRIOR);
+        Arrays.fill(bgHistogram, HISTOGRAM_PRIOR);
+
+        for (ScribbleInfo scribble : scribbles) {
+            int x = scribble.getImgPosX();
+            int y = scribble.getImgPosY();
+
+            if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+                continue;
+            }
+
+            int node = y * width + x;
+            if ((scribble.getDrawingType() == ConstantsLabeling.ACTION_TYPE_BACKGROUND) && (constraints[node] == FREE)) {
+                constraints[node] = SINK;
+                bgHistogram[colorBin(pixels[node])]++;
+            } else if ((scribble.getDrawingType() == ConstantsLabeling.ACTION_TYPE_OBJECT) && (constraints[node] == FREE)) {
+                constraints[node] = SOURCE;
+                objHistogram[colorBin(pixels[node])]++;
+            }
+        }
+
+        double[] objCost = toCosts(objHistogram);
+        double[] bgCost = toCosts(bgHistogram);
+
+        for (int node = 0; node < size; node++) {
+            int capacity;
+            if (constraints[node] == SOURCE) {
+                capacity = HARD_CONSTRAINT;
+            } else if (constraints[node] == SINK) {
+                capacity = -HARD_CONSTRAINT;
+            } else {
+                // cutting the source link labels the pixel as background, so it costs the background label
+                int bin = colorBin(pixels[node]);
+                capacity = toCapacity(bgCost[bin]) - toCapacity(objCost[bin]);
+            }
+
+            terminalResidual[node] += capacity - terminalCap[node];
+            terminalCap[node] = capacity;
+        }
+    }
+
+    /**
+     * Compute the max-flow of the residual graph, growing the search trees
+     * from the terminals.
+     */
+    private void maxFlow() {
+        int size = width * height;
+        queueHead = 0;
+        queueSize = 0;
+        nbOrphans = 0;
+        time = 0;
+
+        for (int node = 0; node < size; node++) {
+            active[node] = false;
+            timestamp[node] = 0;
+            if (terminalResidual[node] != 0) {
+                tree[node] = (terminalResidual[node] > 0) ? SOURCE : SINK;
+                parent[node] = TERMINAL;
+                distance[node] = 1;
+                setActive(node);
+            } else {
+                tree[node] = FREE;
+                parent[node] = NO_PARENT;
+            }
+        }
+
+        int current = -1;
+        int nbGrown = 0;
+
+        while (true) {
+            if ((current >= 0) && (tree[current] == FREE)) {
+                current = -1;
+            }
+            if (current < 0) {
+                current = nextActive();
+                if (current < 0) {
+                    break;
+                }
+            }
+
+            if ((++nbGrown % CANCEL_CHECK_PERIOD == 0) && Thread.currentThread().isInterrupted()) {
+                // the flow is consistent between augmentations, so the solver can be reused
+                throw new CancellationException("The graph cut was cancelled");
+            }
+
+            int direction = grow(current);
+
+            time++;
+            if (direction >= 0) {
+                augment(current, direction);
+                adoptOrphans();
+            } else {
+                current = -1;
+            }
+        }
+    }
+
+    /**
+     * Grow the tree of the node to its free neighbours.
+     *
+     * @param node the active node
+     * @return the direction of the neighbour in the other tree, or -1 if the
+     * node has no such neighbour
+     */
+    private int grow(int node) {
+        for (int direction = 0; direction < 4; direction++) {
+            if (!hasNeighbour(node, direction)) {
+                continue;
+            }
+
+            int capacity = (tree[node] == SOURCE)
+                    ? residual[4 * node + direction]
+                    : residual[4 * neighbour(node, direction) + opposite(direction)];
+            if (capacity <= 0) {
+                continue;
+            }
+
+            int next = neighbour(node, direction);
+            if (tree[next] == FREE) {
+                tree[next] = tree[node];
+                parent[next] = (byte) opposite(direction);
+                timestamp[next] = timestamp[node];
+                distance[next] = distance[node] + 1;
+                setActive(next);
+            } else if (tree[next] != tree[node]) {
+                return direction;
+            } else if ((timestamp[next] <= timestamp[node]) && (distance[next] > distance[node])) {
+                // shorten the path of the neighbour to its terminal
+                parent[next] = (byte) opposite(direction);
+                timestamp[next] = timestamp[node];
+                distance[next] = distance[node] + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Push the bottleneck flow along the path through the link between the
+     * node and its neighbour in the other tree.
+     */
+    private void augment(int node, int direction) {
+        int next = neighbour(node, direction);
+        int sourceSide = (tree[node] == SOURCE) ? node : next;
+        int sinkSide = (tree[node] == SOURCE) ? next : node;
+        int linkDirection = (tree[node] == SOURCE) ? direction : opposite(direction);
+
+        // find the bottleneck
+        int flow = residual[4 * sourceSide + linkDirection];
+        int pos = sourceSide;
+        while (parent[pos] != TERMINAL) {
+            int up = neighbour(pos, parent[pos]);
+            flow = Math.min(flow, residual[4 * up + opposite(parent[pos])]);
+            pos = up;
+        }
+        flow = Math.min(flow, terminalResidual[pos]);
+
+        pos = sinkSide;
+        while (parent[pos] != TERMINAL) {
+            flow = Math.min(flow, residual[4 * pos + parent[pos]]);
+            pos = neighbour(pos, parent[pos]);
+        }
+        flow = Math.min(flow, -terminalResidual[pos]);
+
+        // push the flow
+        residual[4 * sourceSide + linkDirection] -= flow;
+        residual[4 * sinkSide + opposite(linkDirection)] += flow;
+
+        pos = sourceSide;
+        while (parent[pos] != TERMINAL) {
+            int up = neighbour(pos, parent[pos]);
+            residual[4 * up + opposite(parent[pos])] -= flow;
+            residual[4 * pos + parent[pos]] += flow;
+            if (residual[4 * up + opposite(parent[pos])] == 0) {
+                setOrphan(pos);
+            }
+            pos = up;
+        }
+        terminalResidual[pos] -= flow;
+        if (terminalResidual[pos] == 0) {
+            setOrphan(pos);
+        }
+
+        pos = sinkSide;
+        while (parent[pos] != TERMINAL) {
+            int up = neighbour(pos, parent[pos]);
+            residual[4 * pos + parent[pos]] -= flow;
+            residual[4 * up + opposite(parent[pos])] += flow;
+            if (residual[4 * pos + parent[pos]] == 0) {
+                setOrphan(pos);
+            }
+            pos = up;
+        }
+        terminalResidual[pos] += flow;
+        if (terminalResidual[pos] == 0) {
+            setOrphan(pos);
+        }
+    }
+
+    /**
+     * Find new parents for the orphans, in the same tree, with a valid path to
+     * the terminal; the orphans without such a parent become free.
+     */
+    private void adoptOrphans() {
+        while (nbOrphans > 0) {
+            int orphan = orphans[--nbOrphans];
+            int bestDirection = -1;
+            int bestDistance = Integer.MAX_VALUE;
+
+            for (int direction = 0; direction < 4; direction++) {
+                if (!hasNeighbour(orphan, direction)) {
+                    continue;
+                }
+
+                int next = neighbour(orphan, direction);
+                if ((tree[next] != tree[orphan]) || !hasResidualToward(orphan, direction)) {
+                    continue;
+                }
+
+                int dist = distanceToTerminal(next);
+                if (dist < bestDistance) {
+                    bestDistance = dist;
+                    bestDirection = direction;
+                }
+            }
+
+            if (bestDirection >= 0) {
+                parent[orphan] = (byte) bestDirection;
+                timestamp[orphan] = time;
+                distance[orphan] = bestDistance + 1;
+            } else {
+                freeOrphan(orphan);
+            }
+        }
+    }
+
+    /**
+     * Checks if the link between the orphan and its neighbour can carry flow
+     * in the direction of its tree: from the neighbour for the source tree,
+     * to the neighbour for the sink tree. The neighbour has to exist.
+     */
+    private boolean hasResidualToward(int orphan, int direction) {
+        return (tree[orphan] == SOURCE)
+                ? residual[4 * neighbour(orphan, direction) + opposite(direction)] > 0
+                : residual[4 * orphan + direction] > 0;
+    }
+
+    /**
+     * Returns the distance of the node to its terminal, following the parents,
+     * and marks the distances of the visited nodes with the current time.
+     *
+     * @return the distance, or Integer.MAX_VALUE if the path reaches an orphan
+     */
+    private int distanceToTerminal(int node) {
+        int dist = 0;
+        int pos = node;
+
+        while (true) {
+            if (timestamp[pos] == time) {
+                dist += distance[pos];
+                break;
+            }
+            if ((parent[pos] == ORPHAN) || (parent[pos] == NO_PARENT)) {
+                return Integer.MAX_VALUE;
+            }
+            dist++;
+            if (parent[pos] == TERMINAL) {
+                timestamp[pos] = time;
+                distance[pos] = 1;
+                break;
+            }
+            pos = neighbour(pos, parent[pos]);
+        }
+
+        // mark the path, so the next orphans stop earlier
+        int mark = dist;
+        for (pos = node; timestamp[pos] != time; pos = neighbour(pos, parent[pos])) {
+            timestamp[pos] = time;
+            distance[pos] = mark--;
+        }
+        return dist;
+    }
+
+    /**
+     * Remove the orphan from its tree: its children become orphans and the
+     * neighbours which could grow into it become active.
+     */
+    private void freeOrphan(int orphan) {
+        for (int direction = 0; direction < 4; direction++) {
+            if (!hasNeighbour(orphan, direction)) {
+                continue;
+            }
+
+            int next = neighbour(orphan, direction);
+            if (tree[next] != tree[orphan]) {
+                continue;
+            }
+
+            if (hasResidualToward(orphan, direction)) {
+                setActive(next);
+            }
+            if ((parent[next] >= 0) && (parent[next] < 4) && (neighbour(next, parent[next]) == orphan)) {
+                setOrphan(next);
+            }
+        }
+
+        tree[orphan] = FREE;
+        parent[orphan] = NO_PARENT;
+    }
+
+    /**
+     * Add the node to the queue of the active nodes, if it is not already
+     * there.
+     */
+    private void setActive(int node) {
+        if (!active[node]) {
+            active[node] = true;
+            activeQueue[(queueHead + queueSize) % activeQueue.length] = node;
+            queueSize++;
+        }
+    }
+
+    /**
+     * Returns the next active node which belongs to a tree.
+     *
+     * @return the node, or -1 if there are no more active nodes
+     */
+    private int nextActive() {
+        while (queueSize > 0) {
+            int node = activeQueue[queueHead];
+            queueHead = (queueHead + 1) % activeQueue.length;
+            queueSize--;
+            active[node] = false;
+
+            if (tree[node] != FREE) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Mark the node as orphan, to be adopted after the augmentation.
+     */
+    private void setOrphan(int node) {
+        parent[node] = ORPHAN;
+        orphans[nbOrphans++] = node;
+    }
+
+    /**
+     * Checks if the node has a neighbour in the given direction.
+     */
+    private boolean hasNeighbour(int node, int direction) {
+        switch (direction) {
+            case 0:
+                return node % width + 1 < width;
+            case 1:
+                return node + width < width * height;
+            case 2:
+                return node % width > 0;
+            default:
+                return node >= width;
+        }
+    }
+
+    /**
+     * Returns the neighbour of the node in the given direction.
+     */
+    private int neighbour(int node, int direction) {
+        switch (direction) {
+            case 0:
+                return node + 1;
+            case 1:
+                return node + width;
+            case 2:
+                return node - 1;
+            default:
+                return node - width;
+        }
+    }
+
+    /**
+     * Returns the opposite direction.
+     */
+    private static int opposite(int direction) {
+        return (direction + 2) & 3;
+    }
+
+    /**
+     * Returns the histogram bin of the color.
+     */
+    private static int colorBin(int rgb) {
+        int red = ((rgb >> 16) & 0xFF) >> BIN_SHIFT;
+        int green = ((rgb >> 8) & 0xFF) >> BIN_SHIFT;
+        int blue = (rgb & 0xFF) >> BIN_SHIFT;
+        return (red * BINS_PER_CHANNEL + green) * BINS_PER_CHANNEL + blue;
+    }
+
+    /**
+     * Returns the squared distance between two colors, for channels in the
+     * range [0, 1].
+     */
+    private static double colorDistance(int rgb1, int rgb2) {
+        double red = (((rgb1 >> 16) & 0xFF) - ((rgb2 >> 16) & 0xFF)) / 255.0;
+        double green = (((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF)) / 255.0;
+        double blue = ((rgb1 & 0xFF) - (rgb2 & 0xFF)) / 255.0;
+        return red * red + green * green + blue * blue;
+    }
+
+    /**
+     * Convert the histogram to costs: the negative logarithm of the
+     * probability of each bin.
+     */
+    private static double[] toCosts(double[] histogram) {
+        double total = 0.0;
+        for (double count : histogram) {
+            total += count;
+        }
+
+        double[] costs = new double[histogram.length];
+        for (int bin = 0; bin < histogram.length; bin++) {
+            costs[bin] = -Math.log(histogram[bin] / total);
+        }
+        return costs;
+    }
+
+    /**
+     * Convert a cost to an integer capacity.
+     */
+    private static int toCapacity(double cost) {
+        return (int) Math.round(cost * CAPACITY_SCALE);
+    }
+
+    /**
+     * Returns the residual capacities of the links between neighbours of the
+     * last run, for checking the flow.
+     *
+     * @return the residual capacities, index 4 * node + direction
+     */
+    int[] getResidual() {
+        return residual;
+    }
+
+    /**
+     * Returns the terminal capacities of the last run, for checking the flow.
+     *
+     * @return the source capacity minus the sink capacity of each node
+     */
+    int[] getTerminalCapacities() {
+        return terminalCap;
+    }
+
+    /**
+     * Returns the residual terminal capacities of the last run, for checking
+     * the flow.
+     *
+     * @return the residual terminal capacity of each node: positive = from
+     * the source, negative = to the sink
+     */
+    int[] getTerminalResidual() {
+        return terminalResidual;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import commonsegmentation.ScribbleInfo;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Segmentation engine computing a crisp binary cut with the graph cut
+ * algorithm, on the CPU; it is always available.
+ * <p>
+ * The solvers are kept between runs: the user refining the scribbles of the
+ * same crop gets the flow of the previous run reused, and the buffers of the
+ * graph are not reallocated for crops of similar size.
+ *
+ * @author Olimpia Popica
+ */
+public class GraphCutSegmentationEngine implements SegmentationEngine {
+
+    /**
+     * The name of the engine.
+     */
+    public static final String NAME = "GraphCut";
+
+    /**
+     * The maximum number of idle solvers kept for reuse.
+     */
+    private static final int MAX_IDLE_SOLVERS = 2;
+
+    /**
+     * The solvers which are not in use, the most recently used first.
+     */
+    private final Deque<GraphCut> idleSolvers = new ArrayDeque<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getVersion() {
+        return "1";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public boolean isAutoSelectable() {
+        // the cut differs from the matting output; it is used only when the user selects it
+        return false;
+    }
+
+    @Override
+    public byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles) {
+        GraphCut solver = takeSolver();
+        try {
+            return solver.segment(image, scribbles);
+        } finally {
+            releaseSolver(solver);
+        }
+    }
+
+    /**
+     * Take the most recently used idle solver, which has the best chance to
+     * hold the graph of the same crop, or create a new one.
+     */
+    private synchronized GraphCut takeSolver() {
+        GraphCut solver = idleSolvers.pollFirst();
+        return (solver != null) ? solver : new GraphCut();
+    }
+
+    /**
+     * Give back the solver for the next runs.
+     */
+    private synchronized void releaseSolver(GraphCut solver) {
+        idleSolvers.addFirst(solver);
+        while (idleSolvers.size() > MAX_IDLE_SOLVERS) {
+            idleSolvers.removeLast();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import commonsegmentation.ScribbleInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the matting results, addressed by the content of the input: a hash
+ * of the image pixels, of the scribbles and of the engine (name and version).
+ * <p>
+ * The results are kept in memory, the least recently used being dropped when
+ * the cache exceeds MAX_MEMORY_BYTES. Optionally, they are also written on the
+ * disk, in the configured directory, so they survive the restart of the
+ * application. The object maps are copied in and out of the cache, since the
+ * callers change them in place.
+ *
+ * @author Olimpia Popica
+ */
+public class MattingCache {
+
+    /**
+     * The maximum number of bytes of object maps kept in memory.
+     */
+    public static final long MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Marks the files written by the cache.
+     */
+    private static final int FILE_MAGIC = 0x4D435348;
+
+    /**
+     * The extension of the cache files.
+     */
+    private static final String FILE_EXTENSION = ".bin";
+
+    /**
+     * The cached object maps, in the order of their use (the least recently
+     * used first).
+     */
+    private static final LinkedHashMap<String, byte[][]> MEMORY = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The number of bytes of the object maps kept in memory.
+     */
+    private static long memoryBytes;
+
+    /**
+     * The directory where the results are stored on the disk; null if the
+     * disk storage is disabled.
+     */
+    private static File diskDirectory;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MattingCache.class);
+
+    /**
+     * Private constructor, in order to prevent the instantiation of the class.
+     */
+    private MattingCache() {
+        throw new IllegalStateException("Utility class, do not instantiate!");
+    }
+
+    /**
+     * Compute the key of the matting result: the SHA-256 hash of the image
+     * pixels, of the scribbles (in their order) and of the engine.
+     *
+     * @param image     the image to be segmented
+     * @param scribbles the scribbles drawn by the user
+     * @param engine    the engine running the segmentation
+     * @return the key of the result, as a hexadecimal string
+     */
+    public static String computeKey(BufferedImage image, List<ScribbleInfo> scribbles, SegmentationEngine engine) {
+        return computeKey(image, scribbles, engine, "");
+    }
+
+    /**
+     * Compute the key of the matting result, for a variant of the algorithm
+     * giving different results (e.g. the progressive matting).
+     *
+     * @param image     the image to be segmented
+     * @param scribbles the scribbles drawn by the user
+     * @param engine    the engine running the segmentation
+     * @param variant   the name of the variant of the algorithm; empty for the
+     *                  plain matting
+     * @return the key of the result, as a hexadecimal string
+     */
+    public static String computeKey(BufferedImage image, List<ScribbleInfo> scribbles, SegmentationEngine engine, String variant) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not supported", ex);
+        }
+
+        digest.update((engine.getName() + "/" + engine.getVersion() + "/" + variant).getBytes(StandardCharsets.UTF_8));
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] line = new int[width];
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(width, 3) * Integer.BYTES);
+
+        buffer.putInt(width).putInt(height);
+        digest.update(buffer.array(), 0, buffer.position());
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, line, 0, width);
+            buffer.clear();
+            buffer.asIntBuffer().put(line);
+            digest.update(buffer.array(), 0, width * Integer.BYTES);
+        }
+
+        for (ScribbleInfo scribble : scribbles) {
+            buffer.clear();
+            buffer.putInt(scribble.getDrawingType()).putInt(scribble.getImgPosX()).putInt(scribble.getImgPosY());
+            digest.update(buffer.array(), 0, buffer.position());
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte value : digest.digest()) {
+            key.append(String.format("%02x", value));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns a copy of the cached result with the given key, searching first
+     * in memory and then on the disk.
+     *
+     * @param key the key of the result
+     * @return a copy of the object map, or null if the result is not cached
+     */
+    public static byte[][] get(String key) {
+        byte[][] objMap;
+
+        synchronized (MEMORY) {
+            objMap = MEMORY.get(key);
+        }
+
+        if (objMap == null) {
+            objMap = readFromDisk(key);
+            if (objMap == null) {
+                return null;
+            }
+            putInMemory(key, copy(objMap));
+            return objMap;
+        }
+
+        return copy(objMap);
+    }
+
+    /**
+     * Store a copy of the result in memory and, if enabled, on the disk.
+     *
+     * @param key    the key of the result
+     * @param objMap the object map computed by the matting
+     */
+    public static void put(String key, byte[][] objMap) {
+        if ((objMap == null) || (objMap.length == 0)) {
+            return;
+        }
+
+        putInMemory(key, copy(objMap));
+        writeToDisk(key, objMap);
+    }
+
+    /**
+     * Set the directory where the results are stored on the disk.
+     *
+     * @param directory the directory of the cache files, or null for keeping
+     *                  the results only in memory
+     */
+    public static synchronized void setDiskDirectory(File directory) {
+        diskDirectory = directory;
+    }
+
+    /**
+     * Remove all the results kept in memory.
+     */
+    public static void clear() {
+        synchronized (MEMORY) {
+            MEMORY.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    /**
+     * Add the object map in memory and drop the least recently used results
+     * while the memory limit is exceeded.
+     */
+    private static void putInMemory(String key, byte[][] objMap) {
+        synchronized (MEMORY) {
+            byte[][] previous = MEMORY.put(key, objMap);
+            if (previous != null) {
+                memoryBytes -= sizeOf(previous);
+            }
+            memoryBytes += sizeOf(objMap);
+
+            Iterator<Map.Entry<String, byte[][]>> iterator = MEMORY.entrySet().iterator();
+            while ((memoryBytes > MAX_MEMORY_BYTES) && iterator.hasNext()) {
+                Map.Entry<String, byte[][]> eldest = iterator.next();
+                if (!eldest.getKey().equals(key)) {
+                    memoryBytes -= sizeOf(eldest.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the result from the cache file; a missing or invalid file is
+     * reported as a missing result.
+     */
+    private static byte[][] readFromDisk(String key) {
+        File file = getCacheFile(key);
+        if ((file == null) || !file.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                return null;
+            }
+
+            int width = in.readInt();
+            int height = in.readInt();
+            if ((width <= 0) || (height <= 0) || ((long) width * height != file.length() - 3L * Integer.BYTES)) {
+                return null;
+            }
+
+            byte[][] objMap = new byte[width][height];
+            for (byte[] column : objMap) {
+                in.readFully(column);
+            }
+            return objMap;
+        } catch (IOException ex) {
+            LOG.debug("The cached matting result {} could not be read {}", key, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Write the result in the cache file, through a temporary file, so a
+     * partially written file is never read.
+     */
+    private static void writeToDisk(String key, byte[][] objMap) {
+        File file = getCacheFile(key);
+        if (file == null) {
+            return;
+        }
+
+        File tmpFile = null;
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            tmpFile = File.createTempFile(key, ".tmp", file.getParentFile());
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(objMap.length);
+                out.writeInt(objMap[0].length);
+                for (byte[] column : objMap) {
+                    out.write(column);
+                }
+            }
+
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOG.error("The matting result could not be saved in the cache directory: {}", ex.getMessage());
+            if ((tmpFile != null) && !tmpFile.delete()) {
+                LOG.debug("The temporary file {} could not be deleted", tmpFile);
+            }
+        }
+    }
+
+    /**
+     * Returns the cache file of the given key; null if the disk storage is
+     * disabled.
+     */
+    private static synchronized File getCacheFile(String key) {
+        return (diskDirectory == null) ? null : new File(diskDirectory, key + FILE_EXTENSION);
+    }
+
+    /**
+     * Returns the number of bytes of the object map.
+     */
+    private static long sizeOf(byte[][] objMap) {
+        return (long) objMap.length * ((objMap.length > 0) ? objMap[0].length : 0);
+    }
+
+    /**
+     * Returns a deep copy of the object map.
+     */
+    private static byte[][] copy(byte[][] objMap) {
+        byte[][] result = new byte[objMap.length][];
+        for (int x = 0; x < objMap.length; x++) {
+            result[x] = objMap[x].clone();
+        }
+        return result;
+    }
+}
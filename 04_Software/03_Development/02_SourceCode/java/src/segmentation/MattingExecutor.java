@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the matting jobs of one window on a pool shared by the whole
+ * application, which limits the number of matting jobs running at the same
+ * time.
+ * <p>
+ * Each submitted job gets a token; a new job cancels the one in progress for
+ * the same window and the result of a job (and its preview, for the
+ * progressive matting) is delivered on the event dispatch thread, through the
+ * observers of the job, only if no newer job was submitted meanwhile.
+ * <p>
+ * The jobs submitted by the windows are interactive: the user waits for them,
+ * so they are started before the queued jobs given directly to the shared pool
+ * (e.g. the crops of the object list matting). The jobs of the same kind are
+ * started in the order they were submitted.
+ *
+ * @author Olimpia Popica
+ */
+public class MattingExecutor {
+
+    /**
+     * The maximum number of matting jobs running at the same time on the
+     * machine.
+     */
+    public static final int MAX_CONCURRENT_JOBS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * The pool running the matting jobs of all the windows.
+     */
+    private static final ThreadPoolExecutor POOL = createPool();
+
+    /**
+     * The token of the last job submitted by this executor.
+     */
+    private long lastToken;
+
+    /**
+     * The last job submitted by this executor; null if none was submitted.
+     */
+    private Future<?> currentJob;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MattingExecutor.class);
+
+    /**
+     * Run the matting job on the shared pool, cancelling the previous job of
+     * this executor. When the job finishes and it is still the last one, its
+     * observers are notified on the event dispatch thread.
+     *
+     * @param job the matting job to be run
+     */
+    public synchronized void submit(MattingThreading job) {
+        cancelCurrentJob();
+
+        final long token = ++lastToken;
+
+        // the preview of the progressive matting is delivered like the result
+        job.setPreviewListener(previewMap -> SwingUtilities.invokeLater(() -> {
+            if (isCurrent(token)) {
+                job.notifyPreview(previewMap);
+            }
+        }));
+
+        PriorityTask task = new PriorityTask(() -> {
+            try {
+                job.runMattingAlgo();
+                SwingUtilities.invokeLater(() -> {
+                    if (isCurrent(token)) {
+                        job.notifyFinished();
+                    }
+                });
+            } catch (CancellationException ex) {
+                LOG.debug("Matting job {} was cancelled", token);
+            } catch (RuntimeException ex) {
+                LOG.error("The matting job failed: {}", ex.getMessage());
+                LOG.debug("The matting job failed {}", ex);
+            }
+        }, true);
+        POOL.execute(task);
+        currentJob = task;
+    }
+
+    /**
+     * Cancel the job in progress, if any; its result will not be delivered.
+     * It is meant to be called when the window is closed.
+     */
+    public synchronized void cancel() {
+        cancelCurrentJob();
+        lastToken++;
+    }
+
+    /**
+     * Returns the pool shared by all the matting jobs. The jobs executed
+     * directly on it wait for the interactive jobs of the windows.
+     *
+     * @return the executor service running the matting jobs
+     */
+    public static ExecutorService getSharedPool() {
+        return POOL;
+    }
+
+    /**
+     * Checks if the job with the given token is the last one submitted.
+     *
+     * @param token the token of the job
+     * @return true if no newer job was submitted and the job was not cancelled
+     */
+    private synchronized boolean isCurrent(long token) {
+        return token == lastToken;
+    }
+
+    /**
+     * Interrupt the current job and remove it from the queue of the pool, if
+     * it did not start yet.
+     */
+    private void cancelCurrentJob() {
+        if (currentJob != null) {
+            currentJob.cancel(true);
+            POOL.purge();
+            currentJob = null;
+        }
+    }
+
+    /**
+     * Create the pool of daemon threads running the matting jobs.
+     *
+     * @return the thread pool
+     */
+    private static ThreadPoolExecutor createPool() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Matting Thread-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_CONCURRENT_JOBS, MAX_CONCURRENT_JOBS, 30L, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), threadFactory) {
+            @Override
+            public void execute(Runnable command) {
+                // the jobs which do not come from a window are background jobs
+                super.execute((command instanceof PriorityTask) ? command : new PriorityTask(command, false));
+            }
+        };
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * A job of the shared pool, ordered in its queue: the interactive jobs
+     * first, then in the order of submission.
+     */
+    private static final class PriorityTask extends FutureTask<Void> implements Comparable<PriorityTask> {
+
+        /**
+         * The counter giving the submission order of the jobs.
+         */
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        /**
+         * True if the user waits for the result of the job.
+         */
+        private final boolean interactive;
+
+        /**
+         * The submission order of the job.
+         */
+        private final long sequence;
+
+        /**
+         * @param job         the job to be run
+         * @param interactive true if the user waits for the result of the job
+         */
+        PriorityTask(Runnable job, boolean interactive) {
+            super(job, null);
+            this.interactive = interactive;
+            this.sequence = SEQUENCE.getAndIncrement();
+        }
+
+        @Override
+        public int compareTo(PriorityTask other) {
+            if (interactive != other.interactive) {
+                return interactive ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
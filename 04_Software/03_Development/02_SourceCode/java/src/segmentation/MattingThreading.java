@@ -25,19 +25,24 @@
  */
 package segmentation;
 
+import common.Constants;
+import library.ConnectedComponents;
 import observers.NotifyObservers;
 import observers.ObservedActions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import commonsegmentation.ScribbleInfo;
-import parallelcomputing.PixelSegmentation;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Observer;
+import java.util.function.Consumer;
 
 /**
- * Run the cuda matting application on a separate thread, in order to avoid the
- * gui freeze.
+ * Run the matting application on a separate thread, in order to avoid the gui
+ * freeze. The segmentation engine is chosen by SegmentationEngines.
  *
  * @author Olimpia Popica
  */
@@ -57,9 +62,64 @@ public class MattingThreading implements Runnable {
     private final ObservedActions.Action actionOwner;
 
     /**
-     * Object to pixel segmentation algorithm.
+     * The variant of the matting cache keys for the progressive matting.
      */
-    private final PixelSegmentation segmentation;
+    private static final String PROGRESSIVE_VARIANT = "progressive";
+
+    /**
+     * The prefix of the variant of the matting cache keys for the superpixel
+     * segmentation; the hash of the superpixels follows it.
+     */
+    private static final String SUPERPIXEL_VARIANT = "superpixel-";
+
+    /**
+     * The engine running the segmentation algorithm.
+     */
+    private final SegmentationEngine engine;
+
+    /**
+     * The image to be segmented.
+     */
+    private final BufferedImage origImg;
+
+    /**
+     * The scribbles drawn by the user on the image.
+     */
+    private final List<ScribbleInfo> scribbles;
+
+    /**
+     * The result of the segmentation; null until the algorithm was run.
+     */
+    private byte[][] objMap;
+
+    /**
+     * The coarse result of the progressive matting; null if it was not
+     * computed.
+     */
+    private byte[][] previewMap;
+
+    /**
+     * Shows if the crop shall be segmented coarse to fine, with a preview of
+     * the coarse result.
+     */
+    private boolean progressive;
+
+    /**
+     * Receives the coarse result of the progressive matting, on the matting
+     * thread; null if nobody waits for the preview.
+     */
+    private Consumer<byte[][]> previewListener;
+
+    /**
+     * The superpixels of the image, for the superpixel segmentation; null for
+     * segmenting pixel by pixel.
+     */
+    private SlicSuperpixels superpixels;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MattingThreading.class);
 
     /**
      * Initialise the needed data, received from the main thread.
@@ -69,8 +129,23 @@ public class MattingThreading implements Runnable {
      * @param actionOwner - who created the request
      */
     public MattingThreading(BufferedImage origImg, List<ScribbleInfo> scribbles, ObservedActions.Action actionOwner) {
+        this(SegmentationEngines.getEngine(), origImg, scribbles, actionOwner);
+    }
 
-        segmentation = new PixelSegmentation(origImg, (ArrayList<ScribbleInfo>) scribbles);
+    /**
+     * Initialise the needed data, for running the given engine instead of the
+     * one chosen by SegmentationEngines.
+     *
+     * @param engine      - the segmentation engine to be run
+     * @param origImg     - the original image to be processed
+     * @param scribbles   - the map of pixels/scribbles for the matting application
+     * @param actionOwner - who created the request
+     */
+    MattingThreading(SegmentationEngine engine, BufferedImage origImg, List<ScribbleInfo> scribbles, ObservedActions.Action actionOwner) {
+        this.engine = engine;
+        this.origImg = origImg;
+        // copy the scribbles, the user may continue drawing while the matting runs
+        this.scribbles = new ArrayList<>(scribbles);
         this.actionOwner = actionOwner;
     }
 
@@ -80,16 +155,158 @@ public class MattingThreading implements Runnable {
         runMattingAlgo();
 
         // notify the main thread that the execution is over and the result image is available to be displayed
+        notifyFinished();
+    }
+
+    /**
+     * Notify the observers that the result of the matting is available.
+     */
+    public void notifyFinished() {
         observable.notifyObservers(actionOwner);
     }
 
     /**
-     * Run the matting algorithm on the given input image
+     * Run the matting algorithm on the given input image, unless the result
+     * for the same image, scribbles and engine is in the matting cache. The
+     * isolated islands of a few pixels are removed from the output.
      *
      * @return byte [ ] [ ]
      */
     public byte[][] runMattingAlgo() {
-        return segmentation.runMattingAlgo();
+        // the labels of the superpixels are kept only by the engines which refine just the band around their border
+        boolean bandRefinement = engine.supportsBandRefinement();
+        boolean runSuperpixels = bandRefinement && (superpixels != null)
+                && (superpixels.getWidth() == origImg.getWidth()) && (superpixels.getHeight() == origImg.getHeight());
+        boolean runProgressive = !runSuperpixels && progressive && ProgressiveMatting.isWorthwhile(origImg);
+
+        String variant = "";
+        if (runSuperpixels) {
+            variant = SUPERPIXEL_VARIANT + Arrays.hashCode(superpixels.getLabels());
+        } else if (runProgressive && bandRefinement) {
+            // the other engines segment the full crop after the preview, so their result is the one of a single run
+            variant = PROGRESSIVE_VARIANT;
+        }
+
+        String cacheKey = MattingCache.computeKey(origImg, scribbles, engine, variant);
+        objMap = MattingCache.get(cacheKey);
+
+        if (objMap == null) {
+            if (runSuperpixels) {
+                objMap = runSuperpixelSegmentation();
+            } else {
+                objMap = runProgressive ? runProgressiveMatting() : engine.runMattingAlgo(origImg, scribbles);
+            }
+            MattingCache.put(cacheKey, objMap);
+        }
+
+        // the map is changed in place, so getObjMap returns the cleaned result too
+        ConnectedComponents.removeSmallComponents(objMap, Constants.MIN_SEGMENTED_COMPONENT_SIZE);
+
+        return objMap;
+    }
+
+    /**
+     * Segment the crop coarse to fine: the coarse result is sent to the
+     * preview listener, then it is refined at full resolution. The engines
+     * which do not support the band refinement segment the full crop again,
+     * so for them only the preview comes earlier.
+     *
+     * @return the refined object map
+     */
+    private byte[][] runProgressiveMatting() {
+        ProgressiveMatting matting = new ProgressiveMatting(engine, origImg, scribbles);
+
+        byte[][] coarseMap = matting.runCoarse();
+        if (previewListener != null) {
+            ConnectedComponents.removeSmallComponents(coarseMap, Constants.MIN_SEGMENTED_COMPONENT_SIZE);
+            previewListener.accept(coarseMap);
+        }
+
+        byte[][] refinedMap = matting.refine(coarseMap);
+
+        long total = matting.getCoarseTime() + matting.getRefineTime();
+        if (engine.supportsBandRefinement()) {
+            LOG.info("Progressive matting: preview after {} ms, result after {} ms; full resolution estimated at {} ms (saved {} ms)",
+                    matting.getCoarseTime(), total, matting.getEstimatedFullTime(), matting.getEstimatedFullTime() - total);
+        } else {
+            LOG.info("Progressive matting: preview after {} ms, full resolution result after {} ms (the {} engine does not refine just the border)",
+                    matting.getCoarseTime(), total, engine.getName());
+        }
+
+        return refinedMap;
+    }
+
+    /**
+     * Segment the crop from its superpixels: they are labeled from the
+     * scribbles and only the pixels around the object border are segmented by
+     * the engine.
+     *
+     * @return the object map
+     */
+    private byte[][] runSuperpixelSegmentation() {
+        SuperpixelSegmentation segmentation = new SuperpixelSegmentation(engine, origImg, scribbles, superpixels);
+
+        byte[][] result = segmentation.run();
+
+        LOG.info("Superpixel segmentation: {} superpixels labeled in {} ms, border refined in {} ms",
+                superpixels.getCount(), segmentation.getLabelTime(), segmentation.getRefineTime());
+
+        return result;
+    }
+
+    /**
+     * Set the superpixels of the image, for the superpixel segmentation; it
+     * has priority over the progressive matting. The superpixels are ignored
+     * if their size differs from the size of the image or if the engine does
+     * not support the band refinement.
+     *
+     * @param superpixels the superpixels of the image; null for segmenting
+     *                    pixel by pixel
+     */
+    public void setSuperpixels(SlicSuperpixels superpixels) {
+        this.superpixels = superpixels;
+    }
+
+    /**
+     * Enables/Disables the progressive matting: big crops are first segmented
+     * at a lower resolution, for a fast preview, and then refined around the
+     * border of the object. The engines which do not support the band
+     * refinement segment the full crop after the preview.
+     *
+     * @param progressive true for the progressive matting
+     */
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+
+    /**
+     * Set the listener of the coarse result of the progressive matting. It is
+     * called on the matting thread.
+     *
+     * @param previewListener the listener; null for no preview
+     */
+    public void setPreviewListener(Consumer<byte[][]> previewListener) {
+        this.previewListener = previewListener;
+    }
+
+    /**
+     * Store the coarse result and notify the observers that the preview is
+     * available.
+     *
+     * @param previewMap the coarse object map
+     */
+    public void notifyPreview(byte[][] previewMap) {
+        this.previewMap = previewMap;
+        observable.notifyObservers(ObservedActions.Action.REFRESH_CROP_PREVIEW);
+    }
+
+    /**
+     * Returns the coarse result of the progressive matting.
+     *
+     * @return the coarse object map, or null if it is not available
+     */
+    public byte[][] getPreviewMap() {
+        return previewMap;
     }
 
     /**
@@ -98,7 +315,7 @@ public class MattingThreading implements Runnable {
      * @return - the matrix of the objects in the image
      */
     public byte[][] getObjMap() {
-        return segmentation.getObjMap();
+        return objMap;
     }
 
     /**
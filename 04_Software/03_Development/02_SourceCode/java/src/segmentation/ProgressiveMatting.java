@@ -0,0 +1,276 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import commonsegmentation.ScribbleInfo;
+import library.MaskMorphology;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Coarse to fine matting: the crop is first segmented at a lower resolution,
+ * which gives a fast preview, and then it is refined at full resolution only
+ * in a band around the border of the coarse result.
+ * <p>
+ * The refinement is delegated to SegmentationEngine.refineMattingAlgo; the
+ * engines which cannot restrict the work to the band segment the full crop,
+ * so for them the coarse pass gives only an earlier preview.
+ *
+ * @author Olimpia Popica
+ */
+public class ProgressiveMatting {
+
+    /**
+     * The ratio between the full and the coarse resolution.
+     */
+    public static final int SCALE_FACTOR = 4;
+
+    /**
+     * Crops with less pixels are segmented directly at full resolution; the
+     * preview would not be much faster.
+     */
+    public static final int MIN_PIXELS = 256 * 256;
+
+    /**
+     * The half width of the band refined at full resolution, in full
+     * resolution pixels.
+     */
+    private static final int BAND_RADIUS = 2 * SCALE_FACTOR;
+
+    /**
+     * The engine running the segmentation.
+     */
+    private final SegmentationEngine engine;
+
+    /**
+     * The full resolution image.
+     */
+    private final BufferedImage image;
+
+    /**
+     * The scribbles in full resolution coordinates.
+     */
+    private final List<ScribbleInfo> scribbles;
+
+    /**
+     * The time, in milliseconds, spent for the coarse segmentation.
+     */
+    private long coarseTime;
+
+    /**
+     * The time, in milliseconds, spent for the refinement.
+     */
+    private long refineTime;
+
+    /**
+     * Initialise the progressive matting.
+     *
+     * @param engine    the engine running the segmentation
+     * @param image     the image to be segmented
+     * @param scribbles the scribbles drawn by the user
+     */
+    public ProgressiveMatting(SegmentationEngine engine, BufferedImage image, List<ScribbleInfo> scribbles) {
+        this.engine = engine;
+        this.image = image;
+        this.scribbles = scribbles;
+    }
+
+    /**
+     * Checks if the image is big enough for the progressive matting to pay off.
+     *
+     * @param image the image to be segmented
+     * @return true if the progressive matting should be used
+     */
+    public static boolean isWorthwhile(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() >= MIN_PIXELS;
+    }
+
+    /**
+     * Segment the downscaled image and upscale the result to the full
+     * resolution.
+     *
+     * @return the coarse object map, at full resolution
+     */
+    public byte[][] runCoarse() {
+        long start = System.currentTimeMillis();
+
+        BufferedImage smallImg = downscale(image);
+        byte[][] smallMap = engine.runMattingAlgo(smallImg, downscale(scribbles, smallImg.getWidth(), smallImg.getHeight()));
+
+        byte[][] coarseMap = new byte[image.getWidth()][image.getHeight()];
+        for (int x = 0; x < coarseMap.length; x++) {
+            byte[] smallColumn = smallMap[Math.min(x / SCALE_FACTOR, smallMap.length - 1)];
+            for (int y = 0; y < coarseMap[x].length; y++) {
+                coarseMap[x][y] = (byte) ((smallColumn[Math.min(y / SCALE_FACTOR, smallColumn.length - 1)] != 0) ? 1 : 0);
+            }
+        }
+
+        coarseTime = System.currentTimeMillis() - start;
+        return coarseMap;
+    }
+
+    /**
+     * Refine the coarse result at full resolution in the band around its
+     * border; outside the band, the coarse result is kept.
+     *
+     * @param coarseMap the coarse object map, at full resolution; it is not
+     *                  modified
+     * @return the refined object map
+     */
+    public byte[][] refine(byte[][] coarseMap) {
+        long start = System.currentTimeMillis();
+
+        byte[][] result = engine.refineMattingAlgo(image, scribbles, coarseMap, computeBand(coarseMap));
+
+        refineTime = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * Returns the time spent for the coarse segmentation.
+     *
+     * @return the time in milliseconds
+     */
+    public long getCoarseTime() {
+        return coarseTime;
+    }
+
+    /**
+     * Returns the time spent for the refinement.
+     *
+     * @return the time in milliseconds
+     */
+    public long getRefineTime() {
+        return refineTime;
+    }
+
+    /**
+     * Estimate the time of the full resolution matting: the cost of the
+     * matting grows with the number of pixels, which is SCALE_FACTOR^2 times
+     * bigger than for the coarse segmentation.
+     *
+     * @return the estimated time in milliseconds
+     */
+    public long getEstimatedFullTime() {
+        return coarseTime * SCALE_FACTOR * SCALE_FACTOR;
+    }
+
+    /**
+     * Compute the band around the border of the coarse result: the pixels
+     * where the dilation and the erosion of the map differ.
+     *
+     * @param coarseMap the coarse object map
+     * @return the band; 1 = refine, 0 = keep the coarse result
+     */
+    private static byte[][] computeBand(byte[][] coarseMap) {
+        MaskMorphology morphology = new MaskMorphology();
+        byte[][] band = copy(coarseMap);
+        byte[][] eroded = copy(coarseMap);
+
+        morphology.dilate(band, BAND_RADIUS);
+        morphology.erode(eroded, BAND_RADIUS);
+
+        for (int x = 0; x < band.length; x++) {
+            for (int y = 0; y < band[x].length; y++) {
+                band[x][y] = (byte) ((band[x][y] != eroded[x][y]) ? 1 : 0);
+            }
+        }
+
+        return band;
+    }
+
+    /**
+     * Downscale the image by SCALE_FACTOR, averaging the blocks of pixels.
+     */
+    private static BufferedImage downscale(BufferedImage img) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int smallWidth = (width + SCALE_FACTOR - 1) / SCALE_FACTOR;
+        int smallHeight = (height + SCALE_FACTOR - 1) / SCALE_FACTOR;
+
+        int[] argb = img.getRGB(0, 0, width, height, null, 0, width);
+        int[] sums = new int[smallWidth * smallHeight * 4];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[y * width + x];
+                int block = ((y / SCALE_FACTOR) * smallWidth + (x / SCALE_FACTOR)) * 4;
+                sums[block] += (pixel >> 16) & 0xFF;
+                sums[block + 1] += (pixel >> 8) & 0xFF;
+                sums[block + 2] += pixel & 0xFF;
+                sums[block + 3]++;
+            }
+        }
+
+        BufferedImage small = new BufferedImage(smallWidth, smallHeight, BufferedImage.TYPE_3BYTE_BGR);
+        for (int block = 0; block < smallWidth * smallHeight; block++) {
+            int count = sums[block * 4 + 3];
+            int red = sums[block * 4] / count;
+            int green = sums[block * 4 + 1] / count;
+            int blue = sums[block * 4 + 2] / count;
+            small.setRGB(block % smallWidth, block / smallWidth, (red << 16) | (green << 8) | blue);
+        }
+
+        return small;
+    }
+
+    /**
+     * Downscale the scribbles by SCALE_FACTOR; the scribbles falling on the
+     * same coarse pixel are kept only once.
+     */
+    private static List<ScribbleInfo> downscale(List<ScribbleInfo> scribbleList, int smallWidth, int smallHeight) {
+        List<ScribbleInfo> smallScribbles = new ArrayList<>();
+        Set<Long> used = new HashSet<>();
+
+        for (ScribbleInfo scribble : scribbleList) {
+            int x = Math.min(scribble.getImgPosX() / SCALE_FACTOR, smallWidth - 1);
+            int y = Math.min(scribble.getImgPosY() / SCALE_FACTOR, smallHeight - 1);
+
+            if ((x >= 0) && (y >= 0) && used.add(((long) scribble.getDrawingType() << 40) | ((long) x << 20) | y)) {
+                Point pos = new Point(x, y);
+                smallScribbles.add(new ScribbleInfo(scribble.getDrawingType(), pos, pos));
+            }
+        }
+
+        return smallScribbles;
+    }
+
+    /**
+     * Returns a deep copy of the map.
+     */
+    private static byte[][] copy(byte[][] map) {
+        byte[][] result = new byte[map.length][];
+        for (int x = 0; x < map.length; x++) {
+            result[x] = map[x].clone();
+        }
+        return result;
+    }
+}
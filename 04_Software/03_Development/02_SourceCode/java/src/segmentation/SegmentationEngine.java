@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import commonsegmentation.ScribbleInfo;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Service interface of the algorithms which segment an object from the user
+ * scribbles. The implementations are discovered with the ServiceLoader and
+ * have to provide a public constructor without parameters.
+ *
+ * @author Olimpia Popica
+ */
+public interface SegmentationEngine {
+
+    /**
+     * Returns the name of the engine, used in the user preferences to select
+     * it.
+     *
+     * @return the unique name of the engine
+     */
+    String getName();
+
+    /**
+     * Returns the version of the algorithm; it has to change when the engine
+     * produces different results for the same input, so the cached results
+     * are not reused.
+     *
+     * @return the version of the engine
+     */
+    String getVersion();
+
+    /**
+     * Checks if the engine can run on the current machine (available
+     * hardware, native libraries).
+     *
+     * @return true if the engine can be used
+     */
+    boolean isAvailable();
+
+    /**
+     * Checks if the engine can be selected automatically, by the benchmark;
+     * otherwise it runs only when the user selects it.
+     *
+     * @return true if the engine competes in the benchmark
+     */
+    default boolean isAutoSelectable() {
+        return true;
+    }
+
+    /**
+     * Segment the object marked by the scribbles in the given image.
+     *
+     * @param image     the image to be segmented
+     * @param scribbles the object and background scribbles drawn by the user
+     * @return the map of the segmented object, indexed [x][y]: 0 =
+     * background, different from 0 = object
+     */
+    byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles);
+
+    /**
+     * Checks if the engine restricts refineMattingAlgo to the given band;
+     * otherwise the refinement segments the whole image and the coarse to
+     * fine matting is slower than a single run.
+     *
+     * @return true if the engine refines just the band
+     */
+    default boolean supportsBandRefinement() {
+        return false;
+    }
+
+    /**
+     * Refine an initial segmentation only in the given band; outside the band
+     * the initial segmentation is kept. The engines which cannot restrict the
+     * work to a region segment the whole image.
+     *
+     * @param image      the image to be segmented
+     * @param scribbles  the object and background scribbles drawn by the user
+     * @param initialMap the initial segmentation, indexed [x][y]
+     * @param band       the region to be refined, indexed [x][y]: different
+     *                   from 0 = refine
+     * @return the map of the segmented object, indexed [x][y]
+     */
+    default byte[][] refineMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles, byte[][] initialMap, byte[][] band) {
+        return runMattingAlgo(image, scribbles);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import common.Constants;
+import common.ConstantsLabeling;
+import commonsegmentation.ScribbleInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Keeps the segmentation engines discovered with the ServiceLoader and selects
+ * the one to be used for the matting: the engine pinned by the user if it is
+ * available, else the fastest engine of the startup benchmark, else the first
+ * available engine in the order of discovery. The engines which are not
+ * automatically selectable run only when they are pinned.
+ *
+ * @author Olimpia Popica
+ */
+public class SegmentationEngines {
+
+    /**
+     * The size of the synthetic crop used for the benchmark.
+     */
+    private static final int BENCHMARK_IMG_SIZE = 128;
+
+    /**
+     * The number of timed runs of each engine in the benchmark; the median
+     * time is used for the ranking.
+     */
+    private static final int BENCHMARK_RUNS = 5;
+
+    /**
+     * All the discovered engines, in the order of discovery.
+     */
+    private static final List<SegmentationEngine> ENGINES = loadEngines();
+
+    /**
+     * The available engines, sorted from the fastest to the slowest; null
+     * until the benchmark finishes.
+     */
+    private static volatile List<SegmentationEngine> ranking;
+
+    /**
+     * The name of the engine pinned by the user, or
+     * Constants.SEGMENTATION_ENGINE_AUTO for the automatic selection.
+     */
+    private static volatile String pinnedEngine = Constants.SEGMENTATION_ENGINE_AUTO;
+
+    /**
+     * logger instance
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentationEngines.class);
+
+    /**
+     * Private constructor, in order to prevent the instantiation of the class.
+     */
+    private SegmentationEngines() {
+        throw new IllegalStateException("Utility class, do not instantiate!");
+    }
+
+    /**
+     * Returns the engine to be used for the matting.
+     *
+     * @return the pinned engine if it is available, else the fastest engine
+     * known at the moment
+     */
+    public static SegmentationEngine getEngine() {
+        for (SegmentationEngine engine : ENGINES) {
+            if (engine.getName().equalsIgnoreCase(pinnedEngine) && engine.isAvailable()) {
+                return engine;
+            }
+        }
+
+        List<SegmentationEngine> ranked = ranking;
+        if ((ranked != null) && !ranked.isEmpty()) {
+            return ranked.get(0);
+        }
+
+        for (SegmentationEngine engine : ENGINES) {
+            if (engine.isAvailable() && engine.isAutoSelectable()) {
+                return engine;
+            }
+        }
+
+        // the CPU engine can always run
+        return new CpuSegmentationEngine();
+    }
+
+    /**
+     * Returns the names of all the discovered engines.
+     *
+     * @return the list of engine names, in the order of discovery
+     */
+    public static List<String> getEngineNames() {
+        List<String> names = new ArrayList<>();
+        for (SegmentationEngine engine : ENGINES) {
+            names.add(engine.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Pin the engine to be used, regardless of the benchmark.
+     *
+     * @param engineName the name of the engine or
+     *                   Constants.SEGMENTATION_ENGINE_AUTO for the automatic
+     *                   selection
+     */
+    public static void setPinnedEngine(String engineName) {
+        pinnedEngine = (engineName == null) ? Constants.SEGMENTATION_ENGINE_AUTO : engineName;
+    }
+
+    /**
+     * Run the benchmark of the engines on a background thread. Until it
+     * finishes, the engines are selected in the order of discovery.
+     */
+    public static void startBenchmark() {
+        Thread benchmarkThread = new Thread(() -> ranking = benchmark());
+        benchmarkThread.setName("Segmentation Benchmark");
+        benchmarkThread.setDaemon(true);
+        benchmarkThread.setPriority(Thread.MIN_PRIORITY);
+        benchmarkThread.start();
+    }
+
+    /**
+     * Run the benchmark of all the discovered engines.
+     *
+     * @return the available engines, from the fastest to the slowest
+     */
+    static List<SegmentationEngine> benchmark() {
+        return benchmark(ENGINES);
+    }
+
+    /**
+     * Run each available, automatically selectable engine on a synthetic crop
+     * and sort the engines by their median execution time. The first run of
+     * each engine is not timed, it warms up the JIT and the engine (native
+     * libraries, device buffers etc.). The engines which fail are left out.
+     *
+     * @param engines the engines to be compared
+     * @return the available engines, from the fastest to the slowest
+     */
+    static List<SegmentationEngine> benchmark(List<SegmentationEngine> engines) {
+        BufferedImage image = createBenchmarkImage();
+        List<ScribbleInfo> scribbles = createBenchmarkScribbles();
+        Map<SegmentationEngine, Long> timings = new HashMap<>();
+
+        for (SegmentationEngine engine : engines) {
+            try {
+                if (engine.isAvailable() && engine.isAutoSelectable()) {
+                    // warm up
+                    engine.runMattingAlgo(image, scribbles);
+
+                    long[] runTimes = new long[BENCHMARK_RUNS];
+                    for (int run = 0; run < BENCHMARK_RUNS; run++) {
+                        long start = System.nanoTime();
+                        engine.runMattingAlgo(image, scribbles);
+                        runTimes[run] = System.nanoTime() - start;
+                    }
+
+                    Arrays.sort(runTimes);
+                    timings.put(engine, runTimes[BENCHMARK_RUNS / 2]);
+                    LOG.info("Segmentation engine {}: {} ms (median of {} runs)", engine.getName(), timings.get(engine) / 1_000_000, BENCHMARK_RUNS);
+                }
+            } catch (RuntimeException | LinkageError ex) {
+                LOG.error("Segmentation engine {} failed the benchmark", engine.getName());
+                LOG.debug("Segmentation engine {} failed the benchmark {}", engine.getName(), ex);
+            }
+        }
+
+        List<SegmentationEngine> sorted = new ArrayList<>(timings.keySet());
+        sorted.sort(Comparator.comparingLong(timings::get));
+
+        return Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Discover the engines with the ServiceLoader; the CPU engine is added if
+     * it was not discovered, to have always an engine to run.
+     *
+     * @return the list of engines
+     */
+    private static List<SegmentationEngine> loadEngines() {
+        List<SegmentationEngine> engines = new ArrayList<>();
+
+        try {
+            for (SegmentationEngine engine : ServiceLoader.load(SegmentationEngine.class)) {
+                engines.add(engine);
+            }
+        } catch (ServiceConfigurationError ex) {
+            LOG.error("The segmentation engines could not be loaded: {}", ex.getMessage());
+        }
+
+        if (engines.stream().noneMatch(engine -> engine instanceof CpuSegmentationEngine)) {
+            engines.add(new CpuSegmentationEngine());
+        }
+
+        return Collections.unmodifiableList(engines);
+    }
+
+    /**
+     * Create a noisy image containing a disc on a background of a different
+     * color.
+     *
+     * @return the image used for the benchmark
+     */
+    private static BufferedImage createBenchmarkImage() {
+        BufferedImage image = new BufferedImage(BENCHMARK_IMG_SIZE, BENCHMARK_IMG_SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(0);
+        int center = BENCHMARK_IMG_SIZE / 2;
+        int radius = BENCHMARK_IMG_SIZE / 3;
+
+        for (int y = 0; y < BENCHMARK_IMG_SIZE; y++) {
+            for (int x = 0; x < BENCHMARK_IMG_SIZE; x++) {
+                boolean inside = (x - center) * (x - center) + (y - center) * (y - center) < radius * radius;
+                int value = (inside ? 180 : 70) + random.nextInt(40);
+                image.setRGB(x, y, (value << 16) | ((255 - value) << 8) | (value / 2));
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Create an object scribble inside the disc and a background scribble
+     * along the border of the image.
+     *
+     * @return the scribbles used for the benchmark
+     */
+    private static List<ScribbleInfo> createBenchmarkScribbles() {
+        List<ScribbleInfo> scribbles = new ArrayList<>();
+        int center = BENCHMARK_IMG_SIZE / 2;
+
+        for (int pos = 0; pos < BENCHMARK_IMG_SIZE; pos++) {
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_BACKGROUND, new Point(pos, 2), new Point(pos, 2)));
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_BACKGROUND, new Point(2, pos), new Point(2, pos)));
+        }
+
+        for (int pos = center - BENCHMARK_IMG_SIZE / 6; pos < center + BENCHMARK_IMG_SIZE / 6; pos++) {
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_OBJECT, new Point(pos, center), new Point(pos, center)));
+        }
+
+        return scribbles;
+    }
+}
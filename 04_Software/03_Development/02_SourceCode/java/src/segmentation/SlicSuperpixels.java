@@ -0,0 +1,457 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+/**
+ * Superpixels of an image, computed with the SLIC algorithm (simple linear
+ * iterative clustering): k-means clustering of the pixels in the CIELAB color
+ * space and the image plane, where each cluster center is compared only with
+ * the pixels around it.
+ * <p>
+ * The assignment step runs per pixel (each pixel is compared with the centers
+ * of the 3x3 grid cells around it), in parallel bands of lines. At the end,
+ * the superpixels are made connected and the small fragments are merged into
+ * a neighbour.
+ *
+ * @author Olimpia Popica
+ */
+public class SlicSuperpixels {
+
+    /**
+     * The default distance, in pixels, between the initial cluster centers.
+     */
+    public static final int DEFAULT_SIZE = 16;
+
+    /**
+     * The weight of the spatial distance relative to the color distance.
+     */
+    private static final float COMPACTNESS = 10.0f;
+
+    /**
+     * The number of iterations of the clustering.
+     */
+    private static final int NUM_ITERATIONS = 10;
+
+    /**
+     * The number of lines processed by a parallel task.
+     */
+    private static final int BAND_SIZE = 32;
+
+    /**
+     * The width of the labeled image.
+     */
+    private final int width;
+
+    /**
+     * The height of the labeled image.
+     */
+    private final int height;
+
+    /**
+     * The superpixel of each pixel, in row major order, in the range
+     * [0, count).
+     */
+    private final int[] labels;
+
+    /**
+     * The number of superpixels.
+     */
+    private final int count;
+
+    /**
+     * Create the superpixels from their labels.
+     *
+     * @param width  the width of the labeled image
+     * @param height the height of the labeled image
+     * @param labels the superpixel of each pixel, in row major order
+     * @param count  the number of superpixels
+     */
+    private SlicSuperpixels(int width, int height, int[] labels, int count) {
+        this.width = width;
+        this.height = height;
+        this.labels = labels;
+        this.count = count;
+    }
+
+    /**
+     * Compute the superpixels of the image, with the default size.
+     *
+     * @param image the image to be split in superpixels
+     * @return the superpixels of the image
+     * @throws CancellationException if the thread is interrupted
+     */
+    public static SlicSuperpixels compute(BufferedImage image) {
+        return compute(image, DEFAULT_SIZE);
+    }
+
+    /**
+     * Compute the superpixels of the image.
+     *
+     * @param image the image to be split in superpixels
+     * @param size  the distance, in pixels, between the initial cluster
+     *              centers
+     * @return the superpixels of the image
+     * @throws CancellationException if the thread is interrupted
+     */
+    public static SlicSuperpixels compute(BufferedImage image, int size) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int cols = Math.max(1, Math.round((float) width / size));
+        int rows = Math.max(1, Math.round((float) height / size));
+
+        float[][] lab = toLab(image.getRGB(0, 0, width, height, null, 0, width));
+        Clusters clusters = new Clusters(cols, rows, width, height, lab);
+        int[] labels = new int[width * height];
+
+        for (int iteration = 0; iteration < NUM_ITERATIONS; iteration++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The superpixel computation was cancelled");
+            }
+
+            forEachBand(height, (yStart, yEnd) -> clusters.assign(labels, yStart, yEnd));
+            clusters.update(labels);
+        }
+
+        return enforceConnectivity(width, height, labels, (width / cols) * (height / rows) / 4);
+    }
+
+    /**
+     * Returns the superpixels inside the given area, numbered again from 0.
+     *
+     * @param area the area, in the coordinates of the labeled image
+     * @return the superpixels of the area clipped to the labeled image; null if
+     * the area is outside the image
+     */
+    public SlicSuperpixels crop(Rectangle area) {
+        Rectangle clipped = area.intersection(new Rectangle(0, 0, width, height));
+        if (clipped.isEmpty()) {
+            return null;
+        }
+
+        int[] newLabel = new int[count];
+        Arrays.fill(newLabel, -1);
+        int[] cropLabels = new int[clipped.width * clipped.height];
+        int cropCount = 0;
+
+        for (int y = 0; y < clipped.height; y++) {
+            for (int x = 0; x < clipped.width; x++) {
+                int label = labels[(clipped.y + y) * width + clipped.x + x];
+                if (newLabel[label] < 0) {
+                    newLabel[label] = cropCount++;
+                }
+                cropLabels[y * clipped.width + x] = newLabel[label];
+            }
+        }
+
+        return new SlicSuperpixels(clipped.width, clipped.height, cropLabels, cropCount);
+    }
+
+    /**
+     * Returns the width of the labeled image.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the labeled image.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the superpixel of each pixel; the array shall not be modified.
+     *
+     * @return the labels in row major order, in the range [0, count)
+     */
+    public int[] getLabels() {
+        return labels;
+    }
+
+    /**
+     * Returns the number of superpixels.
+     *
+     * @return the number of superpixels
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Convert the sRGB colors to CIELAB (D65 white).
+     *
+     * @return the L, a and b channels, in row major order
+     */
+    private static float[][] toLab(int[] argb) {
+        float[] linear = new float[256];
+        for (int value = 0; value < 256; value++) {
+            double channel = value / 255.0;
+            linear[value] = (float) ((channel <= 0.04045) ? channel / 12.92 : Math.pow((channel + 0.055) / 1.055, 2.4));
+        }
+
+        float[][] lab = new float[3][argb.length];
+        forEachBand(argb.length, (start, end) -> {
+            for (int index = start; index < end; index++) {
+                float red = linear[(argb[index] >> 16) & 0xFF];
+                float green = linear[(argb[index] >> 8) & 0xFF];
+                float blue = linear[argb[index] & 0xFF];
+
+                float fx = labFunction((0.4124f * red + 0.3576f * green + 0.1805f * blue) / 0.95047f);
+                float fy = labFunction(0.2126f * red + 0.7152f * green + 0.0722f * blue);
+                float fz = labFunction((0.0193f * red + 0.1192f * green + 0.9505f * blue) / 1.08883f);
+
+                lab[0][index] = 116.0f * fy - 16.0f;
+                lab[1][index] = 500.0f * (fx - fy);
+                lab[2][index] = 200.0f * (fy - fz);
+            }
+        });
+        return lab;
+    }
+
+    /**
+     * The nonlinear function of the CIELAB conversion.
+     */
+    private static float labFunction(float value) {
+        return (value > 0.008856f) ? (float) Math.cbrt(value) : 7.787f * value + 16.0f / 116.0f;
+    }
+
+    /**
+     * Give a new label to each connected region of the same superpixel; the
+     * regions smaller than the minimum size get the label of the region
+     * before them.
+     *
+     * @return the connected superpixels
+     */
+    private static SlicSuperpixels enforceConnectivity(int width, int height, int[] labels, int minSize) {
+        int[] newLabels = new int[labels.length];
+        Arrays.fill(newLabels, -1);
+        int[] region = new int[labels.length];
+        int count = 0;
+
+        for (int start = 0; start < labels.length; start++) {
+            if (newLabels[start] >= 0) {
+                continue;
+            }
+
+            // a small region is merged into the labeled region left of it or above it
+            int adjacentLabel = -1;
+            if (start % width > 0) {
+                adjacentLabel = newLabels[start - 1];
+            } else if (start >= width) {
+                adjacentLabel = newLabels[start - width];
+            }
+
+            newLabels[start] = count;
+            region[0] = start;
+            int size = 1;
+
+            for (int pos = 0; pos < size; pos++) {
+                int pixel = region[pos];
+                int x = pixel % width;
+                size = visit(labels, newLabels, region, size, pixel, x + 1 < width ? pixel + 1 : -1, count);
+                size = visit(labels, newLabels, region, size, pixel, x > 0 ? pixel - 1 : -1, count);
+                size = visit(labels, newLabels, region, size, pixel, pixel + width < labels.length ? pixel + width : -1, count);
+                size = visit(labels, newLabels, region, size, pixel, pixel >= width ? pixel - width : -1, count);
+            }
+
+            if ((size < minSize) && (adjacentLabel >= 0)) {
+                for (int pos = 0; pos < size; pos++) {
+                    newLabels[region[pos]] = adjacentLabel;
+                }
+            } else {
+                count++;
+            }
+        }
+
+        return new SlicSuperpixels(width, height, newLabels, count);
+    }
+
+    /**
+     * Add the neighbour to the region if it has the same superpixel as the
+     * pixel and it was not labeled yet.
+     *
+     * @return the new size of the region
+     */
+    private static int visit(int[] labels, int[] newLabels, int[] region, int size, int pixel, int neighbour, int label) {
+        if ((neighbour >= 0) && (newLabels[neighbour] < 0) && (labels[neighbour] == labels[pixel])) {
+            newLabels[neighbour] = label;
+            region[size] = neighbour;
+            return size + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Split the interval [0, size) in bands and run the task for each band, in
+     * parallel.
+     */
+    private static void forEachBand(int size, BandTask task) {
+        int noBands = (size + BAND_SIZE - 1) / BAND_SIZE;
+        IntStream.range(0, noBands).parallel()
+                .forEach(band -> task.run(band * BAND_SIZE, Math.min(size, (band + 1) * BAND_SIZE)));
+    }
+
+    /**
+     * The processing of a band of lines or pixels.
+     */
+    @FunctionalInterface
+    private interface BandTask {
+
+        /**
+         * Process the band [start, end).
+         *
+         * @param start the first index of the band
+         * @param end   the index after the last one of the band
+         */
+        void run(int start, int end);
+    }
+
+    /**
+     * The cluster centers, one per cell of a regular grid: position and color.
+     */
+    private static class Clusters {
+
+        private final int cols;
+        private final int rows;
+        private final int width;
+        private final int height;
+        private final float[][] lab;
+        private final float[] centerX;
+        private final float[] centerY;
+        private final float[][] centerLab;
+        private final float spatialFactor;
+
+        /**
+         * Place the centers in the middle of the grid cells.
+         */
+        Clusters(int cols, int rows, int width, int height, float[][] lab) {
+            this.cols = cols;
+            this.rows = rows;
+            this.width = width;
+            this.height = height;
+            this.lab = lab;
+
+            int nbClusters = cols * rows;
+            centerX = new float[nbClusters];
+            centerY = new float[nbClusters];
+            centerLab = new float[3][nbClusters];
+
+            float stepX = (float) width / cols;
+            float stepY = (float) height / rows;
+            spatialFactor = (COMPACTNESS * COMPACTNESS) / (stepX * stepY);
+
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    int cluster = row * cols + col;
+                    int x = Math.min(width - 1, (int) ((col + 0.5f) * stepX));
+                    int y = Math.min(height - 1, (int) ((row + 0.5f) * stepY));
+                    centerX[cluster] = x;
+                    centerY[cluster] = y;
+                    for (int channel = 0; channel < 3; channel++) {
+                        centerLab[channel][cluster] = lab[channel][y * width + x];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Assign each pixel of the lines [yStart, yEnd) to the nearest center
+         * of the 3x3 grid cells around it.
+         */
+        void assign(int[] labels, int yStart, int yEnd) {
+            for (int y = yStart; y < yEnd; y++) {
+                int row = Math.min(rows - 1, y * rows / height);
+                for (int x = 0; x < width; x++) {
+                    int col = Math.min(cols - 1, x * cols / width);
+                    int index = y * width + x;
+                    float bestDistance = Float.MAX_VALUE;
+                    int best = row * cols + col;
+
+                    for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                        for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                            int cluster = r * cols + c;
+                            float dl = lab[0][index] - centerLab[0][cluster];
+                            float da = lab[1][index] - centerLab[1][cluster];
+                            float db = lab[2][index] - centerLab[2][cluster];
+                            float dx = x - centerX[cluster];
+                            float dy = y - centerY[cluster];
+                            float distance = dl * dl + da * da + db * db + (dx * dx + dy * dy) * spatialFactor;
+
+                            if (distance < bestDistance) {
+                                bestDistance = distance;
+                                best = cluster;
+                            }
+                        }
+                    }
+
+                    labels[index] = best;
+                }
+            }
+        }
+
+        /**
+         * Move each center to the mean of its pixels; the centers without
+         * pixels stay in place.
+         */
+        void update(int[] labels) {
+            int nbClusters = centerX.length;
+            double[] sums = new double[5 * nbClusters];
+            int[] sizes = new int[nbClusters];
+
+            for (int index = 0; index < labels.length; index++) {
+                int offset = 5 * labels[index];
+                sums[offset] += index % width;
+                sums[offset + 1] += index / width;
+                sums[offset + 2] += lab[0][index];
+                sums[offset + 3] += lab[1][index];
+                sums[offset + 4] += lab[2][index];
+                sizes[labels[index]]++;
+            }
+
+            for (int cluster = 0; cluster < nbClusters; cluster++) {
+                if (sizes[cluster] > 0) {
+                    int offset = 5 * cluster;
+                    centerX[cluster] = (float) (sums[offset] / sizes[cluster]);
+                    centerY[cluster] = (float) (sums[offset + 1] / sizes[cluster]);
+                    centerLab[0][cluster] = (float) (sums[offset + 2] / sizes[cluster]);
+                    centerLab[1][cluster] = (float) (sums[offset + 3] / sizes[cluster]);
+                    centerLab[2][cluster] = (float) (sums[offset + 4] / sizes[cluster]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import common.ConstantsLabeling;
+import commonsegmentation.ScribbleInfo;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Segmentation of a crop in two steps: first the superpixels are labeled from
+ * the scribbles, then only the pixels around the border of the labeled object
+ * are segmented by the engine.
+ * <p>
+ * The superpixels touched by scribbles of a single label are seeds; each other
+ * superpixel gets the label of the seed nearest to it on the graph of
+ * neighbouring superpixels, where the length of an edge grows with the color
+ * difference of the superpixels (geodesic distance). The superpixels touched
+ * by both labels are always refined.
+ * <p>
+ * The engine sees the labels of the superpixels as the initial map, so far
+ * from the border the labeling of the superpixels is the final result.
+ *
+ * @author Olimpia Popica
+ */
+public class SuperpixelSegmentation {
+
+    /**
+     * The half width of the band refined by the engine, in pixels; the object
+     * border can be inside a superpixel, at most half of its size away from
+     * the superpixel border.
+     */
+    private static final int BAND_RADIUS = SlicSuperpixels.DEFAULT_SIZE / 2;
+
+    /**
+     * The length added to each edge of the superpixel graph, so the nearer
+     * seed wins among the seeds of similar color.
+     */
+    private static final float EDGE_LENGTH = 1.0f;
+
+    /**
+     * The label of a superpixel which was not decided yet.
+     */
+    private static final byte UNKNOWN = -1;
+
+    /**
+     * The engine refining the border of the object.
+     */
+    private final SegmentationEngine engine;
+
+    /**
+     * The image to be segmented.
+     */
+    private final BufferedImage image;
+
+    /**
+     * The scribbles drawn by the user.
+     */
+    private final List<ScribbleInfo> scribbles;
+
+    /**
+     * The superpixels of the image.
+     */
+    private final SlicSuperpixels superpixels;
+
+    /**
+     * The time, in milliseconds, spent for labeling the superpixels.
+     */
+    private long labelTime;
+
+    /**
+     * The time, in milliseconds, spent for the refinement.
+     */
+    private long refineTime;
+
+    /**
+     * Initialise the superpixel segmentation.
+     *
+     * @param engine      the engine refining the border of the object
+     * @param image       the image to be segmented
+     * @param scribbles   the scribbles drawn by the user
+     * @param superpixels the superpixels of the image; they must have the size
+     *                    of the image
+     */
+    public SuperpixelSegmentation(SegmentationEngine engine, BufferedImage image, List<ScribbleInfo> scribbles, SlicSuperpixels superpixels) {
+        this.engine = engine;
+        this.image = image;
+        this.scribbles = scribbles;
+        this.superpixels = superpixels;
+    }
+
+    /**
+     * Run the segmentation.
+     *
+     * @return the map of the segmented object, indexed [x][y]
+     */
+    public byte[][] run() {
+        long start = System.currentTimeMillis();
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] labels = superpixels.getLabels();
+        int count = superpixels.getCount();
+
+        // count the scribbles of each label in each superpixel
+        int[] objVotes = new int[count];
+        int[] bgVotes = new int[count];
+        for (ScribbleInfo scribble : scribbles) {
+            int x = scribble.getImgPosX();
+            int y = scribble.getImgPosY();
+            if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+                continue;
+            }
+
+            if (scribble.getDrawingType() == ConstantsLabeling.ACTION_TYPE_OBJECT) {
+                objVotes[labels[y * width + x]]++;
+            } else if (scribble.getDrawingType() == ConstantsLabeling.ACTION_TYPE_BACKGROUND) {
+                bgVotes[labels[y * width + x]]++;
+            }
+        }
+
+        if ((Arrays.stream(objVotes).sum() == 0) || (Arrays.stream(bgVotes).sum() == 0)) {
+            // without seeds for both labels there is nothing to propagate
+            labelTime = System.currentTimeMillis() - start;
+            return engine.runMattingAlgo(image, scribbles);
+        }
+
+        float[][] meanColors = computeMeanColors(labels, count);
+        byte[] spLabels = new byte[count];
+        boolean[] conflicts = new boolean[count];
+        for (int sp = 0; sp < count; sp++) {
+            conflicts[sp] = (objVotes[sp] > 0) && (bgVotes[sp] > 0);
+            if (conflicts[sp] || ((objVotes[sp] == 0) && (bgVotes[sp] == 0))) {
+                spLabels[sp] = UNKNOWN;
+            } else {
+                spLabels[sp] = (byte) ((objVotes[sp] > 0) ? 1 : 0);
+            }
+        }
+
+        propagateLabels(buildAdjacency(labels, count), meanColors, spLabels);
+
+        byte[][] initialMap = new byte[width][height];
+        byte[][] band = new byte[width][height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sp = labels[y * width + x];
+                initialMap[x][y] = (byte) ((spLabels[sp] == 1) ? 1 : 0);
+                band[x][y] = (byte) (conflicts[sp] ? 1 : 0);
+            }
+        }
+        addBorderBand(initialMap, band);
+
+        labelTime = System.currentTimeMillis() - start;
+        start = System.currentTimeMillis();
+
+        byte[][] result = engine.refineMattingAlgo(image, scribbles, initialMap, band);
+
+        refineTime = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * Returns the time spent for labeling the superpixels.
+     *
+     * @return the time in milliseconds
+     */
+    public long getLabelTime() {
+        return labelTime;
+    }
+
+    /**
+     * Returns the time spent for the refinement.
+     *
+     * @return the time in milliseconds
+     */
+    public long getRefineTime() {
+        return refineTime;
+    }
+
+    /**
+     * Compute the mean color of each superpixel.
+     *
+     * @return the red, green and blue means, indexed by superpixel
+     */
+    private float[][] computeMeanColors(int[] labels, int count) {
+        int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        float[][] means = new float[3][count];
+        int[] sizes = new int[count];
+
+        for (int index = 0; index < argb.length; index++) {
+            int sp = labels[index];
+            means[0][sp] += (argb[index] >> 16) & 0xFF;
+            means[1][sp] += (argb[index] >> 8) & 0xFF;
+            means[2][sp] += argb[index] & 0xFF;
+            sizes[sp]++;
+        }
+
+        for (int sp = 0; sp < count; sp++) {
+            for (int channel = 0; channel < 3; channel++) {
+                means[channel][sp] /= Math.max(1, sizes[sp]);
+            }
+        }
+        return means;
+    }
+
+    /**
+     * Build the graph of the neighbouring superpixels, in compressed form: the
+     * neighbours of superpixel sp are adjacency[1][adjacency[0][sp]] to
+     * adjacency[1][adjacency[0][sp + 1] - 1].
+     *
+     * @return the offsets and the neighbours
+     */
+    private int[][] buildAdjacency(int[] labels, int count) {
+        int width = image.getWidth();
+        long[] pairs = new long[16];
+        int nbPairs = 0;
+
+        for (int index = 0; index < labels.length; index++) {
+            int right = ((index + 1) % width != 0) ? labels[index + 1] : labels[index];
+            int down = (index + width < labels.length) ? labels[index + width] : labels[index];
+
+            for (int neighbour : new int[]{right, down}) {
+                if (neighbour != labels[index]) {
+                    if (nbPairs == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, 2 * nbPairs);
+                    }
+                    int first = Math.min(neighbour, labels[index]);
+                    int second = Math.max(neighbour, labels[index]);
+                    pairs[nbPairs++] = ((long) first << 32) | second;
+                }
+            }
+        }
+
+        long[] edges = Arrays.stream(pairs, 0, nbPairs).sorted().distinct().toArray();
+
+        int[] offsets = new int[count + 1];
+        for (long edge : edges) {
+            offsets[(int) (edge >>> 32) + 1]++;
+            offsets[(int) edge + 1]++;
+        }
+        for (int sp = 0; sp < count; sp++) {
+            offsets[sp + 1] += offsets[sp];
+        }
+
+        int[] neighbours = new int[2 * edges.length];
+        int[] fill = Arrays.copyOf(offsets, count);
+        for (long edge : edges) {
+            int first = (int) (edge >>> 32);
+            int second = (int) edge;
+            neighbours[fill[first]++] = second;
+            neighbours[fill[second]++] = first;
+        }
+
+        return new int[][]{offsets, neighbours};
+    }
+
+    /**
+     * Give to each unknown superpixel the label of the nearest seed, with
+     * Dijkstra's algorithm on the superpixel graph.
+     */
+    private static void propagateLabels(int[][] adjacency, float[][] meanColors, byte[] spLabels) {
+        int count = spLabels.length;
+        float[] distances = new float[count];
+        Arrays.fill(distances, Float.MAX_VALUE);
+        byte[] labels = new byte[count];
+        LongHeap heap = new LongHeap();
+
+        for (int sp = 0; sp < count; sp++) {
+            if (spLabels[sp] != UNKNOWN) {
+                distances[sp] = 0.0f;
+                labels[sp] = spLabels[sp];
+                heap.push(0.0f, sp);
+            }
+        }
+
+        while (!heap.isEmpty()) {
+            long entry = heap.pop();
+            int sp = (int) entry;
+            if (Float.intBitsToFloat((int) (entry >>> 32)) > distances[sp]) {
+                continue;
+            }
+
+            for (int pos = adjacency[0][sp]; pos < adjacency[0][sp + 1]; pos++) {
+                int neighbour = adjacency[1][pos];
+                float dr = meanColors[0][sp] - meanColors[0][neighbour];
+                float dg = meanColors[1][sp] - meanColors[1][neighbour];
+                float db = meanColors[2][sp] - meanColors[2][neighbour];
+                float distance = distances[sp] + EDGE_LENGTH + (float) Math.sqrt(dr * dr + dg * dg + db * db);
+
+                if (distance < distances[neighbour]) {
+                    distances[neighbour] = distance;
+                    labels[neighbour] = labels[sp];
+                    heap.push(distance, neighbour);
+                }
+            }
+        }
+
+        System.arraycopy(labels, 0, spLabels, 0, count);
+    }
+
+    /**
+     * Add to the band the pixels at most BAND_RADIUS steps away from the
+     * border of the initial object, with a breadth first search started from
+     * the border; only the pixels of the band are visited.
+     */
+    private static void addBorderBand(byte[][] initialMap, byte[][] band) {
+        int width = initialMap.length;
+        int height = initialMap[0].length;
+        int[] distances = new int[width * height];
+        int[] queue = new int[width * height];
+        int queueEnd = 0;
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                boolean border = ((x + 1 < width) && (initialMap[x + 1][y] != initialMap[x][y]))
+                        || ((x > 0) && (initialMap[x - 1][y] != initialMap[x][y]))
+                        || ((y + 1 < height) && (initialMap[x][y + 1] != initialMap[x][y]))
+                        || ((y > 0) && (initialMap[x][y - 1] != initialMap[x][y]));
+                if (border) {
+                    distances[x * height + y] = 1;
+                    queue[queueEnd++] = x * height + y;
+                }
+            }
+        }
+
+        for (int queueStart = 0; queueStart < queueEnd; queueStart++) {
+            int pixel = queue[queueStart];
+            int x = pixel / height;
+            int y = pixel % height;
+            band[x][y] = 1;
+
+            if (distances[pixel] < BAND_RADIUS) {
+                // 8-connectivity, so the band has the same width in all directions (chessboard distance)
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                    for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                        int neighbour = nx * height + ny;
+                        if (distances[neighbour] == 0) {
+                            distances[neighbour] = distances[pixel] + 1;
+                            queue[queueEnd++] = neighbour;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Binary min-heap of (distance, superpixel) entries packed in longs: the
+     * bits of the non-negative distance keep their order as integers.
+     */
+    private static class LongHeap {
+
+        private long[] entries = new long[64];
+        private int size;
+
+        void push(float distance, int sp) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, 2 * size);
+            }
+
+            long entry = ((long) Float.floatToIntBits(distance) << 32) | sp;
+            int pos = size++;
+            while ((pos > 0) && (entries[(pos - 1) / 2] > entry)) {
+                entries[pos] = entries[(pos - 1) / 2];
+                pos = (pos - 1) / 2;
+            }
+            entries[pos] = entry;
+        }
+
+        long pop() {
+            long top = entries[0];
+            long last = entries[--size];
+            int pos = 0;
+
+            while (2 * pos + 1 < size) {
+                int child = 2 * pos + 1;
+                if ((child + 1 < size) && (entries[child + 1] < entries[child])) {
+                    child++;
+                }
+                if (entries[child] >= last) {
+                    break;
+                }
+                entries[pos] = entries[child];
+                pos = child;
+            }
+            entries[pos] = last;
+            return top;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
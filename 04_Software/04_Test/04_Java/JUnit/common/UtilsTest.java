@@ -31,6 +31,8 @@ import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -637,4 +639,75 @@ public class UtilsTest{
         assertEquals(expResult, result);
     }
     
+
+    /**
+     * Write a small RGB image, with a different color for each pixel, in a
+     * temporary file.
+     */
+    private static File writeTestFrame(BufferedImage image) throws IOException {
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, new Color(x * 40, y * 60, 200).getRGB());
+            }
+        }
+
+        File file = File.createTempFile("frame", ".png");
+        file.deleteOnExit();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    @Test
+    public void testReadFrame1() throws IOException {
+        System.out.println("readFrame: read an RGB image without flip and mirror, expects the same pixels in the 3 byte BGR format");
+        BufferedImage image = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        File file = writeTestFrame(image);
+
+        BufferedImage result = Utils.readFrame(file.getPath(), false, false);
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, result.getType());
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(image.getRGB(x, y), result.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testReadFrame2() throws IOException {
+        System.out.println("readFrame: read an RGB image flipped vertically and mirrored, expects the pixels of the opposite corner");
+        BufferedImage image = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        File file = writeTestFrame(image);
+
+        BufferedImage result = Utils.readFrame(file.getPath(), true, true);
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, result.getType());
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(image.getRGB(x, y), result.getRGB(image.getWidth() - 1 - x, image.getHeight() - 1 - y));
+            }
+        }
+    }
+
+    @Test
+    public void testReadFrame3() throws IOException {
+        System.out.println("readFrame: read an RGB image only flipped vertically, expects the rows in reverse order");
+        BufferedImage image = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        File file = writeTestFrame(image);
+
+        BufferedImage result = Utils.readFrame(file.getPath(), true, false);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(image.getRGB(x, y), result.getRGB(x, image.getHeight() - 1 - y));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadFrame4() throws IOException {
+        System.out.println("readFrame: read a file which is not an image, expects an IOException");
+        File file = File.createTempFile("frame", ".png");
+        file.deleteOnExit();
+
+        Utils.readFrame(file.getPath(), false, false);
+    }
+
 }
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.actions;
+
+import gui.support.CropObject;
+import java.awt.Rectangle;
+import java.util.concurrent.CompletableFuture;
+import library.ScribbleStore;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class CropMattingTest {
+
+    public CropMattingTest() {
+    }
+
+    /**
+     * Create a crop with a few scribbles and without object map.
+     */
+    private static CropObject newCrop() {
+        CropObject crop = new CropObject();
+        crop.setPositionOrig(new Rectangle(10, 20, 30, 40));
+
+        ScribbleStore scribbles = new ScribbleStore();
+        scribbles.append(3, 4, 1);
+        scribbles.append(20, 30, 0);
+        crop.setScribbleStore(scribbles);
+        return crop;
+    }
+
+    /**
+     * Start the segmentation of the crop, as the matting for the object list does.
+     */
+    private static GUIController.CropMatting startMatting(CropObject crop) {
+        return new GUIController.CropMatting(null, crop, crop.computeInputSignature(), new CompletableFuture<>());
+    }
+
+    /**
+     * Test of isSuperseded method, of class GUIController.CropMatting.
+     */
+    @Test
+    public void testIsSuperseded_01() {
+        final String testDescription = "----------isSuperseded_01----------\n"
+                + " Summary: Test of isSuperseded() method, of class GUIController.CropMatting\n"
+                + " Description: Start the segmentation of a crop and do not change the crop.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The result of the segmentation can be merged.\n";
+        System.out.println(testDescription);
+
+        CropObject crop = newCrop();
+        assertFalse(startMatting(crop).isSuperseded());
+
+        crop.setObjectMap(new byte[30][40], crop.computeInputSignature());
+        assertFalse(startMatting(crop).isSuperseded());
+    }
+
+    /**
+     * Test of isSuperseded method, of class GUIController.CropMatting.
+     */
+    @Test
+    public void testIsSuperseded_02() {
+        final String testDescription = "----------isSuperseded_02----------\n"
+                + " Summary: Test of isSuperseded() method, of class GUIController.CropMatting\n"
+                + " Description: Start the segmentation of a crop, then edit the crop before the result is merged:"
+                + " save a new object map, change the scribbles, move the crop.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The result of the segmentation is out of date after each edit.\n";
+        System.out.println(testDescription);
+
+        // the user saves the crop edit with the same scribbles
+        CropObject crop = newCrop();
+        GUIController.CropMatting cropMatting = startMatting(crop);
+        crop.setObjectMap(new byte[30][40], crop.computeInputSignature());
+        assertTrue(cropMatting.isSuperseded());
+
+        // the user draws one more scribble
+        crop = newCrop();
+        cropMatting = startMatting(crop);
+        crop.getScribbleStore().append(5, 5, 1);
+        assertTrue(cropMatting.isSuperseded());
+
+        // the crop is moved
+        crop = newCrop();
+        cropMatting = startMatting(crop);
+        crop.setPositionOrig(new Rectangle(11, 20, 30, 40));
+        assertTrue(cropMatting.isSuperseded());
+    }
+}
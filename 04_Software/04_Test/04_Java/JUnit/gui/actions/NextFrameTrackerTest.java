@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.actions;
+
+import gui.support.ObjectBBox;
+import gui.support.Objects;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class NextFrameTrackerTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    /**
+     * The maximum time to wait for the tracking, in milliseconds.
+     */
+    private static final long TIMEOUT = 10_000L;
+
+    public NextFrameTrackerTest() {
+    }
+
+    /**
+     * Create an image of blurred random noise, shifted by the given offset;
+     * the noise has no periodic pattern, so it matches itself only at the
+     * true displacement.
+     */
+    private static BufferedImage createFrame(int dx, int dy) {
+        Random random = new Random(42);
+        int[] noise = new int[(WIDTH + 40) * (HEIGHT + 40)];
+        for (int index = 0; index < noise.length; index++) {
+            noise[index] = random.nextInt(256);
+        }
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // the frame is a window of a larger noise image, so the shifted frame has no empty area
+                int sum = 0;
+                for (int wy = -2; wy <= 2; wy++) {
+                    for (int wx = -2; wx <= 2; wx++) {
+                        sum += noise[(y - dy + 20 + wy) * (WIDTH + 40) + x - dx + 20 + wx];
+                    }
+                }
+                int value = sum / 25;
+                image.setRGB(x, y, (value << 16) | (value << 8) | value);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Write the image in a temporary file.
+     */
+    private static String writeFrame(BufferedImage image) throws IOException {
+        File file = File.createTempFile("nextFrame", ".png");
+        file.deleteOnExit();
+        ImageIO.write(image, "png", file);
+        return file.getPath();
+    }
+
+    /**
+     * Create a box object.
+     */
+    private static ObjectBBox createObject(long id, Rectangle box) {
+        ObjectBBox obj = new ObjectBBox();
+        obj.setObjectId(id);
+        obj.setOuterBBox(box);
+        return obj;
+    }
+
+    /**
+     * Wait until the given number of objects are predicted in the frame.
+     */
+    private static Map<Long, Rectangle> waitPredictions(NextFrameTracker tracker, String framePath, int noObjects) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        Map<Long, Rectangle> predictions = tracker.getPredictions(framePath);
+        while ((predictions.size() < noObjects) && (System.currentTimeMillis() < end)) {
+            Thread.sleep(10);
+            predictions = tracker.getPredictions(framePath);
+        }
+        return predictions;
+    }
+
+    /**
+     * Test of track method, of class NextFrameTracker.
+     */
+    @Test
+    public void testTrack_01() throws IOException, InterruptedException {
+        final String testDescription = "----------track_01----------\n"
+                + " Summary: Test of track(BufferedImage, String, boolean, boolean, List, boolean) method, of class NextFrameTracker\n"
+                + " Description: Predict two boxes, one of them touching the border, in a next frame shifted by (-6, 5).\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The predicted boxes are the boxes moved by (-6, 5).\n";
+        System.out.println(testDescription);
+
+        String nextPath = writeFrame(createFrame(-6, 5));
+        NextFrameTracker tracker = new NextFrameTracker();
+        tracker.track(createFrame(0, 0), nextPath, false, false,
+                Arrays.<Objects>asList(createObject(1, new Rectangle(50, 40, 32, 32)), createObject(2, new Rectangle(10, 0, 24, 24))), false);
+
+        Map<Long, Rectangle> predictions = waitPredictions(tracker, nextPath, 2);
+        assertEquals(new Rectangle(44, 45, 32, 32), predictions.get(1L));
+        assertEquals(new Rectangle(4, 5, 24, 24), predictions.get(2L));
+        assertTrue(tracker.getPredictions("other.png").isEmpty());
+    }
+
+    /**
+     * Test of track method, of class NextFrameTracker.
+     */
+    @Test
+    public void testTrack_02() throws IOException, InterruptedException {
+        final String testDescription = "----------track_02----------\n"
+                + " Summary: Test of track(BufferedImage, String, boolean, boolean, List, boolean) method, of class NextFrameTracker\n"
+                + " Description: The next frame, shifted by (4, 3) as displayed, is stored flipped and mirrored on the\n"
+                + "              disk; the frames are displayed flipped and mirrored.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The next frame is read in the displayed orientation and the box moves by (4, 3).\n";
+        System.out.println(testDescription);
+
+        // flipping and mirroring the displayed frame gives the frame on the disk
+        BufferedImage stored = createFrame(4, 3);
+        common.Utils.flipVerticallyImage(stored);
+        common.Utils.mirrorImage(stored);
+        String nextPath = writeFrame(stored);
+
+        NextFrameTracker tracker = new NextFrameTracker();
+        tracker.track(createFrame(0, 0), nextPath, true, true, Arrays.<Objects>asList(createObject(7, new Rectangle(60, 50, 32, 32))), false);
+
+        Map<Long, Rectangle> predictions = waitPredictions(tracker, nextPath, 1);
+        assertEquals(new Rectangle(64, 53, 32, 32), predictions.get(7L));
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.actions;
+
+import gui.support.CropObject;
+import gui.support.ObjectScribble;
+import gui.support.Objects;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import library.NccTracker;
+import library.ScribbleStore;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class ScribblePropagatorTest {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 160;
+
+    /**
+     * The shift of the whole frame.
+     */
+    private static final Point FRAME_SHIFT = new Point(7, 5);
+
+    public ScribblePropagatorTest() {
+    }
+
+    /**
+     * Create a gray image of blurred random noise; it has no periodic pattern,
+     * so the matching has a single maximum.
+     */
+    private static int[] createNoise(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] noise = new int[width * height];
+        for (int index = 0; index < noise.length; index++) {
+            noise[index] = random.nextInt(256);
+        }
+
+        int[] blurred = new int[noise.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int dy = -2; dy <= 2; dy++) {
+                    for (int dx = -2; dx <= 2; dx++) {
+                        if ((x + dx >= 0) && (x + dx < width) && (y + dy >= 0) && (y + dy < height)) {
+                            sum += noise[(y + dy) * width + x + dx];
+                            count++;
+                        }
+                    }
+                }
+                blurred[y * width + x] = sum / count;
+            }
+        }
+        return blurred;
+    }
+
+    /**
+     * Convert the gray values to an image.
+     */
+    private static BufferedImage toImage(int[] gray) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value = gray[y * WIDTH + x];
+                image.setRGB(x, y, (value << 16) | (value << 8) | value);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Create the next frame: the previous frame shifted by FRAME_SHIFT, with
+     * new noise in the uncovered area. If a block is given, its content moves
+     * with the block shift instead.
+     */
+    private static int[] shiftFrame(int[] prev, Rectangle block, Point blockShift) {
+        int[] next = createNoise(WIDTH, HEIGHT, 99);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int srcX = x - FRAME_SHIFT.x;
+                int srcY = y - FRAME_SHIFT.y;
+                if ((srcX >= 0) && (srcY >= 0)) {
+                    next[y * WIDTH + x] = prev[srcY * WIDTH + srcX];
+                }
+            }
+        }
+
+        if (block != null) {
+            for (int y = block.y; y < block.y + block.height; y++) {
+                for (int x = block.x; x < block.x + block.width; x++) {
+                    next[(y + blockShift.y) * WIDTH + x + blockShift.x] = prev[y * WIDTH + x];
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Create an object with one 64x64 crop at (60, 50), holding a background
+     * scribble in its first block and an object scribble in its last block.
+     */
+    private static ObjectScribble createObject() {
+        ObjectScribble obj = new ObjectScribble();
+        obj.setObjectId(3);
+        obj.setObjectClass("car");
+        obj.getUserPreference().setFilterIterations(2);
+
+        CropObject crop = new CropObject();
+        crop.setPositionOrig(new Rectangle(60, 50, 64, 64));
+        ScribbleStore scribbles = new ScribbleStore();
+        scribbles.append(5, 5, 0);
+        scribbles.append(40, 40, 1);
+        crop.setScribbleStore(scribbles);
+
+        obj.addToCropList(crop);
+        obj.setOuterBBox(new Rectangle(crop.getPositionOrig()));
+        return obj;
+    }
+
+    /**
+     * Propagate the object from the previous frame to the next one.
+     */
+    private static List<ObjectScribble> propagate(ObjectScribble obj, int[] prev, int[] next) {
+        NccTracker tracker = new NccTracker(toImage(prev), toImage(next));
+        List<ObjectScribble> snapshot = ScribblePropagator.snapshot(Arrays.<Objects>asList(obj));
+        return new ScribblePropagator(tracker, WIDTH, HEIGHT).propagate(snapshot, Collections.<Long, Rectangle>emptyMap());
+    }
+
+    /**
+     * Test of propagate method, of class ScribblePropagator.
+     */
+    @Test
+    public void testPropagate_01() {
+        final String testDescription = "----------propagate_01----------\n"
+                + " Summary: Test of propagate(List, Map) method, of class ScribblePropagator\n"
+                + " Description: Propagate a crop to a frame which is the previous one shifted by (7, 5).\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The crop moves by (7, 5), the scribbles keep their position in the crop and\n"
+                + "                  the object keeps its id, class and a copy of its preferences.\n";
+        System.out.println(testDescription);
+
+        int[] prev = createNoise(WIDTH, HEIGHT, 1);
+        ObjectScribble obj = createObject();
+        List<ObjectScribble> propagated = propagate(obj, prev, shiftFrame(prev, null, null));
+
+        assertEquals(1, propagated.size());
+        ObjectScribble next = propagated.get(0);
+        assertEquals(3, next.getObjectId());
+        assertEquals("car", next.getObjectClass());
+        assertEquals(new Rectangle(67, 55, 64, 64), next.getOuterBBox());
+
+        // the preferences are copied, not shared
+        assertNotSame(obj.getUserPreference(), next.getUserPreference());
+        assertEquals(2, next.getUserPreference().getFilterIterations());
+        next.getUserPreference().setFilterIterations(5);
+        assertEquals(2, obj.getUserPreference().getFilterIterations());
+
+        assertEquals(1, next.getCropList().size());
+        CropObject crop = next.getCropList().get(0);
+        assertEquals(new Rectangle(67, 55, 64, 64), crop.getPositionOrig());
+
+        ScribbleStore scribbles = crop.getScribbleStore();
+        assertEquals(2, scribbles.size());
+        assertEquals(5, scribbles.getX(0));
+        assertEquals(5, scribbles.getY(0));
+        assertEquals(0, scribbles.getLabel(0));
+        assertEquals(40, scribbles.getX(1));
+        assertEquals(40, scribbles.getY(1));
+        assertEquals(1, scribbles.getLabel(1));
+
+        // the input object is not changed
+        assertEquals(new Rectangle(60, 50, 64, 64), obj.getCropList().get(0).getPositionOrig());
+    }
+
+    /**
+     * Test of propagate method, of class ScribblePropagator.
+     */
+    @Test
+    public void testPropagate_02() {
+        final String testDescription = "----------propagate_02----------\n"
+                + " Summary: Test of propagate(List, Map) method, of class ScribblePropagator\n"
+                + " Description: Propagate a crop to a frame shifted by (7, 5), where the content of the last\n"
+                + "              32x32 block of the crop moved by (10, 3) instead.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The crop moves by (7, 5); the scribble of the first block keeps its position\n"
+                + "                  in the crop and the one of the last block moves by (3, -2) relative to the crop.\n";
+        System.out.println(testDescription);
+
+        int[] prev = createNoise(WIDTH, HEIGHT, 2);
+        Rectangle lastBlock = new Rectangle(92, 82, 32, 32);
+        List<ObjectScribble> propagated = propagate(createObject(), prev, shiftFrame(prev, lastBlock, new Point(10, 3)));
+
+        assertEquals(1, propagated.size());
+        CropObject crop = propagated.get(0).getCropList().get(0);
+        assertEquals(new Rectangle(67, 55, 64, 64), crop.getPositionOrig());
+
+        ScribbleStore scribbles = crop.getScribbleStore();
+        assertEquals(2, scribbles.size());
+        assertEquals(5, scribbles.getX(0));
+        assertEquals(5, scribbles.getY(0));
+        assertEquals(43, scribbles.getX(1));
+        assertEquals(38, scribbles.getY(1));
+    }
+
+    /**
+     * Test of propagate method, of class ScribblePropagator.
+     */
+    @Test
+    public void testPropagate_03() {
+        final String testDescription = "----------propagate_03----------\n"
+                + " Summary: Test of propagate(List, Map) method, of class ScribblePropagator\n"
+                + " Description: Propagate a crop to a frame of unrelated noise, without a predicted box.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The crop cannot be matched, so the object is not propagated.\n";
+        System.out.println(testDescription);
+
+        List<ObjectScribble> propagated = propagate(createObject(), createNoise(WIDTH, HEIGHT, 3), createNoise(WIDTH, HEIGHT, 4));
+
+        assertTrue(propagated.isEmpty());
+    }
+}
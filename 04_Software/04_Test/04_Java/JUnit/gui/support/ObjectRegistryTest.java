@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package gui.support;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class ObjectRegistryTest {
+
+    public ObjectRegistryTest() {
+    }
+
+    /**
+     * Create a bounding box object with the specified id.
+     */
+    private static Objects newObject(long objId) {
+        Objects obj = new ObjectBBox();
+        obj.setObjectId(objId);
+        return obj;
+    }
+
+    /**
+     * Test of getById and containsId methods, of class ObjectRegistry.
+     */
+    @Test
+    public void testGetById_01() {
+        final String testDescription = "----------getById_01----------\n"
+                + " Summary: Test of getById(long) method, of class ObjectRegistry\n"
+                + " Description: Add many objects, remove some of them and search them by id.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The remaining objects are found, the removed ones are not found.\n";
+        System.out.println(testDescription);
+
+        ObjectRegistry instance = new ObjectRegistry();
+        for (long objId = 1; objId <= 1000; objId++) {
+            instance.add(newObject(objId * 7L));
+        }
+
+        // remove the objects with an even index
+        instance.removeIf(obj -> (obj.getObjectId() / 7L) % 2 == 0);
+
+        assertEquals(500, instance.size());
+        for (long objId = 1; objId <= 1000; objId++) {
+            Objects result = instance.getById(objId * 7L);
+            if (objId % 2 == 0) {
+                assertNull(result);
+                assertFalse(instance.containsId(objId * 7L));
+            } else {
+                assertNotNull(result);
+                assertEquals(objId * 7L, result.getObjectId());
+            }
+        }
+    }
+
+    /**
+     * Test of getById method, of class ObjectRegistry.
+     */
+    @Test
+    public void testGetById_02() {
+        final String testDescription = "----------getById_02----------\n"
+                + " Summary: Test of getById(long) method, of class ObjectRegistry\n"
+                + " Description: Two objects share the same id; the first one is removed.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The first object is returned while it is in the list, then the second one.\n";
+        System.out.println(testDescription);
+
+        Objects first = newObject(5L);
+        Objects second = newObject(5L);
+
+        ObjectRegistry instance = new ObjectRegistry();
+        instance.add(first);
+        instance.add(second);
+        assertSame(first, instance.getById(5L));
+
+        instance.remove(first);
+        assertSame(second, instance.getById(5L));
+    }
+
+    /**
+     * Test of getMaxId method, of class ObjectRegistry.
+     */
+    @Test
+    public void testGetMaxId_01() {
+        final String testDescription = "----------getMaxId_01----------\n"
+                + " Summary: Test of getMaxId() method, of class ObjectRegistry\n"
+                + " Description: Add objects, remove the one with the maximum id, change an id.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The maximum id follows the content of the list; 0 for an empty list.\n";
+        System.out.println(testDescription);
+
+        ObjectRegistry instance = new ObjectRegistry();
+        assertEquals(0L, instance.getMaxId());
+
+        Objects obj = newObject(0L);
+        instance.add(newObject(3L));
+        instance.add(newObject(9L));
+        instance.add(obj);
+        assertEquals(9L, instance.getMaxId());
+
+        instance.remove(1);
+        assertEquals(3L, instance.getMaxId());
+
+        obj.setObjectId(12L);
+        instance.updateId(obj, 0L);
+        assertEquals(12L, instance.getMaxId());
+        assertSame(obj, instance.getById(12L));
+        assertFalse(instance.containsId(0L));
+
+        instance.clear();
+        assertEquals(0L, instance.getMaxId());
+    }
+}
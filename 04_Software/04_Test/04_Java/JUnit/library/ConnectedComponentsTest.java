@@ -0,0 +1,276 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class ConnectedComponentsTest {
+
+    public ConnectedComponentsTest() {
+    }
+
+    /**
+     * Count the components of the map and their areas with a flood fill.
+     *
+     * @return the areas of the components, sorted
+     */
+    private static int[] bruteForceAreas(byte[][] objMap, boolean eightConnected) {
+        int width = objMap.length;
+        int height = objMap[0].length;
+        boolean[][] seen = new boolean[width][height];
+        int[] areas = new int[width * height];
+        int count = 0;
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if ((objMap[x][y] == 0) || seen[x][y]) {
+                    continue;
+                }
+
+                Deque<int[]> stack = new ArrayDeque<>();
+                stack.push(new int[]{x, y});
+                seen[x][y] = true;
+                int area = 0;
+
+                while (!stack.isEmpty()) {
+                    int[] pixel = stack.pop();
+                    area++;
+                    for (int dx = -1; dx <= 1; dx++) {
+                        for (int dy = -1; dy <= 1; dy++) {
+                            if (((dx == 0) && (dy == 0)) || (!eightConnected && (dx != 0) && (dy != 0))) {
+                                continue;
+                            }
+                            int nx = pixel[0] + dx;
+                            int ny = pixel[1] + dy;
+                            if ((nx >= 0) && (ny >= 0) && (nx < width) && (ny < height)
+                                    && !seen[nx][ny] && (objMap[nx][ny] == objMap[x][y])) {
+                                seen[nx][ny] = true;
+                                stack.push(new int[]{nx, ny});
+                            }
+                        }
+                    }
+                }
+                areas[count++] = area;
+            }
+        }
+
+        int[] result = Arrays.copyOf(areas, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Generate a random map with the given number of labels.
+     */
+    private static byte[][] randomMap(int width, int height, int noLabels, long seed) {
+        Random rand = new Random(seed);
+        byte[][] objMap = new byte[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                objMap[x][y] = (byte) (rand.nextInt(100) < 45 ? 1 + rand.nextInt(noLabels) : 0);
+            }
+        }
+        return objMap;
+    }
+
+    /**
+     * Return the areas of the components of the labeling, sorted.
+     */
+    private static int[] getAreas(ConnectedComponents instance) {
+        int[] areas = new int[instance.getCount()];
+        for (int comp = 0; comp < areas.length; comp++) {
+            areas[comp] = instance.getArea(comp);
+        }
+        Arrays.sort(areas);
+        return areas;
+    }
+
+    /**
+     * Test of the labeling, of class ConnectedComponents.
+     */
+    @Test
+    public void testLabel_01() {
+        final String testDescription = "----------label_01----------\n"
+                + " Summary: Test of ConnectedComponents(byte[][], boolean) constructor, of class ConnectedComponents\n"
+                + " Description: Label random maps with one and several labels, with 4 and 8 connectivity.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The components and their areas are the same as the ones found by a flood fill.\n";
+        System.out.println(testDescription);
+
+        int[][] sizes = {{1, 1}, {1, 9}, {9, 1}, {17, 13}, {120, 90}};
+
+        for (int[] size : sizes) {
+            for (int noLabels = 1; noLabels <= 3; noLabels++) {
+                byte[][] objMap = randomMap(size[0], size[1], noLabels, size[0] * 31L + noLabels);
+
+                assertArrayEquals(bruteForceAreas(objMap, true), getAreas(new ConnectedComponents(objMap, true)));
+                assertArrayEquals(bruteForceAreas(objMap, false), getAreas(new ConnectedComponents(objMap, false)));
+            }
+        }
+    }
+
+    /**
+     * Test of the component statistics, of class ConnectedComponents.
+     */
+    @Test
+    public void testStatistics_01() {
+        final String testDescription = "----------statistics_01----------\n"
+                + " Summary: Test of getComponent, getValue, getArea, getBounds and getCentroid methods, of class ConnectedComponents\n"
+                + " Description: Label a map with a diagonal pair of pixels and a block of another label.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The diagonal pixels are one component with 8-connectivity and two with 4-connectivity;"
+                + " the block has its own value, area, box and centroid.\n";
+        System.out.println(testDescription);
+
+        byte[][] objMap = new byte[8][6];
+        objMap[0][0] = 1;
+        objMap[1][1] = 1;
+        for (int x = 4; x < 7; x++) {
+            for (int y = 2; y < 6; y++) {
+                objMap[x][y] = 2;
+            }
+        }
+
+        ConnectedComponents instance = new ConnectedComponents(objMap);
+        assertEquals(2, instance.getCount());
+        assertEquals(-1, instance.getComponent(3, 3));
+        assertEquals(instance.getComponent(0, 0), instance.getComponent(1, 1));
+
+        int block = instance.getComponent(5, 3);
+        assertEquals(2, instance.getValue(block));
+        assertEquals(12, instance.getArea(block));
+        assertEquals(new Rectangle(4, 2, 3, 4), instance.getBounds(block));
+        assertEquals(new Point2D.Double(5.0, 3.5), instance.getCentroid(block));
+
+        int diagonal = instance.getComponent(0, 0);
+        assertEquals(1, instance.getValue(diagonal));
+        assertEquals(new Rectangle(0, 0, 2, 2), instance.getBounds(diagonal));
+
+        assertEquals(3, new ConnectedComponents(objMap, false).getCount());
+    }
+
+    /**
+     * Test of getOuterBounds method, of class ConnectedComponents.
+     */
+    @Test
+    public void testGetOuterBounds_01() {
+        final String testDescription = "----------getOuterBounds_01----------\n"
+                + " Summary: Test of getOuterBounds(int) method, of class ConnectedComponents\n"
+                + " Description: Compute the outer box of a map with a big object and a stray pixel, for several sizes.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The stray pixel is part of the box only when it is big enough; null is returned"
+                + " when no component is big enough.\n";
+        System.out.println(testDescription);
+
+        byte[][] objMap = new byte[20][20];
+        for (int x = 2; x < 6; x++) {
+            for (int y = 3; y < 5; y++) {
+                objMap[x][y] = 1;
+            }
+        }
+        objMap[15][18] = 1;
+
+        ConnectedComponents instance = new ConnectedComponents(objMap);
+        assertEquals(new Rectangle(2, 3, 14, 16), instance.getOuterBounds(1));
+        assertEquals(new Rectangle(2, 3, 4, 2), instance.getOuterBounds(2));
+        assertEquals(new Rectangle(2, 3, 4, 2), instance.getOuterBounds(8));
+        assertNull(instance.getOuterBounds(9));
+    }
+
+    /**
+     * Test of removeSmallComponents method, of class ConnectedComponents.
+     */
+    @Test
+    public void testRemoveSmallComponents_01() {
+        final String testDescription = "----------removeSmallComponents_01----------\n"
+                + " Summary: Test of removeSmallComponents(byte[][], int) method, of class ConnectedComponents\n"
+                + " Description: Remove the small components of random maps.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The removed components are counted, the kept ones are not changed and no small"
+                + " component is left.\n";
+        System.out.println(testDescription);
+
+        int minSize = 4;
+
+        for (long seed = 0; seed < 5; seed++) {
+            byte[][] objMap = randomMap(60, 45, 2, seed);
+            int[] areas = bruteForceAreas(objMap, true);
+            int expRemoved = 0;
+            int expKeptPixels = 0;
+            for (int area : areas) {
+                if (area < minSize) {
+                    expRemoved++;
+                } else {
+                    expKeptPixels += area;
+                }
+            }
+
+            assertEquals(expRemoved, ConnectedComponents.removeSmallComponents(objMap, minSize));
+
+            int[] keptAreas = bruteForceAreas(objMap, true);
+            int keptPixels = 0;
+            for (int area : keptAreas) {
+                assertTrue(area >= minSize);
+                keptPixels += area;
+            }
+            assertEquals(expKeptPixels, keptPixels);
+        }
+    }
+
+    /**
+     * Test of removeSmallComponents method, of class ConnectedComponents.
+     */
+    @Test
+    public void testRemoveSmallComponents_02() {
+        final String testDescription = "----------removeSmallComponents_02----------\n"
+                + " Summary: Test of removeSmallComponents(byte[][], int) method, of class ConnectedComponents\n"
+                + " Description: Check there is no exception when processing null or empty input.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: No errors or exceptions shall occur and nothing is removed.\n";
+        System.out.println(testDescription);
+
+        assertEquals(0, ConnectedComponents.removeSmallComponents(null, 5));
+        assertEquals(0, ConnectedComponents.removeSmallComponents(new byte[0][0], 5));
+        assertEquals(0, ConnectedComponents.removeSmallComponents(new byte[3][0], 5));
+        assertEquals(0, new ConnectedComponents(new byte[4][4]).getCount());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Polygon;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class ContourTracerTest {
+
+    public ContourTracerTest() {
+    }
+
+    /**
+     * Create a random map: each pixel is object with the given probability.
+     */
+    private static byte[][] createRandomMap(Random random, int width, int height, double density) {
+        byte[][] map = new byte[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                map[x][y] = (byte) ((random.nextDouble() < density) ? 1 : 0);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Create a map of random blobs, with holes: the random map is smoothed by
+     * a majority vote in a 5x5 window.
+     */
+    private static byte[][] createBlobMap(Random random, int width, int height) {
+        byte[][] noise = createRandomMap(random, width, height, 0.5);
+        byte[][] map = new byte[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int votes = 0;
+                int count = 0;
+                for (int dx = -2; dx <= 2; dx++) {
+                    for (int dy = -2; dy <= 2; dy++) {
+                        if ((x + dx >= 0) && (x + dx < width) && (y + dy >= 0) && (y + dy < height)) {
+                            votes += noise[x + dx][y + dy];
+                            count++;
+                        }
+                    }
+                }
+                map[x][y] = (byte) ((2 * votes > count) ? 1 : 0);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Rasterize the contours back: with the even-odd rule, the pixels inside
+     * a hole are covered by both the outer contour and the hole.
+     */
+    private static byte[][] rasterize(List<Polygon> contours, int width, int height) {
+        byte[][] map = new byte[width][height];
+        for (Polygon contour : contours) {
+            PolygonRasterizer.rasterize(contour, PolygonRasterizer.FillRule.EVEN_ODD, width, height, (y, xStart, xEnd) -> {
+                for (int x = xStart; x < xEnd; x++) {
+                    map[x][y] ^= 1;
+                }
+            });
+        }
+        return map;
+    }
+
+    /**
+     * Check that the contours of the map enclose exactly its object pixels.
+     */
+    private static void assertRoundTrip(byte[][] objMap) {
+        int width = objMap.length;
+        int height = objMap[0].length;
+        List<Polygon> contours = ContourTracer.traceContours(objMap);
+
+        byte[][] result = rasterize(contours, width, height);
+        long noObjPixels = 0;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                assertEquals("pixel " + x + ", " + y, (objMap[x][y] != 0) ? 1 : 0, result[x][y]);
+                noObjPixels += (objMap[x][y] != 0) ? 1 : 0;
+            }
+        }
+
+        // the holes have negative areas
+        long area = 0;
+        for (Polygon contour : contours) {
+            area += ContourTracer.signedArea(contour);
+        }
+        assertEquals(noObjPixels, area);
+    }
+
+    /**
+     * Test of traceContours method, of class ContourTracer.
+     */
+    @Test
+    public void testTraceContours_01() {
+        final String testDescription = "----------traceContours_01----------\n"
+                + " Summary: Test of traceContours(byte[][]) method, of class ContourTracer\n"
+                + " Description: Trace the contours of random blobs, with holes, and rasterize them back.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The rasterized contours give back the map and the signed areas add up to the\n"
+                + "                  number of object pixels.\n";
+        System.out.println(testDescription);
+
+        Random random = new Random(17);
+        for (int test = 0; test < 20; test++) {
+            assertRoundTrip(createBlobMap(random, 20 + random.nextInt(60), 20 + random.nextInt(60)));
+        }
+    }
+
+    /**
+     * Test of traceContours method, of class ContourTracer.
+     */
+    @Test
+    public void testTraceContours_02() {
+        final String testDescription = "----------traceContours_02----------\n"
+                + " Summary: Test of traceContours(byte[][]) method, of class ContourTracer\n"
+                + " Description: Trace the contours of random pixel noise, full of diagonal configurations and\n"
+                + "              pixels on the border of the map, and rasterize them back.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The rasterized contours give back the map.\n";
+        System.out.println(testDescription);
+
+        Random random = new Random(23);
+        for (int test = 0; test < 20; test++) {
+            assertRoundTrip(createRandomMap(random, 1 + random.nextInt(40), 1 + random.nextInt(40), random.nextDouble()));
+        }
+    }
+
+    /**
+     * Test of traceContours method, of class ContourTracer.
+     */
+    @Test
+    public void testTraceContours_03() {
+        final String testDescription = "----------traceContours_03----------\n"
+                + " Summary: Test of traceContours(byte[][]) method, of class ContourTracer\n"
+                + " Description: Trace a 3x3 square with a hole of one pixel.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: One clockwise outer contour and one counter-clockwise hole.\n";
+        System.out.println(testDescription);
+
+        byte[][] map = new byte[5][5];
+        for (int x = 1; x < 4; x++) {
+            for (int y = 1; y < 4; y++) {
+                map[x][y] = 1;
+            }
+        }
+        map[2][2] = 0;
+
+        List<Polygon> contours = ContourTracer.traceContours(map);
+        assertEquals(2, contours.size());
+        assertEquals(9, ContourTracer.signedArea(contours.get(0)));
+        assertFalse(ContourTracer.isHole(contours.get(0)));
+        assertEquals(-1, ContourTracer.signedArea(contours.get(1)));
+        assertTrue(ContourTracer.isHole(contours.get(1)));
+        assertEquals(4, contours.get(0).npoints);
+        assertEquals(4, contours.get(1).npoints);
+        assertRoundTrip(map);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class MajorityFilterTest {
+
+    public MajorityFilterTest() {
+    }
+
+    /**
+     * Compute the expected output of one filtering step, by counting the pixels
+     * of each window.
+     */
+    private static byte[][] bruteForceFilter(byte[][] objMap, int windowSize) {
+        int width = objMap.length;
+        int height = objMap[0].length;
+        int radius = windowSize / 2;
+        byte[][] result = new byte[width][height];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int sum = 0;
+                int count = 0;
+                for (int i = Math.max(0, x - radius); i <= Math.min(width - 1, x + radius); i++) {
+                    for (int j = Math.max(0, y - radius); j <= Math.min(height - 1, y + radius); j++) {
+                        sum += (objMap[i][j] != 0) ? 1 : 0;
+                        count++;
+                    }
+                }
+                result[x][y] = (byte) ((2 * sum >= count) ? 1 : 0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Generate a random binary map.
+     */
+    private static byte[][] randomMap(int width, int height, long seed) {
+        Random rand = new Random(seed);
+        byte[][] objMap = new byte[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                objMap[x][y] = (byte) (rand.nextInt(100) < 55 ? 1 : 0);
+            }
+        }
+        return objMap;
+    }
+
+    /**
+     * Test of filter method, of class MajorityFilter.
+     */
+    @Test
+    public void testFilter_01() {
+        final String testDescription = "----------filter_01----------\n"
+                + " Summary: Test of filter(byte[][], int, int) method, of class MajorityFilter\n"
+                + " Description: Filter random maps with different window sizes, one and two iterations.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The output is the same as counting the pixels of each window.\n";
+        System.out.println(testDescription);
+
+        MajorityFilter instance = new MajorityFilter();
+        int[][] sizes = {{1, 1}, {2, 7}, {17, 9}, {40, 33}, {300, 260}};
+        int[] windows = {1, 3, 5, 9};
+
+        for (int[] size : sizes) {
+            for (int window : windows) {
+                byte[][] objMap = randomMap(size[0], size[1], size[0] * 31L + window);
+                byte[][] expResult = bruteForceFilter(bruteForceFilter(objMap, window), window);
+
+                instance.filter(objMap, window, 2);
+                assertArrayEquals(expResult, objMap);
+            }
+        }
+    }
+
+    /**
+     * Test of filter method, of class MajorityFilter.
+     */
+    @Test
+    public void testFilter_02() {
+        final String testDescription = "----------filter_02----------\n"
+                + " Summary: Test of filter(byte[][]) method, of class MajorityFilter\n"
+                + " Description: Check there is no exception when processing null or empty input.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: No errors or exceptions shall occur.\n";
+        System.out.println(testDescription);
+
+        MajorityFilter instance = new MajorityFilter();
+        instance.filter(null);
+        instance.filter(new byte[0][0]);
+        instance.filter(new byte[3][0]);
+    }
+}
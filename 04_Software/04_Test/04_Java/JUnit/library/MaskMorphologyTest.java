@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class MaskMorphologyTest {
+
+    public MaskMorphologyTest() {
+    }
+
+    /**
+     * Compute the erosion / dilation by checking the whole window of each
+     * pixel; the pixels outside the map are ignored.
+     */
+    private static byte[][] bruteForce(byte[][] objMap, int radius, boolean erode) {
+        int width = objMap.length;
+        int height = objMap[0].length;
+        byte[][] result = new byte[width][height];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                boolean value = erode;
+                for (int i = Math.max(0, x - radius); i <= Math.min(width - 1, x + radius); i++) {
+                    for (int j = Math.max(0, y - radius); j <= Math.min(height - 1, y + radius); j++) {
+                        value = erode ? (value && objMap[i][j] != 0) : (value || objMap[i][j] != 0);
+                    }
+                }
+                result[x][y] = (byte) (value ? 1 : 0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copy the map.
+     */
+    private static byte[][] copy(byte[][] objMap) {
+        byte[][] result = new byte[objMap.length][];
+        for (int x = 0; x < objMap.length; x++) {
+            result[x] = objMap[x].clone();
+        }
+        return result;
+    }
+
+    /**
+     * Test of erode and dilate methods, of class MaskMorphology.
+     */
+    @Test
+    public void testErodeDilate_01() {
+        final String testDescription = "----------erodeDilate_01----------\n"
+                + " Summary: Test of erode(byte[][], int) and dilate(byte[][], int) methods, of class MaskMorphology\n"
+                + " Description: Erode and dilate random maps of different sizes with different radiuses.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The output is the same as checking the whole window of each pixel.\n";
+        System.out.println(testDescription);
+
+        MaskMorphology instance = new MaskMorphology();
+        Random rand = new Random(7);
+        int[][] sizes = {{1, 1}, {5, 3}, {23, 31}, {64, 50}};
+
+        for (int[] size : sizes) {
+            for (int radius = 1; radius <= 6; radius++) {
+                byte[][] objMap = new byte[size[0]][size[1]];
+                for (byte[] column : objMap) {
+                    for (int y = 0; y < column.length; y++) {
+                        column[y] = (byte) (rand.nextInt(10) < 7 ? 1 : 0);
+                    }
+                }
+
+                byte[][] eroded = copy(objMap);
+                instance.erode(eroded, radius);
+                assertArrayEquals(bruteForce(objMap, radius, true), eroded);
+
+                byte[][] dilated = copy(objMap);
+                instance.dilate(dilated, radius);
+                assertArrayEquals(bruteForce(objMap, radius, false), dilated);
+            }
+        }
+    }
+
+    /**
+     * Test of fillHoles and removeSmallComponents methods, of class
+     * MaskMorphology.
+     */
+    @Test
+    public void testFillHolesRemoveSmall_01() {
+        final String testDescription = "----------fillHolesRemoveSmall_01----------\n"
+                + " Summary: Test of fillHoles(byte[][]) and removeSmallComponents(byte[][], int) methods, of class MaskMorphology\n"
+                + " Description: A ring with a hole, an open ring touching the border and an isolated pixel.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The closed hole is filled, the open one is not; the isolated pixel is removed.\n";
+        System.out.println(testDescription);
+
+        byte[][] objMap = new byte[12][8];
+        // closed ring 5x5 with a 3x3 hole
+        for (int x = 1; x <= 5; x++) {
+            for (int y = 1; y <= 5; y++) {
+                objMap[x][y] = (byte) ((x == 1 || x == 5 || y == 1 || y == 5) ? 1 : 0);
+            }
+        }
+        // U shape open to the bottom border
+        objMap[8][5] = 1;
+        objMap[8][6] = 1;
+        objMap[8][7] = 1;
+        objMap[9][5] = 1;
+        objMap[10][5] = 1;
+        objMap[10][6] = 1;
+        objMap[10][7] = 1;
+        // isolated pixel
+        objMap[10][1] = 1;
+
+        MaskMorphology instance = new MaskMorphology();
+        instance.fillHoles(objMap);
+
+        assertEquals(1, objMap[3][3]);
+        assertEquals(0, objMap[9][6]);
+        assertEquals(0, objMap[0][0]);
+
+        instance.removeSmallComponents(objMap, 2);
+        assertEquals(0, objMap[10][1]);
+        assertEquals(1, objMap[8][7]);
+        assertEquals(1, objMap[1][1]);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class NccTrackerTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    public NccTrackerTest() {
+    }
+
+    /**
+     * Create a gray image of blurred random noise; unlike a periodic texture,
+     * it matches itself only at the true displacement.
+     */
+    private static int[] createNoise(long seed) {
+        Random random = new Random(seed);
+        int[] noise = new int[WIDTH * HEIGHT];
+        for (int index = 0; index < noise.length; index++) {
+            noise[index] = random.nextInt(256);
+        }
+
+        int[] blurred = new int[noise.length];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int dy = -2; dy <= 2; dy++) {
+                    for (int dx = -2; dx <= 2; dx++) {
+                        if ((x + dx >= 0) && (x + dx < WIDTH) && (y + dy >= 0) && (y + dy < HEIGHT)) {
+                            sum += noise[(y + dy) * WIDTH + x + dx];
+                            count++;
+                        }
+                    }
+                }
+                blurred[y * WIDTH + x] = sum / count;
+            }
+        }
+        return blurred;
+    }
+
+    /**
+     * Shift the image by the given offset; the uncovered area gets new noise.
+     */
+    private static int[] shift(int[] image, int dx, int dy) {
+        int[] shifted = createNoise(1000 + dx * 31 + dy);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int srcX = x - dx;
+                int srcY = y - dy;
+                if ((srcX >= 0) && (srcX < WIDTH) && (srcY >= 0) && (srcY < HEIGHT)) {
+                    shifted[y * WIDTH + x] = image[srcY * WIDTH + srcX];
+                }
+            }
+        }
+        return shifted;
+    }
+
+    /**
+     * Convert the gray values to an image.
+     */
+    private static BufferedImage toImage(int[] gray) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value = gray[y * WIDTH + x];
+                image.setRGB(x, y, (value << 16) | (value << 8) | value);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Create the tracker from the noise image to the image shifted by the
+     * given offset.
+     */
+    private static NccTracker createTracker(long seed, int dx, int dy) {
+        int[] prev = createNoise(seed);
+        return new NccTracker(toImage(prev), toImage(shift(prev, dx, dy)));
+    }
+
+    /**
+     * Test of track method, of class NccTracker.
+     */
+    @Test
+    public void testTrack_01() {
+        final String testDescription = "----------track_01----------\n"
+                + " Summary: Test of track(Rectangle, int) method, of class NccTracker\n"
+                + " Description: Track boxes of several sizes in a frame shifted by known offsets.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The predicted boxes are the boxes moved by the offset, with a high score.\n";
+        System.out.println(testDescription);
+
+        int[][] offsets = {{6, -4}, {-11, 9}, {0, 0}, {15, 13}};
+        Rectangle[] boxes = {new Rectangle(50, 40, 30, 30), new Rectangle(60, 30, 64, 48), new Rectangle(40, 50, 12, 16)};
+
+        for (int[] offset : offsets) {
+            NccTracker tracker = createTracker(offset[0] * 7 + offset[1], offset[0], offset[1]);
+            for (Rectangle box : boxes) {
+                Rectangle expected = new Rectangle(box.x + offset[0], box.y + offset[1], box.width, box.height);
+                assertEquals(expected, tracker.track(box, 16));
+                assertTrue(tracker.getLastScore() > 0.95);
+            }
+        }
+    }
+
+    /**
+     * Test of track method, of class NccTracker.
+     */
+    @Test
+    public void testTrack_02() {
+        final String testDescription = "----------track_02----------\n"
+                + " Summary: Test of track(Rectangle, int) method, of class NccTracker\n"
+                + " Description: Track boxes touching the border of the frame or partly outside of it, moving\n"
+                + "              towards the border and away from it.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The boxes keep their size and move by the offset of the frame; the box whose\n"
+                + "                  content leaves the frame is not predicted.\n";
+        System.out.println(testDescription);
+
+        NccTracker towardsTopLeft = createTracker(5, -3, -4);
+        assertEquals(new Rectangle(0, 0, 24, 24), towardsTopLeft.track(new Rectangle(3, 4, 24, 24), 16));
+        assertEquals(new Rectangle(133, 92, 24, 24), towardsTopLeft.track(new Rectangle(136, 96, 24, 24), 16));
+
+        NccTracker awayFromTopLeft = createTracker(6, 5, 7);
+        assertEquals(new Rectangle(5, 7, 24, 24), awayFromTopLeft.track(new Rectangle(0, 0, 24, 24), 16));
+        assertEquals(new Rectangle(-1, 27, 30, 30), awayFromTopLeft.track(new Rectangle(-6, 20, 30, 30), 16));
+
+        // the content leaves the frame: the template cannot be placed, but no wrong box is predicted
+        assertNull(awayFromTopLeft.track(new Rectangle(136, 100, 30, 30), 16));
+    }
+
+    /**
+     * Test of track method, of class NccTracker.
+     */
+    @Test
+    public void testTrack_03() {
+        final String testDescription = "----------track_03----------\n"
+                + " Summary: Test of track(Rectangle, int) method, of class NccTracker\n"
+                + " Description: Track a box in an unrelated frame and a box almost completely outside the frame.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: No box is predicted.\n";
+        System.out.println(testDescription);
+
+        NccTracker unrelated = new NccTracker(toImage(createNoise(7)), toImage(createNoise(8)));
+        assertNull(unrelated.track(new Rectangle(50, 40, 30, 30), 16));
+        assertTrue(unrelated.getLastScore() < NccTracker.MIN_SCORE);
+
+        NccTracker shifted = createTracker(9, 2, 2);
+        assertNull(shifted.track(new Rectangle(WIDTH - 2, 40, 30, 30), 16));
+    }
+
+    /**
+     * Test of findDisplacement method, of class NccTracker.
+     */
+    @Test
+    public void testFindDisplacement_01() {
+        final String testDescription = "----------findDisplacement_01----------\n"
+                + " Summary: Test of findDisplacement(Rectangle, Point, int) method, of class NccTracker\n"
+                + " Description: Find the displacement of a box in a frame shifted by (12, 7), around the\n"
+                + "              expected displacement (10, 8), with margins which include it or not.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The displacement is found when it is inside the margin around the expected one.\n";
+        System.out.println(testDescription);
+
+        NccTracker tracker = createTracker(10, 12, 7);
+        assertEquals(new Point(12, 7), tracker.findDisplacement(new Rectangle(40, 30, 32, 32), new Point(10, 8), 4));
+
+        Point outside = tracker.findDisplacement(new Rectangle(40, 30, 32, 32), new Point(-10, -8), 4);
+        assertTrue((outside == null) || !outside.equals(new Point(12, 7)));
+    }
+}
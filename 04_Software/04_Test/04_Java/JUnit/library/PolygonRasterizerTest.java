@@ -0,0 +1,243 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import java.awt.Polygon;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class PolygonRasterizerTest {
+
+    public PolygonRasterizerTest() {
+    }
+
+    /**
+     * Check the rasterized map against the geometric test of the pixel centers.
+     * The pixels having the center on the border are skipped, since both
+     * results are valid for them.
+     */
+    private static void checkAgainstGeometry(byte[][] objMap, Polygon polygon, PolygonRasterizer.FillRule rule) {
+        Path2D.Double path = new Path2D.Double((rule == PolygonRasterizer.FillRule.EVEN_ODD) ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO);
+        path.moveTo(polygon.xpoints[0], polygon.ypoints[0]);
+        for (int i = 1; i < polygon.npoints; i++) {
+            path.lineTo(polygon.xpoints[i], polygon.ypoints[i]);
+        }
+        path.closePath();
+
+        for (int x = 0; x < objMap.length; x++) {
+            for (int y = 0; y < objMap[0].length; y++) {
+                if (isOnBorder(polygon, x + 0.5, y + 0.5)) {
+                    continue;
+                }
+                boolean expInside = path.contains(x + 0.5, y + 0.5);
+                assertEquals("pixel " + x + "," + y, expInside ? 1 : 0, objMap[x][y]);
+            }
+        }
+    }
+
+    /**
+     * Check if the point is on one of the edges of the polygon.
+     */
+    private static boolean isOnBorder(Polygon polygon, double x, double y) {
+        for (int i = 0; i < polygon.npoints; i++) {
+            int next = (i + 1) % polygon.npoints;
+            if (Line2D.ptSegDistSq(polygon.xpoints[i], polygon.ypoints[i],
+                    polygon.xpoints[next], polygon.ypoints[next], x, y) < 1e-9) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generate a random polygon, possibly self-intersecting, with vertices in
+     * the given range.
+     */
+    private static Polygon randomPolygon(Random rand, int noPoints, int min, int max) {
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < noPoints; i++) {
+            polygon.addPoint(min + rand.nextInt(max - min), min + rand.nextInt(max - min));
+        }
+        return polygon;
+    }
+
+    /**
+     * Test of fill method, of class PolygonRasterizer.
+     */
+    @Test
+    public void testFill_01() {
+        final String testDescription = "----------fill_01----------\n"
+                + " Summary: Test of fill(byte[][], Polygon, FillRule, byte) method, of class PolygonRasterizer\n"
+                + " Description: Fill an axis aligned rectangle and a triangle.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Exactly the pixels having the center inside the polygon are filled and counted.\n";
+        System.out.println(testDescription);
+
+        byte[][] objMap = new byte[12][12];
+        Polygon rectangle = new Polygon(new int[]{2, 7, 7, 2}, new int[]{3, 3, 8, 8}, 4);
+        assertEquals(25, PolygonRasterizer.fill(objMap, rectangle, PolygonRasterizer.FillRule.EVEN_ODD, (byte) 1));
+        for (int x = 0; x < 12; x++) {
+            for (int y = 0; y < 12; y++) {
+                boolean expInside = (x >= 2) && (x < 7) && (y >= 3) && (y < 8);
+                assertEquals(expInside ? 1 : 0, objMap[x][y]);
+            }
+        }
+
+        objMap = new byte[12][12];
+        Polygon triangle = new Polygon(new int[]{1, 11, 1}, new int[]{1, 1, 11}, 3);
+        PolygonRasterizer.fill(objMap, triangle, PolygonRasterizer.FillRule.NON_ZERO, (byte) 1);
+        checkAgainstGeometry(objMap, triangle, PolygonRasterizer.FillRule.NON_ZERO);
+    }
+
+    /**
+     * Test of fill method, of class PolygonRasterizer.
+     */
+    @Test
+    public void testFill_02() {
+        final String testDescription = "----------fill_02----------\n"
+                + " Summary: Test of fill(byte[][], Polygon, FillRule, byte) method, of class PolygonRasterizer\n"
+                + " Description: Fill a pentagram with both fill rules.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The center of the star is empty with the even-odd rule and filled with the"
+                + " non-zero rule; the points of the star are filled by both.\n";
+        System.out.println(testDescription);
+
+        Polygon star = new Polygon(new int[]{20, 32, 1, 39, 8}, new int[]{1, 38, 14, 14, 38}, 5);
+
+        byte[][] evenOdd = new byte[40][40];
+        PolygonRasterizer.fill(evenOdd, star, PolygonRasterizer.FillRule.EVEN_ODD, (byte) 1);
+        checkAgainstGeometry(evenOdd, star, PolygonRasterizer.FillRule.EVEN_ODD);
+        assertEquals(0, evenOdd[20][22]);
+        assertEquals(1, evenOdd[20][6]);
+
+        byte[][] nonZero = new byte[40][40];
+        PolygonRasterizer.fill(nonZero, star, PolygonRasterizer.FillRule.NON_ZERO, (byte) 1);
+        checkAgainstGeometry(nonZero, star, PolygonRasterizer.FillRule.NON_ZERO);
+        assertEquals(1, nonZero[20][22]);
+        assertEquals(1, nonZero[20][6]);
+    }
+
+    /**
+     * Test of fill method, of class PolygonRasterizer.
+     */
+    @Test
+    public void testFill_03() {
+        final String testDescription = "----------fill_03----------\n"
+                + " Summary: Test of fill(byte[][], Polygon, FillRule, byte) method, of class PolygonRasterizer\n"
+                + " Description: Fill random polygons, some of them going outside the map, with both fill rules.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The polygons are clipped to the map and the filled pixels are the ones having"
+                + " the center inside the polygon.\n";
+        System.out.println(testDescription);
+
+        Random rand = new Random(7);
+
+        for (int test = 0; test < 50; test++) {
+            Polygon polygon = randomPolygon(rand, 3 + rand.nextInt(8), -15, 45);
+
+            for (PolygonRasterizer.FillRule rule : PolygonRasterizer.FillRule.values()) {
+                byte[][] objMap = new byte[30][25];
+                int noPixels = PolygonRasterizer.fill(objMap, polygon, rule, (byte) 1);
+                checkAgainstGeometry(objMap, polygon, rule);
+
+                int expPixels = 0;
+                for (byte[] column : objMap) {
+                    for (byte value : column) {
+                        expPixels += value;
+                    }
+                }
+                assertEquals(expPixels, noPixels);
+            }
+        }
+    }
+
+    /**
+     * Test of rasterize method, of class PolygonRasterizer.
+     */
+    @Test
+    public void testRasterize_01() {
+        final String testDescription = "----------rasterize_01----------\n"
+                + " Summary: Test of rasterize(Polygon, FillRule, int, int, SpanConsumer) method, of class PolygonRasterizer\n"
+                + " Description: Rasterize a polygon covering the whole frame and polygons outside the frame.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The spans are clipped to the frame, one per line, from top to bottom;"
+                + " no span is produced for the polygons outside the frame.\n";
+        System.out.println(testDescription);
+
+        Polygon cover = new Polygon(new int[]{-50, 60, 60, -50}, new int[]{-40, -40, 70, 70}, 4);
+        int[] nextLine = new int[1];
+        PolygonRasterizer.rasterize(cover, PolygonRasterizer.FillRule.EVEN_ODD, 10, 8, (y, xStart, xEnd) -> {
+            assertEquals(nextLine[0]++, y);
+            assertEquals(0, xStart);
+            assertEquals(10, xEnd);
+        });
+        assertEquals(8, nextLine[0]);
+
+        Polygon[] outside = {
+            new Polygon(new int[]{-20, -5, -5}, new int[]{0, 0, 8}, 3),
+            new Polygon(new int[]{12, 20, 20}, new int[]{0, 0, 8}, 3),
+            new Polygon(new int[]{0, 10, 10}, new int[]{-9, -9, -1}, 3),
+            new Polygon(new int[]{0, 10, 10}, new int[]{9, 9, 20}, 3)
+        };
+        for (Polygon polygon : outside) {
+            PolygonRasterizer.rasterize(polygon, PolygonRasterizer.FillRule.NON_ZERO, 10, 8,
+                    (y, xStart, xEnd) -> fail("span " + y + " " + xStart + " " + xEnd));
+        }
+    }
+
+    /**
+     * Test of fill method, of class PolygonRasterizer.
+     */
+    @Test
+    public void testFill_04() {
+        final String testDescription = "----------fill_04----------\n"
+                + " Summary: Test of fill(byte[][], Polygon, FillRule, byte) method, of class PolygonRasterizer\n"
+                + " Description: Check there is no exception when processing null, empty or degenerate input.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: No errors or exceptions shall occur and no pixel is filled.\n";
+        System.out.println(testDescription);
+
+        Polygon triangle = new Polygon(new int[]{0, 5, 0}, new int[]{0, 0, 5}, 3);
+        assertEquals(0, PolygonRasterizer.fill(null, triangle, PolygonRasterizer.FillRule.EVEN_ODD, (byte) 1));
+        assertEquals(0, PolygonRasterizer.fill(new byte[0][0], triangle, PolygonRasterizer.FillRule.EVEN_ODD, (byte) 1));
+        assertEquals(0, PolygonRasterizer.fill(new byte[3][0], triangle, PolygonRasterizer.FillRule.EVEN_ODD, (byte) 1));
+        assertEquals(0, PolygonRasterizer.fill(new byte[8][8], null, PolygonRasterizer.FillRule.EVEN_ODD, (byte) 1));
+        assertEquals(0, PolygonRasterizer.fill(new byte[8][8], new Polygon(new int[]{1, 6}, new int[]{1, 6}, 2), PolygonRasterizer.FillRule.EVEN_ODD, (byte) 1));
+        assertEquals(0, PolygonRasterizer.fill(new byte[8][8], new Polygon(new int[]{1, 4, 6}, new int[]{3, 3, 3}, 3), PolygonRasterizer.FillRule.NON_ZERO, (byte) 1));
+    }
+}
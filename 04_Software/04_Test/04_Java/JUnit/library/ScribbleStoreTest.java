@@ -0,0 +1,264 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package library;
+
+import commonsegmentation.ScribbleInfo;
+import java.awt.Rectangle;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class ScribbleStoreTest {
+
+    /**
+     * The number of scribbles of a chunk of the store.
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    public ScribbleStoreTest() {
+    }
+
+    /**
+     * Create a store with the given number of scribbles; the coordinates and
+     * the label are derived from the index, so they can be checked later.
+     */
+    private static ScribbleStore createStore(int noScribbles) {
+        ScribbleStore store = new ScribbleStore();
+        for (int index = 0; index < noScribbles; index++) {
+            store.append(index, 2 * index, index % 2);
+        }
+        return store;
+    }
+
+    /**
+     * Test of append method, of class ScribbleStore.
+     */
+    @Test
+    public void testAppend_01() {
+        final String testDescription = "----------append_01----------\n"
+                + " Summary: Test of append(int, int, int) method, of class ScribbleStore\n"
+                + " Description: Append scribbles with the extreme values of the packed fields.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The coordinates and the labels are read back unchanged.\n";
+        System.out.println(testDescription);
+
+        int[][] scribbles = {{0, 0, 0}, {1, 1, 1}, {Integer.MAX_VALUE, 0xFFFFFF, 255},
+            {-3, 17, 1}, {65535, 16777214, 0}, {1920, 1080, 254}};
+
+        ScribbleStore instance = new ScribbleStore();
+        for (int[] scribble : scribbles) {
+            instance.append(scribble[0], scribble[1], scribble[2]);
+        }
+
+        assertEquals(scribbles.length, instance.size());
+        for (int index = 0; index < scribbles.length; index++) {
+            assertEquals(scribbles[index][0], instance.getX(index));
+            assertEquals(scribbles[index][1], instance.getY(index));
+            assertEquals(scribbles[index][2], instance.getLabel(index));
+        }
+
+        // the erase label (-1) keeps only its low byte
+        instance.append(5, 5, -1);
+        assertEquals(255, instance.getLabel(scribbles.length));
+    }
+
+    /**
+     * Test of append method, of class ScribbleStore.
+     */
+    @Test
+    public void testAppend_02() {
+        final String testDescription = "----------append_02----------\n"
+                + " Summary: Test of append(int, int, int) and forEach methods, of class ScribbleStore\n"
+                + " Description: Append scribbles filling several chunks of the store.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: All the scribbles are kept, in the order they were added.\n";
+        System.out.println(testDescription);
+
+        int noScribbles = 3 * CHUNK_SIZE + 5;
+        ScribbleStore instance = createStore(noScribbles);
+
+        assertEquals(noScribbles, instance.size());
+        int[] next = new int[1];
+        instance.forEach((x, y, label) -> {
+            assertEquals(next[0], x);
+            assertEquals(2 * next[0], y);
+            assertEquals(next[0] % 2, label);
+            next[0]++;
+        });
+        assertEquals(noScribbles, next[0]);
+    }
+
+    /**
+     * Test of removeIf method, of class ScribbleStore.
+     */
+    @Test
+    public void testRemoveIf_01() {
+        final String testDescription = "----------removeIf_01----------\n"
+                + " Summary: Test of removeIf(ScribblePredicate) method, of class ScribbleStore\n"
+                + " Description: Remove every third scribble and a range crossing the chunk boundaries from a store"
+                + " of several chunks, then append again.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The removed scribbles are counted and the remaining ones keep their order,"
+                + " also across the chunk boundaries; the appended scribbles follow them.\n";
+        System.out.println(testDescription);
+
+        int noScribbles = 3 * CHUNK_SIZE + 100;
+        ScribbleStore instance = createStore(noScribbles);
+
+        int rangeStart = CHUNK_SIZE - 10;
+        int rangeEnd = 2 * CHUNK_SIZE + 10;
+        int removed = instance.removeIf((x, y, label) -> ((x % 3) == 0) || ((x >= rangeStart) && (x < rangeEnd)));
+
+        int expKept = 0;
+        for (int x = 0; x < noScribbles; x++) {
+            if (((x % 3) != 0) && ((x < rangeStart) || (x >= rangeEnd))) {
+                assertEquals(x, instance.getX(expKept));
+                assertEquals(2 * x, instance.getY(expKept));
+                assertEquals(x % 2, instance.getLabel(expKept));
+                expKept++;
+            }
+        }
+        assertEquals(expKept, instance.size());
+        assertEquals(noScribbles - expKept, removed);
+
+        // the freed space is reused by the new scribbles
+        instance.append(7, 8, 1);
+        assertEquals(expKept + 1, instance.size());
+        assertEquals(7, instance.getX(expKept));
+        assertEquals(8, instance.getY(expKept));
+        assertEquals(1, instance.getLabel(expKept));
+
+        assertEquals(expKept + 1, instance.removeIf((x, y, label) -> true));
+        assertTrue(instance.isEmpty());
+    }
+
+    /**
+     * Test of eraseRegion method, of class ScribbleStore.
+     */
+    @Test
+    public void testEraseRegion_01() {
+        final String testDescription = "----------eraseRegion_01----------\n"
+                + " Summary: Test of eraseRegion(Rectangle) method, of class ScribbleStore\n"
+                + " Description: Erase the scribbles of a region of a grid of scribbles.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Only the scribbles inside the region are removed.\n";
+        System.out.println(testDescription);
+
+        ScribbleStore instance = new ScribbleStore();
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                instance.append(x, y, 1);
+            }
+        }
+
+        Rectangle region = new Rectangle(2, 3, 4, 5);
+        assertEquals(20, instance.eraseRegion(region));
+        assertEquals(80, instance.size());
+        instance.forEach((x, y, label) -> assertFalse(region.contains(x, y)));
+    }
+
+    /**
+     * Test of copy method, of class ScribbleStore.
+     */
+    @Test
+    public void testCopy_01() {
+        final String testDescription = "----------copy_01----------\n"
+                + " Summary: Test of copy and clear methods, of class ScribbleStore\n"
+                + " Description: Copy a store, then change and clear the original.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The copy has the same scribbles and it is not changed by the original.\n";
+        System.out.println(testDescription);
+
+        ScribbleStore instance = createStore(CHUNK_SIZE + 1);
+        ScribbleStore copy = instance.copy();
+
+        instance.removeIf((x, y, label) -> label == 0);
+        instance.clear();
+        assertTrue(instance.isEmpty());
+
+        assertEquals(CHUNK_SIZE + 1, copy.size());
+        assertEquals(CHUNK_SIZE, copy.getX(CHUNK_SIZE));
+        assertEquals(2 * CHUNK_SIZE, copy.getY(CHUNK_SIZE));
+    }
+
+    /**
+     * Test of toScribbleInfoList and fromScribbleInfoList methods, of class
+     * ScribbleStore.
+     */
+    @Test
+    public void testScribbleInfoList_01() {
+        final String testDescription = "----------scribbleInfoList_01----------\n"
+                + " Summary: Test of toScribbleInfoList and fromScribbleInfoList methods, of class ScribbleStore\n"
+                + " Description: Convert a store to a list of scribbles and back.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The list has the scribbles of the store and the new store is equal to the first one.\n";
+        System.out.println(testDescription);
+
+        ScribbleStore instance = createStore(300);
+        List<ScribbleInfo> scribbleList = instance.toScribbleInfoList();
+
+        assertEquals(300, scribbleList.size());
+        assertEquals(299, scribbleList.get(299).getImgPosX());
+        assertEquals(598, scribbleList.get(299).getImgPosY());
+        assertEquals(1, scribbleList.get(299).getDrawingType());
+
+        ScribbleStore result = ScribbleStore.fromScribbleInfoList(scribbleList);
+        assertEquals(instance.size(), result.size());
+        for (int index = 0; index < result.size(); index++) {
+            assertEquals(instance.getX(index), result.getX(index));
+            assertEquals(instance.getY(index), result.getY(index));
+            assertEquals(instance.getLabel(index), result.getLabel(index));
+        }
+    }
+
+    /**
+     * Test of getX method, of class ScribbleStore.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetX_01() {
+        final String testDescription = "----------getX_01----------\n"
+                + " Summary: Test of getX(int) method, of class ScribbleStore\n"
+                + " Description: Read a scribble removed from the store.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: IndexOutOfBoundsException is thrown, although the chunk still holds the value.\n";
+        System.out.println(testDescription);
+
+        ScribbleStore instance = createStore(10);
+        instance.removeIf((x, y, label) -> x >= 5);
+        instance.getX(5);
+    }
+}
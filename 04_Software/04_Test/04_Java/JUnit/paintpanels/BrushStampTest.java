@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package paintpanels;
+
+import common.Utils;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class BrushStampTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    public BrushStampTest() {
+    }
+
+    /**
+     * The pixels covered by the per-pixel brush which was used before the
+     * spans: every pixel of the brush window marked in the circle mask and
+     * inside the image.
+     */
+    private static boolean[][] maskBrush(int size, int posX, int posY) {
+        boolean[][] covered = new boolean[HEIGHT][WIDTH];
+        byte[][] circleMask = Utils.getCircleMask(size);
+        int win2 = size / 2;
+
+        for (int x = -win2; x < size - win2; x++) {
+            for (int y = -win2; y < size - win2; y++) {
+                int imgX = posX + x;
+                int imgY = posY + y;
+                if ((imgX >= 0) && (imgX < WIDTH) && (imgY >= 0) && (imgY < HEIGHT)
+                        && (circleMask[x + win2][y + win2] == (byte) 1)) {
+                    covered[imgY][imgX] = true;
+                }
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * The pixels covered by the spans of the stamp, clipped to the image the
+     * same way the drawing panel does it.
+     */
+    private static boolean[][] spanBrush(BrushStamp stamp, int posX, int posY) {
+        boolean[][] covered = new boolean[HEIGHT][WIDTH];
+
+        for (int span = 0; span < stamp.getNoSpans(); span++) {
+            int y = posY + stamp.getRowOffset(span);
+            if ((y < 0) || (y >= HEIGHT)) {
+                continue;
+            }
+
+            int xStart = Math.max(0, posX + stamp.getStartOffset(span));
+            int xEnd = Math.min(WIDTH, posX + stamp.getEndOffset(span));
+            for (int x = xStart; x < xEnd; x++) {
+                assertFalse("pixel " + x + "," + y + " is in two spans", covered[y][x]);
+                covered[y][x] = true;
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * Check that both brushes cover the same pixels.
+     */
+    private static void checkCovered(String brush, boolean[][] expCovered, boolean[][] covered) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(brush + ", pixel " + x + "," + y, expCovered[y][x], covered[y][x]);
+            }
+        }
+    }
+
+    /**
+     * Test of the spans of the brush, of class BrushStamp.
+     */
+    @Test
+    public void testSpans_01() {
+        final String testDescription = "----------spans_01----------\n"
+                + " Summary: Test of the spans of the brush, of class BrushStamp\n"
+                + " Description: Stamp brushes which have a circle mask inside the image and across its borders.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: the spans cover the same pixels as the per-pixel brush using the circle mask.\n";
+        System.out.println(testDescription);
+
+        int[] sizes = {3, 4, 7, 12, 16, 25, 30};
+        int[][] positions = {{32, 24}, {0, 0}, {WIDTH - 1, HEIGHT - 2}, {5, HEIGHT - 1}};
+
+        for (int size : sizes) {
+            BrushStamp stamp = new BrushStamp(size);
+            assertEquals(size, stamp.getSize());
+
+            for (int[] pos : positions) {
+                checkCovered("size " + size + " at " + pos[0] + "," + pos[1],
+                        maskBrush(size, pos[0], pos[1]), spanBrush(stamp, pos[0], pos[1]));
+            }
+        }
+    }
+
+    /**
+     * Test of the spans of the brush, of class BrushStamp.
+     */
+    @Test
+    public void testSpans_02() {
+        final String testDescription = "----------spans_02----------\n"
+                + " Summary: Test of the spans of the brush, of class BrushStamp\n"
+                + " Description: Stamp brushes larger than the circle masks in the middle of the image.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: the spans cover the pixels of the window whose center is inside the inscribed circle.\n";
+        System.out.println(testDescription);
+
+        int[] sizes = {31, 40, 45};
+        int posX = 32;
+        int posY = 24;
+
+        for (int size : sizes) {
+            int win2 = size / 2;
+            double center = (size - 1) * 0.5;
+            boolean[][] expCovered = new boolean[HEIGHT][WIDTH];
+
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    double dx = col - center;
+                    double dy = row - center;
+                    int y = posY + row - win2;
+                    int x = posX + col - win2;
+                    if ((y >= 0) && (y < HEIGHT) && (dx * dx + dy * dy <= size * size * 0.25)) {
+                        expCovered[y][x] = true;
+                    }
+                }
+            }
+
+            checkCovered("size " + size, expCovered, spanBrush(new BrushStamp(size), posX, posY));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package paintpanels;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class StrokeQueueTest {
+
+    public StrokeQueueTest() {
+    }
+
+    /**
+     * Drain the queue and return the stamped positions, in order, as "x,y".
+     */
+    private static List<String> drain(StrokeQueue queue, int spacing) {
+        List<String> stamps = new ArrayList<>();
+        queue.drain(spacing, (x, y) -> stamps.add(x + "," + y));
+        return stamps;
+    }
+
+    /**
+     * Test of add and drain methods, of class StrokeQueue.
+     */
+    @Test
+    public void testDrain_01() {
+        final String testDescription = "----------drain_01----------\n"
+                + " Summary: Test of add and drain methods, of class StrokeQueue\n"
+                + " Description: Queue a horizontal and a vertical segment and drain them with a spacing of 1.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: every pixel after the start is stamped, in the order of the segments, and the queue is empty.\n";
+        System.out.println(testDescription);
+
+        StrokeQueue queue = new StrokeQueue();
+        queue.start(0, 0, 1, (x, y) -> fail("nothing is pending"));
+        queue.add(3, 0);
+        queue.add(3, 2);
+        assertFalse(queue.isEmpty());
+
+        List<String> expResult = List.of("1,0", "2,0", "3,0", "3,1", "3,2");
+        assertEquals(expResult, drain(queue, 1));
+        assertTrue(queue.isEmpty());
+        assertEquals(List.of(), drain(queue, 1));
+    }
+
+    /**
+     * Test of drain method, of class StrokeQueue.
+     */
+    @Test
+    public void testDrain_02() {
+        final String testDescription = "----------drain_02----------\n"
+                + " Summary: Test of drain method, of class StrokeQueue\n"
+                + " Description: Drain a diagonal and a horizontal segment with a spacing of 3.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: a stamp every 3 pixels of each segment and always at the end of each segment.\n";
+        System.out.println(testDescription);
+
+        StrokeQueue queue = new StrokeQueue();
+        queue.start(10, 10, 3, (x, y) -> fail("nothing is pending"));
+        queue.add(17, 17);
+        queue.add(12, 17);
+
+        List<String> expResult = List.of("13,13", "16,16", "17,17", "14,17", "12,17");
+        assertEquals(expResult, drain(queue, 3));
+    }
+
+    /**
+     * Test of drain method, of class StrokeQueue.
+     */
+    @Test
+    public void testDrain_03() {
+        final String testDescription = "----------drain_03----------\n"
+                + " Summary: Test of drain method, of class StrokeQueue\n"
+                + " Description: Queue more positions than the initial capacity and drain them in two batches.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: all the positions are stamped in the order they were queued and the second batch continues from the end of the first.\n";
+        System.out.println(testDescription);
+
+        StrokeQueue queue = new StrokeQueue();
+        queue.start(0, 0, 1, (x, y) -> fail("nothing is pending"));
+
+        List<String> expResult = new ArrayList<>();
+        for (int x = 1; x <= 200; x++) {
+            queue.add(x, 0);
+            expResult.add(x + ",0");
+        }
+        assertEquals(expResult, drain(queue, 1));
+
+        queue.add(200, 2);
+        assertEquals(List.of("200,1", "200,2"), drain(queue, 1));
+    }
+
+    /**
+     * Test of start method, of class StrokeQueue.
+     */
+    @Test
+    public void testStart_01() {
+        final String testDescription = "----------start_01----------\n"
+                + " Summary: Test of start method, of class StrokeQueue\n"
+                + " Description: Start a new stroke while positions of the previous stroke are still pending.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: the pending positions are stamped by start and the new stroke begins at its own start position.\n";
+        System.out.println(testDescription);
+
+        StrokeQueue queue = new StrokeQueue();
+        queue.start(0, 0, 1, (x, y) -> fail("nothing is pending"));
+        queue.add(2, 0);
+
+        List<String> stamps = new ArrayList<>();
+        queue.start(50, 50, 1, (x, y) -> stamps.add(x + "," + y));
+        assertEquals(List.of("1,0", "2,0"), stamps);
+        assertTrue(queue.isEmpty());
+
+        queue.add(50, 52);
+        assertEquals(List.of("50,51", "50,52"), drain(queue, 1));
+    }
+}
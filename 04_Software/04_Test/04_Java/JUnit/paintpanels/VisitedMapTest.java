@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package paintpanels;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class VisitedMapTest {
+
+    public VisitedMapTest() {
+    }
+
+    /**
+     * Check that the map has the same visited pixels as the reference.
+     */
+    private static void checkMap(boolean[][] expVisited, VisitedMap instance) {
+        for (int x = 0; x < expVisited.length; x++) {
+            for (int y = 0; y < expVisited[0].length; y++) {
+                assertEquals("pixel " + x + "," + y, expVisited[x][y], instance.get(x, y));
+            }
+        }
+    }
+
+    /**
+     * Test of set, testAndSet and clear methods, of class VisitedMap.
+     */
+    @Test
+    public void testSetClear_01() {
+        final String testDescription = "----------setClear_01----------\n"
+                + " Summary: Test of set, testAndSet, clear and get methods, of class VisitedMap\n"
+                + " Description: Mark and clear random pixels of maps which are not a multiple of the tile size.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The map has the same visited pixels as a boolean matrix changed the same way;"
+                + " testAndSet and clear report if the pixel changed.\n";
+        System.out.println(testDescription);
+
+        int[][] sizes = {{1, 1}, {63, 65}, {200, 130}};
+        Random rand = new Random(11);
+
+        for (int[] size : sizes) {
+            VisitedMap instance = new VisitedMap(size[0], size[1]);
+            boolean[][] expVisited = new boolean[size[0]][size[1]];
+
+            for (int step = 0; step < 5000; step++) {
+                int x = rand.nextInt(size[0]);
+                int y = rand.nextInt(size[1]);
+
+                switch (rand.nextInt(3)) {
+                    case 0:
+                        instance.set(x, y);
+                        expVisited[x][y] = true;
+                        break;
+                    case 1:
+                        assertEquals(!expVisited[x][y], instance.testAndSet(x, y));
+                        expVisited[x][y] = true;
+                        break;
+                    default:
+                        assertEquals(expVisited[x][y], instance.clear(x, y));
+                        expVisited[x][y] = false;
+                        break;
+                }
+            }
+
+            checkMap(expVisited, instance);
+        }
+    }
+
+    /**
+     * Test of get method, of class VisitedMap.
+     */
+    @Test
+    public void testGet_01() {
+        final String testDescription = "----------get_01----------\n"
+                + " Summary: Test of set and get methods, of class VisitedMap\n"
+                + " Description: Mark the pixels on the borders of the tiles.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Only the marked pixels are visited; the pixels having the same position in the"
+                + " neighbouring tiles are not.\n";
+        System.out.println(testDescription);
+
+        VisitedMap instance = new VisitedMap(150, 140);
+        instance.set(63, 0);
+        instance.set(0, 63);
+        instance.set(64, 64);
+        instance.set(149, 139);
+
+        boolean[][] expVisited = new boolean[150][140];
+        expVisited[63][0] = true;
+        expVisited[0][63] = true;
+        expVisited[64][64] = true;
+        expVisited[149][139] = true;
+        checkMap(expVisited, instance);
+
+        // the bits of a row are shared only inside a tile
+        assertFalse(instance.get(127, 0));
+        assertFalse(instance.get(0, 127));
+        assertFalse(instance.get(0, 0));
+        assertFalse(instance.get(128, 128));
+    }
+
+    /**
+     * Test of clearAll method, of class VisitedMap.
+     */
+    @Test
+    public void testClearAll_01() {
+        final String testDescription = "----------clearAll_01----------\n"
+                + " Summary: Test of clearAll method, of class VisitedMap\n"
+                + " Description: Mark one pixel in each tile of a big map, clear the map and reuse it, two times.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: After each clear no pixel is visited and the map can be marked again.\n";
+        System.out.println(testDescription);
+
+        VisitedMap instance = new VisitedMap(1000, 700);
+        boolean[][] expVisited = new boolean[1000][700];
+
+        for (int round = 0; round < 2; round++) {
+            for (int x = round; x < 1000; x += 64) {
+                for (int y = 2 * round; y < 700; y += 64) {
+                    assertTrue(instance.testAndSet(x, y));
+                }
+            }
+
+            instance.clearAll();
+            checkMap(expVisited, instance);
+        }
+
+        instance.set(999, 699);
+        assertTrue(instance.get(999, 699));
+        assertFalse(instance.get(998, 699));
+    }
+
+    /**
+     * Test of hasSize method, of class VisitedMap.
+     */
+    @Test
+    public void testHasSize_01() {
+        final String testDescription = "----------hasSize_01----------\n"
+                + " Summary: Test of hasSize, getWidth and getHeight methods, of class VisitedMap\n"
+                + " Description: Check the size of a map against the same and other sizes.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The map reports only its own size.\n";
+        System.out.println(testDescription);
+
+        VisitedMap instance = new VisitedMap(640, 480);
+        assertTrue(instance.hasSize(640, 480));
+        assertFalse(instance.hasSize(480, 640));
+        assertFalse(instance.hasSize(640, 481));
+        assertEquals(640, instance.getWidth());
+        assertEquals(480, instance.getHeight());
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import common.ConstantsLabeling;
+import commonsegmentation.ScribbleInfo;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class CpuMattingTest {
+
+    private static final int SIZE = 96;
+    private static final int CENTER = SIZE / 2;
+    private static final int RADIUS = SIZE / 4;
+
+    public CpuMattingTest() {
+    }
+
+    /**
+     * Create an image with a disc on a background of a different color, both
+     * with noise.
+     */
+    private static BufferedImage createImage() {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(3);
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int value = (isInside(x, y, RADIUS) ? 170 : 60) + random.nextInt(40);
+                image.setRGB(x, y, (value << 16) | ((255 - value) << 8) | (value / 2));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Checks if the pixel is inside the disc of the given radius, around the
+     * center of the image.
+     */
+    private static boolean isInside(int x, int y, int radius) {
+        return (x - CENTER) * (x - CENTER) + (y - CENTER) * (y - CENTER) < radius * radius;
+    }
+
+    /**
+     * An object scribble inside the disc and a background scribble along the
+     * border of the image.
+     */
+    private static List<ScribbleInfo> createScribbles() {
+        List<ScribbleInfo> scribbles = new ArrayList<>();
+        for (int pos = 0; pos < SIZE; pos++) {
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_BACKGROUND, new Point(pos, 2), new Point(pos, 2)));
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_BACKGROUND, new Point(2, pos), new Point(2, pos)));
+        }
+        for (int pos = CENTER - RADIUS / 2; pos < CENTER + RADIUS / 2; pos++) {
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_OBJECT, new Point(pos, CENTER), new Point(pos, CENTER)));
+        }
+        return scribbles;
+    }
+
+    /**
+     * Run the matting with the given sparse ratio.
+     */
+    private static byte[][] runMatting(byte[][] initialMap, byte[][] band, float sparseFreeRatio) {
+        CpuMatting matting = new CpuMatting(createImage(), createScribbles(), initialMap, band);
+        matting.setSparseFreeRatio(sparseFreeRatio);
+        return matting.runMattingAlgo();
+    }
+
+    /**
+     * Test of runMattingAlgo method, of class CpuMatting.
+     */
+    @Test
+    public void testRunMattingAlgo_01() {
+        final String testDescription = "----------runMattingAlgo_01----------\n"
+                + " Summary: Test of runMattingAlgo() method, of class CpuMatting\n"
+                + " Description: Refine a coarse disc in a thin band around its border, once with the sparse and\n"
+                + "              once with the dense optimization.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Both paths give the same mask, which follows the disc of the image.\n";
+        System.out.println(testDescription);
+
+        // the coarse map is a bit too big; the band covers the real border
+        byte[][] initialMap = new byte[SIZE][SIZE];
+        byte[][] band = new byte[SIZE][SIZE];
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                initialMap[x][y] = (byte) (isInside(x, y, RADIUS + 2) ? 1 : 0);
+                band[x][y] = (byte) ((isInside(x, y, RADIUS + 6) && !isInside(x, y, RADIUS - 4)) ? 1 : 0);
+            }
+        }
+
+        byte[][] sparse = runMatting(initialMap, band, 2.0f);
+        byte[][] dense = runMatting(initialMap, band, 0.0f);
+
+        for (int x = 0; x < SIZE; x++) {
+            assertArrayEquals(dense[x], sparse[x]);
+        }
+
+        // the refinement moved the border back to the disc
+        assertEquals(1, sparse[CENTER + RADIUS - 2][CENTER]);
+        assertEquals(0, sparse[CENTER + RADIUS + 1][CENTER]);
+        assertEquals(1, sparse[CENTER][CENTER]);
+        assertEquals(0, sparse[5][5]);
+    }
+
+    /**
+     * Test of runMattingAlgo method, of class CpuMatting.
+     */
+    @Test
+    public void testRunMattingAlgo_02() {
+        final String testDescription = "----------runMattingAlgo_02----------\n"
+                + " Summary: Test of runMattingAlgo() method, of class CpuMatting\n"
+                + " Description: Segment the whole image, once with the sparse and once with the dense optimization.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Both paths give the same mask.\n";
+        System.out.println(testDescription);
+
+        byte[][] sparse = runMatting(null, null, 2.0f);
+        byte[][] dense = runMatting(null, null, 0.0f);
+
+        for (int x = 0; x < SIZE; x++) {
+            assertArrayEquals(dense[x], sparse[x]);
+        }
+    }
+
+    /**
+     * Create an image whose left part is reddish and right part is bluish,
+     * both with noise.
+     */
+    private static BufferedImage createTwoRegionImage(int width, int height, int border) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(5);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(30);
+                image.setRGB(x, y, (x < border) ? ((200 + noise) << 16) | (40 << 8) | (30 + noise) : ((30 + noise) << 16) | (60 << 8) | (200 + noise));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Test of runMattingAlgo method, of class CpuMatting.
+     */
+    @Test
+    public void testRunMattingAlgo_03() {
+        final String testDescription = "----------runMattingAlgo_03----------\n"
+                + " Summary: Test of runMattingAlgo() method, of class CpuMatting\n"
+                + " Description: Segment an image made of a reddish and a bluish region, with a short object\n"
+                + "              scribble in the red region and a short background scribble in the blue one.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The red region is the object and the blue region is the background.\n";
+        System.out.println(testDescription);
+
+        List<ScribbleInfo> scribbles = new ArrayList<>();
+        for (int y = 20; y < 40; y++) {
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_OBJECT, new Point(15, y), new Point(15, y)));
+            scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_BACKGROUND, new Point(60, y), new Point(60, y)));
+        }
+
+        byte[][] objMap = new CpuMatting(createTwoRegionImage(80, 60, 36), scribbles).runMattingAlgo();
+
+        for (int x = 0; x < 80; x++) {
+            for (int y = 0; y < 60; y++) {
+                assertEquals("pixel " + x + ", " + y, (x < 36) ? 1 : 0, objMap[x][y]);
+            }
+        }
+    }
+
+    /**
+     * Test of runMattingAlgo method, of class CpuMatting.
+     */
+    @Test
+    public void testRunMattingAlgo_04() {
+        final String testDescription = "----------runMattingAlgo_04----------\n"
+                + " Summary: Test of runMattingAlgo() method, of class CpuMatting\n"
+                + " Description: Segment the two region image with more scribbles than the number of samples of\n"
+                + "              the color distributions, some of them drawn twice or outside the image.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The scribbles are sampled and the red region is still the object.\n";
+        System.out.println(testDescription);
+
+        List<ScribbleInfo> scribbles = new ArrayList<>();
+        for (int y = 0; y < 60; y++) {
+            for (int x = 0; x < 20; x++) {
+                scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_OBJECT, new Point(x, y), new Point(x, y)));
+                scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_BACKGROUND, new Point(79 - x, y), new Point(79 - x, y)));
+            }
+        }
+        scribbles.addAll(new ArrayList<>(scribbles.subList(0, 100)));
+        scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_OBJECT, new Point(-1, 3), new Point(-1, 3)));
+        scribbles.add(new ScribbleInfo(ConstantsLabeling.ACTION_TYPE_BACKGROUND, new Point(80, 3), new Point(80, 3)));
+
+        byte[][] objMap = new CpuMatting(createTwoRegionImage(80, 60, 36), scribbles).runMattingAlgo();
+
+        for (int x = 0; x < 80; x++) {
+            for (int y = 0; y < 60; y++) {
+                assertEquals("pixel " + x + ", " + y, (x < 36) ? 1 : 0, objMap[x][y]);
+            }
+        }
+    }
+}
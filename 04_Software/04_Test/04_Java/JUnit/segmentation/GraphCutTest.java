@@ -0,0 +1,311 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import common.ConstantsLabeling;
+import commonsegmentation.ScribbleInfo;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class GraphCutTest {
+
+    private static final int WIDTH = 48;
+    private static final int HEIGHT = 36;
+
+    public GraphCutTest() {
+    }
+
+    /**
+     * Create an image with a bright disc on a dark background, both with
+     * blurred noise, so the capacities of the links differ everywhere.
+     */
+    private static BufferedImage createImage(long seed) {
+        Random random = new Random(seed);
+        int[] noise = new int[WIDTH * HEIGHT];
+        for (int index = 0; index < noise.length; index++) {
+            noise[index] = random.nextInt(80);
+        }
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if ((x + dx >= 0) && (x + dx < WIDTH) && (y + dy >= 0) && (y + dy < HEIGHT)) {
+                            sum += noise[(y + dy) * WIDTH + x + dx];
+                            count++;
+                        }
+                    }
+                }
+
+                boolean inside = (x - 24) * (x - 24) + (y - 18) * (y - 18) < 11 * 11;
+                int value = (inside ? 150 : 40) + sum / count;
+                image.setRGB(x, y, (value << 16) | (value << 8) | (255 - value));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Add a scribble of the given type, for each pixel of the horizontal line.
+     */
+    private static void addLine(List<ScribbleInfo> scribbles, int type, int y, int xStart, int xEnd) {
+        for (int x = xStart; x < xEnd; x++) {
+            scribbles.add(new ScribbleInfo(type, new Point(x, y), new Point(x, y)));
+        }
+    }
+
+    /**
+     * An object scribble inside the disc and a background scribble along the
+     * top and bottom border.
+     */
+    private static List<ScribbleInfo> createScribbles() {
+        List<ScribbleInfo> scribbles = new ArrayList<>();
+        addLine(scribbles, ConstantsLabeling.ACTION_TYPE_OBJECT, 18, 20, 28);
+        addLine(scribbles, ConstantsLabeling.ACTION_TYPE_BACKGROUND, 1, 0, WIDTH);
+        addLine(scribbles, ConstantsLabeling.ACTION_TYPE_BACKGROUND, HEIGHT - 2, 0, WIDTH);
+        return scribbles;
+    }
+
+    /**
+     * Returns the neighbour of the node in the given direction, or -1 if it is
+     * outside the image; direction 0 = right, 1 = down, 2 = left, 3 = up.
+     */
+    private static int neighbour(int node, int direction) {
+        int x = node % WIDTH;
+        int y = node / WIDTH;
+        switch (direction) {
+            case 0:
+                return (x + 1 < WIDTH) ? node + 1 : -1;
+            case 1:
+                return (y + 1 < HEIGHT) ? node + WIDTH : -1;
+            case 2:
+                return (x > 0) ? node - 1 : -1;
+            default:
+                return (y > 0) ? node - WIDTH : -1;
+        }
+    }
+
+    /**
+     * Compute the value of the flow: the flow leaving the source through the
+     * terminal links.
+     */
+    private static long flowValue(GraphCut graphCut) {
+        int[] terminalCap = graphCut.getTerminalCapacities();
+        int[] terminalResidual = graphCut.getTerminalResidual();
+        long flow = 0;
+        for (int node = 0; node < WIDTH * HEIGHT; node++) {
+            flow += Math.max(0, terminalCap[node] - terminalResidual[node]);
+        }
+        return flow;
+    }
+
+    /**
+     * Compute the capacity of the cut given by the object map: the terminal
+     * links of the nodes on the wrong side plus the links from the object to
+     * the background. The residual capacities of the two directions of a link
+     * always add up to twice its capacity.
+     */
+    private static long cutCapacity(GraphCut graphCut, byte[][] objMap) {
+        int[] terminalCap = graphCut.getTerminalCapacities();
+        int[] residual = graphCut.getResidual();
+        long capacity = 0;
+
+        for (int node = 0; node < WIDTH * HEIGHT; node++) {
+            boolean object = objMap[node % WIDTH][node / WIDTH] != 0;
+            if (object && (terminalCap[node] < 0)) {
+                capacity -= terminalCap[node];
+            } else if (!object && (terminalCap[node] > 0)) {
+                capacity += terminalCap[node];
+            }
+
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighbour(node, direction);
+                if (object && (next >= 0) && (objMap[next % WIDTH][next / WIDTH] == 0)) {
+                    capacity += (residual[4 * node + direction] + residual[4 * next + (direction + 2) % 4]) / 2;
+                }
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * Find the nodes reachable from the source in the residual graph.
+     */
+    private static boolean[] reachableFromSource(GraphCut graphCut) {
+        int[] terminalResidual = graphCut.getTerminalResidual();
+        int[] residual = graphCut.getResidual();
+        boolean[] reached = new boolean[WIDTH * HEIGHT];
+        Deque<Integer> queue = new ArrayDeque<>();
+
+        for (int node = 0; node < WIDTH * HEIGHT; node++) {
+            if (terminalResidual[node] > 0) {
+                reached[node] = true;
+                queue.add(node);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int direction = 0; direction < 4; direction++) {
+                int next = neighbour(node, direction);
+                if ((next >= 0) && !reached[next] && (residual[4 * node + direction] > 0)) {
+                    reached[next] = true;
+                    queue.add(next);
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Check that the flow of the last run is maximal and that the object map
+     * is its minimum cut.
+     */
+    private static void assertMaxFlowMinCut(GraphCut graphCut, byte[][] objMap) {
+        boolean[] reached = reachableFromSource(graphCut);
+        int[] terminalResidual = graphCut.getTerminalResidual();
+
+        for (int node = 0; node < WIDTH * HEIGHT; node++) {
+            assertFalse("augmenting path to node " + node, reached[node] && (terminalResidual[node] < 0));
+            assertEquals("side of node " + node, reached[node], objMap[node % WIDTH][node / WIDTH] != 0);
+        }
+
+        assertEquals(flowValue(graphCut), cutCapacity(graphCut, objMap));
+    }
+
+    /**
+     * Test of segment method, of class GraphCut.
+     */
+    @Test
+    public void testSegment_01() {
+        final String testDescription = "----------segment_01----------\n"
+                + " Summary: Test of segment(BufferedImage, List) method, of class GraphCut\n"
+                + " Description: Segment a disc on a background, both with blurred noise.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: No augmenting path is left in the residual graph, the object is the set of\n"
+                + "                  nodes reachable from the source and the capacity of the cut equals the flow.\n";
+        System.out.println(testDescription);
+
+        long totalFlow = 0;
+        for (long seed = 0; seed < 5; seed++) {
+            GraphCut graphCut = new GraphCut();
+            byte[][] objMap = graphCut.segment(createImage(seed), createScribbles());
+
+            assertMaxFlowMinCut(graphCut, objMap);
+            assertEquals(1, objMap[24][18]);
+            assertEquals(0, objMap[2][HEIGHT / 2]);
+            totalFlow += flowValue(graphCut);
+        }
+
+        // the links across the strong border of the disc may round to 0, but not all the cuts are free
+        assertTrue(totalFlow > 0);
+    }
+
+    /**
+     * Test of segment method, of class GraphCut.
+     */
+    @Test
+    public void testSegment_02() {
+        final String testDescription = "----------segment_02----------\n"
+                + " Summary: Test of segment(BufferedImage, List) method, of class GraphCut\n"
+                + " Description: Segment the same image again after adding background scribbles, after removing\n"
+                + "              the object scribbles and after adding them back, reusing the flow of the previous\n"
+                + "              run, and compare each result with a new solver.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The incremental solve gives the same object map and flow as the fresh solve,\n"
+                + "                  and its flow is maximal.\n";
+        System.out.println(testDescription);
+
+        BufferedImage image = createImage(7);
+        List<ScribbleInfo> scribbles = createScribbles();
+        GraphCut incremental = new GraphCut();
+        incremental.segment(image, scribbles);
+
+        List<List<ScribbleInfo>> edits = new ArrayList<>();
+        List<ScribbleInfo> moreBackground = new ArrayList<>(scribbles);
+        addLine(moreBackground, ConstantsLabeling.ACTION_TYPE_BACKGROUND, 18, 0, 10);
+        edits.add(moreBackground);
+
+        List<ScribbleInfo> noObject = new ArrayList<>(moreBackground);
+        noObject.removeIf(scribble -> scribble.getDrawingType() == ConstantsLabeling.ACTION_TYPE_OBJECT);
+        edits.add(noObject);
+        edits.add(scribbles);
+
+        for (List<ScribbleInfo> edit : edits) {
+            byte[][] incrementalMap = incremental.segment(image, edit);
+            GraphCut fresh = new GraphCut();
+            byte[][] freshMap = fresh.segment(image, edit);
+
+            assertMaxFlowMinCut(incremental, incrementalMap);
+            assertEquals(flowValue(fresh), flowValue(incremental));
+            for (int x = 0; x < WIDTH; x++) {
+                assertArrayEquals(freshMap[x], incrementalMap[x]);
+            }
+        }
+    }
+
+    /**
+     * Test of segment method, of class GraphCut.
+     */
+    @Test
+    public void testSegment_03() {
+        final String testDescription = "----------segment_03----------\n"
+                + " Summary: Test of segment(BufferedImage, List) method, of class GraphCut\n"
+                + " Description: Segment a different image with the same solver.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The graph is built again and the result equals the one of a new solver.\n";
+        System.out.println(testDescription);
+
+        GraphCut reused = new GraphCut();
+        reused.segment(createImage(1), createScribbles());
+
+        BufferedImage image = createImage(2);
+        byte[][] reusedMap = reused.segment(image, createScribbles());
+        byte[][] freshMap = new GraphCut().segment(image, createScribbles());
+
+        assertMaxFlowMinCut(reused, reusedMap);
+        for (int x = 0; x < WIDTH; x++) {
+            assertArrayEquals(freshMap[x], reusedMap[x]);
+        }
+    }
+}
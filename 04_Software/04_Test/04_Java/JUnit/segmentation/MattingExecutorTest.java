@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import commonsegmentation.ScribbleInfo;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import observers.ObservedActions;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class MattingExecutorTest {
+
+    /**
+     * The time, in seconds, to wait for a job before failing the test.
+     */
+    private static final long TIMEOUT_SEC = 10;
+
+    /**
+     * The number of stub engines created, giving each one a unique name, so
+     * the results are never taken from the matting cache.
+     */
+    private static final AtomicInteger ENGINE_COUNT = new AtomicInteger();
+
+    public MattingExecutorTest() {
+    }
+
+    /**
+     * An engine which calls the given action before returning an empty map.
+     */
+    private static class StubEngine implements SegmentationEngine {
+
+        private final String name = "Stub" + ENGINE_COUNT.incrementAndGet();
+        private final Runnable action;
+
+        /**
+         * @param action the work of the engine
+         */
+        StubEngine(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles) {
+            action.run();
+            return new byte[image.getWidth()][image.getHeight()];
+        }
+    }
+
+    /**
+     * Create a matting job running the given action, which counts down the
+     * latch when its result is delivered.
+     */
+    private static MattingThreading createJob(Runnable action, CountDownLatch delivered) {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        MattingThreading job = new MattingThreading(new StubEngine(action), image, new ArrayList<>(), ObservedActions.Action.DO_NOTHING);
+        job.addObserver((observable, arg) -> delivered.countDown());
+        return job;
+    }
+
+    /**
+     * Wait for the latch, failing the test on timeout.
+     */
+    private static void await(CountDownLatch latch, String what) throws InterruptedException {
+        assertTrue("timeout waiting for " + what, latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test of submit method, of class MattingExecutor.
+     */
+    @Test
+    public void testSubmit_01() throws Exception {
+        final String testDescription = "----------submit_01----------\n"
+                + " Summary: Test of submit method, of class MattingExecutor\n"
+                + " Description: Submit a job while the previous one runs; the previous job ignores the interruption and finishes after the new one.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: the result of the new job is delivered and the result of the old job is never delivered.\n";
+        System.out.println(testDescription);
+
+        CountDownLatch oldStarted = new CountDownLatch(1);
+        CountDownLatch oldRelease = new CountDownLatch(1);
+        CountDownLatch oldDelivered = new CountDownLatch(1);
+        CountDownLatch newDelivered = new CountDownLatch(1);
+
+        MattingThreading oldJob = createJob(() -> {
+            oldStarted.countDown();
+            // finish the job even if it is interrupted, as a native engine would
+            boolean released = false;
+            while (!released) {
+                try {
+                    released = oldRelease.await(TIMEOUT_SEC, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    // keep waiting for the release
+                }
+            }
+        }, oldDelivered);
+        MattingThreading newJob = createJob(() -> {
+        }, newDelivered);
+
+        MattingExecutor instance = new MattingExecutor();
+        instance.submit(oldJob);
+        await(oldStarted, "the old job to start");
+
+        instance.submit(newJob);
+
+        // let the old job finish; the pool may have a single thread, busy with it
+        oldRelease.countDown();
+        await(newDelivered, "the result of the new job");
+
+        // wait for the delivery the old job may have posted on the EDT
+        long deadline = System.currentTimeMillis() + 500;
+        while ((oldJob.getObjMap() == null) || (System.currentTimeMillis() < deadline)) {
+            SwingUtilities.invokeAndWait(() -> {
+            });
+            Thread.sleep(20);
+        }
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertEquals(1, oldDelivered.getCount());
+    }
+
+    /**
+     * Test of cancel method, of class MattingExecutor.
+     */
+    @Test
+    public void testCancel_01() throws Exception {
+        final String testDescription = "----------cancel_01----------\n"
+                + " Summary: Test of cancel method, of class MattingExecutor\n"
+                + " Description: Cancel a job waiting in the queue of the shared pool, while all the threads of the pool are busy.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: the cancelled job is never run and its result is never delivered.\n";
+        System.out.println(testDescription);
+
+        Semaphore blockers = new Semaphore(0);
+        CountDownLatch blockersStarted = new CountDownLatch(MattingExecutor.MAX_CONCURRENT_JOBS);
+        CountDownLatch blockersDone = new CountDownLatch(MattingExecutor.MAX_CONCURRENT_JOBS);
+        CountDownLatch delivered = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        try {
+            for (int i = 0; i < MattingExecutor.MAX_CONCURRENT_JOBS; i++) {
+                MattingExecutor.getSharedPool().execute(() -> {
+                    blockersStarted.countDown();
+                    blockers.acquireUninterruptibly();
+                    blockersDone.countDown();
+                });
+            }
+            await(blockersStarted, "the pool to be busy");
+
+            MattingExecutor instance = new MattingExecutor();
+            instance.submit(createJob(runs::incrementAndGet, delivered));
+            instance.cancel();
+        } finally {
+            blockers.release(MattingExecutor.MAX_CONCURRENT_JOBS);
+        }
+
+        await(blockersDone, "the pool to be free");
+        MattingExecutor.getSharedPool().submit(() -> {
+        }).get(TIMEOUT_SEC, TimeUnit.SECONDS);
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertEquals(0, runs.get());
+        assertEquals(1, delivered.getCount());
+    }
+
+    /**
+     * Test of the order of the jobs, of class MattingExecutor.
+     */
+    @Test
+    public void testPriority_01() throws Exception {
+        final String testDescription = "----------priority_01----------\n"
+                + " Summary: Test of the order of the jobs, of class MattingExecutor\n"
+                + " Description: While all the threads of the shared pool are busy, queue two background jobs and then an interactive job; free one thread.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: the interactive job runs first, then the background jobs in the order they were queued.\n";
+        System.out.println(testDescription);
+
+        Semaphore blockers = new Semaphore(0);
+        CountDownLatch blockersStarted = new CountDownLatch(MattingExecutor.MAX_CONCURRENT_JOBS);
+        CountDownLatch allDone = new CountDownLatch(3);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            for (int i = 0; i < MattingExecutor.MAX_CONCURRENT_JOBS; i++) {
+                MattingExecutor.getSharedPool().execute(() -> {
+                    blockersStarted.countDown();
+                    blockers.acquireUninterruptibly();
+                });
+            }
+            await(blockersStarted, "the pool to be busy");
+
+            for (String name : new String[]{"background 1", "background 2"}) {
+                MattingExecutor.getSharedPool().execute(() -> {
+                    order.add(name);
+                    allDone.countDown();
+                });
+            }
+            MattingExecutor instance = new MattingExecutor();
+            instance.submit(createJob(() -> {
+                order.add("interactive");
+                allDone.countDown();
+            }, new CountDownLatch(1)));
+
+            // a single free thread runs the queued jobs one after the other
+            blockers.release();
+            await(allDone, "the queued jobs");
+        } finally {
+            blockers.release(MattingExecutor.MAX_CONCURRENT_JOBS);
+        }
+
+        List<String> expResult = List.of("interactive", "background 1", "background 2");
+        assertEquals(expResult, order);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import commonsegmentation.ScribbleInfo;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class SegmentationEnginesTest {
+
+    public SegmentationEnginesTest() {
+    }
+
+    /**
+     * Engine which sleeps the given time for each run, instead of segmenting.
+     */
+    private static class StubEngine implements SegmentationEngine {
+
+        private final String name;
+        private final long[] runTimes;
+        private int noRuns;
+
+        /**
+         * @param name     the name of the engine
+         * @param runTimes the time of each run, in milliseconds; the last one
+         *                 is used for all the following runs
+         */
+        StubEngine(String name, long... runTimes) {
+            this.name = name;
+            this.runTimes = runTimes;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles) {
+            try {
+                Thread.sleep(runTimes[Math.min(noRuns++, runTimes.length - 1)]);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new byte[image.getWidth()][image.getHeight()];
+        }
+    }
+
+    /**
+     * Test of benchmark method, of class SegmentationEngines.
+     */
+    @Test
+    public void testBenchmark_01() {
+        final String testDescription = "----------benchmark_01----------\n"
+                + " Summary: Test of benchmark(List) method, of class SegmentationEngines\n"
+                + " Description: Benchmark three engines having different constant run times.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The engines are sorted from the fastest to the slowest.\n";
+        System.out.println(testDescription);
+
+        StubEngine slow = new StubEngine("slow", 30);
+        StubEngine fast = new StubEngine("fast", 1);
+        StubEngine medium = new StubEngine("medium", 12);
+
+        List<SegmentationEngine> ranking = SegmentationEngines.benchmark(Arrays.asList(slow, fast, medium));
+        assertEquals(Arrays.asList(fast, medium, slow), ranking);
+    }
+
+    /**
+     * Test of benchmark method, of class SegmentationEngines.
+     */
+    @Test
+    public void testBenchmark_02() {
+        final String testDescription = "----------benchmark_02----------\n"
+                + " Summary: Test of benchmark(List) method, of class SegmentationEngines\n"
+                + " Description: Benchmark an engine which is very slow in its first run, as an engine loading its\n"
+                + "              native libraries, and an engine having one slow run among fast ones.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The first run is not timed and the outlier does not change the median, so\n"
+                + "                  both engines rank before an engine which is constantly slower.\n";
+        System.out.println(testDescription);
+
+        StubEngine steady = new StubEngine("steady", 15);
+        StubEngine coldStart = new StubEngine("coldStart", 300, 1);
+        StubEngine outlier = new StubEngine("outlier", 1, 1, 200, 1);
+
+        List<SegmentationEngine> ranking = SegmentationEngines.benchmark(Arrays.asList(steady, coldStart, outlier));
+        assertEquals(3, ranking.size());
+        assertSame(steady, ranking.get(2));
+    }
+
+    /**
+     * Test of benchmark method, of class SegmentationEngines.
+     */
+    @Test
+    public void testBenchmark_03() {
+        final String testDescription = "----------benchmark_03----------\n"
+                + " Summary: Test of benchmark(List) method, of class SegmentationEngines\n"
+                + " Description: Benchmark an engine which throws, one which cannot load its native library,\n"
+                + "              one which is not available and one which works.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Only the working engine is ranked; the failures do not stop the benchmark.\n";
+        System.out.println(testDescription);
+
+        StubEngine failing = new StubEngine("failing", 1) {
+            @Override
+            public byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles) {
+                throw new IllegalStateException("device lost");
+            }
+        };
+        StubEngine noLibrary = new StubEngine("noLibrary", 1) {
+            @Override
+            public byte[][] runMattingAlgo(BufferedImage image, List<ScribbleInfo> scribbles) {
+                throw new UnsatisfiedLinkError("no native library");
+            }
+        };
+        StubEngine unavailable = new StubEngine("unavailable", 1) {
+            @Override
+            public boolean isAvailable() {
+                return false;
+            }
+        };
+        StubEngine working = new StubEngine("working", 5);
+
+        List<SegmentationEngine> ranking = SegmentationEngines.benchmark(Arrays.asList(failing, noLibrary, unavailable, working));
+        assertEquals(Arrays.asList(working), ranking);
+    }
+
+    /**
+     * Test of benchmark method, of class SegmentationEngines.
+     */
+    @Test
+    public void testBenchmark_04() {
+        final String testDescription = "----------benchmark_04----------\n"
+                + " Summary: Test of benchmark(List) method, of class SegmentationEngines\n"
+                + " Description: Benchmark a fast engine which is not automatically selectable and a slower one.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The engine which runs only when it is pinned is not ranked.\n";
+        System.out.println(testDescription);
+
+        StubEngine pinnedOnly = new StubEngine("pinnedOnly", 1) {
+            @Override
+            public boolean isAutoSelectable() {
+                return false;
+            }
+        };
+        StubEngine slower = new StubEngine("slower", 5);
+
+        List<SegmentationEngine> ranking = SegmentationEngines.benchmark(Arrays.asList(pinnedOnly, slower));
+        assertEquals(Arrays.asList(slower), ranking);
+        assertEquals(0, pinnedOnly.noRuns);
+    }
+}
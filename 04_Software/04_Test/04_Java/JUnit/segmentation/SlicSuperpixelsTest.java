@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2017 Olimpia Popica, Benone Aligica
+ *
+ * Contact: contact[a(t)]annotate[(d){o}t]zone
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package segmentation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Olimpia Popica
+ */
+public class SlicSuperpixelsTest {
+
+    public SlicSuperpixelsTest() {
+    }
+
+    /**
+     * Create an image of blurred noise, with a bright rectangle.
+     */
+    private static BufferedImage createImage(int width, int height) {
+        Random random = new Random(11);
+        int[] noise = new int[width * height];
+        for (int index = 0; index < noise.length; index++) {
+            noise[index] = random.nextInt(120);
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int dy = -2; dy <= 2; dy++) {
+                    for (int dx = -2; dx <= 2; dx++) {
+                        if ((x + dx >= 0) && (x + dx < width) && (y + dy >= 0) && (y + dy < height)) {
+                            sum += noise[(y + dy) * width + x + dx];
+                            count++;
+                        }
+                    }
+                }
+
+                int value = sum / count + (((x > width / 3) && (y > height / 4) && (x < width / 2)) ? 120 : 0);
+                image.setRGB(x, y, (value << 16) | (value << 8) | (value / 2));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Check that every pixel has a label in [0, count), that every label is
+     * used and that the pixels of each label are 4-connected.
+     */
+    private static void assertValidSuperpixels(SlicSuperpixels superpixels) {
+        int width = superpixels.getWidth();
+        int[] labels = superpixels.getLabels();
+        int count = superpixels.getCount();
+        assertEquals(width * superpixels.getHeight(), labels.length);
+
+        int[] sizes = new int[count];
+        int[] firstPixel = new int[count];
+        for (int index = labels.length - 1; index >= 0; index--) {
+            assertTrue("label of pixel " + index, (labels[index] >= 0) && (labels[index] < count));
+            sizes[labels[index]]++;
+            firstPixel[labels[index]] = index;
+        }
+
+        boolean[] visited = new boolean[labels.length];
+        for (int label = 0; label < count; label++) {
+            assertTrue("label " + label + " is not used", sizes[label] > 0);
+
+            // flood fill the superpixel from its first pixel
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(firstPixel[label]);
+            visited[firstPixel[label]] = true;
+            int reached = 0;
+
+            while (!queue.isEmpty()) {
+                int pixel = queue.poll();
+                reached++;
+                int x = pixel % width;
+                int[] neighbours = {(x + 1 < width) ? pixel + 1 : -1, (x > 0) ? pixel - 1 : -1,
+                    (pixel + width < labels.length) ? pixel + width : -1, pixel - width};
+                for (int neighbour : neighbours) {
+                    if ((neighbour >= 0) && !visited[neighbour] && (labels[neighbour] == label)) {
+                        visited[neighbour] = true;
+                        queue.add(neighbour);
+                    }
+                }
+            }
+
+            assertEquals("superpixel " + label + " is not connected", sizes[label], reached);
+        }
+    }
+
+    /**
+     * Test of compute method, of class SlicSuperpixels.
+     */
+    @Test
+    public void testCompute_01() {
+        final String testDescription = "----------compute_01----------\n"
+                + " Summary: Test of compute(BufferedImage, int) method, of class SlicSuperpixels\n"
+                + " Description: Compute the superpixels of a 200x120 image of blurred noise, with size 16.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Every pixel is labeled, the superpixels are connected and their number is\n"
+                + "                  close to the number of initial centers (13 x 8).\n";
+        System.out.println(testDescription);
+
+        SlicSuperpixels superpixels = SlicSuperpixels.compute(createImage(200, 120), 16);
+
+        assertEquals(200, superpixels.getWidth());
+        assertEquals(120, superpixels.getHeight());
+        assertValidSuperpixels(superpixels);
+        assertTrue("count " + superpixels.getCount(), (superpixels.getCount() >= 13 * 8 / 2) && (superpixels.getCount() <= 13 * 8 * 2));
+    }
+
+    /**
+     * Test of compute method, of class SlicSuperpixels.
+     */
+    @Test
+    public void testCompute_02() {
+        final String testDescription = "----------compute_02----------\n"
+                + " Summary: Test of compute(BufferedImage, int) method, of class SlicSuperpixels\n"
+                + " Description: Compute the superpixels of images smaller than, or not multiple of, the size.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: Every pixel is labeled and the superpixels are connected.\n";
+        System.out.println(testDescription);
+
+        assertValidSuperpixels(SlicSuperpixels.compute(createImage(5, 7), 16));
+        assertValidSuperpixels(SlicSuperpixels.compute(createImage(37, 53), 16));
+        assertValidSuperpixels(SlicSuperpixels.compute(createImage(1, 40), 8));
+    }
+
+    /**
+     * Test of crop method, of class SlicSuperpixels.
+     */
+    @Test
+    public void testCrop_01() {
+        final String testDescription = "----------crop_01----------\n"
+                + " Summary: Test of crop(Rectangle) method, of class SlicSuperpixels\n"
+                + " Description: Crop the superpixels of an image, partly outside of it.\n"
+                + " Pre-conditions: none\n"
+                + " Conditions: none\n"
+                + " Expected result: The crop is clipped to the image, its labels are numbered from 0 and the\n"
+                + "                  pixels having the same label in the image have the same label in the crop.\n";
+        System.out.println(testDescription);
+
+        SlicSuperpixels superpixels = SlicSuperpixels.compute(createImage(120, 90), 16);
+        SlicSuperpixels crop = superpixels.crop(new Rectangle(70, 50, 80, 80));
+
+        assertEquals(50, crop.getWidth());
+        assertEquals(40, crop.getHeight());
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 50; x++) {
+                int label = crop.getLabels()[y * 50 + x];
+                assertTrue((label >= 0) && (label < crop.getCount()));
+                if (x > 0) {
+                    boolean sameInImage = superpixels.getLabels()[(50 + y) * 120 + 70 + x] == superpixels.getLabels()[(50 + y) * 120 + 69 + x];
+                    assertEquals(sameInImage, label == crop.getLabels()[y * 50 + x - 1]);
+                }
+            }
+        }
+
+        assertNull(superpixels.crop(new Rectangle(200, 200, 10, 10)));
+    }
+}